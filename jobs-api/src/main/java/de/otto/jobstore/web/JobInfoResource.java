@@ -6,6 +6,8 @@ import de.otto.jobstore.service.JobService;
 import de.otto.jobstore.service.exception.*;
 import de.otto.jobstore.web.representation.JobInfoRepresentation;
 import de.otto.jobstore.web.representation.JobNameRepresentation;
+import de.otto.jobstore.web.representation.JobRequestOutcomeRepresentation;
+import de.otto.jobstore.web.representation.JobRequestRepresentation;
 import org.apache.abdera.Abdera;
 import org.apache.abdera.model.Entry;
 import org.apache.abdera.model.Feed;
@@ -26,6 +28,9 @@ public class JobInfoResource {
     public static final String OTTO_JOBS_XML  = "application/vnd.otto.jobs+xml";
     public static final String OTTO_JOBS_JSON = "application/vnd.otto.jobs+json";
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String CALLBACK_TOKEN_HEADER = "X-Callback-Token";
+
     public static final int MAX_LOG_LINES = 100;
 
     private final JobService jobService;
@@ -93,15 +98,18 @@ public class JobInfoResource {
 
     /**
      * Executes a job and its content location. You can provide parameters as normal query parameters.
-     * The service will fail if a query parameter has multiple or no values.
+     * The service will fail if a query parameter has multiple or no values. If the request is repeated with the
+     * same Idempotency-Key header the job is not executed again and the location of the existing job is returned.
      *
      * @param name The name of the job to execute
+     * @param idempotencyKey The key identifying the request, may be null
      * @param uriInfo The uriInfo injected by Jax-RS
      * @return The content location of the job
      */
     @POST
     @Path("/{name}")
-    public Response executeJob(@PathParam("name") final String name, @Context final UriInfo uriInfo)  {
+    public Response executeJob(@PathParam("name") final String name, @HeaderParam(IDEMPOTENCY_KEY_HEADER) final String idempotencyKey,
+                               @Context final UriInfo uriInfo)  {
         Map<String, String> parameters;
         try {
             parameters = extractFirstParameters(uriInfo.getQueryParameters());
@@ -109,7 +117,7 @@ public class JobInfoResource {
             return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         }
         try {
-            final String jobId = jobService.executeJob(name, JobExecutionPriority.FORCE_EXECUTION, parameters);
+            final String jobId = jobService.executeJob(name, JobExecutionPriority.FORCE_EXECUTION, parameters, idempotencyKey);
             final JobInfo jobInfo = jobInfoService.getById(jobId);
             final URI uri = uriInfo.getBaseUriBuilder().path(this.getClass()).path(jobInfo.getName()).path(jobId).build();
             return Response.created(uri).build();
@@ -121,11 +129,73 @@ public class JobInfoResource {
             return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
         } catch (JobAlreadyRunningException e) {
             return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+        } catch (JobAdmissionDeniedException e) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).header("Retry-After", e.getRetryAfterSeconds()).
+                    entity(e.getMessage()).build();
         } catch (JobServiceNotActiveException e) {
             return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         }
     }
 
+    /**
+     * Executes several jobs at once. The body contains a list of job requests, each with the name of the job and
+     * optionally its priority and parameters. The response contains the outcome of each request, the status of
+     * each outcome is the http status a single execution of the job would have resulted in.
+     *
+     * @param jobRequests The jobs to execute
+     * @param uriInfo The uriInfo injected by Jax-RS
+     * @return The outcome of each request
+     */
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response executeJobs(final List<JobRequestRepresentation> jobRequests, @Context final UriInfo uriInfo) {
+        if (jobRequests == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("job requests are missing").build();
+        }
+        final List<JobRequest> requests = new ArrayList<>();
+        for (JobRequestRepresentation jobRequest : jobRequests) {
+            if (jobRequest.getName() == null) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("name of job request is missing").build();
+            }
+            requests.add(jobRequest.toJobRequest());
+        }
+        try {
+            final List<JobRequestOutcomeRepresentation> outcomes = new ArrayList<>();
+            for (JobRequestOutcome outcome : jobService.executeJobs(requests)) {
+                if (outcome.isSuccessful()) {
+                    final URI uri = uriInfo.getBaseUriBuilder().path(this.getClass()).path(outcome.getRequest().getName()).
+                            path(outcome.getJobId()).build();
+                    outcomes.add(JobRequestOutcomeRepresentation.fromJobRequestOutcome(outcome, Response.Status.CREATED.getStatusCode(), uri.getPath()));
+                } else {
+                    outcomes.add(JobRequestOutcomeRepresentation.fromJobRequestOutcome(outcome, toStatus(outcome.getException()), null));
+                }
+            }
+            return Response.ok(outcomes).build();
+        } catch (JobExecutionDisabledException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED).entity(e.getMessage()).build();
+        } catch (JobServiceNotActiveException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
+    private int toStatus(JobException e) {
+        final Response.Status status;
+        if (e instanceof JobNotRegisteredException) {
+            status = Response.Status.NOT_FOUND;
+        } else if (e instanceof JobExecutionNotNecessaryException || e instanceof JobExecutionDisabledException) {
+            status = Response.Status.PRECONDITION_FAILED;
+        } else if (e instanceof JobAlreadyQueuedException || e instanceof JobAlreadyRunningException) {
+            status = Response.Status.CONFLICT;
+        } else if (e instanceof JobAdmissionDeniedException) {
+            status = Response.Status.SERVICE_UNAVAILABLE;
+        } else {
+            status = Response.Status.BAD_REQUEST;
+        }
+        return status.getStatusCode();
+    }
+
     Map<String, String> extractFirstParameters(MultivaluedMap<String, String> queryParameters) {
         Map<String, String> parameters = new HashMap<>();
         if(queryParameters == null) {
@@ -218,6 +288,23 @@ public class JobInfoResource {
         return Response.ok(buildStatusJson(executionEnabled)).build();
     }
 
+    /**
+     * Returns the metrics of the job store in the Prometheus text exposition format. Only available if a
+     * {@link PrometheusJobMetrics} instance was set on the JobService.
+     *
+     * @return The metrics or status 404 if no Prometheus metrics are recorded
+     */
+    @GET
+    @Path("/metrics")
+    @Produces(PrometheusJobMetrics.CONTENT_TYPE)
+    public Response getMetrics() {
+        final JobMetrics jobMetrics = jobService.getJobMetrics();
+        if (!(jobMetrics instanceof PrometheusJobMetrics)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(((PrometheusJobMetrics) jobMetrics).scrape(), PrometheusJobMetrics.CONTENT_TYPE).build();
+    }
+
     /**
      * Returns the job with the given name and id
      *
@@ -259,6 +346,35 @@ public class JobInfoResource {
         }
     }
 
+    /**
+     * Called by a remote job to report its status, which is applied immediately instead of at the next poll.
+     * The remote job has to present the callback token it received when it was started in the X-Callback-Token header.
+     *
+     * @param name The name of the job
+     * @param id The id of the job
+     * @param callbackToken The callback token issued for the job
+     * @param status The status of the remote job with all its log lines
+     */
+    @POST
+    @Path("/{name}/{id}/status")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response updateJobStatus(@PathParam("name") final String name, @PathParam("id") final String id,
+                                    @HeaderParam(CALLBACK_TOKEN_HEADER) final String callbackToken, final RemoteJobStatus status) {
+        if (status == null || status.status == null || (status.status == RemoteJobStatus.Status.FINISHED && status.result == null)) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Status is missing").build();
+        }
+        try {
+            jobService.updateRemoteJobStatus(name, id, callbackToken, status);
+            return Response.noContent().build();
+        } catch (JobNotRegisteredException e) {
+            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+        } catch (RemoteJobNotRunningException e) {
+            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+        } catch (InvalidCallbackTokenException e) {
+            return Response.status(Response.Status.FORBIDDEN).entity(e.getMessage()).build();
+        }
+    }
+
     private boolean isJobAbortable(JobInfo jobInfo) {
         JobDefinition jobDefinition = null;
         for (JobRunnable jobRunnable : jobService.listJobRunnables()) {
@@ -0,0 +1,54 @@
+package de.otto.jobstore.web.representation;
+
+import de.otto.jobstore.common.ExecutionMetrics;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+@XmlAccessorType(value = XmlAccessType.FIELD)
+public final class ExecutionMetricsRepresentation {
+
+    private Long cpuTime;
+    private Long allocatedBytes;
+    private Long prepareTime;
+    private Long executeTime;
+    private Long afterExecutionTime;
+
+    public ExecutionMetricsRepresentation() {}
+
+    private ExecutionMetricsRepresentation(Long cpuTime, Long allocatedBytes, Long prepareTime, Long executeTime, Long afterExecutionTime) {
+        this.cpuTime = cpuTime;
+        this.allocatedBytes = allocatedBytes;
+        this.prepareTime = prepareTime;
+        this.executeTime = executeTime;
+        this.afterExecutionTime = afterExecutionTime;
+    }
+
+    public Long getCpuTime() {
+        return cpuTime;
+    }
+
+    public Long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public Long getPrepareTime() {
+        return prepareTime;
+    }
+
+    public Long getExecuteTime() {
+        return executeTime;
+    }
+
+    public Long getAfterExecutionTime() {
+        return afterExecutionTime;
+    }
+
+    public static ExecutionMetricsRepresentation fromExecutionMetrics(ExecutionMetrics em) {
+        return new ExecutionMetricsRepresentation(em.getCpuTime(), em.getAllocatedBytes(), em.getPrepareTime(),
+                em.getExecuteTime(), em.getAfterExecutionTime());
+    }
+
+}
@@ -1,6 +1,8 @@
 package de.otto.jobstore.web.representation;
 
+import de.otto.jobstore.common.ExecutionMetrics;
 import de.otto.jobstore.common.JobInfo;
+import de.otto.jobstore.common.JobProgress;
 import de.otto.jobstore.common.LogLine;
 import de.otto.jobstore.common.ResultCode;
 
@@ -46,11 +48,27 @@ public final class JobInfoRepresentation {
 
     private List<LogLineRepresentation> logLines;
 
+    private ExecutionMetricsRepresentation executionMetrics;
+
+    private Date eligibleTime;
+
+    private long dispatchAttempts;
+
+    private String blockedBy;
+
+    private long schedulerWaitTime;
+
+    private long constraintWaitTime;
+
+    private JobProgressRepresentation progress;
+
     public JobInfoRepresentation() {}
 
     private JobInfoRepresentation(String id, String name, String host, String thread, Date creationTime, Date startTime, Date finishTime,
                                   String errorMessage, String runningState, ResultCode resultState, Long maxIdleTime, Long maxExecutionTime,
-                                  Date lastModifiedTime, Map<String, String> additionalData, List<LogLineRepresentation> logLines) {
+                                  Date lastModifiedTime, Map<String, String> additionalData, List<LogLineRepresentation> logLines,
+                                  ExecutionMetricsRepresentation executionMetrics, Date eligibleTime, long dispatchAttempts,
+                                  String blockedBy, long schedulerWaitTime, long constraintWaitTime, JobProgressRepresentation progress) {
         this.id = id;
         this.name = name;
         this.host = host;
@@ -66,6 +84,13 @@ public final class JobInfoRepresentation {
         this.lastModifiedTime = lastModifiedTime;
         this.additionalData = additionalData;
         this.logLines = logLines;
+        this.executionMetrics = executionMetrics;
+        this.eligibleTime = eligibleTime;
+        this.dispatchAttempts = dispatchAttempts;
+        this.blockedBy = blockedBy;
+        this.schedulerWaitTime = schedulerWaitTime;
+        this.constraintWaitTime = constraintWaitTime;
+        this.progress = progress;
     }
 
     public String getId() {
@@ -128,6 +153,34 @@ public final class JobInfoRepresentation {
         return logLines;
     }
 
+    public ExecutionMetricsRepresentation getExecutionMetrics() {
+        return executionMetrics;
+    }
+
+    public Date getEligibleTime() {
+        return eligibleTime;
+    }
+
+    public long getDispatchAttempts() {
+        return dispatchAttempts;
+    }
+
+    public String getBlockedBy() {
+        return blockedBy;
+    }
+
+    public long getSchedulerWaitTime() {
+        return schedulerWaitTime;
+    }
+
+    public long getConstraintWaitTime() {
+        return constraintWaitTime;
+    }
+
+    public JobProgressRepresentation getProgress() {
+        return progress;
+    }
+
     public static JobInfoRepresentation fromJobInfo(JobInfo jobInfo, int maxLogLines) {
         // Limit to the last recent N loglines
         final int nrLogLines = Math.min(maxLogLines, jobInfo.getLogLines().size());
@@ -135,11 +188,15 @@ public final class JobInfoRepresentation {
         for (LogLine ll : jobInfo.getLastLogLines(nrLogLines)) {
             logLines.add(LogLineRepresentation.fromLogLine(ll));
         }
+        final ExecutionMetrics executionMetrics = jobInfo.getExecutionMetrics();
+        final JobProgress progress = jobInfo.getProgress();
         return new JobInfoRepresentation(jobInfo.getId(), jobInfo.getName(), jobInfo.getHost(),
                 jobInfo.getThread(), jobInfo.getCreationTime(), jobInfo.getStartTime(), jobInfo.getFinishTime(),
                 jobInfo.getResultMessage(), jobInfo.getRunningState(), jobInfo.getResultState(),
                 jobInfo.getMaxIdleTime(), jobInfo.getMaxExecutionTime(), jobInfo.getLastModifiedTime(), jobInfo.getAdditionalData(),
-                logLines);
+                logLines, executionMetrics == null ? null : ExecutionMetricsRepresentation.fromExecutionMetrics(executionMetrics),
+                jobInfo.getEligibleTime(), jobInfo.getDispatchAttempts(), jobInfo.getBlockedBy(), jobInfo.getSchedulerWaitTime(),
+                jobInfo.getConstraintWaitTime(), progress == null ? null : JobProgressRepresentation.fromJobProgress(progress));
     }
 
 }
@@ -0,0 +1,61 @@
+package de.otto.jobstore.web.representation;
+
+import de.otto.jobstore.common.JobProgress;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.Date;
+
+@XmlRootElement
+@XmlAccessorType(value = XmlAccessType.FIELD)
+public final class JobProgressRepresentation {
+
+    private long done;
+    private long total;
+    private Double percent;
+    private Double itemsPerSecond;
+    private Date estimatedFinishTime;
+    private Date timestamp;
+
+    public JobProgressRepresentation() {}
+
+    private JobProgressRepresentation(long done, long total, Double percent, Double itemsPerSecond, Date estimatedFinishTime, Date timestamp) {
+        this.done = done;
+        this.total = total;
+        this.percent = percent;
+        this.itemsPerSecond = itemsPerSecond;
+        this.estimatedFinishTime = estimatedFinishTime;
+        this.timestamp = timestamp;
+    }
+
+    public long getDone() {
+        return done;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public Double getPercent() {
+        return percent;
+    }
+
+    public Double getItemsPerSecond() {
+        return itemsPerSecond;
+    }
+
+    public Date getEstimatedFinishTime() {
+        return estimatedFinishTime;
+    }
+
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    public static JobProgressRepresentation fromJobProgress(JobProgress progress) {
+        return new JobProgressRepresentation(progress.getDone(), progress.getTotal(), progress.getPercent(),
+                progress.getItemsPerSecond(), progress.getEstimatedFinishTime(), progress.getTimestamp());
+    }
+
+}
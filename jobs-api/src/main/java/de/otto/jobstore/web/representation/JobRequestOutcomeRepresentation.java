@@ -0,0 +1,69 @@
+package de.otto.jobstore.web.representation;
+
+import de.otto.jobstore.common.JobRequestOutcome;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement(name = "jobRequestOutcome")
+@XmlAccessorType(value = XmlAccessType.FIELD)
+public final class JobRequestOutcomeRepresentation {
+
+    private String name;
+
+    private String id;
+
+    private String runningState;
+
+    private int status;
+
+    private String message;
+
+    private String link;
+
+    public JobRequestOutcomeRepresentation() {}
+
+    private JobRequestOutcomeRepresentation(String name, String id, String runningState, int status, String message, String link) {
+        this.name = name;
+        this.id = id;
+        this.runningState = runningState;
+        this.status = status;
+        this.message = message;
+        this.link = link;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRunningState() {
+        return runningState;
+    }
+
+    /**
+     * @return The http status a single execution of the job would have resulted in
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getLink() {
+        return link;
+    }
+
+    public static JobRequestOutcomeRepresentation fromJobRequestOutcome(JobRequestOutcome outcome, int status, String link) {
+        return new JobRequestOutcomeRepresentation(outcome.getRequest().getName(), outcome.getJobId(),
+                outcome.getRunningState() == null ? null : outcome.getRunningState().name(), status,
+                outcome.getException() == null ? null : outcome.getException().getMessage(), link);
+    }
+
+}
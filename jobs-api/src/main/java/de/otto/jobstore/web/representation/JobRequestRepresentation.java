@@ -0,0 +1,51 @@
+package de.otto.jobstore.web.representation;
+
+import de.otto.jobstore.common.JobExecutionPriority;
+import de.otto.jobstore.common.JobRequest;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.HashMap;
+import java.util.Map;
+
+@XmlRootElement(name = "jobRequest")
+@XmlAccessorType(value = XmlAccessType.FIELD)
+public final class JobRequestRepresentation {
+
+    private String name;
+
+    private JobExecutionPriority priority;
+
+    private Map<String, String> parameters;
+
+    public JobRequestRepresentation() {}
+
+    public JobRequestRepresentation(String name, JobExecutionPriority priority, Map<String, String> parameters) {
+        this.name = name;
+        this.priority = priority;
+        this.parameters = parameters;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public JobExecutionPriority getPriority() {
+        return priority;
+    }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Converts the representation into a job request. Without a given priority the job is executed with
+     * the priority FORCE_EXECUTION, just as a single job triggered via the api.
+     */
+    public JobRequest toJobRequest() {
+        return new JobRequest(name, priority == null ? JobExecutionPriority.FORCE_EXECUTION : priority,
+                parameters == null ? new HashMap<String, String>() : parameters);
+    }
+
+}
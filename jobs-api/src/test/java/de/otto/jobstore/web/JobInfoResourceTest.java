@@ -5,16 +5,25 @@ import com.sun.jersey.api.uri.UriBuilderImpl;
 import com.sun.jersey.core.util.MultivaluedMapImpl;
 import de.otto.jobstore.common.JobExecutionPriority;
 import de.otto.jobstore.common.JobInfo;
+import de.otto.jobstore.common.JobRequest;
+import de.otto.jobstore.common.JobRequestOutcome;
+import de.otto.jobstore.common.PrometheusJobMetrics;
+import de.otto.jobstore.common.RemoteJobStatus;
 import de.otto.jobstore.common.RunningState;
 import de.otto.jobstore.common.properties.JobInfoProperty;
 import de.otto.jobstore.service.JobInfoService;
 import de.otto.jobstore.service.JobService;
+import de.otto.jobstore.service.exception.JobAdmissionDeniedException;
 import de.otto.jobstore.service.exception.JobAlreadyQueuedException;
+import de.otto.jobstore.service.exception.InvalidCallbackTokenException;
 import de.otto.jobstore.service.exception.JobAlreadyRunningException;
 import de.otto.jobstore.service.exception.JobNotRegisteredException;
 import de.otto.jobstore.service.exception.JobServiceNotActiveException;
+import de.otto.jobstore.service.exception.RemoteJobNotRunningException;
 import de.otto.jobstore.web.representation.JobInfoRepresentation;
 import de.otto.jobstore.web.representation.JobNameRepresentation;
+import de.otto.jobstore.web.representation.JobRequestOutcomeRepresentation;
+import de.otto.jobstore.web.representation.JobRequestRepresentation;
 import org.apache.abdera.model.Entry;
 import org.apache.abdera.model.Feed;
 import org.testng.annotations.BeforeMethod;
@@ -89,48 +98,126 @@ public class JobInfoResourceTest {
         assertEquals(0, entries.size());
     }
 
+    @Test
+    public void testGetMetrics() throws Exception {
+        final PrometheusJobMetrics metrics = new PrometheusJobMetrics();
+        metrics.queueDepth(3);
+        when(jobService.getJobMetrics()).thenReturn(metrics);
+
+        Response response = jobInfoResource.getMetrics();
+        assertEquals(200, response.getStatus());
+        assertTrue(((String) response.getEntity()).contains("jobstore_queue_depth 3.0"));
+    }
+
+    @Test
+    public void testGetMetricsWithoutPrometheusMetrics() throws Exception {
+        Response response = jobInfoResource.getMetrics();
+        assertEquals(404, response.getStatus());
+    }
+
     @Test
     public void testExecuteJobWhichIsNotRegistered() throws Exception {
-        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap())).thenThrow(new JobNotRegisteredException(""));
+        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap(), anyString())).thenThrow(new JobNotRegisteredException(""));
         //when(jobService.executeJob("foo", false)).thenThrow(new JobNotRegisteredException(""));
 
-        Response response = jobInfoResource.executeJob("foo", uriInfo);
+        Response response = jobInfoResource.executeJob("foo", null, uriInfo);
         assertEquals(404, response.getStatus());
     }
 
     @Test
     public void testExecuteJobWhichIsAlreadyQueued() throws Exception {
-        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap())).thenThrow(new JobAlreadyQueuedException(""));
+        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap(), anyString())).thenThrow(new JobAlreadyQueuedException(""));
 
-        Response response = jobInfoResource.executeJob("foo", uriInfo);
+        Response response = jobInfoResource.executeJob("foo", null, uriInfo);
         assertEquals(409, response.getStatus());
     }
 
     @Test
     public void testExecuteJobWhichIsAlreadyRunning() throws Exception {
-        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap())).thenThrow(new JobAlreadyRunningException(""));
+        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap(), anyString())).thenThrow(new JobAlreadyRunningException(""));
 
-        Response response = jobInfoResource.executeJob("foo", uriInfo);
+        Response response = jobInfoResource.executeJob("foo", null, uriInfo);
         assertEquals(409, response.getStatus());
     }
 
     @Test
     public void testExecuteJobOnInactiveServiceShouldResultInBadRequestResponse() throws Exception {
-        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap())).thenThrow(new JobServiceNotActiveException("not active"));
+        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap(), anyString())).thenThrow(new JobServiceNotActiveException("not active"));
 
-        Response response = jobInfoResource.executeJob("foo", uriInfo);
+        Response response = jobInfoResource.executeJob("foo", null, uriInfo);
         assertEquals(400, response.getStatus());
     }
 
+    @Test
+    public void testExecuteJobOnOverloadedServiceShouldResultInServiceUnavailableResponse() throws Exception {
+        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap(), anyString())).thenThrow(new JobAdmissionDeniedException("overloaded", 30));
+
+        Response response = jobInfoResource.executeJob("foo", null, uriInfo);
+        assertEquals(503, response.getStatus());
+        assertEquals("30", String.valueOf(response.getMetadata().getFirst("Retry-After")));
+    }
+
     @Test
     public void testExecuteJob() throws Exception {
-        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap())).thenReturn("1234");
+        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap(), anyString())).thenReturn("1234");
         when(jobInfoService.getById("1234")).thenReturn(JOB_INFO);
 
-        Response response = jobInfoResource.executeJob("foo", uriInfo);
+        Response response = jobInfoResource.executeJob("foo", null, uriInfo);
         assertEquals(201, response.getStatus());
     }
 
+    @Test
+    public void testExecuteJobPassesIdempotencyKey() throws Exception {
+        when(jobService.executeJob(eq("foo"), eq(JobExecutionPriority.FORCE_EXECUTION), anyMap(), eq("request-1"))).thenReturn("1234");
+        when(jobInfoService.getById("1234")).thenReturn(JOB_INFO);
+
+        Response response = jobInfoResource.executeJob("foo", "request-1", uriInfo);
+        assertEquals(201, response.getStatus());
+    }
+
+    @Test
+    public void testUpdateJobStatus() throws Exception {
+        final RemoteJobStatus status = new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, null, "running");
+
+        assertEquals(204, jobInfoResource.updateJobStatus("foo", "1234", "token", status).getStatus());
+
+        doThrow(new InvalidCallbackTokenException("invalid")).when(jobService).updateRemoteJobStatus("foo", "1234", "wrong", status);
+        assertEquals(403, jobInfoResource.updateJobStatus("foo", "1234", "wrong", status).getStatus());
+
+        doThrow(new RemoteJobNotRunningException("finished")).when(jobService).updateRemoteJobStatus("foo", "4711", "token", status);
+        assertEquals(409, jobInfoResource.updateJobStatus("foo", "4711", "token", status).getStatus());
+
+        assertEquals(400, jobInfoResource.updateJobStatus("foo", "1234", "token",
+                new RemoteJobStatus(RemoteJobStatus.Status.FINISHED, null, null, null)).getStatus());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobs() throws Exception {
+        final JobRequest fooRequest = new JobRequest("foo", JobExecutionPriority.FORCE_EXECUTION);
+        final JobRequest barRequest = new JobRequest("bar", JobExecutionPriority.FORCE_EXECUTION);
+        when(jobService.executeJobs(anyCollection())).thenReturn(Arrays.asList(
+                JobRequestOutcome.running(fooRequest, "1234"),
+                JobRequestOutcome.failed(barRequest, new JobAlreadyQueuedException("queued"))));
+
+        Response response = jobInfoResource.executeJobs(Arrays.asList(
+                new JobRequestRepresentation("foo", null, null), new JobRequestRepresentation("bar", null, null)), uriInfo);
+        assertEquals(200, response.getStatus());
+        List<JobRequestOutcomeRepresentation> outcomes = (List<JobRequestOutcomeRepresentation>) response.getEntity();
+        assertEquals(2, outcomes.size());
+        assertEquals(201, outcomes.get(0).getStatus());
+        assertEquals("1234", outcomes.get(0).getId());
+        assertEquals("RUNNING", outcomes.get(0).getRunningState());
+        assertEquals(409, outcomes.get(1).getStatus());
+        assertEquals("queued", outcomes.get(1).getMessage());
+    }
+
+    @Test
+    public void testExecuteJobsWithoutName() throws Exception {
+        Response response = jobInfoResource.executeJobs(Arrays.asList(new JobRequestRepresentation(null, null, null)), uriInfo);
+        assertEquals(400, response.getStatus());
+    }
+
     @Test
     public void testGetJob() throws Exception {
         when(jobInfoService.getById("1234")).thenReturn(JOB_INFO);
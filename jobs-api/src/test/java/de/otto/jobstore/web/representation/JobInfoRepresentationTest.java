@@ -1,15 +1,19 @@
 package de.otto.jobstore.web.representation;
 
+import de.otto.jobstore.common.ExecutionMetrics;
 import de.otto.jobstore.common.JobExecutionPriority;
 import de.otto.jobstore.common.JobInfo;
+import de.otto.jobstore.common.JobProgress;
 import de.otto.jobstore.common.LogLine;
 import de.otto.jobstore.common.RunningState;
+import de.otto.jobstore.common.properties.JobInfoProperty;
 import org.testng.annotations.Test;
 
 import java.util.Date;
 import java.util.HashMap;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
 
 public class JobInfoRepresentationTest {
 
@@ -29,6 +33,52 @@ public class JobInfoRepresentationTest {
         assertEquals(2, jobInfoRep.getAdditionalData().size());
     }
 
+    @Test
+    public void testFromJobInfoWithExecutionMetrics() throws Exception {
+        JobInfo jobInfo = new JobInfo("foo", "host", "thread", 1234L, 1234L, 0L, RunningState.RUNNING, JobExecutionPriority.IGNORE_PRECONDITIONS, new HashMap<String, String>());
+        jobInfo.toDbObject().put(JobInfoProperty.EXECUTION_METRICS.val(), new ExecutionMetrics(10L, 2048L, 1L, 20L, null).toDbObject());
+        JobInfoRepresentation jobInfoRep = JobInfoRepresentation.fromJobInfo(jobInfo, 100);
+
+        assertEquals(Long.valueOf(10L), jobInfoRep.getExecutionMetrics().getCpuTime());
+        assertEquals(Long.valueOf(2048L), jobInfoRep.getExecutionMetrics().getAllocatedBytes());
+        assertEquals(Long.valueOf(20L), jobInfoRep.getExecutionMetrics().getExecuteTime());
+        assertNull(jobInfoRep.getExecutionMetrics().getAfterExecutionTime());
+        assertNull(JobInfoRepresentation.fromJobInfo(new JobInfo("foo", "host", "thread", 1234L, 1234L, 0L), 100).getExecutionMetrics());
+    }
+
+    @Test
+    public void testFromJobInfoWithDispatchStatistics() throws Exception {
+        JobInfo jobInfo = new JobInfo("foo", "host", "thread", 1234L, 1234L, 0L, RunningState.QUEUED);
+        final Date eligibleTime = new Date();
+        jobInfo.toDbObject().put(JobInfoProperty.ELIGIBLE_TIME.val(), eligibleTime);
+        jobInfo.toDbObject().put(JobInfoProperty.DISPATCH_ATTEMPTS.val(), 3);
+        jobInfo.toDbObject().put(JobInfoProperty.BLOCKED_BY.val(), "job:bar");
+        jobInfo.toDbObject().put(JobInfoProperty.SCHEDULER_WAIT_TIME.val(), 500L);
+        jobInfo.toDbObject().put(JobInfoProperty.CONSTRAINT_WAIT_TIME.val(), 120000L);
+        JobInfoRepresentation jobInfoRep = JobInfoRepresentation.fromJobInfo(jobInfo, 100);
+
+        assertEquals(eligibleTime, jobInfoRep.getEligibleTime());
+        assertEquals(3, jobInfoRep.getDispatchAttempts());
+        assertEquals("job:bar", jobInfoRep.getBlockedBy());
+        assertEquals(500L, jobInfoRep.getSchedulerWaitTime());
+        assertEquals(120000L, jobInfoRep.getConstraintWaitTime());
+    }
+
+    @Test
+    public void testFromJobInfoWithProgress() throws Exception {
+        JobInfo jobInfo = new JobInfo("foo", "host", "thread", 1234L, 1234L, 0L, RunningState.RUNNING);
+        final Date estimatedFinishTime = new Date();
+        jobInfo.toDbObject().put(JobInfoProperty.PROGRESS.val(),
+                new JobProgress(250, 1000, 25d, 12.5, estimatedFinishTime, new Date()).toDbObject());
+        JobInfoRepresentation jobInfoRep = JobInfoRepresentation.fromJobInfo(jobInfo, 100);
+
+        assertEquals(250L, jobInfoRep.getProgress().getDone());
+        assertEquals(1000L, jobInfoRep.getProgress().getTotal());
+        assertEquals(25d, jobInfoRep.getProgress().getPercent());
+        assertEquals(12.5, jobInfoRep.getProgress().getItemsPerSecond());
+        assertEquals(estimatedFinishTime, jobInfoRep.getProgress().getEstimatedFinishTime());
+    }
+
     @Test
     public void testCutoffLogLines() throws Exception {
         JobInfo jobInfo = new JobInfo("foo", "host", "thread", 1234L, 1234L, 0L, RunningState.RUNNING, JobExecutionPriority.IGNORE_PRECONDITIONS, new HashMap<String, String>());
@@ -17,6 +17,16 @@ public abstract class AbstractLocalJobDefinition implements JobDefinition {
         return -1;
     }
 
+    @Override
+    public long getMemoizationWindow() {
+        return 0;
+    }
+
+    @Override
+    public long getMaxQueueDepth() {
+        return 1;
+    }
+
     @Override
     public final boolean isRemote() {
         return false;
@@ -13,6 +13,16 @@ public abstract class AbstractRemoteJobDefinition implements JobDefinition {
         return -1;
     }
 
+    @Override
+    public long getMemoizationWindow() {
+        return 0;
+    }
+
+    @Override
+    public long getMaxQueueDepth() {
+        return 1;
+    }
+
     @Override
     public final boolean isRemote() {
         return true;
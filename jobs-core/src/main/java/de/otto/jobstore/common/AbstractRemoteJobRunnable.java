@@ -3,6 +3,7 @@ package de.otto.jobstore.common;
 import de.otto.jobstore.common.properties.JobInfoProperty;
 import de.otto.jobstore.service.JobInfoService;
 import de.otto.jobstore.service.RemoteJobExecutor;
+import de.otto.jobstore.service.RemoteJobExecutorWithLogOffset;
 import de.otto.jobstore.service.exception.JobException;
 import de.otto.jobstore.service.exception.RemoteJobAlreadyRunningException;
 import org.slf4j.Logger;
@@ -22,23 +23,40 @@ public abstract class AbstractRemoteJobRunnable implements JobRunnable {
         this.jobInfoService = jobInfoService;
     }
 
+    /**
+     * Retrieves the status of the remote job with only the log lines which were not retrieved before. Executors
+     * which cannot request only the new log lines return the whole log, of which the known lines are cut off.
+     */
     @Override
     public RemoteJobStatus getRemoteStatus(JobExecutionContext context) {
-        final String remoteJobUri = context.getJobLogger().getAdditionalData(JobInfoProperty.REMOTE_JOB_URI.val());
-        final RemoteJobStatus status = remoteJobExecutorService.getStatus(URI.create(remoteJobUri));
+        final URI remoteJobUri = URI.create(context.getJobLogger().getAdditionalData(JobInfoProperty.REMOTE_JOB_URI.val()));
         final JobInfo jobInfo = jobInfoService.getById(context.getId());
-
-        if (jobInfo != null && status.logLines != null
-                && jobInfo.getLogLines() != null && !jobInfo.getLogLines().isEmpty()) {
-            final int currentLength = jobInfo.getLogLines().size();
-            // Assume that old lines are already included, and therefore can be cut off
-            if (currentLength <= status.logLines.size()) {
-                status.logLines = status.logLines.subList(currentLength, status.logLines.size());
-            }
+        final int logOffset = jobInfo != null ? getRemoteLogOffset(jobInfo) : 0;
+        final RemoteJobStatus status;
+        if (remoteJobExecutorService instanceof RemoteJobExecutorWithLogOffset) {
+            status = ((RemoteJobExecutorWithLogOffset) remoteJobExecutorService).getStatus(remoteJobUri, logOffset);
+        } else {
+            status = remoteJobExecutorService.getStatus(remoteJobUri);
+        }
+        if (status != null) {
+            status.alignLogLines(logOffset);
         }
         return status;
     }
 
+    /**
+     * Returns the number of log lines of the remote job which were already retrieved
+     *
+     * @param jobInfo The remote job
+     * @return The stored position in the log of the remote job or, if none is stored, the number of log lines
+     */
+    public static int getRemoteLogOffset(JobInfo jobInfo) {
+        if (jobInfo.getRemoteLogOffset() != null) {
+            return jobInfo.getRemoteLogOffset();
+        }
+        return jobInfo.getLogLines() == null ? 0 : jobInfo.getLogLines().size();
+    }
+
     /**
      * By default returns true. If an exception occurs, returns false.
      */
@@ -59,9 +77,11 @@ public abstract class AbstractRemoteJobRunnable implements JobRunnable {
     }
 
     /**
-     * Only triggers the remote job, poll to check wether job is finished or not.
+     * Only triggers the remote job, poll to check wether job is finished or not. The remote job receives a callback
+     * token with which it may also report its status itself.
      *
      * @see de.otto.jobstore.service.JobService#pollRemoteJobs()
+     * @see de.otto.jobstore.service.JobService#updateRemoteJobStatus(String, String, String, RemoteJobStatus)
      */
     @Override
     public void execute(JobExecutionContext context) throws JobException {
@@ -81,7 +101,8 @@ public abstract class AbstractRemoteJobRunnable implements JobRunnable {
             log.info("ltag={}.execute Trigger remote job jobName={} jobId={} ...",
                     this.getClass().getSimpleName(), getJobDefinition().getName(), context.getId());
             final JobInfo jobInfo = jobInfoService.getById(context.getId());
-            final URI uri = remoteJobExecutorService.startJob(new RemoteJob(getJobDefinition().getName(), context.getId(), jobInfo.getParameters()));
+            final String callbackToken = jobInfoService.issueCallbackToken(context.getId());
+            final URI uri = remoteJobExecutorService.startJob(new RemoteJob(getJobDefinition().getName(), context.getId(), jobInfo.getParameters(), callbackToken));
             jobLogger.insertOrUpdateAdditionalData(JobInfoProperty.REMOTE_JOB_URI.val(), uri.toString());
         } catch (RemoteJobAlreadyRunningException e) {
             log.info("ltag={}.execute Remote job jobName={} jobId={} is already running: {}",
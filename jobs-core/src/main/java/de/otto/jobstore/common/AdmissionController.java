@@ -0,0 +1,36 @@
+package de.otto.jobstore.common;
+
+/**
+ * This Interface decides if a job may be started on this node right now.
+ *
+ * It is consulted by the JobService every time a job should be executed directly or a queued job should be
+ * executed. A node which is already saturated may thus queue new jobs or reject them instead of getting slower
+ * for every job.
+ */
+public interface AdmissionController {
+
+    enum Decision {
+        /** The job may be executed */
+        ADMIT,
+        /** The job should be queued and executed once a node has capacity */
+        QUEUE,
+        /** The job should not be accepted at all, the caller should try again later */
+        REJECT
+    }
+
+    /**
+     * Decides if the job may be executed
+     *
+     * @param definition The definition of the job to execute
+     * @param executionPriority The priority with which the job is to be executed
+     * @param nodeInfo The current capacity of this node
+     * @return The decision
+     */
+    Decision admit(JobDefinition definition, JobExecutionPriority executionPriority, NodeInfo nodeInfo);
+
+    /**
+     * @return The number of seconds after which a rejected caller should try again
+     */
+    long getRetryAfterSeconds();
+
+}
@@ -0,0 +1,41 @@
+package de.otto.jobstore.common;
+
+import com.mongodb.DBObject;
+import de.otto.jobstore.common.properties.CheckpointProperty;
+
+import java.util.Date;
+
+/**
+ * The position up to which a job has done its work, see {@link JobExecutionContext#saveCheckpoint(String, String)}
+ */
+public final class Checkpoint extends AbstractItem {
+
+    public Checkpoint(DBObject dbObject) {
+        super(dbObject);
+    }
+
+    public Checkpoint(String key, String state, Date timestamp) {
+        addProperty(CheckpointProperty.KEY, key);
+        addProperty(CheckpointProperty.STATE, state);
+        addProperty(CheckpointProperty.TIMESTAMP, timestamp);
+    }
+
+    /**
+     * The key identifying the checkpoint, e.g. the last item processed
+     */
+    public String getKey() {
+        return getProperty(CheckpointProperty.KEY);
+    }
+
+    /**
+     * The state the job needs to resume its work
+     */
+    public String getState() {
+        return getProperty(CheckpointProperty.STATE);
+    }
+
+    public Date getTimestamp() {
+        return getProperty(CheckpointProperty.TIMESTAMP);
+    }
+
+}
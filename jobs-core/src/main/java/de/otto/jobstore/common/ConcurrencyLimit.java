@@ -0,0 +1,46 @@
+package de.otto.jobstore.common;
+
+import com.mongodb.DBObject;
+import de.otto.jobstore.common.properties.ConcurrencyLimitProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The counter document of a resource whose concurrent usage by jobs is limited. It holds the ids of all jobs
+ * currently using the resource.
+ */
+public final class ConcurrencyLimit extends AbstractItem {
+
+    private static final long serialVersionUID = 6081349872251923874L;
+
+    public ConcurrencyLimit(DBObject dbObject) {
+        super(dbObject);
+    }
+
+    public String getResource() {
+        return getProperty(ConcurrencyLimitProperty.RESOURCE);
+    }
+
+    public List<String> getHolders() {
+        final List<?> holders = getProperty(ConcurrencyLimitProperty.HOLDERS);
+        if (holders == null) {
+            return Collections.emptyList();
+        }
+        final List<String> result = new ArrayList<>();
+        for (Object holder : holders) {
+            result.add(String.valueOf(holder));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"ConcurrencyLimit\" : {" +
+                "\"resource\":\"" + getResource() +
+                "\", \"holders\":\"" + getHolders() +
+                "\"}}";
+    }
+
+}
@@ -0,0 +1,60 @@
+package de.otto.jobstore.common;
+
+import com.mongodb.DBObject;
+import de.otto.jobstore.common.properties.ExecutionMetricsProperty;
+
+/**
+ * Resources consumed by the execution of a job on the executing thread. All times are given in milliseconds.
+ * Values which could not be measured, e.g. because the JVM does not support measuring them or the phase was
+ * not reached, are null.
+ */
+public final class ExecutionMetrics extends AbstractItem {
+
+    public ExecutionMetrics(DBObject dbObject) {
+        super(dbObject);
+    }
+
+    public ExecutionMetrics(Long cpuTime, Long allocatedBytes, Long prepareTime, Long executeTime, Long afterExecutionTime) {
+        addProperty(ExecutionMetricsProperty.CPU_TIME, cpuTime);
+        addProperty(ExecutionMetricsProperty.ALLOCATED_BYTES, allocatedBytes);
+        addProperty(ExecutionMetricsProperty.PREPARE_TIME, prepareTime);
+        addProperty(ExecutionMetricsProperty.EXECUTE_TIME, executeTime);
+        addProperty(ExecutionMetricsProperty.AFTER_EXECUTION_TIME, afterExecutionTime);
+    }
+
+    /**
+     * The CPU time consumed by the executing thread
+     */
+    public Long getCpuTime() {
+        return getProperty(ExecutionMetricsProperty.CPU_TIME);
+    }
+
+    /**
+     * The number of bytes allocated on the heap by the executing thread
+     */
+    public Long getAllocatedBytes() {
+        return getProperty(ExecutionMetricsProperty.ALLOCATED_BYTES);
+    }
+
+    /**
+     * The wall-clock time of {@link JobRunnable#prepare(JobExecutionContext)}
+     */
+    public Long getPrepareTime() {
+        return getProperty(ExecutionMetricsProperty.PREPARE_TIME);
+    }
+
+    /**
+     * The wall-clock time of {@link JobRunnable#execute(JobExecutionContext)}
+     */
+    public Long getExecuteTime() {
+        return getProperty(ExecutionMetricsProperty.EXECUTE_TIME);
+    }
+
+    /**
+     * The wall-clock time of {@link JobRunnable#afterExecution(JobExecutionContext)}
+     */
+    public Long getAfterExecutionTime() {
+        return getProperty(ExecutionMetricsProperty.AFTER_EXECUTION_TIME);
+    }
+
+}
@@ -34,6 +34,22 @@ public interface JobDefinition {
      */
     long getRetryInterval();
 
+    /**
+     * The time within which a successful execution of the job is reused for a new request with identical parameters
+     * instead of executing the job again (in milliseconds). Queued or running jobs with identical parameters are
+     * reused as well. A value of 0 or less disables the memoization.
+     */
+    long getMemoizationWindow();
+
+    /**
+     * The maximum number of jobs with this name which may be queued at the same time. With a value greater than 1
+     * jobs with distinct parameters are queued side by side, one per parameter set, and dispatched one after
+     * another in the order they were queued. With the default of 1 only a single job is queued per name.
+     * Requested jobs reserve one of the slots stored with the job definition, jobs which return to the queue
+     * because they could not be started are not counted.
+     */
+    long getMaxQueueDepth();
+
     /**
      * Flag if the job is executed locally or remotely
      *
@@ -0,0 +1,26 @@
+package de.otto.jobstore.common;
+
+/**
+ * A {@link JobEventListener} which ignores all events. Subclasses override the events they are interested in.
+ */
+public abstract class JobEventAdapter implements JobEventListener {
+
+    @Override
+    public void jobQueued(String name, String id, JobExecutionPriority priority) {}
+
+    @Override
+    public void jobClaimed(String name, String id, JobExecutionPriority priority) {}
+
+    @Override
+    public void jobStarted(String name, String id, JobExecutionPriority priority) {}
+
+    @Override
+    public void jobFinished(String name, String id, JobExecutionPriority priority, ResultCode resultCode, long executionTime) {}
+
+    @Override
+    public void jobAborted(String name, String id, JobExecutionPriority priority) {}
+
+    @Override
+    public void repositoryCall(String repository, String method, long durationNanos) {}
+
+}
@@ -0,0 +1,71 @@
+package de.otto.jobstore.common;
+
+/**
+ * Receives the lifecycle events of jobs and the calls of the repositories, e.g. to record them in a profiler or
+ * a flight recording. A slow dispatch or a stalled database may thus be linked to specific jobs.
+ *
+ * Listeners are called synchronously by the thread which caused the event, so implementations have to be fast and
+ * thread-safe. Exceptions thrown by a listener are logged and otherwise ignored.
+ *
+ * @see JobEventAdapter
+ */
+public interface JobEventListener {
+
+    /**
+     * Called after a job was queued
+     *
+     * @param name The name of the job
+     * @param id The id of the job
+     * @param priority The priority with which the job is to be executed
+     */
+    void jobQueued(String name, String id, JobExecutionPriority priority);
+
+    /**
+     * Called after a node claimed a job for execution, either by activating a queued job or by creating a running job
+     *
+     * @param name The name of the job
+     * @param id The id of the job
+     * @param priority The priority with which the job is executed
+     */
+    void jobClaimed(String name, String id, JobExecutionPriority priority);
+
+    /**
+     * Called by the thread executing the job right before its execution starts
+     *
+     * @param name The name of the job
+     * @param id The id of the job
+     * @param priority The priority with which the job is executed
+     */
+    void jobStarted(String name, String id, JobExecutionPriority priority);
+
+    /**
+     * Called after a job was marked as finished. Timed out jobs are reported with {@link ResultCode#TIMED_OUT}.
+     *
+     * @param name The name of the job
+     * @param id The id of the job
+     * @param priority The priority with which the job was executed
+     * @param resultCode The result state of the job
+     * @param executionTime The time in milliseconds between the start and the finish of the job, -1 if it never started
+     */
+    void jobFinished(String name, String id, JobExecutionPriority priority, ResultCode resultCode, long executionTime);
+
+    /**
+     * Called after the abortion of a job was requested
+     *
+     * @param name The name of the job
+     * @param id The id of the job
+     * @param priority The priority with which the job is executed
+     */
+    void jobAborted(String name, String id, JobExecutionPriority priority);
+
+    /**
+     * Called after a database operation of a repository returned or failed. Queries are reported once their result
+     * was read.
+     *
+     * @param repository The simple class name of the repository
+     * @param method The name of the operation, e.g. <code>find</code>, <code>update</code> or <code>bulkWrite</code>
+     * @param durationNanos The duration of the operation in nanoseconds
+     */
+    void repositoryCall(String repository, String method, long durationNanos);
+
+}
@@ -0,0 +1,128 @@
+package de.otto.jobstore.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dispatches events to all registered listeners. An exception thrown by one listener does neither prevent the
+ * other listeners from being called nor affect the caller.
+ */
+public final class JobEventListeners implements JobEventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobEventListeners.class);
+
+    private final List<JobEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void add(JobEventListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener may not be null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * @return true if at least one listener is registered, callers may skip preparing an event otherwise
+     */
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    @Override
+    public void jobQueued(final String name, final String id, final JobExecutionPriority priority) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        fire("jobQueued", new Event() {
+            @Override
+            void dispatch(JobEventListener listener) {
+                listener.jobQueued(name, id, priority);
+            }
+        });
+    }
+
+    @Override
+    public void jobClaimed(final String name, final String id, final JobExecutionPriority priority) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        fire("jobClaimed", new Event() {
+            @Override
+            void dispatch(JobEventListener listener) {
+                listener.jobClaimed(name, id, priority);
+            }
+        });
+    }
+
+    @Override
+    public void jobStarted(final String name, final String id, final JobExecutionPriority priority) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        fire("jobStarted", new Event() {
+            @Override
+            void dispatch(JobEventListener listener) {
+                listener.jobStarted(name, id, priority);
+            }
+        });
+    }
+
+    @Override
+    public void jobFinished(final String name, final String id, final JobExecutionPriority priority, final ResultCode resultCode,
+                            final long executionTime) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        fire("jobFinished", new Event() {
+            @Override
+            void dispatch(JobEventListener listener) {
+                listener.jobFinished(name, id, priority, resultCode, executionTime);
+            }
+        });
+    }
+
+    @Override
+    public void jobAborted(final String name, final String id, final JobExecutionPriority priority) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        fire("jobAborted", new Event() {
+            @Override
+            void dispatch(JobEventListener listener) {
+                listener.jobAborted(name, id, priority);
+            }
+        });
+    }
+
+    @Override
+    public void repositoryCall(final String repository, final String method, final long durationNanos) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        fire("repositoryCall", new Event() {
+            @Override
+            void dispatch(JobEventListener listener) {
+                listener.repositoryCall(repository, method, durationNanos);
+            }
+        });
+    }
+
+    private void fire(String eventName, Event event) {
+        for (JobEventListener listener : listeners) {
+            try {
+                event.dispatch(listener);
+            } catch (Exception e) {
+                LOGGER.warn("ltag=JobEventListeners.{} listener={} failed: {}", eventName, listener, e.getMessage());
+            }
+        }
+    }
+
+    private abstract static class Event {
+
+        abstract void dispatch(JobEventListener listener);
+
+    }
+
+}
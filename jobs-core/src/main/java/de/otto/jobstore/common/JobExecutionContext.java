@@ -4,6 +4,7 @@ import de.otto.jobstore.service.exception.JobExecutionAbortedException;
 import de.otto.jobstore.service.exception.JobExecutionTimeoutException;
 
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 public class JobExecutionContext {
 
@@ -12,12 +13,20 @@ public class JobExecutionContext {
     private final JobExecutionPriority executionPriority;
     private final JobDefinition jobDefinition;
     private final JobInfoCache jobInfoCache;
+    private final ExecutorService subTaskExecutor;
+    private final ProgressTracker progressTracker = new ProgressTracker(ProgressTracker.PERSIST_INTERVAL);
 
     private volatile ResultCode resultCode = ResultCode.SUCCESSFUL;
     private String resultMessage;
 
     public JobExecutionContext(String id, JobLogger jobLogger, JobInfoCache jobInfoCache, JobExecutionPriority executionPriority, JobDefinition jobDefinition) {
+        this(id, jobLogger, jobInfoCache, executionPriority, jobDefinition, null);
+    }
+
+    public JobExecutionContext(String id, JobLogger jobLogger, JobInfoCache jobInfoCache, JobExecutionPriority executionPriority,
+                               JobDefinition jobDefinition, ExecutorService subTaskExecutor) {
         this.id = id;
+        this.subTaskExecutor = subTaskExecutor;
         this.jobLogger = jobLogger;
         this.jobInfoCache = jobInfoCache;
         this.executionPriority = executionPriority;
@@ -53,12 +62,13 @@ public class JobExecutionContext {
     }
 
     /**
-     * checks if conditions are met to abort the job, either an external abort request or the job reached its timeout condition
+     * checks if conditions are met to abort the job, either an external abort request, the job reached its timeout condition
+     * or the job was taken away from this instance
      * @throws JobExecutionAbortedException
      * @throws JobExecutionTimeoutException
      */
     public void checkForAbort() throws JobExecutionAbortedException, JobExecutionTimeoutException {
-        if(jobInfoCache.isAborted()) {
+        if(jobInfoCache.isAborted() || jobInfoCache.isTakenAway()) {
             throw JobExecutionAbortedException.fromJobName(getId());
         }
         if(jobInfoCache.isTimedOut()) {
@@ -67,6 +77,55 @@ public class JobExecutionContext {
 
     }
 
+    /**
+     * Saves the position up to which the job has done its work. If the job fails or times out, a later execution
+     * with the same parameters, e.g. a retry, can resume from it by calling {@link #getLastCheckpoint()}.
+     * The state should be compact since it is stored with the job.
+     *
+     * @param key The key identifying the checkpoint, e.g. the last item processed
+     * @param state The state the job needs to resume its work, may be null
+     */
+    public void saveCheckpoint(String key, String state) {
+        jobInfoCache.saveCheckpoint(key, state);
+    }
+
+    /**
+     * @return The last checkpoint saved by this execution or, if there is none, the checkpoint of the last
+     * unsuccessful execution of the job with the same parameters. Null if there is nothing to resume from.
+     */
+    public Checkpoint getLastCheckpoint() {
+        return jobInfoCache.getLastCheckpoint();
+    }
+
+    /**
+     * Reports the progress of the job. The percentage, the number of items per second and the estimated finish
+     * time are computed and stored with the job at most every few seconds, so the method may be called for every
+     * item. It may be called by sub-tasks concurrently.
+     *
+     * @param done The number of items done
+     * @param total The total number of items, 0 if it is unknown
+     */
+    public void reportProgress(long done, long total) {
+        final JobProgress progress = progressTracker.update(done, total, System.currentTimeMillis());
+        if (progress != null) {
+            jobInfoCache.saveProgress(progress);
+        }
+    }
+
+    /**
+     * Opens a scope to execute sub-tasks of the job in parallel on the pool shared by all jobs, see
+     * {@link SubTaskScope}. The sub-tasks are cancelled if the job is aborted or times out while waiting for them.
+     *
+     * @return The scope, which has to be closed by the thread executing the job
+     * @throws IllegalStateException If the context was created without an executor for sub-tasks
+     */
+    public SubTaskScope openSubTaskScope() {
+        if (subTaskExecutor == null) {
+            throw new IllegalStateException("No executor for sub-tasks available for job " + id);
+        }
+        return new SubTaskScope(this, subTaskExecutor);
+    }
+
     public Map<String, String> getParameters() {
         return jobInfoCache.getParameters();
     }
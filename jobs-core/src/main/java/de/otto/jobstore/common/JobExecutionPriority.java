@@ -13,6 +13,13 @@ public enum JobExecutionPriority {
         this.level = level;
     }
 
+    /**
+     * The level of the priority, a higher level means a more urgent execution
+     */
+    public int getLevel() {
+        return level;
+    }
+
     public boolean hasLowerPriority(JobExecutionPriority priority) {
         return this.level < priority.level;
     }
@@ -4,6 +4,9 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import de.otto.jobstore.common.properties.JobInfoProperty;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 public class JobInfo extends AbstractItem {
@@ -34,11 +37,12 @@ public class JobInfo extends AbstractItem {
         addProperty(JobInfoProperty.NAME, name);
         addProperty(JobInfoProperty.HOST, host);
         addProperty(JobInfoProperty.THREAD, thread);
-        if (state != RunningState.QUEUED) {
+        if (state != RunningState.QUEUED && state != RunningState.DELAYED) {
             addProperty(JobInfoProperty.START_TIME, dt);
         }
         addProperty(JobInfoProperty.CREATION_TIME, dt);
         addProperty(JobInfoProperty.EXECUTION_PRIORITY, executionPriority.name());
+        addProperty(JobInfoProperty.PRIORITY_LEVEL, executionPriority.getLevel());
         addProperty(JobInfoProperty.RUNNING_STATE, state.name());
         setLastModifiedTime(dt);
         addProperty(JobInfoProperty.MAX_IDLE_TIME, maxIdleTime);
@@ -48,6 +52,48 @@ public class JobInfo extends AbstractItem {
         if (parameters != null) {
             addProperty(JobInfoProperty.PARAMETERS, new BasicDBObject(parameters));
         }
+        addProperty(JobInfoProperty.PARAMETERS_HASH, hashParameters(parameters));
+    }
+
+    /**
+     * Computes a hash of the given parameters which does not depend on their order, so jobs with identical
+     * parameters can be looked up by their hash.
+     *
+     * @param parameters The parameters of a job, may be null
+     * @return The hex encoded MD5 hash of the sorted parameters
+     */
+    public static String hashParameters(Map<String, String> parameters) {
+        final StringBuilder sb = new StringBuilder();
+        if (parameters != null) {
+            for (Map.Entry<String, String> entry : new TreeMap<>(parameters).entrySet()) {
+                sb.append(entry.getKey().length()).append(':').append(entry.getKey())
+                        .append('=').append(entry.getValue()).append('\n');
+            }
+        }
+        return digest("MD5", sb.toString());
+    }
+
+    /**
+     * Computes the hash under which a callback token is stored, so the token itself is never persisted
+     *
+     * @param callbackToken The callback token
+     * @return The hex encoded SHA-256 hash of the token
+     */
+    public static String hashCallbackToken(String callbackToken) {
+        return digest("SHA-256", callbackToken);
+    }
+
+    private static String digest(String algorithm, String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance(algorithm).digest(value.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b & 0xff));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     public boolean hasLowerPriority(JobExecutionPriority priority) {
@@ -71,6 +117,17 @@ public class JobInfo extends AbstractItem {
         return getProperty(JobInfoProperty.HOST);
     }
 
+    /**
+     * The id of the instance executing the job, see {@link de.otto.jobstore.common.util.InternetUtils#getInstanceId()}
+     */
+    public String getInstanceId() {
+        return getProperty(JobInfoProperty.INSTANCE_ID);
+    }
+
+    public void setInstanceId(String instanceId) {
+        addProperty(JobInfoProperty.INSTANCE_ID, instanceId);
+    }
+
     public String getThread() {
         return getProperty(JobInfoProperty.THREAD);
     }
@@ -86,6 +143,69 @@ public class JobInfo extends AbstractItem {
 
     public void setParameters(Map<String, String> parameters) {
         addProperty(JobInfoProperty.PARAMETERS, parameters);
+        addProperty(JobInfoProperty.PARAMETERS_HASH, hashParameters(parameters));
+    }
+
+    /**
+     * The hash of the parameters of the job, see {@link #hashParameters(java.util.Map)}
+     */
+    public String getParametersHash() {
+        return getProperty(JobInfoProperty.PARAMETERS_HASH);
+    }
+
+    /**
+     * The keys given by the clients which triggered the job to make their triggers idempotent. A job which replaced
+     * a queued job also holds the keys of the replaced job.
+     *
+     * @return The keys, an empty list if none were given
+     */
+    public List<String> getIdempotencyKeys() {
+        final List<String> idempotencyKeys = getProperty(JobInfoProperty.IDEMPOTENCY_KEYS);
+        return idempotencyKeys == null ? Collections.<String>emptyList() : idempotencyKeys;
+    }
+
+    public void setIdempotencyKeys(List<String> idempotencyKeys) {
+        addProperty(JobInfoProperty.IDEMPOTENCY_KEYS, idempotencyKeys);
+    }
+
+    /**
+     * The hash of the token a remote job has to present to report its status, null if no token was issued
+     */
+    public String getCallbackTokenHash() {
+        return getProperty(JobInfoProperty.CALLBACK_TOKEN_HASH);
+    }
+
+    /**
+     * Checks the given token against the callback token issued for this job in constant time
+     *
+     * @param callbackToken The token presented by the remote job
+     * @return true - A token was issued for this job and the given token matches it<br>
+     *     false - Otherwise
+     */
+    public boolean isCallbackTokenValid(String callbackToken) {
+        final String callbackTokenHash = getCallbackTokenHash();
+        return callbackTokenHash != null && callbackToken != null && MessageDigest.isEqual(
+                callbackTokenHash.getBytes(StandardCharsets.UTF_8), hashCallbackToken(callbackToken).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The number of log lines of the remote job which were already retrieved, null if the job is not remote or
+     * was started before the position was stored. In that case the number of log lines of the job is used.
+     */
+    public Integer getRemoteLogOffset() {
+        return getProperty(JobInfoProperty.REMOTE_LOG_OFFSET);
+    }
+
+    /**
+     * The key which allows several jobs with the same name to be queued at the same time, null if only one job
+     * with the name may be queued. Only set while the job is queued, see {@link JobDefinition#getMaxQueueDepth()}
+     */
+    public String getQueueKey() {
+        return getProperty(JobInfoProperty.QUEUE_KEY);
+    }
+
+    public void setQueueKey(String queueKey) {
+        addProperty(JobInfoProperty.QUEUE_KEY, queueKey);
     }
 
     public Long getMaxIdleTime() {
@@ -105,6 +225,94 @@ public class JobInfo extends AbstractItem {
         return retries;
     }
 
+    /**
+     * The date before which a queued job must not be executed, null if it may be executed immediately
+     */
+    public Date getNotBefore() {
+        return getProperty(JobInfoProperty.NOT_BEFORE);
+    }
+
+    public void setNotBefore(Date notBefore) {
+        addProperty(JobInfoProperty.NOT_BEFORE, notBefore);
+    }
+
+    /**
+     * The date at which the queued job became due for execution, i.e. its not before date or its creation time.
+     * Only set once the JobService tried to dispatch the job.
+     */
+    public Date getEligibleTime() {
+        return getProperty(JobInfoProperty.ELIGIBLE_TIME);
+    }
+
+    /**
+     * The date of the last attempt of a JobService to dispatch the queued job, null if it was never attempted
+     */
+    public Date getLastDispatchAttempt() {
+        return getProperty(JobInfoProperty.LAST_DISPATCH_ATTEMPT);
+    }
+
+    /**
+     * The number of attempts to dispatch the queued job including the successful one
+     */
+    public long getDispatchAttempts() {
+        final Number dispatchAttempts = getProperty(JobInfoProperty.DISPATCH_ATTEMPTS);
+        return dispatchAttempts == null ? 0 : dispatchAttempts.longValue();
+    }
+
+    /**
+     * The reason why the last attempt to dispatch the queued job failed, e.g. <code>job:otherJob</code> if
+     * a running job or running constraint blocked it. Null if the job was dispatched or never attempted.
+     */
+    public String getBlockedBy() {
+        return getProperty(JobInfoProperty.BLOCKED_BY);
+    }
+
+    /**
+     * The time in milliseconds the queued job waited between becoming due and the first dispatch attempt
+     */
+    public long getSchedulerWaitTime() {
+        final Number schedulerWaitTime = getProperty(JobInfoProperty.SCHEDULER_WAIT_TIME);
+        return schedulerWaitTime == null ? 0 : schedulerWaitTime.longValue();
+    }
+
+    /**
+     * The time in milliseconds the queued job waited after dispatch attempts which were blocked by running jobs,
+     * constraints, concurrency limits or missing capacity
+     */
+    public long getConstraintWaitTime() {
+        final Number constraintWaitTime = getProperty(JobInfoProperty.CONSTRAINT_WAIT_TIME);
+        return constraintWaitTime == null ? 0 : constraintWaitTime.longValue();
+    }
+
+    /**
+     * The maximum number of retries configured in the job definition at the time the job was created
+     */
+    public Long getMaxRetries() {
+        return getProperty(JobInfoProperty.MAX_RETRIES);
+    }
+
+    public void setMaxRetries(Long maxRetries) {
+        addProperty(JobInfoProperty.MAX_RETRIES, maxRetries);
+    }
+
+    /**
+     * The base interval in milliseconds between a failure of the job and its retry
+     */
+    public Long getRetryInterval() {
+        return getProperty(JobInfoProperty.RETRY_INTERVAL);
+    }
+
+    public void setRetryInterval(Long retryInterval) {
+        addProperty(JobInfoProperty.RETRY_INTERVAL, retryInterval);
+    }
+
+    /**
+     * The date after which a failed job is due to be retried, null if no retry is pending
+     */
+    public Date getNextRetryAt() {
+        return getProperty(JobInfoProperty.NEXT_RETRY_AT);
+    }
+
     private Date getJobIdleExceededTime() {
         return new Date(getLastModifiedTime().getTime() + getMaxIdleTime());
     }
@@ -167,6 +375,22 @@ public class JobInfo extends AbstractItem {
         return getProperty(JobInfoProperty.STATUS_MESSAGE);
     }
 
+    /**
+     * The resources consumed by the execution of the job, null if the job was not executed locally yet
+     */
+    public ExecutionMetrics getExecutionMetrics() {
+        final DBObject executionMetrics = getProperty(JobInfoProperty.EXECUTION_METRICS);
+        return executionMetrics == null ? null : new ExecutionMetrics(executionMetrics);
+    }
+
+    /**
+     * The last persisted progress of the job, null if the job did not report any progress
+     */
+    public JobProgress getProgress() {
+        final DBObject progress = getProperty(JobInfoProperty.PROGRESS);
+        return progress == null ? null : new JobProgress(progress);
+    }
+
     @SuppressWarnings("unchecked")
     public Map<String, String> getAdditionalData() {
         final DBObject additionalData = getProperty(JobInfoProperty.ADDITIONAL_DATA);
@@ -202,6 +426,14 @@ public class JobInfo extends AbstractItem {
         }
     }
 
+    /**
+     * The last checkpoint saved by the job, null if the job did not save a checkpoint
+     */
+    public Checkpoint getCheckpoint() {
+        final DBObject checkpoint = getProperty(JobInfoProperty.CHECKPOINT);
+        return checkpoint == null ? null : new Checkpoint(checkpoint);
+    }
+
     public boolean hasLogLines() {
         final List<DBObject> logLines = getProperty(JobInfoProperty.LOG_LINES);
         return logLines != null && !logLines.isEmpty();
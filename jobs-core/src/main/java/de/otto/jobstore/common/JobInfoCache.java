@@ -1,5 +1,6 @@
 package de.otto.jobstore.common;
 
+import de.otto.jobstore.common.util.InternetUtils;
 import de.otto.jobstore.repository.JobInfoRepository;
 
 import java.util.Map;
@@ -11,6 +12,8 @@ public class JobInfoCache {
     private long updateInterval;
     private volatile long lastUpdate = 0;
     private volatile JobInfo jobInfo;
+    private volatile Checkpoint checkpoint;
+    private volatile boolean checkpointLoaded = false;
 
     public JobInfoCache(String id, JobInfoRepository jobInfoRepository, long updateInterval) {
         this.id = id;
@@ -23,6 +26,17 @@ public class JobInfoCache {
         return getJobInfo().isAborted();
     }
 
+    /**
+     * Checks if the job is not running on this instance anymore, e.g. because it was queued again after this
+     * instance stopped sending heartbeats
+     */
+    public boolean isTakenAway() {
+        final JobInfo jobInfo = getJobInfo();
+        final String instanceId = jobInfo.getInstanceId();
+        return instanceId != null && (!RunningState.RUNNING.name().equals(jobInfo.getRunningState()) ||
+                !InternetUtils.getInstanceId().equals(instanceId));
+    }
+
     public boolean isTimedOut() {
         return getJobInfo().isTimedOut();
     }
@@ -31,6 +45,36 @@ public class JobInfoCache {
         return getJobInfo().getParameters();
     }
 
+    public void saveProgress(JobProgress progress) {
+        jobInfoRepository.setProgress(id, progress);
+    }
+
+    public void saveCheckpoint(String key, String state) {
+        checkpoint = jobInfoRepository.saveCheckpoint(id, key, state);
+        checkpointLoaded = true;
+    }
+
+    /**
+     * Returns the last checkpoint of the job. If the job did not save a checkpoint yet, the checkpoint of the last
+     * unsuccessful execution with the same parameters is returned, so the job can resume its work.
+     */
+    public Checkpoint getLastCheckpoint() {
+        if (!checkpointLoaded) {
+            synchronized (this) {
+                if (!checkpointLoaded) {
+                    final JobInfo jobInfo = getJobInfo();
+                    Checkpoint lastCheckpoint = jobInfo.getCheckpoint();
+                    if (lastCheckpoint == null) {
+                        lastCheckpoint = jobInfoRepository.findResumableCheckpoint(jobInfo.getName(), jobInfo.getParametersHash());
+                    }
+                    checkpoint = lastCheckpoint;
+                    checkpointLoaded = true;
+                }
+            }
+        }
+        return checkpoint;
+    }
+
     private JobInfo getJobInfo() {
         final long currentTime = System.currentTimeMillis();
         if (lastUpdate + updateInterval < currentTime) {
@@ -0,0 +1,54 @@
+package de.otto.jobstore.common;
+
+/**
+ * Collects metrics of the job store. Besides the job lifecycle events and the durations of repository calls
+ * received as a {@link JobEventListener}, the JobService and the JobScheduler report the measurements below.
+ *
+ * Implementations are called synchronously and concurrently, so they have to be fast and thread-safe.
+ *
+ * @see PrometheusJobMetrics
+ */
+public interface JobMetrics extends JobEventListener {
+
+    /**
+     * Called every time queued jobs are dispatched
+     *
+     * @param depth The number of queued jobs which are due for execution
+     */
+    void queueDepth(int depth);
+
+    /**
+     * Called after a queued job was claimed for execution
+     *
+     * @param name The name of the job
+     * @param waitTime The time in milliseconds the job was waiting in the queue since it became due
+     */
+    void queueWaitTime(String name, long waitTime);
+
+    /**
+     * Called every time the JobService tries to dispatch a queued job
+     *
+     * @param name The name of the job
+     * @param dispatched true if the job could be claimed and executed, false if it stays queued
+     */
+    void dispatchAttempt(String name, boolean dispatched);
+
+    /**
+     * Called after the status of a running remote job was polled
+     *
+     * @param name The name of the job
+     * @param duration The duration of the poll in milliseconds
+     * @param failed true if no status could be retrieved
+     */
+    void remoteJobPolled(String name, long duration, boolean failed);
+
+    /**
+     * Called after a schedule of the JobScheduler was executed
+     *
+     * @param schedule The name of the schedule
+     * @param lag The time in milliseconds the execution started later than planned
+     * @param duration The duration of the execution in milliseconds
+     */
+    void scheduleExecuted(String schedule, long lag, long duration);
+
+}
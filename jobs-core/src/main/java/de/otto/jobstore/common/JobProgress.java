@@ -0,0 +1,68 @@
+package de.otto.jobstore.common;
+
+import com.mongodb.DBObject;
+import de.otto.jobstore.common.properties.JobProgressProperty;
+
+import java.util.Date;
+
+/**
+ * The progress of a running job as reported by {@link JobExecutionContext#reportProgress(long, long)}
+ */
+public final class JobProgress extends AbstractItem {
+
+    public JobProgress(DBObject dbObject) {
+        super(dbObject);
+    }
+
+    public JobProgress(long done, long total, Double percent, Double itemsPerSecond, Date estimatedFinishTime, Date timestamp) {
+        addProperty(JobProgressProperty.DONE, done);
+        addProperty(JobProgressProperty.TOTAL, total);
+        addProperty(JobProgressProperty.PERCENT, percent);
+        addProperty(JobProgressProperty.ITEMS_PER_SECOND, itemsPerSecond);
+        addProperty(JobProgressProperty.ESTIMATED_FINISH_TIME, estimatedFinishTime);
+        addProperty(JobProgressProperty.TIMESTAMP, timestamp);
+    }
+
+    /**
+     * The number of items done
+     */
+    public long getDone() {
+        return getProperty(JobProgressProperty.DONE);
+    }
+
+    /**
+     * The total number of items, 0 or less if it is unknown
+     */
+    public long getTotal() {
+        return getProperty(JobProgressProperty.TOTAL);
+    }
+
+    /**
+     * The percentage of items done, null if the total is unknown
+     */
+    public Double getPercent() {
+        return getProperty(JobProgressProperty.PERCENT);
+    }
+
+    /**
+     * The number of items done per second since the first report, null if it cannot be computed yet
+     */
+    public Double getItemsPerSecond() {
+        return getProperty(JobProgressProperty.ITEMS_PER_SECOND);
+    }
+
+    /**
+     * The estimated time at which all items are done, null if the total or the rate is unknown
+     */
+    public Date getEstimatedFinishTime() {
+        return getProperty(JobProgressProperty.ESTIMATED_FINISH_TIME);
+    }
+
+    /**
+     * The time of the report
+     */
+    public Date getTimestamp() {
+        return getProperty(JobProgressProperty.TIMESTAMP);
+    }
+
+}
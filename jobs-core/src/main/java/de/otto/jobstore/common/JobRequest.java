@@ -0,0 +1,61 @@
+package de.otto.jobstore.common;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A request to execute the job with the given name, used to execute several jobs at once.
+ */
+public final class JobRequest {
+
+    private final String name;
+
+    private final JobExecutionPriority executionPriority;
+
+    private final Map<String, String> parameters;
+
+    public JobRequest(String name) {
+        this(name, JobExecutionPriority.CHECK_PRECONDITIONS);
+    }
+
+    public JobRequest(String name, JobExecutionPriority executionPriority) {
+        this(name, executionPriority, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * @param name The name of the job to execute
+     * @param executionPriority The priority with which the job is to be executed
+     * @param parameters parameters to use
+     * @throws java.lang.NullPointerException if parameters are null
+     */
+    public JobRequest(String name, JobExecutionPriority executionPriority, Map<String, String> parameters) {
+        if (parameters == null) {
+            throw new NullPointerException("parameters may not be null");
+        }
+        this.name = name;
+        this.executionPriority = executionPriority;
+        this.parameters = parameters;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public JobExecutionPriority getExecutionPriority() {
+        return executionPriority;
+    }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"JobRequest\" : {" +
+                "\"name\":\"" + name +
+                "\", \"executionPriority\":\"" + executionPriority +
+                "\", \"parameters\":\"" + parameters +
+                "\"}}";
+    }
+
+}
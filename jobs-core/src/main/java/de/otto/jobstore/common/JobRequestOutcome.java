@@ -0,0 +1,92 @@
+package de.otto.jobstore.common;
+
+import de.otto.jobstore.service.exception.JobException;
+
+/**
+ * The outcome of a {@link JobRequest}. The job was either started, queued or could not be executed at all.
+ */
+public final class JobRequestOutcome {
+
+    private final JobRequest request;
+
+    private final String jobId;
+
+    private final RunningState runningState;
+
+    private final JobException exception;
+
+    private JobRequestOutcome(JobRequest request, String jobId, RunningState runningState, JobException exception) {
+        this.request = request;
+        this.jobId = jobId;
+        this.runningState = runningState;
+        this.exception = exception;
+    }
+
+    public static JobRequestOutcome running(JobRequest request, String jobId) {
+        return new JobRequestOutcome(request, jobId, RunningState.RUNNING, null);
+    }
+
+    public static JobRequestOutcome queued(JobRequest request, String jobId) {
+        return new JobRequestOutcome(request, jobId, RunningState.QUEUED, null);
+    }
+
+    /**
+     * The request was answered with an existing job, see {@link JobDefinition#getMemoizationWindow()}
+     */
+    public static JobRequestOutcome reused(JobRequest request, JobInfo jobInfo) {
+        final RunningState runningState;
+        if (RunningState.RUNNING.name().equals(jobInfo.getRunningState())) {
+            runningState = RunningState.RUNNING;
+        } else if (RunningState.QUEUED.name().equals(jobInfo.getRunningState())) {
+            runningState = RunningState.QUEUED;
+        } else {
+            runningState = RunningState.FINISHED;
+        }
+        return new JobRequestOutcome(request, jobInfo.getId(), runningState, null);
+    }
+
+    public static JobRequestOutcome failed(JobRequest request, JobException exception) {
+        return new JobRequestOutcome(request, null, null, exception);
+    }
+
+    public JobRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * @return The id of the started or queued job, null if the request failed
+     */
+    public String getJobId() {
+        return jobId;
+    }
+
+    /**
+     * @return RUNNING if the job was started, QUEUED if it was queued, the state of the reused job if an existing job
+     * was reused, null if the request failed
+     */
+    public RunningState getRunningState() {
+        return runningState;
+    }
+
+    /**
+     * @return The reason why the job could not be executed, null if the request succeeded
+     */
+    public JobException getException() {
+        return exception;
+    }
+
+    public boolean isSuccessful() {
+        return exception == null;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"JobRequestOutcome\" : {" +
+                "\"name\":\"" + request.getName() +
+                "\", \"jobId\":\"" + jobId +
+                "\", \"runningState\":\"" + runningState +
+                "\", \"exception\":\"" + (exception == null ? null : exception.getMessage()) +
+                "\"}}";
+    }
+
+}
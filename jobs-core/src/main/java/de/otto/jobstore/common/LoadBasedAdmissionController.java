@@ -0,0 +1,69 @@
+package de.otto.jobstore.common;
+
+/**
+ * Admits jobs based on the number of jobs running on the node, its system load and heap usage.
+ *
+ * A job is queued if the node has no free executor slots, the system load exceeds maxSystemLoad or the heap usage
+ * exceeds maxHeapUsage. It is rejected if the system load or heap usage exceed the reject thresholds, since in this
+ * case even queueing the job would only add to the pressure.
+ *
+ * The executor slots of the node are the jobs it runs at most at the same time as set with
+ * {@link de.otto.jobstore.service.JobService#setMaxConcurrentJobs(int)}, per default the number of available
+ * processors. Set them to what the node can actually handle if its jobs mostly wait instead of using the processor.
+ *
+ * Remote jobs are always admitted, since they are executed on the remote server and hardly load this node.
+ */
+public final class LoadBasedAdmissionController implements AdmissionController {
+
+    public static final double DEFAULT_MAX_SYSTEM_LOAD = 1.0;
+    public static final double DEFAULT_REJECT_SYSTEM_LOAD = 2.0;
+    public static final double DEFAULT_MAX_HEAP_USAGE = 0.85;
+    public static final double DEFAULT_REJECT_HEAP_USAGE = 0.95;
+    public static final long DEFAULT_RETRY_AFTER_SECONDS = 60;
+
+    private final double maxSystemLoad;
+    private final double rejectSystemLoad;
+    private final double maxHeapUsage;
+    private final double rejectHeapUsage;
+    private final long retryAfterSeconds;
+
+    public LoadBasedAdmissionController() {
+        this(DEFAULT_MAX_SYSTEM_LOAD, DEFAULT_REJECT_SYSTEM_LOAD, DEFAULT_MAX_HEAP_USAGE, DEFAULT_REJECT_HEAP_USAGE, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    /**
+     * @param maxSystemLoad The system load (per processor) above which jobs are queued
+     * @param rejectSystemLoad The system load (per processor) above which jobs are rejected
+     * @param maxHeapUsage The ratio of used to maximum heap above which jobs are queued
+     * @param rejectHeapUsage The ratio of used to maximum heap above which jobs are rejected
+     * @param retryAfterSeconds The number of seconds after which a rejected caller should try again
+     */
+    public LoadBasedAdmissionController(double maxSystemLoad, double rejectSystemLoad, double maxHeapUsage,
+                                        double rejectHeapUsage, long retryAfterSeconds) {
+        this.maxSystemLoad = maxSystemLoad;
+        this.rejectSystemLoad = rejectSystemLoad;
+        this.maxHeapUsage = maxHeapUsage;
+        this.rejectHeapUsage = rejectHeapUsage;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public Decision admit(JobDefinition definition, JobExecutionPriority executionPriority, NodeInfo nodeInfo) {
+        if (definition.isRemote()) {
+            return Decision.ADMIT;
+        }
+        if (nodeInfo.getSystemLoad() >= rejectSystemLoad || nodeInfo.getHeapUsage() >= rejectHeapUsage) {
+            return Decision.REJECT;
+        }
+        if (!nodeInfo.hasFreeCapacity(maxSystemLoad) || nodeInfo.getHeapUsage() >= maxHeapUsage) {
+            return Decision.QUEUE;
+        }
+        return Decision.ADMIT;
+    }
+
+    @Override
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
@@ -0,0 +1,122 @@
+package de.otto.jobstore.common;
+
+import com.mongodb.DBObject;
+import de.otto.jobstore.common.properties.NodeInfoProperty;
+
+import java.util.Date;
+
+/**
+ * The capacity a node running a JobService has published to the node registry.
+ */
+public final class NodeInfo extends AbstractItem {
+
+    private static final long serialVersionUID = 2454224303569320788L;
+
+    public NodeInfo(DBObject dbObject) {
+        super(dbObject);
+    }
+
+    public NodeInfo(String nodeId, String host, int runningJobs, int maxJobs, double systemLoad) {
+        this(nodeId, host, runningJobs, maxJobs, systemLoad, new Date());
+    }
+
+    public NodeInfo(String nodeId, String host, int runningJobs, int maxJobs, double systemLoad, Date lastModifiedTime) {
+        this(nodeId, host, runningJobs, maxJobs, systemLoad, 0, lastModifiedTime);
+    }
+
+    public NodeInfo(String nodeId, String host, int runningJobs, int maxJobs, double systemLoad, double heapUsage) {
+        this(nodeId, host, runningJobs, maxJobs, systemLoad, heapUsage, new Date());
+    }
+
+    public NodeInfo(String nodeId, String host, int runningJobs, int maxJobs, double systemLoad, double heapUsage, Date lastModifiedTime) {
+        addProperty(NodeInfoProperty.NODE_ID, nodeId);
+        addProperty(NodeInfoProperty.HOST, host);
+        addProperty(NodeInfoProperty.RUNNING_JOBS, runningJobs);
+        addProperty(NodeInfoProperty.MAX_JOBS, maxJobs);
+        addProperty(NodeInfoProperty.SYSTEM_LOAD, systemLoad);
+        addProperty(NodeInfoProperty.HEAP_USAGE, heapUsage);
+        addProperty(NodeInfoProperty.LAST_MODIFICATION_TIME, lastModifiedTime);
+    }
+
+    public String getNodeId() {
+        return getProperty(NodeInfoProperty.NODE_ID);
+    }
+
+    public String getHost() {
+        return getProperty(NodeInfoProperty.HOST);
+    }
+
+    public int getRunningJobs() {
+        final Integer runningJobs = getProperty(NodeInfoProperty.RUNNING_JOBS);
+        return runningJobs == null ? 0 : runningJobs;
+    }
+
+    public int getMaxJobs() {
+        final Integer maxJobs = getProperty(NodeInfoProperty.MAX_JOBS);
+        return maxJobs == null ? Integer.MAX_VALUE : maxJobs;
+    }
+
+    /**
+     * The system load average of the node divided by its number of available processors, 0 if unknown.
+     */
+    public double getSystemLoad() {
+        final Double systemLoad = getProperty(NodeInfoProperty.SYSTEM_LOAD);
+        return systemLoad == null ? 0 : systemLoad;
+    }
+
+    /**
+     * The used heap of the node divided by its maximum heap size, 0 if unknown.
+     */
+    public double getHeapUsage() {
+        final Double heapUsage = getProperty(NodeInfoProperty.HEAP_USAGE);
+        return heapUsage == null ? 0 : heapUsage;
+    }
+
+    public Date getLastModifiedTime() {
+        return getProperty(NodeInfoProperty.LAST_MODIFICATION_TIME);
+    }
+
+    public int getFreeSlots() {
+        return Math.max(0, getMaxJobs() - getRunningJobs());
+    }
+
+    /**
+     * Checks if the node is able to take on another job
+     *
+     * @param maxSystemLoad The system load (per processor) above which a node is considered to be saturated
+     * @return true - The node has free executor slots and is not overloaded<br/>
+     *         false - The node should not take on new jobs
+     */
+    public boolean hasFreeCapacity(double maxSystemLoad) {
+        return getFreeSlots() > 0 && getSystemLoad() < maxSystemLoad;
+    }
+
+    /**
+     * Returns a weight which is proportional to the free capacity of this node, it is used to distribute queued jobs
+     * among the nodes. A saturated node has a weight of 0.
+     *
+     * @param maxSystemLoad The system load (per processor) above which a node is considered to be saturated
+     * @return The weight of the node
+     */
+    public double getCapacityWeight(double maxSystemLoad) {
+        if (!hasFreeCapacity(maxSystemLoad)) {
+            return 0;
+        }
+        final double idleRatio = 1 - Math.max(0, getSystemLoad()) / maxSystemLoad;
+        return Math.min(getFreeSlots(), Integer.MAX_VALUE / 2) * idleRatio;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"NodeInfo\" : {" +
+                "\"nodeId\":\"" + getNodeId() +
+                "\", \"host\":\"" + getHost() +
+                "\", \"runningJobs\":\"" + getRunningJobs() +
+                "\", \"maxJobs\":\"" + getMaxJobs() +
+                "\", \"systemLoad\":\"" + getSystemLoad() +
+                "\", \"heapUsage\":\"" + getHeapUsage() +
+                "\", \"lastModifiedTime\":\"" + getLastModifiedTime() +
+                "\"}}";
+    }
+
+}
@@ -0,0 +1,46 @@
+package de.otto.jobstore.common;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the progress of a job from the reported numbers of items done and decides when the progress is to be
+ * persisted, which happens at most once per interval and when all items are done.
+ */
+final class ProgressTracker {
+
+    static final long PERSIST_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    private final long interval;
+    private long firstReport = -1;
+    private long doneAtFirstReport;
+    private long lastPersisted = -1;
+
+    ProgressTracker(long interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * @return The progress to persist or null if the last progress was persisted too recently
+     */
+    synchronized JobProgress update(long done, long total, long now) {
+        if (firstReport < 0) {
+            firstReport = now;
+            doneAtFirstReport = done;
+        }
+        final boolean finished = total > 0 && done >= total;
+        if (lastPersisted >= 0 && now - lastPersisted < interval && !finished) {
+            return null;
+        }
+        lastPersisted = now;
+        final Double percent = total > 0 ? Math.min(100d, done * 100d / total) : null;
+        final long elapsed = now - firstReport;
+        final Double itemsPerSecond = elapsed > 0 ? (done - doneAtFirstReport) * 1000d / elapsed : null;
+        Date estimatedFinishTime = null;
+        if (total > 0 && itemsPerSecond != null && itemsPerSecond > 0) {
+            estimatedFinishTime = new Date(now + Math.round(Math.max(0, total - done) * 1000d / itemsPerSecond));
+        }
+        return new JobProgress(done, total, percent, itemsPerSecond, estimatedFinishTime, new Date(now));
+    }
+
+}
@@ -0,0 +1,240 @@
+package de.otto.jobstore.common;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the metrics of the job store in memory and writes them in the Prometheus text exposition format.
+ * Durations are exposed as summaries (count and sum) in seconds, so rates and averages can be computed by the
+ * Prometheus server, e.g. <code>rate(jobstore_queue_wait_seconds_sum[5m]) / rate(jobstore_queue_wait_seconds_count[5m])</code>.
+ */
+public class PrometheusJobMetrics implements JobMetrics {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Family jobEvents = new Family("jobstore_job_events_total", Type.COUNTER,
+            "Number of job lifecycle events by job name and event");
+    private final Family executionTime = new Family("jobstore_job_execution_seconds", Type.SUMMARY,
+            "Execution time of finished jobs by job name and result");
+    private final Family queueDepth = new Family("jobstore_queue_depth", Type.GAUGE,
+            "Number of queued jobs due for execution at the last dispatch");
+    private final Family queueWaitTime = new Family("jobstore_queue_wait_seconds", Type.SUMMARY,
+            "Time queued jobs waited for their execution by job name");
+    private final Family dispatchAttempts = new Family("jobstore_dispatch_attempts_total", Type.COUNTER,
+            "Number of attempts to dispatch a queued job by job name");
+    private final Family dispatchFailures = new Family("jobstore_dispatch_failures_total", Type.COUNTER,
+            "Number of attempts to dispatch a queued job which left the job queued by job name");
+    private final Family repositoryCalls = new Family("jobstore_repository_call_seconds", Type.SUMMARY,
+            "Duration of repository calls by repository and method");
+    private final Family remotePolls = new Family("jobstore_remote_poll_seconds", Type.SUMMARY,
+            "Duration of status polls of remote jobs by job name");
+    private final Family remotePollFailures = new Family("jobstore_remote_poll_failures_total", Type.COUNTER,
+            "Number of status polls of remote jobs which did not return a status by job name");
+    private final Family scheduleLag = new Family("jobstore_schedule_lag_seconds", Type.GAUGE,
+            "Time the last execution of a schedule started later than planned");
+    private final Family scheduleDuration = new Family("jobstore_schedule_duration_seconds", Type.SUMMARY,
+            "Duration of the executions of a schedule");
+
+    private final List<Family> families = Arrays.asList(jobEvents, executionTime, queueDepth, queueWaitTime, dispatchAttempts,
+            dispatchFailures, repositoryCalls, remotePolls, remotePollFailures, scheduleLag, scheduleDuration);
+
+    @Override
+    public void jobQueued(String name, String id, JobExecutionPriority priority) {
+        jobEvents.inc(labels("job", name, "event", "queued"));
+    }
+
+    @Override
+    public void jobClaimed(String name, String id, JobExecutionPriority priority) {
+        jobEvents.inc(labels("job", name, "event", "claimed"));
+    }
+
+    @Override
+    public void jobStarted(String name, String id, JobExecutionPriority priority) {
+        jobEvents.inc(labels("job", name, "event", "started"));
+    }
+
+    @Override
+    public void jobFinished(String name, String id, JobExecutionPriority priority, ResultCode resultCode, long executionTime) {
+        jobEvents.inc(labels("job", name, "event", "finished"));
+        if (executionTime >= 0) {
+            this.executionTime.observe(labels("job", name, "result", String.valueOf(resultCode)), millisToSeconds(executionTime));
+        }
+    }
+
+    @Override
+    public void jobAborted(String name, String id, JobExecutionPriority priority) {
+        jobEvents.inc(labels("job", name, "event", "aborted"));
+    }
+
+    @Override
+    public void repositoryCall(String repository, String method, long durationNanos) {
+        repositoryCalls.observe(labels("repository", repository, "method", method), durationNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Override
+    public void queueDepth(int depth) {
+        queueDepth.set("", depth);
+    }
+
+    @Override
+    public void queueWaitTime(String name, long waitTime) {
+        queueWaitTime.observe(labels("job", name), millisToSeconds(waitTime));
+    }
+
+    @Override
+    public void dispatchAttempt(String name, boolean dispatched) {
+        dispatchAttempts.inc(labels("job", name));
+        if (!dispatched) {
+            dispatchFailures.inc(labels("job", name));
+        }
+    }
+
+    @Override
+    public void remoteJobPolled(String name, long duration, boolean failed) {
+        remotePolls.observe(labels("job", name), millisToSeconds(duration));
+        if (failed) {
+            remotePollFailures.inc(labels("job", name));
+        }
+    }
+
+    @Override
+    public void scheduleExecuted(String schedule, long lag, long duration) {
+        scheduleLag.set(labels("schedule", schedule), millisToSeconds(lag));
+        scheduleDuration.observe(labels("schedule", schedule), millisToSeconds(duration));
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format
+     *
+     * @param writer The writer to write the metrics to
+     * @throws IOException If the metrics could not be written
+     */
+    public void write(Writer writer) throws IOException {
+        for (Family family : families) {
+            family.write(writer);
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return All metrics in the Prometheus text exposition format
+     */
+    public String scrape() {
+        final StringWriter writer = new StringWriter();
+        try {
+            write(writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    private double millisToSeconds(long millis) {
+        return millis / 1000d;
+    }
+
+    static String labels(String... namesAndValues) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(namesAndValues[i]).append("=\"").append(escape(namesAndValues[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private enum Type {
+        COUNTER, GAUGE, SUMMARY
+    }
+
+    private static final class Family {
+
+        private final String name;
+        private final Type type;
+        private final String help;
+        private final ConcurrentMap<String, Sample> samples = new ConcurrentSkipListMap<>();
+
+        Family(String name, Type type, String help) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+        }
+
+        void inc(String labels) {
+            sample(labels).observe(1);
+        }
+
+        void observe(String labels, double value) {
+            sample(labels).observe(value);
+        }
+
+        void set(String labels, double value) {
+            sample(labels).set(value);
+        }
+
+        private Sample sample(String labels) {
+            final Sample sample = samples.get(labels);
+            if (sample != null) {
+                return sample;
+            }
+            final Sample created = new Sample();
+            final Sample existing = samples.putIfAbsent(labels, created);
+            return existing == null ? created : existing;
+        }
+
+        void write(Writer writer) throws IOException {
+            writer.write("# HELP " + name + " " + help + "\n");
+            writer.write("# TYPE " + name + " " + type.name().toLowerCase() + "\n");
+            for (Map.Entry<String, Sample> entry : samples.entrySet()) {
+                final String labels = entry.getKey().isEmpty() ? "" : "{" + entry.getKey() + "}";
+                final double[] countAndSum = entry.getValue().get();
+                switch (type) {
+                    case COUNTER:
+                    case GAUGE:
+                        writer.write(name + labels + " " + countAndSum[1] + "\n");
+                        break;
+                    case SUMMARY:
+                        writer.write(name + "_count" + labels + " " + countAndSum[0] + "\n");
+                        writer.write(name + "_sum" + labels + " " + countAndSum[1] + "\n");
+                        break;
+                }
+            }
+        }
+    }
+
+    private static final class Sample {
+
+        private double count;
+        private double sum;
+
+        synchronized void observe(double value) {
+            count++;
+            sum += value;
+        }
+
+        synchronized void set(double value) {
+            count = 1;
+            sum = value;
+        }
+
+        synchronized double[] get() {
+            return new double[] {count, sum};
+        }
+    }
+
+}
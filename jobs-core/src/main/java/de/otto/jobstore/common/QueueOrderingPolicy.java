@@ -0,0 +1,28 @@
+package de.otto.jobstore.common;
+
+import java.util.List;
+
+/**
+ * Determines the order in which queued jobs are dispatched by the JobService.
+ *
+ * The JobService passes all queued jobs, sorted descending by priority and ascending by creation time, to the policy
+ * and tries to execute them in the returned order. Every job which could be executed is reported back to the policy.
+ */
+public interface QueueOrderingPolicy {
+
+    /**
+     * Orders the queued jobs
+     *
+     * @param queuedJobs The queued jobs, sorted descending by priority and ascending by creation time
+     * @return The jobs in the order they should be dispatched
+     */
+    List<JobInfo> order(List<JobInfo> queuedJobs);
+
+    /**
+     * Called after a queued job was dispatched
+     *
+     * @param jobInfo The dispatched job
+     */
+    void dispatched(JobInfo jobInfo);
+
+}
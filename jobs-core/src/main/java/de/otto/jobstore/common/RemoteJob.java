@@ -11,11 +11,21 @@ public final class RemoteJob implements Serializable {
     public String name;
     public String client_id;
     public Map<String, String> parameters;
+    public String callback_token;
 
     public RemoteJob(String name, String client_id, Map<String, String> parameters) {
+        this(name, client_id, parameters, null);
+    }
+
+    /**
+     * @param callback_token The token with which the remote job may report its status, see
+     *                       <code>POST /jobs/{name}/{client_id}/status</code> of the jobs API
+     */
+    public RemoteJob(String name, String client_id, Map<String, String> parameters, String callback_token) {
         this.name = name;
         this.client_id = client_id;
         this.parameters = parameters;
+        this.callback_token = callback_token;
     }
 
     public JSONObject toJsonObject() throws JSONException {
@@ -27,6 +37,9 @@ public final class RemoteJob implements Serializable {
             params.put(paramName, parameters.get(paramName));
         }
         obj.put("parameters", params);
+        if (callback_token != null) {
+            obj.put("callback_token", callback_token);
+        }
         return obj;
     }
 
@@ -18,6 +18,13 @@ public final class RemoteJobStatus {
     @XmlElement(name = "log_lines")
     public List<String> logLines = new ArrayList<>();
 
+    /**
+     * The position of the first of the log lines in the log of the remote job, null if the remote job always
+     * returns its whole log
+     */
+    @XmlElement(name = "log_offset")
+    public Integer logOffset;
+
     public RemoteJobResult result;
 
     @XmlElement(name = "finish_time")
@@ -49,12 +56,33 @@ public final class RemoteJobStatus {
     }
 
 
+    /**
+     * Aligns the log lines to the given position in the log of the remote job by cutting off the lines before it,
+     * so only new lines remain. Afterwards {@link #logOffset} is the position of the first remaining line.
+     *
+     * @param since The number of log lines of the remote job which are already known
+     * @return The number of log lines between the given position and the first remaining line which the remote job
+     * did not return anymore, e.g. because it truncated its log
+     */
+    public int alignLogLines(int since) {
+        final int offset = logOffset == null ? 0 : logOffset;
+        if (offset < since && logLines != null) {
+            final int known = Math.min(since - offset, logLines.size());
+            logLines = new ArrayList<>(logLines.subList(known, logLines.size()));
+            logOffset = offset + known;
+        } else {
+            logOffset = offset;
+        }
+        return Math.max(0, logOffset - since);
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
         sb.append("RemoteJobStatus");
         sb.append("{status=").append(status);
         sb.append(", result=").append(result);
+        sb.append(", logOffset=").append(logOffset);
         sb.append(", finishTime='").append(finishTime).append('\'');
         sb.append(", message='").append(message).append('\'');
         sb.append('}');
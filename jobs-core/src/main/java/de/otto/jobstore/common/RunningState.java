@@ -7,6 +7,10 @@ public enum RunningState {
 
     QUEUED,
     RUNNING,
-    FINISHED
+    FINISHED,
+    /**
+     * Waits for its not before date outside of the queue, see {@link JobInfo#getNotBefore()}
+     */
+    DELAYED
 
 }
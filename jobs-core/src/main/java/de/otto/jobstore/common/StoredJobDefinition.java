@@ -30,6 +30,8 @@ public final class StoredJobDefinition extends AbstractItem implements JobDefini
 
     public StoredJobDefinition(JobDefinition jd) {
         this(jd.getName(), jd.getMaxIdleTime(), jd.getMaxExecutionTime(), jd.getPollingInterval(), jd.getMaxRetries(), jd.getRetryInterval(), jd.isRemote(), jd.isAbortable());
+        addProperty(JobDefinitionProperty.MEMOIZATION_WINDOW, jd.getMemoizationWindow());
+        addProperty(JobDefinitionProperty.MAX_QUEUE_DEPTH, jd.getMaxQueueDepth());
     }
 
     public String getName() {
@@ -62,6 +64,16 @@ public final class StoredJobDefinition extends AbstractItem implements JobDefini
         return getProperty(JobDefinitionProperty.RETRY_INTERVAL);
     }
 
+    public long getMemoizationWindow() {
+        final Long memoizationWindow = getProperty(JobDefinitionProperty.MEMOIZATION_WINDOW);
+        return memoizationWindow == null ? 0 : memoizationWindow;
+    }
+
+    public long getMaxQueueDepth() {
+        final Long maxQueueDepth = getProperty(JobDefinitionProperty.MAX_QUEUE_DEPTH);
+        return maxQueueDepth == null ? 1 : maxQueueDepth;
+    }
+
     public boolean isRemote() {
         final Boolean remote = getProperty(JobDefinitionProperty.REMOTE);
         return remote == null ? false : remote;
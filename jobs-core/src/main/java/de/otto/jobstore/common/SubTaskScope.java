@@ -0,0 +1,151 @@
+package de.otto.jobstore.common;
+
+import de.otto.jobstore.service.exception.JobException;
+import de.otto.jobstore.service.exception.JobExecutionException;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes sub-tasks of a job in parallel on the pool shared by all jobs of the JobService, see
+ * {@link JobExecutionContext#openSubTaskScope()}. Sub-tasks are forked by the thread executing the job, which
+ * then waits for all of them with {@link #join()}. While waiting the abort and timeout conditions of the job are
+ * checked. If the job is aborted or timed out or a sub-task fails, all remaining sub-tasks are cancelled at once.
+ * Closing the scope cancels all sub-tasks which did not finish yet, so sub-tasks never outlive the scope:
+ *
+ * <pre>
+ * try (SubTaskScope scope = context.openSubTaskScope()) {
+ *     final Future&lt;Integer&gt; first = scope.fork(firstTask);
+ *     final Future&lt;Integer&gt; second = scope.fork(secondTask);
+ *     scope.join();
+ *     return first.get() + second.get();
+ * }
+ * </pre>
+ *
+ * Cancelled sub-tasks which already started are not interrupted, long running sub-tasks should call
+ * {@link JobExecutionContext#checkForAbort()} or {@link #isCancelled()} regularly.
+ */
+public final class SubTaskScope implements AutoCloseable {
+
+    static final long ABORT_CHECK_INTERVAL = 1000;
+
+    private final JobExecutionContext context;
+    private final ExecutorService executor;
+    private final List<Future<?>> subTasks = new CopyOnWriteArrayList<>();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile boolean cancelled = false;
+    private volatile Exception failure;
+
+    SubTaskScope(JobExecutionContext context, ExecutorService executor) {
+        this.context = context;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts the given sub-task
+     *
+     * @param subTask The sub-task to execute
+     * @return The future of the sub-task, its result is available after {@link #join()} returned
+     * @throws IllegalStateException If the scope was already cancelled or closed
+     */
+    public <T> Future<T> fork(final Callable<T> subTask) {
+        if (cancelled) {
+            throw new IllegalStateException("Sub-tasks of job " + context.getId() + " were cancelled");
+        }
+        final Future<T> future = executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                if (cancelled) {
+                    throw new CancellationException();
+                }
+                try {
+                    final T result = subTask.call();
+                    completed.incrementAndGet();
+                    return result;
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    cancel();
+                    throw e;
+                }
+            }
+        });
+        subTasks.add(future);
+        return future;
+    }
+
+    /**
+     * Waits until all forked sub-tasks are finished. The number of completed and failed sub-tasks is added to the
+     * log of the job.
+     *
+     * @throws JobException If a sub-task failed or the job was aborted or timed out while waiting
+     */
+    public void join() throws JobException {
+        try {
+            for (Future<?> subTask : subTasks) {
+                await(subTask);
+            }
+        } catch (JobException e) {
+            cancel();
+            throw e;
+        } finally {
+            context.getJobLogger().addLoggingData("Sub-tasks: " + completed.get() + " of " + subTasks.size() +
+                    " completed, " + failed.get() + " failed" + (cancelled ? ", remaining cancelled" : ""));
+        }
+    }
+
+    private void await(Future<?> subTask) throws JobException {
+        while (true) {
+            try {
+                subTask.get(ABORT_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                context.checkForAbort();
+            } catch (CancellationException | ExecutionException e) {
+                context.checkForAbort();
+                final Throwable cause = failure != null ? failure : e.getCause();
+                if (cause == null) {
+                    throw new JobExecutionException("Sub-task of job " + context.getId() + " was cancelled");
+                }
+                context.getJobLogger().addLoggingData("Sub-task failed: " + cause);
+                throw new JobExecutionException("Sub-task of job " + context.getId() + " failed: " + cause.getMessage(), cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                context.checkForAbort();
+                throw new JobExecutionException("Interrupted while waiting for sub-tasks of job " + context.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Cancels all sub-tasks which did not finish yet
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Future<?> subTask : subTasks) {
+            subTask.cancel(true);
+        }
+    }
+
+    /**
+     * @return true if the sub-tasks were cancelled, sub-tasks which are already running should stop
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void close() {
+        for (Future<?> subTask : subTasks) {
+            if (!subTask.isDone()) {
+                cancel();
+                return;
+            }
+        }
+    }
+
+}
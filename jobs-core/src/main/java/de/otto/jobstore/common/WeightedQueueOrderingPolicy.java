@@ -0,0 +1,98 @@
+package de.otto.jobstore.common;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders queued jobs by a score which combines the execution priority and the time the job is already waiting in
+ * the queue. Jobs whose name was dispatched frequently within the fairness window receive a penalty, so that job
+ * names which queue often do not starve others.
+ *
+ * score = priorityLevel * priorityWeight + minutesQueued * ageWeight - recentDispatches * fairnessPenalty
+ *
+ * With the default weights a job which waits for twenty minutes overtakes a job of the next higher priority level,
+ * thus urgent jobs are dispatched first without starving low priority work.
+ */
+public final class WeightedQueueOrderingPolicy implements QueueOrderingPolicy {
+
+    public static final double DEFAULT_PRIORITY_WEIGHT = 20;
+    public static final double DEFAULT_AGE_WEIGHT = 1;
+    public static final double DEFAULT_FAIRNESS_PENALTY = 2;
+    public static final long DEFAULT_FAIRNESS_WINDOW = TimeUnit.MINUTES.toMillis(10);
+
+    private final double priorityWeight;
+    private final double ageWeight;
+    private final double fairnessPenalty;
+    private final long fairnessWindow;
+
+    private final Map<String, Deque<Long>> dispatches = new HashMap<>();
+
+    public WeightedQueueOrderingPolicy() {
+        this(DEFAULT_PRIORITY_WEIGHT, DEFAULT_AGE_WEIGHT, DEFAULT_FAIRNESS_PENALTY, DEFAULT_FAIRNESS_WINDOW);
+    }
+
+    /**
+     * @param priorityWeight The weight of a priority level
+     * @param ageWeight The weight of each minute a job is queued
+     * @param fairnessPenalty The penalty for each dispatch of a job with the same name within the fairness window
+     * @param fairnessWindow The time in milliseconds in which dispatches are taken into account
+     */
+    public WeightedQueueOrderingPolicy(double priorityWeight, double ageWeight, double fairnessPenalty, long fairnessWindow) {
+        this.priorityWeight = priorityWeight;
+        this.ageWeight = ageWeight;
+        this.fairnessPenalty = fairnessPenalty;
+        this.fairnessWindow = fairnessWindow;
+    }
+
+    @Override
+    public List<JobInfo> order(List<JobInfo> queuedJobs) {
+        final long currentTime = System.currentTimeMillis();
+        final Map<JobInfo, Double> scores = new IdentityHashMap<>();
+        for (JobInfo jobInfo : queuedJobs) {
+            scores.put(jobInfo, score(jobInfo, currentTime));
+        }
+        final List<JobInfo> orderedJobs = new ArrayList<>(queuedJobs);
+        // stable sort, jobs with equal score keep the order of the repository
+        Collections.sort(orderedJobs, new Comparator<JobInfo>() {
+            @Override
+            public int compare(JobInfo o1, JobInfo o2) {
+                return Double.compare(scores.get(o2), scores.get(o1));
+            }
+        });
+        return orderedJobs;
+    }
+
+    @Override
+    public synchronized void dispatched(JobInfo jobInfo) {
+        Deque<Long> timestamps = dispatches.get(jobInfo.getName());
+        if (timestamps == null) {
+            timestamps = new ArrayDeque<>();
+            dispatches.put(jobInfo.getName(), timestamps);
+        }
+        timestamps.addLast(System.currentTimeMillis());
+    }
+
+    double score(JobInfo jobInfo, long currentTime) {
+        final Date queuedSince = jobInfo.getNotBefore() != null ? jobInfo.getNotBefore() : jobInfo.getCreationTime();
+        final double minutesQueued = queuedSince == null ? 0 :
+                Math.max(0, currentTime - queuedSince.getTime()) / (double) TimeUnit.MINUTES.toMillis(1);
+        return jobInfo.getExecutionPriority().getLevel() * priorityWeight + minutesQueued * ageWeight
+                - recentDispatches(jobInfo.getName(), currentTime) * fairnessPenalty;
+    }
+
+    private synchronized int recentDispatches(String name, long currentTime) {
+        final Deque<Long> timestamps = dispatches.get(name);
+        if (timestamps == null) {
+            return 0;
+        }
+        while (!timestamps.isEmpty() && timestamps.peekFirst() < currentTime - fairnessWindow) {
+            timestamps.removeFirst();
+        }
+        if (timestamps.isEmpty()) {
+            dispatches.remove(name);
+            return 0;
+        }
+        return timestamps.size();
+    }
+
+}
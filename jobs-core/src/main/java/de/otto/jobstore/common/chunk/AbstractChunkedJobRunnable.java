@@ -0,0 +1,53 @@
+package de.otto.jobstore.common.chunk;
+
+import de.otto.jobstore.common.AbstractLocalJobRunnable;
+import de.otto.jobstore.common.JobExecutionContext;
+import de.otto.jobstore.service.exception.JobException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local job which reads items, processes them and writes them in chunks, see {@link ChunkProcessor}.
+ * Subclasses provide the reader, processor and writer and may override the chunk size, the parallelism and the
+ * progress interval.
+ *
+ * @param <I> The type of the items read
+ * @param <O> The type of the items written
+ */
+public abstract class AbstractChunkedJobRunnable<I, O> extends AbstractLocalJobRunnable {
+
+    @Override
+    protected void doExecute(JobExecutionContext context) throws JobException {
+        new ChunkProcessor<>(createReader(context), createProcessor(context), createWriter(context),
+                getChunkSize(), getParallelism(), getProgressInterval()).process(context);
+    }
+
+    protected abstract ItemReader<I> createReader(JobExecutionContext context) throws JobException;
+
+    protected abstract ItemProcessor<I, O> createProcessor(JobExecutionContext context) throws JobException;
+
+    protected abstract ItemWriter<O> createWriter(JobExecutionContext context) throws JobException;
+
+    /**
+     * @return The number of items read, processed and written at once, 100 by default
+     */
+    protected int getChunkSize() {
+        return 100;
+    }
+
+    /**
+     * @return The number of chunks processed at the same time, 1 by default. With a parallelism greater than 1
+     * the processor and the writer have to be thread-safe.
+     */
+    protected int getParallelism() {
+        return 1;
+    }
+
+    /**
+     * @return The minimum time between two progress log lines in milliseconds, 10 seconds by default
+     */
+    protected long getProgressInterval() {
+        return TimeUnit.SECONDS.toMillis(10);
+    }
+
+}
@@ -0,0 +1,212 @@
+package de.otto.jobstore.common.chunk;
+
+import de.otto.jobstore.common.JobExecutionContext;
+import de.otto.jobstore.common.JobLogger;
+import de.otto.jobstore.service.exception.JobException;
+import de.otto.jobstore.service.exception.JobExecutionException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads items in chunks, processes them and writes every chunk at once. The items are read by the thread executing
+ * the job. With a parallelism greater than 1 the chunks are processed and written on a pool with that many threads,
+ * which is created for every execution and shut down afterwards. At most twice as many chunks as threads are read
+ * ahead, so the memory used is bounded.
+ *
+ * Before every chunk {@link JobExecutionContext#checkForAbort()} is called, so an aborted or timed out job stops
+ * after the chunks already submitted. The progress is added to the log of the job at most once per progress interval.
+ *
+ * @param <I> The type of the items read
+ * @param <O> The type of the items written
+ */
+public final class ChunkProcessor<I, O> {
+
+    private final ItemReader<I> reader;
+    private final ItemProcessor<I, O> processor;
+    private final ItemWriter<O> writer;
+    private final int chunkSize;
+    private final int parallelism;
+    private final long progressInterval;
+
+    /**
+     * @param reader The reader of the items
+     * @param processor The processor of the items
+     * @param writer The writer of the processed items
+     * @param chunkSize The number of items read, processed and written at once
+     * @param parallelism The number of chunks processed at the same time
+     * @param progressInterval The minimum time between two progress log lines in milliseconds
+     */
+    public ChunkProcessor(ItemReader<I> reader, ItemProcessor<I, O> processor, ItemWriter<O> writer, int chunkSize,
+                          int parallelism, long progressInterval) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.reader = reader;
+        this.processor = processor;
+        this.writer = writer;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Processes all items of the reader
+     *
+     * @param context The context of the job execution
+     * @return The number of items written
+     * @throws JobException If reading, processing or writing failed or the job was aborted or timed out
+     */
+    public long process(JobExecutionContext context) throws JobException {
+        final Progress progress = new Progress(context.getJobLogger(), progressInterval);
+        if (parallelism == 1) {
+            processSequentially(context, progress);
+        } else {
+            processInParallel(context, progress);
+        }
+        progress.log(true);
+        return progress.written;
+    }
+
+    private void processSequentially(JobExecutionContext context, Progress progress) throws JobException {
+        List<I> chunk;
+        while (!(chunk = readChunk()).isEmpty()) {
+            context.checkForAbort();
+            progress.read(chunk.size());
+            try {
+                progress.written(processAndWrite(chunk));
+            } catch (Exception e) {
+                throw new JobExecutionException("Processing of chunk " + progress.chunks + " failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void processInParallel(JobExecutionContext context, Progress progress) throws JobException {
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ChunkThreadFactory(context));
+        final Deque<Future<Integer>> submittedChunks = new ArrayDeque<>();
+        try {
+            List<I> chunk;
+            while (!(chunk = readChunk()).isEmpty()) {
+                context.checkForAbort();
+                progress.read(chunk.size());
+                if (submittedChunks.size() >= parallelism * 2) {
+                    awaitChunk(submittedChunks.poll(), context, progress);
+                }
+                final List<I> items = chunk;
+                submittedChunks.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return processAndWrite(items);
+                    }
+                }));
+            }
+            while (!submittedChunks.isEmpty()) {
+                awaitChunk(submittedChunks.poll(), context, progress);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitChunk(Future<Integer> chunk, JobExecutionContext context, Progress progress) throws JobException {
+        try {
+            progress.written(chunk.get());
+        } catch (ExecutionException e) {
+            throw new JobExecutionException("Processing of a chunk failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            context.checkForAbort();
+            throw new JobExecutionException("Interrupted while processing chunks", e);
+        }
+    }
+
+    private List<I> readChunk() throws JobExecutionException {
+        final List<I> chunk = new ArrayList<>(chunkSize);
+        try {
+            I item;
+            while (chunk.size() < chunkSize && (item = reader.read()) != null) {
+                chunk.add(item);
+            }
+        } catch (Exception e) {
+            throw new JobExecutionException("Reading of items failed: " + e.getMessage(), e);
+        }
+        return chunk;
+    }
+
+    private int processAndWrite(List<I> chunk) throws Exception {
+        final List<O> processed = new ArrayList<>(chunk.size());
+        for (I item : chunk) {
+            final O result = processor.process(item);
+            if (result != null) {
+                processed.add(result);
+            }
+        }
+        if (!processed.isEmpty()) {
+            writer.write(processed);
+        }
+        return processed.size();
+    }
+
+    /**
+     * Only accessed by the thread executing the job
+     */
+    private static final class Progress {
+
+        private final JobLogger jobLogger;
+        private final long interval;
+        private final long start = System.currentTimeMillis();
+        private long lastLog = start;
+        private long chunks;
+        private long read;
+        private long written;
+
+        Progress(JobLogger jobLogger, long interval) {
+            this.jobLogger = jobLogger;
+            this.interval = interval;
+        }
+
+        void read(int items) {
+            chunks++;
+            read += items;
+        }
+
+        void written(int items) {
+            written += items;
+            log(false);
+        }
+
+        void log(boolean force) {
+            final long now = System.currentTimeMillis();
+            if (jobLogger != null && (force || now - lastLog >= interval)) {
+                lastLog = now;
+                jobLogger.addLoggingData("Read " + read + " items in " + chunks + " chunks and wrote " + written +
+                        " items in " + (now - start) + " ms");
+            }
+        }
+    }
+
+    private static final class ChunkThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        ChunkThreadFactory(JobExecutionContext context) {
+            this.prefix = (context.getJobDefinition() == null ? context.getId() : context.getJobDefinition().getName()) + "-chunk-";
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package de.otto.jobstore.common.chunk;
+
+/**
+ * Transforms the items read by the {@link ItemReader} before they are written. If chunks are processed in parallel
+ * the processor is called concurrently and has to be thread-safe.
+ *
+ * @param <I> The type of the items read
+ * @param <O> The type of the items written
+ */
+public interface ItemProcessor<I, O> {
+
+    /**
+     * Processes the given item
+     *
+     * @param item The item to process
+     * @return The processed item or null if the item is to be skipped
+     * @throws Exception If the item could not be processed, the job fails
+     */
+    O process(I item) throws Exception;
+
+}
@@ -0,0 +1,18 @@
+package de.otto.jobstore.common.chunk;
+
+/**
+ * Reads the items a chunk-oriented job processes. The reader is only called by the thread executing the job.
+ *
+ * @param <I> The type of the items
+ */
+public interface ItemReader<I> {
+
+    /**
+     * Reads the next item
+     *
+     * @return The next item or null if all items were read
+     * @throws Exception If the item could not be read, the job fails
+     */
+    I read() throws Exception;
+
+}
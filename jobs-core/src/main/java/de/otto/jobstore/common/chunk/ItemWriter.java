@@ -0,0 +1,21 @@
+package de.otto.jobstore.common.chunk;
+
+import java.util.List;
+
+/**
+ * Writes the processed items of a chunk at once. If chunks are processed in parallel the writer is called
+ * concurrently and has to be thread-safe.
+ *
+ * @param <O> The type of the items
+ */
+public interface ItemWriter<O> {
+
+    /**
+     * Writes the processed items of a chunk
+     *
+     * @param items The processed items, never empty
+     * @throws Exception If the items could not be written, the job fails
+     */
+    void write(List<? extends O> items) throws Exception;
+
+}
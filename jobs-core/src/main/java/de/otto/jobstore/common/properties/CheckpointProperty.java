@@ -0,0 +1,25 @@
+package de.otto.jobstore.common.properties;
+
+
+/**
+ * Properties of Checkpoint
+ *
+ * {@link de.otto.jobstore.common.Checkpoint}
+ */
+public enum CheckpointProperty implements ItemProperty {
+
+    KEY("key"),
+    STATE("state"),
+    TIMESTAMP("timestamp");
+
+    private final String value;
+
+    private CheckpointProperty(String value) {
+        this.value = value;
+    }
+
+    public String val() {
+        return value;
+    }
+
+}
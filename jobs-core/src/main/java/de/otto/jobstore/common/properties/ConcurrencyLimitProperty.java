@@ -0,0 +1,24 @@
+package de.otto.jobstore.common.properties;
+
+/**
+ * Key names used to refer to properties in ConcurrencyLimit.
+ *
+ * {@link de.otto.jobstore.common.ConcurrencyLimit}
+ */
+public enum ConcurrencyLimitProperty implements ItemProperty {
+
+    RESOURCE("_id"),
+    HOLDERS("holders"),
+    LAST_MODIFICATION_TIME("lastModificationTime");
+
+    private final String value;
+
+    private ConcurrencyLimitProperty(String value) {
+        this.value = value;
+    }
+
+    public String val() {
+        return value;
+    }
+
+}
@@ -0,0 +1,27 @@
+package de.otto.jobstore.common.properties;
+
+
+/**
+ * Properties of ExecutionMetrics
+ *
+ * {@link de.otto.jobstore.common.ExecutionMetrics}
+ */
+public enum ExecutionMetricsProperty implements ItemProperty {
+
+    CPU_TIME("cpuTime"),
+    ALLOCATED_BYTES("allocatedBytes"),
+    PREPARE_TIME("prepareTime"),
+    EXECUTE_TIME("executeTime"),
+    AFTER_EXECUTION_TIME("afterExecutionTime");
+
+    private final String value;
+
+    private ExecutionMetricsProperty(String value) {
+        this.value = value;
+    }
+
+    public String val() {
+        return value;
+    }
+
+}
@@ -13,9 +13,12 @@ public enum JobDefinitionProperty implements ItemProperty {
     POLLING_INTERVAL("pollingInterval"),
     MAX_RETRIES("maxRetries"),
     RETRY_INTERVAL("retryInterval"),
+    MEMOIZATION_WINDOW("memoizationWindow"),
+    MAX_QUEUE_DEPTH("maxQueueDepth"),
     REMOTE("remote"),
     DISABLED("disabled", true),
     LAST_NOT_EXECUTED("lastNotExecuted", true),
+    QUEUE_SLOTS("queueSlots", true),
     ABORTABLE("abortable");
 
     private final String value;
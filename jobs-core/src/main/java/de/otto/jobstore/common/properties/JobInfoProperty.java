@@ -11,11 +11,27 @@ public enum JobInfoProperty implements ItemProperty {
     NAME("name"),
     HOST("host"),
     THREAD("thread"),
+    INSTANCE_ID("instanceId"),
     CREATION_TIME("creationTime"),
+    NOT_BEFORE("notBefore"),
+    ELIGIBLE_TIME("eligibleTime"),
+    LAST_DISPATCH_ATTEMPT("lastDispatchAttempt"),
+    DISPATCH_ATTEMPTS("dispatchAttempts"),
+    BLOCKED_BY("blockedBy"),
+    SCHEDULER_WAIT_TIME("schedulerWaitTime"),
+    CONSTRAINT_WAIT_TIME("constraintWaitTime"),
     START_TIME("startTime"),
     FINISH_TIME("finishTime"),
     PARAMETERS("parameters"),
+    PARAMETERS_HASH("parametersHash"),
+    IDEMPOTENCY_KEYS("idempotencyKeys"),
+    QUEUE_KEY("queueKey"),
+    CALLBACK_TOKEN_HASH("callbackTokenHash"),
+    REMOTE_LOG_OFFSET("remoteLogOffset"),
+    CHECKPOINT("checkpoint"),
+    PROGRESS("progress"),
     EXECUTION_PRIORITY("executionPriority"),
+    PRIORITY_LEVEL("priorityLevel"),
     STATUS_MESSAGE("statusMessage"),
     RESULT_MESSAGE("resultMessage"),
     RUNNING_STATE("runningState"),
@@ -23,8 +39,12 @@ public enum JobInfoProperty implements ItemProperty {
     MAX_IDLE_TIME("maxIdleTime"),
     MAX_EXECUTION_TIME("maxExecutionTime"),
     RETRIES("retries"),
+    MAX_RETRIES("maxRetries"),
+    RETRY_INTERVAL("retryInterval"),
+    NEXT_RETRY_AT("nextRetryAt"),
     LAST_MODIFICATION_TIME("lastModificationTime"),
     ADDITIONAL_DATA("additionalData"),
+    EXECUTION_METRICS("executionMetrics"),
     LOG_LINES("logLines"),
     REMOTE_JOB_URI("remoteJobUri"),
     ABORTED("aborted");
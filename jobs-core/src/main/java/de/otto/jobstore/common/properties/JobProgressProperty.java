@@ -0,0 +1,28 @@
+package de.otto.jobstore.common.properties;
+
+
+/**
+ * Properties of JobProgress
+ *
+ * {@link de.otto.jobstore.common.JobProgress}
+ */
+public enum JobProgressProperty implements ItemProperty {
+
+    DONE("done"),
+    TOTAL("total"),
+    PERCENT("percent"),
+    ITEMS_PER_SECOND("itemsPerSecond"),
+    ESTIMATED_FINISH_TIME("estimatedFinishTime"),
+    TIMESTAMP("timestamp");
+
+    private final String value;
+
+    private JobProgressProperty(String value) {
+        this.value = value;
+    }
+
+    public String val() {
+        return value;
+    }
+
+}
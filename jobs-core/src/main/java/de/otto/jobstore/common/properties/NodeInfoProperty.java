@@ -0,0 +1,28 @@
+package de.otto.jobstore.common.properties;
+
+/**
+ * Key names used to refer to properties in NodeInfo.
+ *
+ * {@link de.otto.jobstore.common.NodeInfo}
+ */
+public enum NodeInfoProperty implements ItemProperty {
+
+    NODE_ID("nodeId"),
+    HOST("host"),
+    RUNNING_JOBS("runningJobs"),
+    MAX_JOBS("maxJobs"),
+    SYSTEM_LOAD("systemLoad"),
+    HEAP_USAGE("heapUsage"),
+    LAST_MODIFICATION_TIME("lastModificationTime");
+
+    private final String value;
+
+    private NodeInfoProperty(String value) {
+        this.value = value;
+    }
+
+    public String val() {
+        return value;
+    }
+
+}
@@ -2,16 +2,44 @@ package de.otto.jobstore.common.util;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.UUID;
 
 public final class InternetUtils {
 
+    private static volatile String hostName;
+
+    private static volatile String instanceId;
+
     private InternetUtils() {}
 
     /**
-     * Returns the canonical hostname
+     * Returns the canonical hostname. The hostname is only resolved once since the canonical lookup may be slow.
      * @return canonical hostname
      */
     public static String getHostName() {
+        if (hostName == null) {
+            hostName = resolveHostName();
+        }
+        return hostName;
+    }
+
+    /**
+     * Returns an id which identifies this instance (JVM) as long as it is running. Contrary to the hostname it
+     * differs between several instances running on the same host and between restarts of an instance.
+     * @return id of this instance
+     */
+    public static String getInstanceId() {
+        if (instanceId == null) {
+            synchronized (InternetUtils.class) {
+                if (instanceId == null) {
+                    instanceId = getHostName() + "-" + UUID.randomUUID().toString();
+                }
+            }
+        }
+        return instanceId;
+    }
+
+    private static String resolveHostName() {
         try {
             final InetAddress address = InetAddress.getLocalHost();
             return address.getCanonicalHostName();
@@ -0,0 +1,41 @@
+package de.otto.jobstore.common.util;
+
+import java.util.Random;
+
+/**
+ * Computes the delay before a failed job is retried. The delay starts with the retry interval of the job
+ * definition and doubles with every further failure. A random jitter is added on top, so that jobs which failed
+ * at the same time, e.g. because of an unavailable backend, are not retried all at once.
+ */
+public final class RetryBackoff {
+
+    private static final int MAX_EXPONENT = 16;
+
+    private static final double JITTER_FACTOR = 0.2;
+
+    private static final Random RANDOM = new Random();
+
+    private RetryBackoff() {}
+
+    /**
+     * Returns the delay before the next retry including a jitter of up to 20 percent
+     *
+     * @param retryInterval The base interval in milliseconds
+     * @param attempt The number of retries already performed, 0 for the first retry
+     * @return The delay in milliseconds
+     */
+    public static long delay(long retryInterval, long attempt) {
+        return delay(retryInterval, attempt, RANDOM.nextDouble());
+    }
+
+    static long delay(long retryInterval, long attempt, double random) {
+        if (retryInterval <= 0) {
+            return 0;
+        }
+        final int exponent = (int) Math.min(Math.max(attempt, 0), MAX_EXPONENT);
+        final long backoff = retryInterval > (Long.MAX_VALUE >> exponent) ? Long.MAX_VALUE : retryInterval << exponent;
+        final long jitter = (long) (backoff * JITTER_FACTOR * random);
+        return backoff > Long.MAX_VALUE - jitter ? Long.MAX_VALUE : backoff + jitter;
+    }
+
+}
@@ -2,25 +2,53 @@ package de.otto.jobstore.repository;
 
 import com.mongodb.*;
 import de.otto.jobstore.common.AbstractItem;
+import de.otto.jobstore.common.JobEventListener;
+import de.otto.jobstore.common.JobEventListeners;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Base class of all repositories. The indexes of the collection are prepared by {@link #init()}, which has to be
+ * called once before the repository is used. {@link de.otto.jobstore.service.JobService} and
+ * {@link de.otto.jobstore.service.JobInfoService} initialize the repositories they are created or configured with.
+ */
 public abstract class AbstractRepository<E extends AbstractItem> {
 
+    /**
+     * Name of the collection which stores the version of the indexes of every repository collection
+     */
+    public static final String METADATA_COLLECTION = "jobstore_metadata";
+
+    private static final String INDEX_VERSION = "indexVersion";
+
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    protected final DBCollection collection;
+    protected final TimedCollection collection;
+
+    private final DBCollection metadataCollection;
+
+    private final CountDownLatch collectionPrepared = new CountDownLatch(1);
+
+    private final AtomicBoolean initialized = new AtomicBoolean(false);
+
+    protected final JobEventListeners eventListeners = new JobEventListeners();
 
     private WriteConcern safeWriteConcern = WriteConcern.SAFE;
 
     public AbstractRepository(MongoClient mongoClient, String dbName, String collectionName) {
-        this.collection = mongoClient.getDB(dbName).getCollection(collectionName);
+        this.collection = new TimedCollection(mongoClient.getDB(dbName).getCollection(collectionName), getClass().getSimpleName(), eventListeners);
+        this.metadataCollection = mongoClient.getDB(dbName).getCollection(METADATA_COLLECTION);
         logger.info("Prepare access to MongoDB collection '{}' on {}/{}", collectionName, mongoClient, dbName);
-        prepareCollection();
     }
 
     public AbstractRepository(MongoClient mongo, String dbName, String collectionName, WriteConcern safeWriteConcern) {
@@ -89,6 +117,15 @@ public abstract class AbstractRepository<E extends AbstractItem> {
         return safeWriteConcern;
     }
 
+    /**
+     * Registers a listener which is notified about the calls of this repository and the job events it detects
+     *
+     * @param listener The listener to register
+     */
+    public void addJobEventListener(JobEventListener listener) {
+        eventListeners.add(listener);
+    }
+
     public void save(E item) {
         final DBObject obj = item.toDbObject();
         try {
@@ -107,7 +144,9 @@ public abstract class AbstractRepository<E extends AbstractItem> {
         logger.info("Going to clear all entities on collection: {}", collection.getFullName());
         if (dropCollection) {
             collection.drop();
-            prepareCollection();
+            createIndexes(true);
+            createIndexes(false);
+            prepareCollectionAndStoreIndexVersion();
         } else {
             try {
                 collection.remove(new BasicDBObject(), this.safeWriteConcern);
@@ -119,25 +158,201 @@ public abstract class AbstractRepository<E extends AbstractItem> {
         }
     }
 
+    /**
+     * Prepares the collection if the stored index version differs from {@link #getIndexVersion()}. Obsolete indexes
+     * are dropped and unique indexes are created right away, so the repository is never used without them and this
+     * method fails if they cannot be created. All other indexes are created and {@link #prepareCollection()} is
+     * called in the background, so the startup does not wait for their round-trips. The version is only stored after
+     * the collection was prepared successfully. Calling this method again has no effect.
+     */
+    public void init() {
+        if (!initialized.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final DBObject metadata = metadataCollection.findOne(new BasicDBObject("_id", collection.getName()));
+            if (metadata != null && metadata.get(INDEX_VERSION) instanceof Number &&
+                    ((Number) metadata.get(INDEX_VERSION)).intValue() == getIndexVersion()) {
+                logger.info("Indexes of collection '{}' are up to date with version {}", collection.getName(), getIndexVersion());
+                collectionPrepared.countDown();
+                return;
+            }
+            dropObsoleteIndexes();
+            createIndexes(true);
+        } catch (RuntimeException e) {
+            initialized.set(false);
+            throw e;
+        }
+        final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "jobstore-prepare-" + collection.getName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    createIndexes(false);
+                    prepareCollectionAndStoreIndexVersion();
+                    logger.info("Prepared indexes of collection '{}' with version {}", collection.getName(), getIndexVersion());
+                } catch (Exception e) {
+                    logger.error("Could not prepare indexes of collection " + collection.getName(), e);
+                } finally {
+                    collectionPrepared.countDown();
+                }
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Waits until the indexes of the collection are prepared by {@link #init()}. Indexes are only prepared in the
+     * background if the stored index version differs from {@link #getIndexVersion()}, otherwise this method returns
+     * as soon as the repository was initialized.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     * @return true - The indexes are prepared<br>
+     *     false - The timeout elapsed before the indexes were prepared
+     * @throws InterruptedException If the current thread was interrupted while waiting
+     */
+    public boolean awaitCollectionPrepared(long timeout, TimeUnit unit) throws InterruptedException {
+        return collectionPrepared.await(timeout, unit);
+    }
+
     // ~~
 
+    private void prepareCollectionAndStoreIndexVersion() {
+        prepareCollection();
+        metadataCollection.update(new BasicDBObject("_id", collection.getName()),
+                new BasicDBObject(MongoOperator.SET.op(), new BasicDBObject(INDEX_VERSION, getIndexVersion())), true, false);
+    }
+
+    private void dropObsoleteIndexes() {
+        final List<String> obsoleteIndexNames = getObsoleteIndexNames();
+        if (obsoleteIndexNames.isEmpty()) {
+            return;
+        }
+        for (DBObject indexInfo : collection.getIndexInfo()) {
+            if (obsoleteIndexNames.contains(indexInfo.get("name"))) {
+                collection.dropIndex((String) indexInfo.get("name"));
+            }
+        }
+    }
+
+    private void createIndexes(boolean unique) {
+        for (Index index : getIndexes()) {
+            if (index.isUnique() == unique) {
+                collection.createIndex(index.keys, index.options);
+            }
+        }
+    }
+
+    /**
+     * The indexes of the collection, unique indexes are created before the repository is used
+     *
+     * @return The definitions of the indexes
+     */
+    protected List<Index> getIndexes() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * The names of indexes which were replaced by other indexes and are dropped before the indexes are created
+     *
+     * @return The names of the obsolete indexes
+     */
+    protected List<String> getObsoleteIndexNames() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * The version of the indexes of the collection, which is derived from the definitions of the indexes and the
+     * names of the obsolete indexes. The collection is only prepared if the version stored for it differs, i.e. once
+     * after an index was added, removed or changed.
+     *
+     * @return The version of the indexes
+     */
+    protected int getIndexVersion() {
+        final StringBuilder definition = new StringBuilder();
+        for (Index index : getIndexes()) {
+            definition.append(index.keys).append(index.options);
+        }
+        return definition.append(getObsoleteIndexNames()).toString().hashCode();
+    }
+
+    /**
+     * Prepares the collection after its indexes were created, e.g. migrates existing documents. Since it is only
+     * called if the index version changed, it has to be idempotent.
+     */
     abstract protected void prepareCollection();
 
     abstract protected E fromDbObject(DBObject dbObject);
 
     protected List<E> getAll(final DBCursor cursor) {
-        final List<E> elements = new ArrayList<>();
-        while (cursor.hasNext()) {
-            elements.add(fromDbObject(cursor.next()));
+        final long startNanos = System.nanoTime();
+        try {
+            final List<E> elements = new ArrayList<>();
+            while (cursor.hasNext()) {
+                elements.add(fromDbObject(cursor.next()));
+            }
+            return elements;
+        } finally {
+            collection.record("find", startNanos);
         }
-        return elements;
     }
 
     protected E getFirst(final DBCursor cursor) {
-        if (cursor.hasNext()) {
-            return fromDbObject(cursor.next());
+        final long startNanos = System.nanoTime();
+        try {
+            if (cursor.hasNext()) {
+                return fromDbObject(cursor.next());
+            }
+            return null;
+        } finally {
+            collection.record("find", startNanos);
         }
-        return null;
+    }
+
+    /**
+     * The definition of an index of the collection
+     */
+    protected static final class Index {
+
+        private final DBObject keys;
+        private final DBObject options;
+
+        /**
+         * @param keys The keys of the index
+         * @param name The name of the index
+         */
+        public Index(DBObject keys, String name) {
+            this(keys, new BasicDBObject("name", name));
+        }
+
+        /**
+         * @param keys The keys of the index
+         * @param options The options of the index, which include its name
+         */
+        public Index(DBObject keys, DBObject options) {
+            this.keys = keys;
+            this.options = options;
+        }
+
+        /**
+         * @return A unique index with the given keys and name
+         */
+        public static Index unique(DBObject keys, String name) {
+            return new Index(keys, new BasicDBObject("name", name).append("unique", true));
+        }
+
+        boolean isUnique() {
+            return Boolean.TRUE.equals(options.get("unique"));
+        }
+
     }
 
 }
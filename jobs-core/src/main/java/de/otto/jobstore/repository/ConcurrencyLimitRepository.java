@@ -0,0 +1,90 @@
+package de.otto.jobstore.repository;
+
+import com.mongodb.*;
+import de.otto.jobstore.common.ConcurrencyLimit;
+import de.otto.jobstore.common.properties.ConcurrencyLimitProperty;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Stores one counter document per limited resource. A job may only use the resource after it was added to the
+ * holders of the document, which is done atomically and only if the number of holders is below the maximum.
+ */
+public class ConcurrencyLimitRepository extends AbstractRepository<ConcurrencyLimit> {
+
+    public ConcurrencyLimitRepository(MongoClient mongo, String dbName, String collectionName) {
+        super(mongo, dbName, collectionName);
+    }
+
+    public ConcurrencyLimitRepository(MongoClient mongo, String dbName, String collectionName, WriteConcern safeWriteConcern) {
+        super(mongo, dbName, collectionName, safeWriteConcern);
+    }
+
+    /**
+     * Adds the job to the holders of the resource if the resource is held by less than maxConcurrency jobs.
+     *
+     * @param resource The name of the resource
+     * @param maxConcurrency The maximum number of jobs which may hold the resource at the same time
+     * @param jobId The id of the job
+     * @return true - The job holds the resource<br/>
+     *         false - The maximum number of holders is reached
+     */
+    public boolean acquire(final String resource, final int maxConcurrency, final String jobId) {
+        if (maxConcurrency <= 0) {
+            return false;
+        }
+        final DBObject query = new BasicDBObject(ConcurrencyLimitProperty.RESOURCE.val(), resource).
+                append(ConcurrencyLimitProperty.HOLDERS.val() + "." + (maxConcurrency - 1), new BasicDBObject(MongoOperator.EXISTS.op(), false));
+        final DBObject update = new BasicDBObject(MongoOperator.ADD_TO_SET.op(), new BasicDBObject(ConcurrencyLimitProperty.HOLDERS.val(), jobId)).
+                append(MongoOperator.SET.op(), new BasicDBObject(ConcurrencyLimitProperty.LAST_MODIFICATION_TIME.val(), new Date()));
+        try {
+            final WriteResult result = collection.update(query, update, true, false, getSafeWriteConcern());
+            return result.getN() == 1;
+        } catch (DuplicateKeyException e) {
+            // document exists but the maximum number of holders is reached, thus the upsert tried to insert it again
+            return false;
+        }
+    }
+
+    /**
+     * Removes the job from the holders of the resource
+     *
+     * @param resource The name of the resource
+     * @param jobId The id of the job
+     */
+    public void release(final String resource, final String jobId) {
+        final DBObject update = new BasicDBObject(MongoOperator.PULL.op(), new BasicDBObject(ConcurrencyLimitProperty.HOLDERS.val(), jobId)).
+                append(MongoOperator.SET.op(), new BasicDBObject(ConcurrencyLimitProperty.LAST_MODIFICATION_TIME.val(), new Date()));
+        collection.update(new BasicDBObject(ConcurrencyLimitProperty.RESOURCE.val(), resource), update, false, false, getSafeWriteConcern());
+    }
+
+    /**
+     * Returns the ids of the jobs currently holding the resource
+     *
+     * @param resource The name of the resource
+     * @return The ids of the jobs
+     */
+    public List<String> findHolders(final String resource) {
+        final ConcurrencyLimit concurrencyLimit = fromDbObject(collection.findOne(new BasicDBObject(ConcurrencyLimitProperty.RESOURCE.val(), resource)));
+        if (concurrencyLimit == null) {
+            return Collections.emptyList();
+        }
+        return concurrencyLimit.getHolders();
+    }
+
+    @Override
+    protected void prepareCollection() {
+        // documents are identified by _id only, no further indexes required
+    }
+
+    @Override
+    protected ConcurrencyLimit fromDbObject(DBObject dbObject) {
+        if (dbObject == null) {
+            return null;
+        }
+        return new ConcurrencyLimit(dbObject);
+    }
+
+}
@@ -4,7 +4,11 @@ import com.mongodb.*;
 import de.otto.jobstore.common.*;
 import de.otto.jobstore.common.properties.JobDefinitionProperty;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 
 public class JobDefinitionRepository extends AbstractRepository<StoredJobDefinition> {
@@ -47,9 +51,25 @@ public class JobDefinitionRepository extends AbstractRepository<StoredJobDefinit
         return fromDbObject(object);
     }
 
+    /**
+     * Returns the job definitions with the given names
+     *
+     * @param names The names of the job definitions
+     * @return The job definitions which could be found
+     */
+    public List<StoredJobDefinition> find(Collection<String> names) {
+        final DBCursor cursor = collection.find(new BasicDBObject(JobDefinitionProperty.NAME.val(),
+                new BasicDBObject(MongoOperator.IN.op(), new ArrayList<>(names))));
+        return getAll(cursor);
+    }
+
+    @Override
+    protected List<Index> getIndexes() {
+        return Collections.singletonList(Index.unique(new BasicDBObject(JobDefinitionProperty.NAME.val(), 1), "name"));
+    }
+
     @Override
     protected void prepareCollection() {
-        collection.createIndex(new BasicDBObject(JobDefinitionProperty.NAME.val(), 1), "name", true);
     }
 
     @Override
@@ -65,6 +85,23 @@ public class JobDefinitionRepository extends AbstractRepository<StoredJobDefinit
         collection.update(new BasicDBObject(JobDefinitionProperty.NAME.val(), jobDefinition.getName()), obj, true, false, getSafeWriteConcern());
     }
 
+    /**
+     * Adds or updates all given job definitions with a single unordered bulk write
+     *
+     * @param jobDefinitions The job definitions to add or update
+     */
+    public void addOrUpdateAll(Collection<StoredJobDefinition> jobDefinitions) {
+        if (jobDefinitions.isEmpty()) {
+            return;
+        }
+        final BulkWriteOperation bulkWrite = collection.initializeUnorderedBulkOperation();
+        for (StoredJobDefinition jobDefinition : jobDefinitions) {
+            bulkWrite.find(new BasicDBObject(JobDefinitionProperty.NAME.val(), jobDefinition.getName()))
+                    .upsert().updateOne(new BasicDBObject(MongoOperator.SET.op(), buildUpdateObject(jobDefinition)));
+        }
+        collection.execute(bulkWrite, getSafeWriteConcern());
+    }
+
     private BasicDBObject buildUpdateObject(StoredJobDefinition jobDefinition) {
         final BasicDBObject basicDBObject = new BasicDBObject();
         final DBObject jobDefObj = jobDefinition.toDbObject();
@@ -86,4 +123,54 @@ public class JobDefinitionRepository extends AbstractRepository<StoredJobDefinit
                 new BasicDBObject(MongoOperator.SET.op(), new BasicDBObject(JobDefinitionProperty.LAST_NOT_EXECUTED.val(), date)));
     }
 
+    /**
+     * Reserves a slot in the queue of the job definition with the given name for the job with the given id. The
+     * reservation is a single conditional update, so concurrent reservations never exceed the given queue depth.
+     *
+     * @param name The name of the job definition
+     * @param jobId The id of the queued job
+     * @param maxQueueDepth The number of slots in the queue
+     * @return true - The slot was reserved<br/>
+     *         false - All slots are reserved
+     */
+    public boolean reserveQueueSlot(String name, String jobId, long maxQueueDepth) {
+        final DBObject query = new BasicDBObject(JobDefinitionProperty.NAME.val(), name).
+                append(JobDefinitionProperty.QUEUE_SLOTS.val() + "." + (maxQueueDepth - 1), new BasicDBObject(MongoOperator.EXISTS.op(), false));
+        final WriteResult result = collection.update(query,
+                new BasicDBObject(MongoOperator.PUSH.op(), new BasicDBObject(JobDefinitionProperty.QUEUE_SLOTS.val(), jobId)),
+                false, false, getSafeWriteConcern());
+        return result.getN() == 1;
+    }
+
+    /**
+     * Returns the ids of the jobs which reserved a slot in the queue of the job definition with the given name
+     *
+     * @param name The name of the job definition
+     * @return The ids of the jobs holding a slot
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> findQueueSlots(String name) {
+        final DBObject object = collection.findOne(new BasicDBObject(JobDefinitionProperty.NAME.val(), name));
+        if (object == null || object.get(JobDefinitionProperty.QUEUE_SLOTS.val()) == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>((List<String>) object.get(JobDefinitionProperty.QUEUE_SLOTS.val()));
+    }
+
+    /**
+     * Releases the slots which the jobs with the given ids reserved in the queue of the job definition with the given name
+     *
+     * @param name The name of the job definition
+     * @param jobIds The ids of the jobs which left the queue
+     */
+    public void releaseQueueSlots(String name, Collection<String> jobIds) {
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        collection.update(new BasicDBObject(JobDefinitionProperty.NAME.val(), name),
+                new BasicDBObject(MongoOperator.PULL.op(), new BasicDBObject(JobDefinitionProperty.QUEUE_SLOTS.val(),
+                        new BasicDBObject(MongoOperator.IN.op(), new ArrayList<>(jobIds)))),
+                false, false, getSafeWriteConcern());
+    }
+
 }
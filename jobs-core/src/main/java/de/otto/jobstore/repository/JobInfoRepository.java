@@ -4,6 +4,7 @@ import com.mongodb.*;
 import de.otto.jobstore.common.*;
 import de.otto.jobstore.common.properties.JobInfoProperty;
 import de.otto.jobstore.common.util.InternetUtils;
+import de.otto.jobstore.common.util.RetryBackoff;
 import org.bson.types.ObjectId;
 
 import java.io.PrintWriter;
@@ -19,8 +20,22 @@ import java.util.concurrent.TimeUnit;
  */
 public class JobInfoRepository extends AbstractRepository<JobInfo> {
 
+    /**
+     * Time in milliseconds after its last modification after which a job is removed
+     */
+    public static final long TIME_TO_LIVE = TimeUnit.DAYS.toMillis(7);
+
     private static final String JOB_NAME_TIMED_OUT_CLEANUP    = "JobInfo_TimedOut_Cleanup";
     private static final long FIVE_MINUTES = 5 * 60 * 1000;
+    private static final int DUPLICATE_KEY_ERROR_CODE = 11000;
+    private static final DBObject FINISHED_FIELDS = new BasicDBObject().
+            append(JobInfoProperty.NAME.val(), 1).
+            append(JobInfoProperty.EXECUTION_PRIORITY.val(), 1).
+            append(JobInfoProperty.START_TIME.val(), 1).
+            append(JobInfoProperty.RESULT_STATE.val(), 1).
+            append(JobInfoProperty.RETRIES.val(), 1).
+            append(JobInfoProperty.MAX_RETRIES.val(), 1).
+            append(JobInfoProperty.RETRY_INTERVAL.val(), 1);
 
     private int hoursAfterWhichNotExecutedJobsAreDeleted = 2;
 
@@ -70,13 +85,54 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
      */
     public String create(final String name, final long maxIdleTime, final long maxExecutionTime, final long maxRetries, final RunningState runningState,
                          final JobExecutionPriority executionPriority, final Map<String, String> parameters) {
+        return create(name, maxIdleTime, maxExecutionTime, maxRetries, 0, runningState, executionPriority, parameters);
+    }
+
+    /**
+     * Creates a new job with the given parameters. Host and thread executing the job are determined automatically.
+     *
+     * @param name The name of the job
+     * @param maxIdleTime Sets the time after which a job is considered to be dead if unmodified (lastModifiedTime + timeout).
+     * @param maxExecutionTime Sets the time after which a job is considered to be dead (startTime + timeout).
+     * @param maxRetries Sets the number of maximum automatic retries if job fails.
+     * @param retryInterval Sets the base interval after which a failed job is retried.
+     * @param runningState The state with which the job is started
+     * @param executionPriority The priority with which the job is to be executed
+     * @param parameters Additional information to be stored with the job
+     * @return The id of the job if it could be created or null if a job with the same name and state already exists
+     */
+    public String create(final String name, final long maxIdleTime, final long maxExecutionTime, final long maxRetries, final long retryInterval,
+                         final RunningState runningState, final JobExecutionPriority executionPriority, final Map<String, String> parameters) {
+        return create(name, maxIdleTime, maxExecutionTime, maxRetries, retryInterval, runningState, executionPriority, parameters, null);
+    }
+
+    /**
+     * Creates a new job with the given parameters. Host and thread executing the job are determined automatically.
+     *
+     * @param name The name of the job
+     * @param maxIdleTime Sets the time after which a job is considered to be dead if unmodified (lastModifiedTime + timeout).
+     * @param maxExecutionTime Sets the time after which a job is considered to be dead (startTime + timeout).
+     * @param maxRetries Sets the number of maximum automatic retries if job fails.
+     * @param retryInterval Sets the base interval after which a failed job is retried.
+     * @param runningState The state with which the job is started
+     * @param executionPriority The priority with which the job is to be executed
+     * @param parameters Additional information to be stored with the job
+     * @param queueKey The key under which the job is queued, see {@link JobInfo#getQueueKey()}, null if only one job
+     *                 with the given name may be queued
+     * @return The id of the job if it could be created or null if a job with the same name, state and queue key already exists
+     */
+    public String create(final String name, final long maxIdleTime, final long maxExecutionTime, final long maxRetries, final long retryInterval,
+                         final RunningState runningState, final JobExecutionPriority executionPriority, final Map<String, String> parameters,
+                         final String queueKey) {
         final String host = InternetUtils.getHostName();
         final String thread = Thread.currentThread().getName();
-        return create(name, host, thread, maxIdleTime, maxExecutionTime, maxRetries, runningState, executionPriority, parameters);
+        return create(name, host, thread, InternetUtils.getInstanceId(), maxIdleTime, maxExecutionTime, maxRetries, retryInterval, runningState,
+                executionPriority, parameters, queueKey);
     }
 
     /**
-     * Creates a new job with the given parameters
+     * Creates a new job with the given parameters. The job is assigned to the instance calling this method, see
+     * {@link InternetUtils#getInstanceId()}, regardless of the given host.
      *
      * @param name The name of the job
      * @param host The host, on which the job is running
@@ -92,14 +148,28 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
     public String create(final String name, final String host, final String thread, final long maxIdleTime, final long maxExecutionTime,
                          final long maxRetries, final RunningState runningState, final JobExecutionPriority executionPriority,
                          final Map<String, String> parameters) {
+        return create(name, host, thread, InternetUtils.getInstanceId(), maxIdleTime, maxExecutionTime, maxRetries, 0, runningState,
+                executionPriority, parameters, null);
+    }
+
+    private String create(final String name, final String host, final String thread, final String instanceId, final long maxIdleTime,
+                          final long maxExecutionTime, final long maxRetries, final long retryInterval, final RunningState runningState,
+                          final JobExecutionPriority executionPriority, final Map<String, String> parameters, final String queueKey) {
         try {
             logger.info("Create job={} in state={} ...", name, runningState);
 
             long retries = evaluateRetriesBasedOnPreviouslyFailedJobs(name, maxRetries);
 
             final JobInfo jobInfo = new JobInfo(name, host, thread, maxIdleTime, maxExecutionTime, retries, runningState, executionPriority, parameters);
+            jobInfo.setInstanceId(instanceId);
+            jobInfo.setMaxRetries(maxRetries);
+            jobInfo.setRetryInterval(retryInterval);
+            if (queueKey != null) {
+                jobInfo.setQueueKey(queueKey);
+            }
 
             save(jobInfo);
+            fireCreated(jobInfo);
             return jobInfo.getId();
         } catch (DuplicateKeyException e) {
             logger.warn("job={} with state={} already exists, creation skipped!", name, runningState);
@@ -107,6 +177,129 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
         }
     }
 
+    /**
+     * Creates the given job.
+     *
+     * @param jobInfo The job to create
+     * @return The id of the job if it could be created or null if a job with the same name and state already exists
+     */
+    public String create(final JobInfo jobInfo) {
+        try {
+            logger.info("Create job={} in state={} ...", jobInfo.getName(), jobInfo.getRunningState());
+            if (RunningState.DELAYED.name().equals(jobInfo.getRunningState())) {
+                jobInfo.setQueueKey(createDelayedQueueKey());
+            }
+            save(jobInfo);
+            fireCreated(jobInfo);
+            return jobInfo.getId();
+        } catch (DuplicateKeyException e) {
+            logger.warn("job={} with state={} already exists, creation skipped!", jobInfo.getName(), jobInfo.getRunningState());
+            return null;
+        }
+    }
+
+    /**
+     * Creates all given jobs with a single bulk write. Jobs which violate the unique index, because a job with the
+     * same name and state already exists, are skipped.
+     *
+     * @param jobInfos The jobs to create
+     * @return The ids of the jobs in the order of the given jobs, null for jobs which could not be created
+     */
+    public List<String> create(final List<JobInfo> jobInfos) {
+        return create(jobInfos, Collections.<String>emptyList());
+    }
+
+    /**
+     * Removes the given queued jobs and creates all given jobs with a single ordered bulk write, so a queued job is
+     * never removed without the jobs replacing it being written. Jobs which are not queued anymore are not removed.
+     * Jobs which violate the unique index, because a job with the same name and state already exists, are skipped.
+     *
+     * @param jobInfos The jobs to create
+     * @param replacedIds The ids of the queued jobs which are replaced by the given jobs
+     * @return The ids of the jobs in the order of the given jobs, null for jobs which could not be created
+     */
+    public List<String> create(final List<JobInfo> jobInfos, final List<String> replacedIds) {
+        final List<String> ids = insert(jobInfos, replacedIds);
+        for (int i = 0; i < jobInfos.size(); i++) {
+            if (ids.get(i) != null) {
+                fireCreated(jobInfos.get(i));
+            }
+        }
+        return ids;
+    }
+
+    private List<String> insert(final List<JobInfo> jobInfos, final List<String> replacedIds) {
+        final List<String> ids = new ArrayList<>();
+        if (jobInfos.isEmpty()) {
+            return ids;
+        }
+        final boolean ordered = !replacedIds.isEmpty();
+        final BulkWriteOperation bulk = ordered ? collection.initializeOrderedBulkOperation() : collection.initializeUnorderedBulkOperation();
+        for (String replacedId : replacedIds) {
+            bulk.find(createIdQuery(replacedId).append(JobInfoProperty.RUNNING_STATE.val(), RunningState.QUEUED.name())).removeOne();
+        }
+        for (JobInfo jobInfo : jobInfos) {
+            final ObjectId id = new ObjectId();
+            jobInfo.toDbObject().put(JobInfoProperty.ID.val(), id);
+            bulk.insert(jobInfo.toDbObject());
+            ids.add(id.toString());
+        }
+        logger.info("Create {} jobs replacing {} queued jobs ...", jobInfos.size(), replacedIds.size());
+        try {
+            collection.execute(bulk, getSafeWriteConcern());
+        } catch (BulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() != DUPLICATE_KEY_ERROR_CODE) {
+                    throw e;
+                }
+                final int index = error.getIndex() - replacedIds.size();
+                logger.warn("job={} with state={} already exists, creation skipped!", jobInfos.get(index).getName(),
+                        jobInfos.get(index).getRunningState());
+                ids.set(index, null);
+            }
+            if (ordered) {
+                // an ordered bulk write stops at the first error, so the jobs behind it are created by another one
+                final int next = e.getWriteErrors().get(0).getIndex() - replacedIds.size() + 1;
+                final List<String> remainingIds = insert(jobInfos.subList(next, jobInfos.size()), Collections.<String>emptyList());
+                for (int i = 0; i < remainingIds.size(); i++) {
+                    ids.set(next + i, remainingIds.get(i));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Evaluates the number of retries of new jobs for several job names at once
+     *
+     * @param maxRetriesByName The maximum number of retries by job name
+     * @return The number of retries by job name
+     * @see #evaluateRetriesBasedOnPreviouslyFailedJobs(String, long)
+     */
+    public Map<String, Long> evaluateRetriesBasedOnPreviouslyFailedJobs(final Map<String, Long> maxRetriesByName) {
+        final Map<String, Long> retriesByName = new HashMap<>(maxRetriesByName);
+        if (maxRetriesByName.isEmpty()) {
+            return retriesByName;
+        }
+        final List<String> notFinishedStates = toStringList(EnumSet.complementOf(EnumSet.of(RunningState.FINISHED)));
+        final List<DBObject> pipeline = Arrays.<DBObject>asList(
+                new BasicDBObject("$match", new BasicDBObject().
+                        append(JobInfoProperty.NAME.val(), new BasicDBObject(MongoOperator.IN.op(), new ArrayList<>(maxRetriesByName.keySet()))).
+                        append(JobInfoProperty.RUNNING_STATE.val(), new BasicDBObject(MongoOperator.NIN.op(), notFinishedStates))),
+                new BasicDBObject("$sort", new BasicDBObject(JobInfoProperty.CREATION_TIME.val(), SortOrder.DESC.val())),
+                new BasicDBObject("$group", new BasicDBObject("_id", "$" + JobInfoProperty.NAME.val()).
+                        append(JobInfoProperty.RETRIES.val(), new BasicDBObject("$first", "$" + JobInfoProperty.RETRIES.val())).
+                        append(JobInfoProperty.RESULT_STATE.val(), new BasicDBObject("$first", "$" + JobInfoProperty.RESULT_STATE.val()))));
+        for (DBObject result : collection.aggregate(pipeline).results()) {
+            final String name = (String) result.get("_id");
+            if (!ResultCode.SUCCESSFUL.name().equals(result.get(JobInfoProperty.RESULT_STATE.val()))) {
+                final Number retries = (Number) result.get(JobInfoProperty.RETRIES.val());
+                retriesByName.put(name, Math.max(0, (retries == null ? 0 : retries.longValue()) - 1));
+            }
+        }
+        return retriesByName;
+    }
+
     public long evaluateRetriesBasedOnPreviouslyFailedJobs(String name, long maxRetries) {
         JobInfo jobInfo = findMostRecentFinished(name);
         if(jobInfo == null || jobInfo.getResultState() == ResultCode.SUCCESSFUL) {
@@ -128,6 +321,46 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
         return fromDbObject(jobInfo);
     }
 
+    /**
+     * Returns the queued job with the given name and queue key
+     *
+     * @param name The name of the job
+     * @param queueKey The queue key of the job, see {@link JobInfo#getQueueKey()}
+     * @return The queued job or null if no job with the given name and key is queued
+     */
+    public JobInfo findQueuedJobByQueueKey(final String name, final String queueKey) {
+        final DBObject jobInfo = collection.findOne(createFindByNameAndRunningStateQuery(name, RunningState.QUEUED.name()).
+                append(JobInfoProperty.QUEUE_KEY.val(), queueKey));
+        return fromDbObject(jobInfo);
+    }
+
+    /**
+     * Returns the ids of the given jobs which are still queued
+     *
+     * @param ids The ids of the jobs
+     * @return The ids of the jobs which are queued
+     */
+    public Set<String> findQueuedIds(final Collection<String> ids) {
+        final List<ObjectId> objectIds = new ArrayList<>();
+        for (String id : ids) {
+            if (ObjectId.isValid(id)) {
+                objectIds.add(new ObjectId(id));
+            }
+        }
+        final Set<String> queuedIds = new HashSet<>();
+        if (objectIds.isEmpty()) {
+            return queuedIds;
+        }
+        final DBCursor cursor = collection.find(new BasicDBObject().
+                        append(JobInfoProperty.ID.val(), new BasicDBObject(MongoOperator.IN.op(), objectIds)).
+                        append(JobInfoProperty.RUNNING_STATE.val(), RunningState.QUEUED.name()),
+                new BasicDBObject(JobInfoProperty.ID.val(), 1));
+        for (JobInfo jobInfo : getAll(cursor)) {
+            queuedIds.add(jobInfo.getId());
+        }
+        return queuedIds;
+    }
+
     /**
      * Checks if a job with the given name and state exists
      *
@@ -151,6 +384,123 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
         return getAll(cursor);
     }
 
+    /**
+     * Returns all queued and running jobs
+     *
+     * @return The queued and running jobs
+     */
+    public List<JobInfo> findQueuedAndRunningJobs() {
+        final DBCursor cursor = collection.find(new BasicDBObject(JobInfoProperty.RUNNING_STATE.val(),
+                new BasicDBObject(MongoOperator.IN.op(), Arrays.asList(RunningState.QUEUED.name(), RunningState.RUNNING.name()))));
+        return getAll(cursor);
+    }
+
+    /**
+     * Returns all queued jobs sorted descending by their priority and ascending by creation time.
+     *
+     * @return The queued jobs
+     */
+    public List<JobInfo> findQueuedJobsSortedByPriority() {
+        final DBCursor cursor = collection.find(new BasicDBObject(JobInfoProperty.RUNNING_STATE.val(), RunningState.QUEUED.name())).
+                sort(new BasicDBObject(JobInfoProperty.PRIORITY_LEVEL.val(), SortOrder.DESC.val()).
+                        append(JobInfoProperty.CREATION_TIME.val(), SortOrder.ASC.val()));
+        return getAll(cursor);
+    }
+
+    /**
+     * Returns all delayed jobs whose not before date is reached sorted ascending by their not before date
+     *
+     * @return The delayed jobs which are due
+     */
+    public List<JobInfo> findDueDelayedJobs() {
+        final DBCursor cursor = collection.find(new BasicDBObject().
+                append(JobInfoProperty.RUNNING_STATE.val(), RunningState.DELAYED.name()).
+                append(JobInfoProperty.NOT_BEFORE.val(), new BasicDBObject(MongoOperator.LTE.op(), new Date()))).
+                sort(new BasicDBObject(JobInfoProperty.NOT_BEFORE.val(), SortOrder.ASC.val()));
+        return getAll(cursor);
+    }
+
+    /**
+     * Returns the earliest date after the given date at which a delayed job becomes due
+     *
+     * @param after The date after which the job has to become due
+     * @return The date at which the next job becomes due or null if no job is delayed
+     */
+    public Date findNextNotBefore(final Date after) {
+        final DBObject next = collection.findOne(new BasicDBObject().
+                        append(JobInfoProperty.NOT_BEFORE.val(), new BasicDBObject(MongoOperator.GT.op(), after)).
+                        append(JobInfoProperty.RUNNING_STATE.val(), RunningState.DELAYED.name()),
+                new BasicDBObject(JobInfoProperty.NOT_BEFORE.val(), 1),
+                new BasicDBObject(JobInfoProperty.NOT_BEFORE.val(), SortOrder.ASC.val()));
+        return next == null ? null : (Date) next.get(JobInfoProperty.NOT_BEFORE.val());
+    }
+
+    /**
+     * Returns all running jobs which are executed by the instance with the given id
+     *
+     * @param instanceId The id of the instance
+     * @return The running jobs of the instance
+     */
+    public List<JobInfo> findRunningJobsByInstanceId(final String instanceId) {
+        final DBCursor cursor = collection.find(new BasicDBObject().
+                append(JobInfoProperty.RUNNING_STATE.val(), RunningState.RUNNING.name()).
+                append(JobInfoProperty.INSTANCE_ID.val(), instanceId));
+        return getAll(cursor);
+    }
+
+    /**
+     * Returns all failed jobs with the given names whose retry is due at the given date, sorted by the date the
+     * retry became due. Only the most recent finished job of a name can have a pending retry.
+     *
+     * @param names The names of the jobs
+     * @param dueDate The date at which the retries have to be due
+     * @return The jobs with a due retry
+     */
+    public List<JobInfo> findJobsWithDueRetry(final Collection<String> names, final Date dueDate) {
+        final DBCursor cursor = collection.find(new BasicDBObject().
+                append(JobInfoProperty.NEXT_RETRY_AT.val(), new BasicDBObject(MongoOperator.LTE.op(), dueDate)).
+                append(JobInfoProperty.NAME.val(), new BasicDBObject(MongoOperator.IN.op(), new ArrayList<>(names)))).
+                sort(new BasicDBObject(JobInfoProperty.NEXT_RETRY_AT.val(), SortOrder.ASC.val()));
+        return getAll(cursor);
+    }
+
+    /**
+     * Claims the pending retry of the job with the given id, so that the retry is only executed once.
+     *
+     * @param id The id of the failed job
+     * @return true - The retry was claimed<br/>
+     *         false - The retry was already claimed or cancelled
+     */
+    public boolean claimRetry(final String id) {
+        if (!ObjectId.isValid(id)) {
+            return false;
+        }
+        final WriteResult result = collection.update(createIdQuery(id).
+                        append(JobInfoProperty.NEXT_RETRY_AT.val(), new BasicDBObject(MongoOperator.EXISTS.op(), true)),
+                new BasicDBObject(MongoOperator.UNSET.op(), new BasicDBObject(JobInfoProperty.NEXT_RETRY_AT.val(), "")),
+                false, false, getSafeWriteConcern());
+        return result.getN() == 1;
+    }
+
+    /**
+     * Hands back a claimed retry which could not be executed, so that it is due again at the given date.
+     *
+     * @param id The id of the failed job
+     * @param nextRetryAt The date at which the retry is due
+     * @return true - The retry is pending again<br/>
+     *         false - The job does not exist or its retry is already pending
+     */
+    public boolean releaseRetry(final String id, final Date nextRetryAt) {
+        if (!ObjectId.isValid(id)) {
+            return false;
+        }
+        final WriteResult result = collection.update(createIdQuery(id).
+                        append(JobInfoProperty.NEXT_RETRY_AT.val(), new BasicDBObject(MongoOperator.EXISTS.op(), false)),
+                new BasicDBObject(MongoOperator.SET.op(), new BasicDBObject(JobInfoProperty.NEXT_RETRY_AT.val(), nextRetryAt)),
+                false, false, getSafeWriteConcern());
+        return result.getN() == 1;
+    }
+
     /**
      * Returns a list of jobs with the given name which have a last modified timestamp which is in between the supplied
      * dates. If the start and end parameter are null, the result list will contain all jobs with the supplied name.
@@ -205,7 +555,46 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
      */
     public boolean activateQueuedJobById(final String id) {
         logger.info("Activate job={} ...", id);
-        return changeState(id, RunningState.RUNNING, new Date());
+        final boolean activated = changeState(id, RunningState.RUNNING, new Date(), null);
+        if (activated && eventListeners.hasListeners()) {
+            final JobInfo jobInfo = findById(id);
+            if (jobInfo != null) {
+                eventListeners.jobClaimed(jobInfo.getName(), id, jobInfo.getExecutionPriority());
+            }
+        }
+        return activated;
+    }
+
+    /**
+     * Records an attempt to dispatch the queued job with the given id.
+     *
+     * @param id The id of the job
+     * @param attemptTime The date of the attempt
+     * @param eligibleTime The date at which the job became due, only stored on the first attempt, may be null
+     * @param blockedBy The reason why the job could not be dispatched or null if it was dispatched
+     * @param schedulerWaitTime The time to add to the time the job waited for the scheduler
+     * @param constraintWaitTime The time to add to the time the job waited for constraints or capacity
+     */
+    public void recordDispatchAttempt(final String id, final Date attemptTime, final Date eligibleTime, final String blockedBy,
+                                      final long schedulerWaitTime, final long constraintWaitTime) {
+        if (!ObjectId.isValid(id)) {
+            return;
+        }
+        final BasicDBObject set = new BasicDBObject(JobInfoProperty.LAST_DISPATCH_ATTEMPT.val(), attemptTime);
+        if (eligibleTime != null) {
+            set.append(JobInfoProperty.ELIGIBLE_TIME.val(), eligibleTime);
+        }
+        final BasicDBObject update = new BasicDBObject(MongoOperator.INC.op(), new BasicDBObject().
+                append(JobInfoProperty.DISPATCH_ATTEMPTS.val(), 1).
+                append(JobInfoProperty.SCHEDULER_WAIT_TIME.val(), schedulerWaitTime).
+                append(JobInfoProperty.CONSTRAINT_WAIT_TIME.val(), constraintWaitTime));
+        if (blockedBy == null) {
+            update.append(MongoOperator.UNSET.op(), new BasicDBObject(JobInfoProperty.BLOCKED_BY.val(), ""));
+        } else {
+            set.append(JobInfoProperty.BLOCKED_BY.val(), blockedBy);
+        }
+        update.append(MongoOperator.SET.op(), set);
+        collection.update(createIdQuery(id), update);
     }
 
     /**
@@ -217,16 +606,107 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
      *         false - If no queued job with the current name could be found and thus could not activated
      */
     public boolean deactivateRunningJob(final String id) {
+        return deactivateRunningJob(id, null);
+    }
+
+    /**
+     * sets status of running job back to queued with the given queue key, see {@link JobInfo#getQueueKey()}
+     *
+     * @param id The id of the job
+     * @param queueKey The key under which the job is queued, null if only one job with its name may be queued
+     * @return true - If the job with the given name was deactivated successfully<br/>
+     *         false - If a job with the same name and queue key is already queued
+     */
+    public boolean deactivateRunningJob(final String id, final String queueKey) {
         logger.info("Deactivate job={} ...", id);
-        return changeState(id, RunningState.QUEUED, null);
+        return changeState(id, RunningState.QUEUED, null, queueKey);
+    }
+
+    /**
+     * Moves the delayed job into the queue under the given queue key, see {@link JobInfo#getQueueKey()}
+     *
+     * @param id The id of the delayed job
+     * @param queueKey The key under which the job is queued, null if only one job with its name may be queued
+     * @return true - If the job was queued<br/>
+     *         false - If the job is not delayed anymore or a job with the same name and queue key is already queued
+     */
+    public boolean queueDelayedJob(final String id, final String queueKey) {
+        try {
+            if (!ObjectId.isValid(id)) {
+                return false;
+            }
+            final BasicDBObject set = new BasicDBObject(JobInfoProperty.RUNNING_STATE.val(), RunningState.QUEUED.name()).
+                    append(JobInfoProperty.LAST_MODIFICATION_TIME.val(), new Date());
+            final BasicDBObject update = new BasicDBObject();
+            if (queueKey == null) {
+                update.append(MongoOperator.UNSET.op(), new BasicDBObject(JobInfoProperty.QUEUE_KEY.val(), ""));
+            } else {
+                set.append(JobInfoProperty.QUEUE_KEY.val(), queueKey);
+            }
+            update.append(MongoOperator.SET.op(), set);
+            final WriteResult result = collection.update(createIdQuery(id).
+                            append(JobInfoProperty.RUNNING_STATE.val(), RunningState.DELAYED.name()),
+                    update, false, false, getSafeWriteConcern());
+            final boolean queued = result.getN() == 1;
+            if (queued && eventListeners.hasListeners()) {
+                final JobInfo jobInfo = findById(id);
+                if (jobInfo != null) {
+                    eventListeners.jobQueued(jobInfo.getName(), id, jobInfo.getExecutionPriority());
+                }
+            }
+            return queued;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
     }
 
-    private boolean changeState(final String id, RunningState toState, Date startTime) {
+    /**
+     * Puts a job which is running on the instance with the given id back into the queue, so any instance can execute
+     * it again. The job keeps the id of the instance, which thus notices on its next check for an abort that the job
+     * was taken away from it.
+     *
+     * @param id The id of the job
+     * @param instanceId The id of the instance which executes the job
+     * @return true - If the job was queued again<br/>
+     *         false - If the job is not running on the instance anymore or a job with the same name and queue key
+     *         is already queued
+     */
+    public boolean requeueRunningJob(final String id, final String instanceId) {
+        try {
+            if (!ObjectId.isValid(id)) {
+                return false;
+            }
+            final WriteResult result = collection.update(createIdQuery(id).
+                            append(JobInfoProperty.RUNNING_STATE.val(), RunningState.RUNNING.name()).
+                            append(JobInfoProperty.INSTANCE_ID.val(), instanceId),
+                    new BasicDBObject(MongoOperator.SET.op(), new BasicDBObject(JobInfoProperty.RUNNING_STATE.val(), RunningState.QUEUED.name()).
+                            append(JobInfoProperty.LAST_MODIFICATION_TIME.val(), new Date())),
+                    false, false, getSafeWriteConcern());
+            final boolean queued = result.getN() == 1;
+            if (queued && eventListeners.hasListeners()) {
+                final JobInfo jobInfo = findById(id);
+                if (jobInfo != null) {
+                    eventListeners.jobQueued(jobInfo.getName(), id, jobInfo.getExecutionPriority());
+                }
+            }
+            return queued;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private boolean changeState(final String id, RunningState toState, Date startTime, String queueKey) {
         final Date dt = new Date();
-        final DBObject update = new BasicDBObject().append(MongoOperator.SET.op(),
-                new BasicDBObject(JobInfoProperty.RUNNING_STATE.val(), toState.name()).
-                        append(JobInfoProperty.START_TIME.val(), startTime).
-                        append(JobInfoProperty.LAST_MODIFICATION_TIME.val(), dt));
+        final BasicDBObject set = new BasicDBObject(JobInfoProperty.RUNNING_STATE.val(), toState.name()).
+                append(JobInfoProperty.START_TIME.val(), startTime).
+                append(JobInfoProperty.LAST_MODIFICATION_TIME.val(), dt);
+        final BasicDBObject update = new BasicDBObject();
+        if (queueKey == null) {
+            update.append(MongoOperator.UNSET.op(), new BasicDBObject(JobInfoProperty.QUEUE_KEY.val(), ""));
+        } else {
+            set.append(JobInfoProperty.QUEUE_KEY.val(), queueKey);
+        }
+        update.append(MongoOperator.SET.op(), set);
         try {
             final WriteResult result = collection.update(createIdQuery(id), update, false, false, getSafeWriteConcern());
             return result.getN() == 1;
@@ -242,13 +722,19 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
      */
     public void abortJob(String id) {
         if (ObjectId.isValid(id)) {
-            collection.update(createIdQuery(id),
+            final WriteResult result = collection.update(createIdQuery(id),
                     new BasicDBObject(MongoOperator.SET.op(), new BasicDBObject(JobInfoProperty.ABORTED.val(), true)), false, false, getSafeWriteConcern());
+            if (result.getN() == 1 && eventListeners.hasListeners()) {
+                final JobInfo jobInfo = findById(id);
+                if (jobInfo != null) {
+                    eventListeners.jobAborted(jobInfo.getName(), id, jobInfo.getExecutionPriority());
+                }
+            }
         }
     }
 
     /**
-     * Updates the host and thread information on the job with the given id. Host and thread information
+     * Updates the host, instance and thread information on the job with the given id. Host, instance and thread information
      * are determined automatically.
      * The processing of this method is performed asynchronously. Thus the existance of a running job with the given
      * jobname ist not checked
@@ -256,7 +742,11 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
      * @param id The id of the job
      */
     public void updateHostThreadInformation(final String id) {
-        updateHostThreadInformation(id, InternetUtils.getHostName(), Thread.currentThread().getName());
+        final DBObject update = new BasicDBObject().append(MongoOperator.SET.op(),
+                new BasicDBObject(JobInfoProperty.HOST.val(), InternetUtils.getHostName()).
+                        append(JobInfoProperty.INSTANCE_ID.val(), InternetUtils.getInstanceId()).
+                        append(JobInfoProperty.THREAD.val(), Thread.currentThread().getName()));
+        collection.update(createIdQuery(id), update);
     }
 
     /**
@@ -300,6 +790,23 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
                 markAsFinished(createIdQuery(id), resultCode, resultMessage);
     }
 
+    /**
+     * Marks a job with the given id as finished if it is still running on the instance with the given id.
+     *
+     * @param id The id of the job
+     * @param instanceId The id of the instance which executes the job
+     * @param resultCode The result state of the job
+     * @param resultMessage The resultMessage of the job
+     * @return true - The job was marked as requested<br/>
+     *         false - No job with the given id is running on the instance
+     */
+    public boolean markAsFinished(final String id, final String instanceId, final ResultCode resultCode, final String resultMessage) {
+        return ObjectId.isValid(id) &&
+                markAsFinished(new BasicDBObject(JobInfoProperty.ID.val(), new ObjectId(id)).
+                        append(JobInfoProperty.RUNNING_STATE.val(), RunningState.RUNNING.name()).
+                        append(JobInfoProperty.INSTANCE_ID.val(), instanceId), resultCode, resultMessage);
+    }
+
     /**
      * Marks a job with the given id as finished.
      *
@@ -312,6 +819,19 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
         return markAsFinished(id, ResultCode.FAILED, t == null ? null : exceptionToMessage(t));
     }
 
+    /**
+     * Marks a job with the given id as failed if it is still running on the instance with the given id.
+     *
+     * @param id The id of the job
+     * @param instanceId The id of the instance which executes the job
+     * @param t An exception
+     * @return true - The job was marked as requested<br/>
+     *         false - No job with the given id is running on the instance
+     */
+    public boolean markAsFinished(final String id, final String instanceId, final Throwable t) {
+        return markAsFinished(id, instanceId, ResultCode.FAILED, t == null ? null : exceptionToMessage(t));
+    }
+
     /**
      * Adds additional data to a running job with the given id. If information with the given key already exists
      * it is overwritten. The lastModified date of the job is set to the current date.
@@ -330,6 +850,33 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
         collection.update(createIdQuery(id), update);
     }
 
+    /**
+     * Stores the resources consumed by the execution of the job with the given id.
+     *
+     * @param id The id of the job
+     * @param executionMetrics The consumed resources
+     */
+    public void setExecutionMetrics(final String id, final ExecutionMetrics executionMetrics) {
+        if (ObjectId.isValid(id)) {
+            collection.update(createIdQuery(id), new BasicDBObject(MongoOperator.SET.op(),
+                    new BasicDBObject(JobInfoProperty.EXECUTION_METRICS.val(), executionMetrics.toDbObject())));
+        }
+    }
+
+    /**
+     * Stores the progress of the job with the given id.
+     *
+     * @param id The id of the job
+     * @param progress The progress of the job
+     */
+    public void setProgress(final String id, final JobProgress progress) {
+        if (ObjectId.isValid(id)) {
+            collection.update(createIdQuery(id), new BasicDBObject(MongoOperator.SET.op(), new BasicDBObject().
+                    append(JobInfoProperty.PROGRESS.val(), progress.toDbObject()).
+                    append(JobInfoProperty.LAST_MODIFICATION_TIME.val(), progress.getTimestamp())));
+        }
+    }
+
     /**
      * Sets a status message.
      *
@@ -360,6 +907,96 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
         }
     }
 
+    /**
+     * Returns the most recent job with the given name and parameters which is either queued, running or finished
+     * successfully at or after the given date.
+     *
+     * @param name The name of the job
+     * @param parametersHash The hash of the parameters of the job, see {@link JobInfo#hashParameters(java.util.Map)}
+     * @param successfulSince The date since which successfully finished jobs are taken into account
+     * @return The matching job or null if no job could be found
+     */
+    public JobInfo findMemoizedJob(final String name, final String parametersHash, final Date successfulSince) {
+        final DBObject query = new BasicDBObject().
+                append(JobInfoProperty.NAME.val(), name).
+                append(JobInfoProperty.PARAMETERS_HASH.val(), parametersHash).
+                append(MongoOperator.OR.op(), Arrays.asList(
+                        new BasicDBObject(JobInfoProperty.RUNNING_STATE.val(), new BasicDBObject(MongoOperator.IN.op(),
+                                Arrays.asList(RunningState.QUEUED.name(), RunningState.RUNNING.name()))),
+                        new BasicDBObject().
+                                append(JobInfoProperty.RESULT_STATE.val(), ResultCode.SUCCESSFUL.name()).
+                                append(JobInfoProperty.FINISH_TIME.val(), new BasicDBObject(MongoOperator.GTE.op(), successfulSince))));
+        final DBCursor cursor = collection.find(query).
+                sort(new BasicDBObject(JobInfoProperty.CREATION_TIME.val(), SortOrder.DESC.val())).limit(1);
+        return getFirst(cursor);
+    }
+
+    /**
+     * Returns the jobs with the given names which finished successfully at or after the date given for their name.
+     * The log lines of the jobs are not returned.
+     *
+     * @param successfulSinceByName The date since which successfully finished jobs are returned by job name
+     * @return The matching jobs
+     */
+    public List<JobInfo> findSuccessfulJobs(final Map<String, Date> successfulSinceByName) {
+        if (successfulSinceByName.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<DBObject> finishedSince = new ArrayList<>();
+        for (Map.Entry<String, Date> entry : successfulSinceByName.entrySet()) {
+            finishedSince.add(new BasicDBObject().
+                    append(JobInfoProperty.NAME.val(), entry.getKey()).
+                    append(JobInfoProperty.FINISH_TIME.val(), new BasicDBObject(MongoOperator.GTE.op(), entry.getValue())));
+        }
+        final DBCursor cursor = collection.find(new BasicDBObject().
+                        append(JobInfoProperty.RESULT_STATE.val(), ResultCode.SUCCESSFUL.name()).
+                        append(MongoOperator.OR.op(), finishedSince),
+                new BasicDBObject(JobInfoProperty.LOG_LINES.val(), 0));
+        return getAll(cursor);
+    }
+
+    /**
+     * Returns the job with the given name which was triggered with the given idempotency key.
+     *
+     * @param name The name of the job
+     * @param idempotencyKey The idempotency key given by the client
+     * @return The most recent job with the given key or null if no job could be found
+     */
+    public JobInfo findByIdempotencyKey(final String name, final String idempotencyKey) {
+        final DBCursor cursor = collection.find(new BasicDBObject().
+                append(JobInfoProperty.IDEMPOTENCY_KEYS.val(), idempotencyKey).
+                append(JobInfoProperty.NAME.val(), name)).
+                sort(new BasicDBObject(JobInfoProperty.CREATION_TIME.val(), SortOrder.DESC.val())).limit(1);
+        return getFirst(cursor);
+    }
+
+    /**
+     * Sets the hash of the token a remote job has to present to report its status.
+     *
+     * @param id The id of the job
+     * @param callbackTokenHash The hash of the callback token, see {@link JobInfo#hashCallbackToken(String)}
+     */
+    public void setCallbackTokenHash(final String id, final String callbackTokenHash) {
+        if (ObjectId.isValid(id)) {
+            collection.update(createIdQuery(id), new BasicDBObject(MongoOperator.SET.op(),
+                    new BasicDBObject(JobInfoProperty.CALLBACK_TOKEN_HASH.val(), callbackTokenHash)));
+        }
+    }
+
+    /**
+     * Adds idempotency keys with which the job was triggered, see {@link JobInfo#getIdempotencyKeys()}
+     *
+     * @param id The id of the job
+     * @param idempotencyKeys The idempotency keys given by the clients
+     */
+    public void addIdempotencyKeys(final String id, final Collection<String> idempotencyKeys) {
+        if (ObjectId.isValid(id) && !idempotencyKeys.isEmpty()) {
+            collection.update(createIdQuery(id), new BasicDBObject(MongoOperator.ADD_TO_SET.op(),
+                    new BasicDBObject(JobInfoProperty.IDEMPOTENCY_KEYS.val(),
+                            new BasicDBObject(MongoOperator.EACH.op(), new ArrayList<>(idempotencyKeys)))));
+        }
+    }
+
     /**
      * Returns all jobs with the given name.
      * TODO: last modified ODER creation time?
@@ -468,6 +1105,48 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
         collection.update(createIdQuery(jobId), update);
     }
 
+    /**
+     * Saves the checkpoint of the job with the given id, replacing its previous checkpoint
+     *
+     * @param jobId The id of the job
+     * @param key The key identifying the checkpoint
+     * @param state The state the job needs to resume its work
+     * @return The saved checkpoint
+     */
+    public Checkpoint saveCheckpoint(final String jobId, final String key, final String state) {
+        final Date dt = new Date();
+        final Checkpoint checkpoint = new Checkpoint(key, state, dt);
+        final DBObject update = new BasicDBObject(MongoOperator.SET.op(), new BasicDBObject().
+                append(JobInfoProperty.CHECKPOINT.val(), checkpoint.toDbObject()).
+                append(JobInfoProperty.LAST_MODIFICATION_TIME.val(), dt));
+        collection.update(createIdQuery(jobId), update);
+        return checkpoint;
+    }
+
+    /**
+     * Returns the checkpoint a new execution of the job with the given name and parameters may resume from. This is
+     * the checkpoint of the most recently finished job with the same name and parameters, unless it was successful.
+     * Jobs which finished without a result are skipped.
+     *
+     * @param name The name of the job
+     * @param parametersHash The hash of the parameters of the job, see {@link JobInfo#hashParameters(java.util.Map)}
+     * @return The checkpoint or null if there is nothing to resume
+     */
+    public Checkpoint findResumableCheckpoint(final String name, final String parametersHash) {
+        final List<String> resultStates = toStringList(EnumSet.allOf(ResultCode.class));
+        final DBCursor cursor = collection.find(new BasicDBObject().
+                append(JobInfoProperty.NAME.val(), name).
+                append(JobInfoProperty.PARAMETERS_HASH.val(), parametersHash).
+                append(JobInfoProperty.RESULT_STATE.val(), new BasicDBObject(MongoOperator.IN.op(), resultStates)),
+                new BasicDBObject(JobInfoProperty.RESULT_STATE.val(), 1).append(JobInfoProperty.CHECKPOINT.val(), 1)).
+                sort(new BasicDBObject(JobInfoProperty.CREATION_TIME.val(), SortOrder.DESC.val())).limit(1);
+        final JobInfo jobInfo = getFirst(cursor);
+        if (jobInfo == null || jobInfo.getResultState() == ResultCode.SUCCESSFUL) {
+            return null;
+        }
+        return jobInfo.getCheckpoint();
+    }
+
     /**
      * Appends the log lines of the job with the supplied id
      * to the already existing log lines.
@@ -478,14 +1157,33 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
      *         false - No running job with the given name could be found
      */
     public boolean appendLogLines(final String id, final List<String> lines) {
+        return appendLogLines(id, lines, null);
+    }
+
+    /**
+     * Adds the log lines retrieved from a remote job to the already existing log lines and stores the position in
+     * the log of the remote job up to which its log lines were retrieved.
+     *
+     * @param id The id of the job
+     * @param lines the log lines to add
+     * @param remoteLogOffset The number of log lines of the remote job retrieved including the given lines,
+     *                        null if it is not known
+     * @return true - The data was successfully added to the job<br/>
+     *         false - No running job with the given name could be found
+     */
+    public boolean appendLogLines(final String id, final List<String> lines, final Integer remoteLogOffset) {
         final Date dt = new Date();
         final List<DBObject> logLines = new ArrayList<>();
         for (String line : lines) {
             logLines.add(new LogLine(line, dt).toDbObject());
         }
+        final BasicDBObject set = new BasicDBObject(JobInfoProperty.LAST_MODIFICATION_TIME.val(), dt);
+        if (remoteLogOffset != null) {
+            set.append(JobInfoProperty.REMOTE_LOG_OFFSET.val(), remoteLogOffset);
+        }
         final DBObject update = new BasicDBObject().
                 append(MongoOperator.PUSH_ALL.op(), new BasicDBObject(JobInfoProperty.LOG_LINES.val(), logLines)).
-                append(MongoOperator.SET.op(), new BasicDBObject(JobInfoProperty.LAST_MODIFICATION_TIME.val(), dt));
+                append(MongoOperator.SET.op(), set);
         final WriteResult result = collection.update(createIdQuery(id), update, false, false, getSafeWriteConcern());
         return result.getN() == 1;
     }
@@ -509,6 +1207,22 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
         }
     }
 
+    /**
+     * Removes the job with the given id if it is still queued
+     *
+     * @param id The id of the job
+     * @return true - The queued job was removed<br/>
+     *         false - The job does not exist or is not queued anymore
+     */
+    public boolean removeQueuedJob(final String id) {
+        if (!ObjectId.isValid(id)) {
+            return false;
+        }
+        final WriteResult result = collection.remove(createIdQuery(id).
+                append(JobInfoProperty.RUNNING_STATE.val(), RunningState.QUEUED.name()), getSafeWriteConcern());
+        return result.getN() == 1;
+    }
+
     /**
      * Counts the number of documents in the repository.
      *
@@ -574,50 +1288,74 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
     protected int cleanupNotRunning(Date clearJobsBefore) {
         final WriteResult result = collection.remove(new BasicDBObject().
                 append(JobInfoProperty.CREATION_TIME.val(), new BasicDBObject(MongoOperator.LT.op(), clearJobsBefore)).
-                append(JobInfoProperty.RUNNING_STATE.val(), new BasicDBObject(MongoOperator.NE.op(), RunningState.RUNNING.name())),
+                append(JobInfoProperty.RUNNING_STATE.val(), new BasicDBObject(MongoOperator.NIN.op(),
+                        Arrays.asList(RunningState.RUNNING.name(), RunningState.DELAYED.name()))),
                 getSafeWriteConcern());
         return result.getN();
     }
 
-    protected void prepareCollection() {
-        collection.createIndex(new BasicDBObject(JobInfoProperty.NAME.val(), 1));
-        collection.createIndex(new BasicDBObject().
-                append(JobInfoProperty.RUNNING_STATE.val(), 1).append(JobInfoProperty.CREATION_TIME.val(), 1), "runningState_creationTime");
-        collection.createIndex(new BasicDBObject().
-                append(JobInfoProperty.NAME.val(), 1).append(JobInfoProperty.CREATION_TIME.val(), 1), "name_creationTime");
-        collection.createIndex(new BasicDBObject().
-                append(JobInfoProperty.NAME.val(), 1).append(JobInfoProperty.RUNNING_STATE.val(), 1), "name_state", true);
-
-        dropIfExists(collection, "lastModificationTime_1");
-        dropIfExists(collection, "lastModificationTime_1_TTL");
-
-
-        collection.createIndex(new BasicDBObject().
-                        append(JobInfoProperty.LAST_MODIFICATION_TIME.val(), 1),
-                new BasicDBObject().
-                        append("name", "lastModificationTime_TTL").
-                        append("expireAfterSeconds", sevenDaysInSeconds()));
+    @Override
+    protected List<Index> getIndexes() {
+        return Arrays.asList(
+                Index.unique(new BasicDBObject().
+                        append(JobInfoProperty.NAME.val(), 1).append(JobInfoProperty.RUNNING_STATE.val(), 1).
+                        append(JobInfoProperty.QUEUE_KEY.val(), 1), "name_state_queueKey"),
+                new Index(new BasicDBObject(JobInfoProperty.NAME.val(), 1), "name_1"),
+                new Index(new BasicDBObject().
+                        append(JobInfoProperty.RUNNING_STATE.val(), 1).append(JobInfoProperty.CREATION_TIME.val(), 1), "runningState_creationTime"),
+                new Index(new BasicDBObject().
+                        append(JobInfoProperty.RUNNING_STATE.val(), 1).append(JobInfoProperty.PRIORITY_LEVEL.val(), -1).
+                        append(JobInfoProperty.CREATION_TIME.val(), 1), "runningState_priorityLevel_creationTime"),
+                new Index(new BasicDBObject().
+                        append(JobInfoProperty.NAME.val(), 1).append(JobInfoProperty.CREATION_TIME.val(), 1), "name_creationTime"),
+                new Index(new BasicDBObject().
+                        append(JobInfoProperty.RUNNING_STATE.val(), 1).append(JobInfoProperty.INSTANCE_ID.val(), 1), "runningState_instanceId"),
+                new Index(new BasicDBObject(JobInfoProperty.NOT_BEFORE.val(), 1),
+                        new BasicDBObject("name", "notBefore").append("sparse", true)),
+                new Index(new BasicDBObject(JobInfoProperty.NEXT_RETRY_AT.val(), 1),
+                        new BasicDBObject("name", "nextRetryAt").append("sparse", true)),
+                new Index(new BasicDBObject().
+                        append(JobInfoProperty.NAME.val(), 1).append(JobInfoProperty.PARAMETERS_HASH.val(), 1).
+                        append(JobInfoProperty.CREATION_TIME.val(), -1), "name_parametersHash_creationTime"),
+                new Index(new BasicDBObject(JobInfoProperty.IDEMPOTENCY_KEYS.val(), 1),
+                        new BasicDBObject("name", "idempotencyKeys").append("sparse", true)),
+                new Index(new BasicDBObject(JobInfoProperty.LAST_MODIFICATION_TIME.val(), 1),
+                        new BasicDBObject().
+                                append("name", "lastModificationTime_TTL").
+                                append("expireAfterSeconds", (int) TimeUnit.MILLISECONDS.toSeconds(TIME_TO_LIVE))));
     }
 
-    private void dropIfExists(DBCollection collection, String name) {
-        if (indexExists(collection, name)) {
-            collection.dropIndex(name);
-        }
+    @Override
+    protected List<String> getObsoleteIndexNames() {
+        return Arrays.asList("name_state", "idempotencyKey", "lastModificationTime_1", "lastModificationTime_1_TTL");
     }
 
-
-    private boolean indexExists(DBCollection collection, String name) {
-        for (DBObject indexInfo: collection.getIndexInfo()) {
-            if (name.equals(indexInfo.get("name"))) {
-                return true;
+    /**
+     * Schedules the pending retry of jobs which failed before retries were scheduled with the failed job. Like
+     * before, only the most recent job of a name is retried, so a retry is not scheduled if a job was started since.
+     * The retry is due right away, as the retry interval of old jobs is unknown.
+     */
+    @Override
+    protected void prepareCollection() {
+        int scheduledRetries = 0;
+        for (String name : distinctJobNames()) {
+            final JobInfo jobInfo = findMostRecent(name);
+            if (jobInfo == null || !jobInfo.getRunningState().startsWith(RunningState.FINISHED.name()) ||
+                    jobInfo.getResultState() == ResultCode.SUCCESSFUL || jobInfo.getRetries() == null || jobInfo.getRetries() <= 0 ||
+                    jobInfo.getNextRetryAt() != null) {
+                continue;
             }
+            scheduleRetry(jobInfo, jobInfo.getLastModifiedTime());
+            scheduledRetries++;
         }
-
-        return false;
+        logger.info("Scheduled {} retries of jobs which failed before retries were scheduled", scheduledRetries);
     }
 
-    private int sevenDaysInSeconds() {
-        return (int) TimeUnit.DAYS.toSeconds(7);
+    /**
+     * Delayed jobs do not occupy a slot in the queue of their name, so each one gets a queue key of its own
+     */
+    private String createDelayedQueueKey() {
+        return RunningState.DELAYED + "_" + UUID.randomUUID().toString();
     }
 
     protected JobInfo fromDbObject(final DBObject dbObject) {
@@ -627,7 +1365,7 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
         return new JobInfo(dbObject);
     }
 
-    private DBObject createIdQuery(String id) {
+    private BasicDBObject createIdQuery(String id) {
         return new BasicDBObject(JobInfoProperty.ID.val(), new ObjectId(id));
     }
 
@@ -651,8 +1389,50 @@ public class JobInfoRepository extends AbstractRepository<JobInfo> {
             set.append(JobInfoProperty.RESULT_MESSAGE.val(), resultMessage);
         }
         final DBObject update = new BasicDBObject().append(MongoOperator.SET.op(), set.get());
-        final WriteResult result = collection.update(query, update, false, false, getSafeWriteConcern());
-        return result.getN() == 1;
+        final DBObject finished = collection.findAndModify(query, FINISHED_FIELDS, null, false, update, true, false);
+        if (finished == null) {
+            return false;
+        }
+        final JobInfo jobInfo = new JobInfo(finished);
+        final Date startTime = jobInfo.getStartTime();
+        eventListeners.jobFinished(jobInfo.getName(), jobInfo.getId(), jobInfo.getExecutionPriority(), resultCode,
+                startTime == null ? -1 : dt.getTime() - startTime.getTime());
+        scheduleRetry(jobInfo, dt);
+        return true;
+    }
+
+    private void fireCreated(final JobInfo jobInfo) {
+        if (RunningState.QUEUED.name().equals(jobInfo.getRunningState())) {
+            eventListeners.jobQueued(jobInfo.getName(), jobInfo.getId(), jobInfo.getExecutionPriority());
+        } else if (RunningState.RUNNING.name().equals(jobInfo.getRunningState())) {
+            eventListeners.jobClaimed(jobInfo.getName(), jobInfo.getId(), jobInfo.getExecutionPriority());
+        }
+    }
+
+    /**
+     * Cancels all pending retries of previous executions of the finished job and schedules a retry of the job
+     * itself if it failed and has retries left.
+     */
+    private void scheduleRetry(final JobInfo jobInfo, final Date finishTime) {
+        collection.update(new BasicDBObject().
+                        append(JobInfoProperty.NAME.val(), jobInfo.getName()).
+                        append(JobInfoProperty.NEXT_RETRY_AT.val(), new BasicDBObject(MongoOperator.EXISTS.op(), true)).
+                        append(JobInfoProperty.ID.val(), new BasicDBObject(MongoOperator.NE.op(), new ObjectId(jobInfo.getId()))),
+                new BasicDBObject(MongoOperator.UNSET.op(), new BasicDBObject(JobInfoProperty.NEXT_RETRY_AT.val(), "")),
+                false, true, getSafeWriteConcern());
+        final long retries = jobInfo.getRetries();
+        if (jobInfo.getResultState() == ResultCode.SUCCESSFUL || retries <= 0) {
+            return;
+        }
+        final Long maxRetries = jobInfo.getMaxRetries();
+        final Long retryInterval = jobInfo.getRetryInterval();
+        final long attempt = maxRetries == null ? 0 : maxRetries - retries;
+        final long delay = RetryBackoff.delay(retryInterval == null ? 0 : retryInterval, attempt);
+        final Date nextRetryAt = new Date(finishTime.getTime() + Math.min(delay, Long.MAX_VALUE - finishTime.getTime()));
+        logger.info("job={} with id={} failed, retry scheduled at {}", jobInfo.getName(), jobInfo.getId(), nextRetryAt);
+        collection.update(createIdQuery(jobInfo.getId()),
+                new BasicDBObject(MongoOperator.SET.op(), new BasicDBObject(JobInfoProperty.NEXT_RETRY_AT.val(), nextRetryAt)),
+                false, false, getSafeWriteConcern());
     }
 
     private BasicDBObject createFindByNameAndRunningStateQuery(final String name, final String state) {
@@ -7,15 +7,24 @@ package de.otto.jobstore.repository;
  */
 enum MongoOperator {
 
+    ADD_TO_SET("$addToSet"),
+    EACH("$each"),
+    EXISTS("$exists"),
+    GT("$gt"),
     GTE("$gte"),
     IN("$in"),
+    INC("$inc"),
     LT("$lt"),
     LTE("$lte"),
     NE("$ne"),
     NIN("$nin"),
+    NOT("$not"),
+    OR("$or"),
+    PULL("$pull"),
     PUSH("$push"),
     PUSH_ALL("$pushAll"),
-    SET("$set");
+    SET("$set"),
+    UNSET("$unset");
 
     private final String op;
 
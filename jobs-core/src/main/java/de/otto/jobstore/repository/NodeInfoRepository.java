@@ -0,0 +1,109 @@
+package de.otto.jobstore.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.WriteConcern;
+import de.otto.jobstore.common.NodeInfo;
+import de.otto.jobstore.common.properties.NodeInfoProperty;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A registry in which every node running a JobService publishes its current capacity. The information is used
+ * to distribute queued jobs among the nodes in proportion to their free capacity. Since the capacity is published
+ * periodically it also serves as heartbeat to detect dead nodes.
+ */
+public class NodeInfoRepository extends AbstractRepository<NodeInfo> {
+
+    public NodeInfoRepository(MongoClient mongo, String dbName, String collectionName) {
+        super(mongo, dbName, collectionName);
+    }
+
+    public NodeInfoRepository(MongoClient mongo, String dbName, String collectionName, WriteConcern safeWriteConcern) {
+        super(mongo, dbName, collectionName, safeWriteConcern);
+    }
+
+    /**
+     * Publishes the capacity of a node. Existing information on the node is overwritten.
+     *
+     * The processing of this method is performed asynchronously.
+     *
+     * @param nodeInfo The capacity of the node
+     */
+    public void publish(final NodeInfo nodeInfo) {
+        final DBObject update = new BasicDBObject(MongoOperator.SET.op(), nodeInfo.toDbObject());
+        collection.update(new BasicDBObject(NodeInfoProperty.NODE_ID.val(), nodeInfo.getNodeId()), update, true, false);
+    }
+
+    /**
+     * Returns all nodes which have published their capacity on or after the given date
+     *
+     * @param since The date on or after which the nodes must have published their capacity
+     * @return The list of nodes
+     */
+    public List<NodeInfo> findActiveNodes(final Date since) {
+        final DBCursor cursor = collection.find(new BasicDBObject(NodeInfoProperty.LAST_MODIFICATION_TIME.val(),
+                new BasicDBObject(MongoOperator.GTE.op(), since)));
+        return getAll(cursor);
+    }
+
+    /**
+     * Returns all nodes which have not published their capacity since the given date. These nodes are
+     * considered to be dead.
+     *
+     * @param before The date before which the nodes published their capacity for the last time
+     * @return The list of nodes
+     */
+    public List<NodeInfo> findExpiredNodes(final Date before) {
+        final DBCursor cursor = collection.find(new BasicDBObject(NodeInfoProperty.LAST_MODIFICATION_TIME.val(),
+                new BasicDBObject(MongoOperator.LT.op(), before)));
+        return getAll(cursor);
+    }
+
+    /**
+     * Removes the node with the given id from the registry
+     *
+     * @param nodeId The id of the node
+     */
+    public void remove(final String nodeId) {
+        collection.remove(new BasicDBObject(NodeInfoProperty.NODE_ID.val(), nodeId), getSafeWriteConcern());
+    }
+
+    /**
+     * Find a node by its id.
+     *
+     * @param nodeId The id of the node
+     * @return The node with the given id or null if no corresponding node was found.
+     */
+    public NodeInfo findByNodeId(final String nodeId) {
+        return fromDbObject(collection.findOne(new BasicDBObject(NodeInfoProperty.NODE_ID.val(), nodeId)));
+    }
+
+    @Override
+    protected List<Index> getIndexes() {
+        return Arrays.asList(
+                Index.unique(new BasicDBObject(NodeInfoProperty.NODE_ID.val(), 1), "nodeId"),
+                new Index(new BasicDBObject(NodeInfoProperty.LAST_MODIFICATION_TIME.val(), 1),
+                        new BasicDBObject().
+                                append("name", "lastModificationTime_TTL").
+                                append("expireAfterSeconds", (int) TimeUnit.DAYS.toSeconds(1))));
+    }
+
+    @Override
+    protected void prepareCollection() {
+    }
+
+    @Override
+    protected NodeInfo fromDbObject(DBObject dbObject) {
+        if (dbObject == null) {
+            return null;
+        }
+        return new NodeInfo(dbObject);
+    }
+
+}
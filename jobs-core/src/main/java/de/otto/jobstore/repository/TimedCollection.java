@@ -0,0 +1,209 @@
+package de.otto.jobstore.repository;
+
+import com.mongodb.*;
+import de.otto.jobstore.common.JobEventListener;
+
+import java.util.List;
+
+/**
+ * Executes the operations of a repository on its collection and reports the duration of every operation to the
+ * listeners of the repository. Queries return their cursor right away, the repository reports them as
+ * <code>find</code> once it iterated the cursor.
+ */
+public final class TimedCollection {
+
+    private final DBCollection collection;
+    private final String repository;
+    private final JobEventListener listener;
+
+    TimedCollection(DBCollection collection, String repository, JobEventListener listener) {
+        this.collection = collection;
+        this.repository = repository;
+        this.listener = listener;
+    }
+
+    public String getName() {
+        return collection.getName();
+    }
+
+    public String getFullName() {
+        return collection.getFullName();
+    }
+
+    public DBCursor find(DBObject query) {
+        return collection.find(query);
+    }
+
+    public DBCursor find(DBObject query, DBObject keys) {
+        return collection.find(query, keys);
+    }
+
+    public DBObject findOne(DBObject query) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.findOne(query);
+        } finally {
+            record("findOne", startNanos);
+        }
+    }
+
+    public DBObject findOne(DBObject query, DBObject fields, DBObject orderBy) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.findOne(query, fields, orderBy);
+        } finally {
+            record("findOne", startNanos);
+        }
+    }
+
+    public DBObject findAndModify(DBObject query, DBObject fields, DBObject sort, boolean remove, DBObject update,
+                                  boolean returnNew, boolean upsert) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.findAndModify(query, fields, sort, remove, update, returnNew, upsert);
+        } finally {
+            record("findAndModify", startNanos);
+        }
+    }
+
+    public long count() {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.count();
+        } finally {
+            record("count", startNanos);
+        }
+    }
+
+    public long count(DBObject query) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.count(query);
+        } finally {
+            record("count", startNanos);
+        }
+    }
+
+    public List distinct(String key) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.distinct(key);
+        } finally {
+            record("distinct", startNanos);
+        }
+    }
+
+    public AggregationOutput aggregate(List<DBObject> pipeline) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.aggregate(pipeline);
+        } finally {
+            record("aggregate", startNanos);
+        }
+    }
+
+    public WriteResult save(DBObject object, WriteConcern writeConcern) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.save(object, writeConcern);
+        } finally {
+            record("save", startNanos);
+        }
+    }
+
+    public WriteResult update(DBObject query, DBObject update) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.update(query, update);
+        } finally {
+            record("update", startNanos);
+        }
+    }
+
+    public WriteResult update(DBObject query, DBObject update, boolean upsert, boolean multi) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.update(query, update, upsert, multi);
+        } finally {
+            record("update", startNanos);
+        }
+    }
+
+    public WriteResult update(DBObject query, DBObject update, boolean upsert, boolean multi, WriteConcern writeConcern) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.update(query, update, upsert, multi, writeConcern);
+        } finally {
+            record("update", startNanos);
+        }
+    }
+
+    public WriteResult remove(DBObject query, WriteConcern writeConcern) {
+        final long startNanos = System.nanoTime();
+        try {
+            return collection.remove(query, writeConcern);
+        } finally {
+            record("remove", startNanos);
+        }
+    }
+
+    public BulkWriteOperation initializeUnorderedBulkOperation() {
+        return collection.initializeUnorderedBulkOperation();
+    }
+
+    public BulkWriteOperation initializeOrderedBulkOperation() {
+        return collection.initializeOrderedBulkOperation();
+    }
+
+    /**
+     * Executes a bulk write which was initialized with {@link #initializeUnorderedBulkOperation()} or
+     * {@link #initializeOrderedBulkOperation()}
+     */
+    public BulkWriteResult execute(BulkWriteOperation bulkWrite, WriteConcern writeConcern) {
+        final long startNanos = System.nanoTime();
+        try {
+            return bulkWrite.execute(writeConcern);
+        } finally {
+            record("bulkWrite", startNanos);
+        }
+    }
+
+    public void createIndex(DBObject keys) {
+        collection.createIndex(keys);
+    }
+
+    public void createIndex(DBObject keys, String name) {
+        collection.createIndex(keys, name);
+    }
+
+    public void createIndex(DBObject keys, String name, boolean unique) {
+        collection.createIndex(keys, name, unique);
+    }
+
+    public void createIndex(DBObject keys, DBObject options) {
+        collection.createIndex(keys, options);
+    }
+
+    public List<DBObject> getIndexInfo() {
+        return collection.getIndexInfo();
+    }
+
+    public void dropIndex(String name) {
+        collection.dropIndex(name);
+    }
+
+    public void drop() {
+        collection.drop();
+    }
+
+    /**
+     * Reports an operation which started at the given time to the listeners
+     *
+     * @param operation The name of the operation
+     * @param startNanos The start of the operation as returned by {@link System#nanoTime()}
+     */
+    void record(String operation, long startNanos) {
+        listener.repositoryCall(repository, operation, System.nanoTime() - startNanos);
+    }
+
+}
@@ -0,0 +1,71 @@
+package de.otto.jobstore.service;
+
+import de.otto.jobstore.common.ExecutionMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU time and heap allocation of the current thread and the wall-clock time of the phases of a
+ * job execution. CPU time and allocation are only measured if supported and enabled by the JVM.
+ */
+final class ExecutionMetricsRecorder {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final long threadId = Thread.currentThread().getId();
+    private final Long startCpuTime = getCpuTime();
+    private final Long startAllocatedBytes = getAllocatedBytes();
+    private long phaseStart;
+    private Long prepareTime;
+    private Long executeTime;
+    private Long afterExecutionTime;
+
+    void startPhase() {
+        phaseStart = System.nanoTime();
+    }
+
+    void prepared() {
+        prepareTime = elapsedSincePhaseStart();
+    }
+
+    void executed() {
+        executeTime = elapsedSincePhaseStart();
+    }
+
+    void afterExecuted() {
+        afterExecutionTime = elapsedSincePhaseStart();
+    }
+
+    ExecutionMetrics stop() {
+        final Long cpuTime = getCpuTime();
+        final Long allocatedBytes = getAllocatedBytes();
+        return new ExecutionMetrics(
+                cpuTime == null || startCpuTime == null ? null : TimeUnit.NANOSECONDS.toMillis(cpuTime - startCpuTime),
+                allocatedBytes == null || startAllocatedBytes == null ? null : allocatedBytes - startAllocatedBytes,
+                prepareTime, executeTime, afterExecutionTime);
+    }
+
+    private long elapsedSincePhaseStart() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - phaseStart);
+    }
+
+    private Long getCpuTime() {
+        if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+            return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        }
+        return null;
+    }
+
+    private Long getAllocatedBytes() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+            if (threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return threadMXBean.getThreadAllocatedBytes(threadId);
+            }
+        }
+        return null;
+    }
+
+}
@@ -1,6 +1,7 @@
 package de.otto.jobstore.service;
 
 import de.otto.jobstore.common.*;
+import de.otto.jobstore.common.util.InternetUtils;
 import de.otto.jobstore.repository.JobDefinitionRepository;
 import de.otto.jobstore.repository.JobInfoRepository;
 import de.otto.jobstore.service.exception.JobExecutionAbortedException;
@@ -18,44 +19,101 @@ final class JobExecutionRunnable implements Runnable {
     final JobInfoRepository jobInfoRepository;
     final JobDefinitionRepository jobDefinitionRepository;
     final JobExecutionContext context;
+    final JobWatchdog watchdog;
+    private boolean watching;
+    private boolean timedOutByWatchdog;
 
     JobExecutionRunnable(JobRunnable jobRunnable, JobInfoRepository jobInfoRepository, JobDefinitionRepository jobDefinitionRepository, JobExecutionContext context) {
+        this(jobRunnable, jobInfoRepository, jobDefinitionRepository, context, null);
+    }
+
+    JobExecutionRunnable(JobRunnable jobRunnable, JobInfoRepository jobInfoRepository, JobDefinitionRepository jobDefinitionRepository,
+                         JobExecutionContext context, JobWatchdog watchdog) {
         this.jobRunnable = jobRunnable;
         this.jobInfoRepository = jobInfoRepository;
         this.jobDefinitionRepository = jobDefinitionRepository;
         this.context = context;
-
+        this.watchdog = jobRunnable.getJobDefinition().isRemote() ? null : watchdog;
     }
 
     @Override
     public void run() {
         final JobDefinition jobDefinition = jobRunnable.getJobDefinition();
         final String name = jobDefinition.getName();
+        if (watchdog != null) {
+            watching = true;
+            watchdog.watch(context.getId(), Thread.currentThread(), jobDefinition.getMaxExecutionTime(), jobDefinition.getMaxIdleTime());
+        }
+        final ExecutionMetricsRecorder metricsRecorder = new ExecutionMetricsRecorder();
+        boolean prepared = false;
         try {
             LOGGER.info("ltag=JobService.JobExecutionRunnable.run start jobName={} jobId={}", name, context.getId());
+            metricsRecorder.startPhase();
             if (jobRunnable.prepare(context)) {
+                metricsRecorder.prepared();
+                prepared = true;
                 // add parameters coming from JobRunnable directly before execution, keep old ones!
                 jobInfoRepository.appendParameters(context.getId(), jobRunnable.getParameters());
+                metricsRecorder.startPhase();
                 jobRunnable.execute(context);
+                metricsRecorder.executed();
                 if (!jobDefinition.isRemote()) {
                     LOGGER.info("ltag=JobService.JobExecutionRunnable.run finished jobName={} jobId={}", name, context.getId());
+                    metricsRecorder.startPhase();
                     jobRunnable.afterExecution(context);
-                    jobInfoRepository.markAsFinished(context.getId(), context.getResultCode(), context.getResultMessage());
+                    metricsRecorder.afterExecuted();
+                    if (stopWatching()) {
+                        jobInfoRepository.markAsFinished(context.getId(), InternetUtils.getInstanceId(), context.getResultCode(), context.getResultMessage());
+                    }
                 }
             } else {
                 LOGGER.info("ltag=JobService.JobExecutionRunnable.run skipped jobName={} jobId={}", name, context.getId());
-                jobInfoRepository.remove(context.getId());
+                if (stopWatching()) {
+                    jobInfoRepository.remove(context.getId());
+                }
                 jobDefinitionRepository.setLastNotExecuted(name, new Date());
             }
         } catch (JobExecutionAbortedException e) {
             LOGGER.warn("ltag=JobService.JobExecutionRunnable.run jobName=" + name + " jobId=" + context.getId() + " was aborted");
-            jobInfoRepository.markAsFinished(context.getId(), ResultCode.ABORTED);
+            if (stopWatching()) {
+                jobInfoRepository.markAsFinished(context.getId(), InternetUtils.getInstanceId(), ResultCode.ABORTED, null);
+            }
         } catch (JobExecutionTimeoutException e) {
             LOGGER.warn("ltag=JobService.JobExecutionRunnable.run jobName=" + name + " jobId=" + context.getId() + " timed out");
-            jobInfoRepository.markAsFinished(context.getId(), ResultCode.TIMED_OUT);
+            if (stopWatching()) {
+                jobInfoRepository.markAsFinished(context.getId(), InternetUtils.getInstanceId(), ResultCode.TIMED_OUT, null);
+            }
+        } catch (Exception e) {
+            if (stopWatching()) {
+                LOGGER.error("ltag=JobService.JobExecutionRunnable.run jobName=" + name + " jobId=" + context.getId() + " failed: " + e.getMessage(), e);
+                jobInfoRepository.markAsFinished(context.getId(), InternetUtils.getInstanceId(), e);
+            } else {
+                LOGGER.warn("ltag=JobService.JobExecutionRunnable.run jobName=" + name + " jobId=" + context.getId() + " was interrupted by the watchdog: " + e.getMessage());
+            }
+        } finally {
+            stopWatching();
+            if (prepared) {
+                storeExecutionMetrics(metricsRecorder);
+            }
+        }
+    }
+
+    private void storeExecutionMetrics(ExecutionMetricsRecorder metricsRecorder) {
+        try {
+            jobInfoRepository.setExecutionMetrics(context.getId(), metricsRecorder.stop());
         } catch (Exception e) {
-            LOGGER.error("ltag=JobService.JobExecutionRunnable.run jobName=" + name + " jobId=" + context.getId() + " failed: " + e.getMessage(), e);
-            jobInfoRepository.markAsFinished(context.getId(), e);
+            LOGGER.warn("ltag=JobService.JobExecutionRunnable.storeExecutionMetrics jobId=" + context.getId() + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return false if the job was already marked as timed out by the watchdog and may not be updated anymore
+     */
+    private boolean stopWatching() {
+        if (watching) {
+            watching = false;
+            timedOutByWatchdog = !watchdog.unwatch(context.getId());
         }
+        return !timedOutByWatchdog;
     }
 }
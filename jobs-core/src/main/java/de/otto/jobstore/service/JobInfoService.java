@@ -5,6 +5,7 @@ import de.otto.jobstore.common.ResultCode;
 import de.otto.jobstore.common.RunningState;
 import de.otto.jobstore.repository.JobInfoRepository;
 
+import java.security.SecureRandom;
 import java.util.*;
 
 /**
@@ -13,10 +14,14 @@ import java.util.*;
  */
 public class JobInfoService {
 
+    private static final int CALLBACK_TOKEN_LENGTH = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     private final JobInfoRepository jobInfoRepository;
 
     public JobInfoService(JobInfoRepository jobInfoRepository) {
         this.jobInfoRepository = jobInfoRepository;
+        this.jobInfoRepository.init();
     }
 
     /**
@@ -97,6 +102,24 @@ public class JobInfoService {
         return jobInfoRepository.findById(id);
     }
 
+    /**
+     * Issues a new token with which the remote job with the given id may report its status. Only the hash of the
+     * token is stored, a previously issued token becomes invalid.
+     *
+     * @param id The id of the job
+     * @return The callback token
+     */
+    public String issueCallbackToken(String id) {
+        final byte[] bytes = new byte[CALLBACK_TOKEN_LENGTH];
+        RANDOM.nextBytes(bytes);
+        final StringBuilder callbackToken = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            callbackToken.append(String.format("%02x", b & 0xff));
+        }
+        jobInfoRepository.setCallbackTokenHash(id, JobInfo.hashCallbackToken(callbackToken.toString()));
+        return callbackToken.toString();
+    }
+
     /**
      * Returns all job information for the given name which were last modified after the given after date and before
      * the given before date. The result list is sorted descending by the jobs creation date.
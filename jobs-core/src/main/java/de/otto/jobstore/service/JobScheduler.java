@@ -1,5 +1,6 @@
 package de.otto.jobstore.service;
 
+import de.otto.jobstore.common.JobMetrics;
 import de.otto.jobstore.common.JobSchedule;
 import de.otto.jobstore.repository.JobInfoRepository;
 import org.slf4j.Logger;
@@ -38,6 +39,18 @@ public class JobScheduler {
 
     private ScheduledExecutorService executorService;
 
+    private volatile JobMetrics jobMetrics;
+
+    /**
+     * Sets the metrics which record the lag and the duration of the executions of all schedules. Default value is
+     * null, no metrics are recorded.
+     *
+     * @param jobMetrics The metrics to record
+     */
+    public void setJobMetrics(JobMetrics jobMetrics) {
+        this.jobMetrics = jobMetrics;
+    }
+
     @PostConstruct
     public synchronized void startup() {
         LOGGER.info("called startup");
@@ -48,8 +61,9 @@ public class JobScheduler {
 
         executorService = Executors.newScheduledThreadPool(schedules.size(),new JobSchedulerThreadFactory());
 
+        final long plannedStart = System.currentTimeMillis();
         for(JobSchedule schedule: schedules) {
-            executorService.scheduleAtFixedRate(schedule, 0, schedule.interval(), TimeUnit.MILLISECONDS);
+            executorService.scheduleAtFixedRate(new MeasuredSchedule(schedule, plannedStart), 0, schedule.interval(), TimeUnit.MILLISECONDS);
         }
 
         LOGGER.info("finished startup");
@@ -140,9 +154,65 @@ public class JobScheduler {
             }
         });
 
+        schedules.add(new JobSchedule() {
+            @Override
+            public long interval() {
+                return TimeUnit.SECONDS.toMillis(5);
+            }
+            @Override
+            public void schedule() {
+                jobService.publishNodeInfo();
+            }
+            @Override
+            public String getName() {
+                return "jobService.publishNodeInfo()";
+            }
+        });
+
+        schedules.add(new JobSchedule() {
+            @Override
+            public long interval() {
+                return TimeUnit.SECONDS.toMillis(10);
+            }
+            @Override
+            public void schedule() {
+                jobService.cleanupJobsOfDeadNodes();
+            }
+            @Override
+            public String getName() {
+                return "jobService.cleanupJobsOfDeadNodes()";
+            }
+        });
+
         return schedules;
     }
 
+    /**
+     * Reports the lag and duration of every execution of a schedule. As schedules are executed at a fixed rate, the
+     * execution n is planned at the start of the scheduler plus n times the interval.
+     */
+    private class MeasuredSchedule implements Runnable {
+        private final JobSchedule schedule;
+        private long plannedStart;
+
+        MeasuredSchedule(JobSchedule schedule, long plannedStart) {
+            this.schedule = schedule;
+            this.plannedStart = plannedStart;
+        }
+
+        @Override
+        public void run() {
+            final long start = System.currentTimeMillis();
+            final long lag = Math.max(0, start - plannedStart);
+            plannedStart += schedule.interval();
+            schedule.run();
+            final JobMetrics metrics = jobMetrics;
+            if (metrics != null) {
+                metrics.scheduleExecuted(schedule.getName(), lag, System.currentTimeMillis() - start);
+            }
+        }
+    }
+
     /**
      * shameless copy of Executors.DefaultThreadFactory with some adjustments:
      * - changed name prefix
@@ -3,14 +3,19 @@ package de.otto.jobstore.service;
 import de.otto.jobstore.common.*;
 import de.otto.jobstore.common.properties.JobInfoProperty;
 import de.otto.jobstore.common.util.InternetUtils;
+import de.otto.jobstore.repository.ConcurrencyLimitRepository;
 import de.otto.jobstore.repository.JobDefinitionRepository;
 import de.otto.jobstore.repository.JobInfoRepository;
+import de.otto.jobstore.repository.NodeInfoRepository;
 import de.otto.jobstore.service.exception.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -25,20 +30,62 @@ public class JobService {
 
     private static final long JOB_INFO_CACHE_UPDATE_INTERVAL = 10000;
     private static final Logger LOGGER = LoggerFactory.getLogger(JobService.class);
+    // leaves a day for a delayed job to be queued before its removal after the time to live of jobs
+    private static final long MAX_DELAY = JobInfoRepository.TIME_TO_LIVE - TimeUnit.DAYS.toMillis(1);
 
     static final Map<String, String> NO_PARAMETERS = Collections.emptyMap();
 
-    private final Map<String, JobRunnable> jobs = new ConcurrentHashMap<>();
+    static final String BLOCKED_BY_JOB = "job:";
+    static final String BLOCKED_BY_CONCURRENCY_LIMIT = "concurrencyLimit:";
+    static final String BLOCKED_BY_CAPACITY = "capacity";
+    static final String BLOCKED_BY_ADMISSION = "admission";
+    static final String BLOCKED_BY_DISABLED = "disabled";
+    // the job left the queue meanwhile, e.g. because another node dispatched it, so there is nothing to record
+    private static final String NOT_QUEUED_ANYMORE = "";
+
+    private final ConcurrentMap<String, JobRunnable> jobs = new ConcurrentHashMap<>();
     private final Set<Set<String>> runningConstraints = new CopyOnWriteArraySet<>();
+    private final Map<String, Integer> concurrencyLimits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> limitedResourcesByJobName = new ConcurrentHashMap<>();
     private JobDefinitionRepository jobDefinitionRepository;
     private JobInfoRepository jobInfoRepository;
     private ActiveChecker activeChecker;
+    private NodeInfoRepository nodeInfoRepository;
+    private ConcurrencyLimitRepository concurrencyLimitRepository;
+    private QueueOrderingPolicy queueOrderingPolicy = new WeightedQueueOrderingPolicy();
+    private AdmissionController admissionController;
+    private final JobWatchdog watchdog;
+    private volatile boolean watchdogEnabled = false;
+    private final JobEventListeners eventListeners = new JobEventListeners();
+    private volatile JobMetrics jobMetrics;
+
+    private final Set<String> runningJobIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private volatile int maxConcurrentJobs = Runtime.getRuntime().availableProcessors();
+    private volatile double maxSystemLoad = 1.0;
+    private volatile long nodeHeartbeatTimeout = TimeUnit.SECONDS.toMillis(30);
+    private volatile long deadNodeTimeout = TimeUnit.MINUTES.toMillis(2);
 
     protected int awaitTerminationSeconds = 30;
     protected boolean desynchronize = true;
 
     private volatile boolean shutdown = false;
 
+    private volatile int remotePollParallelism = 10;
+    private volatile long remotePollTimeout = TimeUnit.SECONDS.toMillis(60);
+    private ExecutorService remotePollExecutorService;
+    private final Set<String> remotePollsInFlight = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private ScheduledExecutorService delayedJobsExecutorService;
+    private ScheduledFuture<?> delayedJobsWakeUp;
+    private long delayedJobsWakeUpTime;
+
+    private static final long MIN_DEFINITION_SYNC_RETRY_DELAY = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_DEFINITION_SYNC_RETRY_DELAY = TimeUnit.MINUTES.toMillis(1);
+    private final Map<String, StoredJobDefinition> unsyncedJobDefinitions = new LinkedHashMap<>();
+    private ScheduledExecutorService definitionSyncExecutorService;
+    private ScheduledFuture<?> definitionSync;
+    private long definitionSyncRetryDelay = MIN_DEFINITION_SYNC_RETRY_DELAY;
+
     /**
      * Creates a JobService Object.
      *
@@ -50,6 +97,11 @@ public class JobService {
         this.jobDefinitionRepository = jobDefinitionRepository;
         this.jobInfoRepository = jobInfoRepository;
         this.activeChecker = activeChecker;
+        this.watchdog = new JobWatchdog(jobInfoRepository);
+        this.jobDefinitionRepository.addJobEventListener(eventListeners);
+        this.jobInfoRepository.addJobEventListener(eventListeners);
+        this.jobDefinitionRepository.init();
+        this.jobInfoRepository.init();
         this.jobDefinitionRepository.addOrUpdate(StoredJobDefinition.JOB_EXEC_SEMAPHORE);
     }
 
@@ -82,6 +134,167 @@ public class JobService {
         jobDefinitionRepository.setJobExecutionEnabled(StoredJobDefinition.JOB_EXEC_SEMAPHORE.getName(), executionEnabled);
     }
 
+    /**
+     * Sets the node registry to which this JobService publishes its capacity. If set, queued jobs are only claimed
+     * by this JobService in proportion to its share of the free capacity of all active nodes.
+     *
+     * @param nodeInfoRepository The node registry, null disables capacity-aware distribution of queued jobs
+     */
+    public void setNodeInfoRepository(NodeInfoRepository nodeInfoRepository) {
+        if (nodeInfoRepository != null) {
+            nodeInfoRepository.addJobEventListener(eventListeners);
+            nodeInfoRepository.init();
+        }
+        this.nodeInfoRepository = nodeInfoRepository;
+    }
+
+    /**
+     * Sets the repository in which the usage of resources with a concurrency limit is counted. Must be set before
+     * concurrency limits are added.
+     *
+     * @param concurrencyLimitRepository The repository to count the usage of resources
+     */
+    public void setConcurrencyLimitRepository(ConcurrencyLimitRepository concurrencyLimitRepository) {
+        if (concurrencyLimitRepository != null) {
+            concurrencyLimitRepository.addJobEventListener(eventListeners);
+            concurrencyLimitRepository.init();
+        }
+        this.concurrencyLimitRepository = concurrencyLimitRepository;
+    }
+
+    /**
+     * Sets the controller which decides if a job may be started on this node right now or should be queued or
+     * rejected. Per default every job is admitted. A {@link LoadBasedAdmissionController} compares the running jobs
+     * with {@link #setMaxConcurrentJobs(int)}, so set the maximum number of concurrent jobs as well unless the number
+     * of available processors fits the jobs of this node.
+     *
+     * @param admissionController The admission controller, e.g. {@link LoadBasedAdmissionController}
+     */
+    public void setAdmissionController(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    /**
+     * Enables or disables the watchdog which interrupts local jobs as soon as they exceed their max execution time
+     * or max idle time and marks them as timed out. Default value is false, so jobs are only marked as timed out by the
+     * periodic cleanup of timed out jobs and are never interrupted unless the watchdog is enabled.
+     *
+     * @param watchdogEnabled true - Local jobs are watched<br/>
+     *                        false - Timed out jobs are only detected by the periodic cleanup of timed out jobs
+     */
+    public void setWatchdogEnabled(boolean watchdogEnabled) {
+        this.watchdogEnabled = watchdogEnabled;
+    }
+
+    /**
+     * Registers a listener which is notified about the lifecycle of all jobs handled by this JobService and about
+     * all calls of its repositories, e.g. to emit them as events of a profiler.
+     *
+     * @param listener The listener to register
+     */
+    public void addJobEventListener(JobEventListener listener) {
+        eventListeners.add(listener);
+    }
+
+    /**
+     * Sets the metrics which record the queue, the dispatching and the execution of jobs as well as the calls of
+     * the repositories. Default value is null, no metrics are recorded.
+     *
+     * @param jobMetrics The metrics to record
+     */
+    public void setJobMetrics(JobMetrics jobMetrics) {
+        if (jobMetrics != null) {
+            addJobEventListener(jobMetrics);
+        }
+        this.jobMetrics = jobMetrics;
+    }
+
+    public JobMetrics getJobMetrics() {
+        return jobMetrics;
+    }
+
+    /**
+     * Sets the policy which determines the order in which queued jobs are executed. Default is the
+     * {@link WeightedQueueOrderingPolicy}.
+     *
+     * @param queueOrderingPolicy The policy to order queued jobs
+     */
+    public void setQueueOrderingPolicy(QueueOrderingPolicy queueOrderingPolicy) {
+        this.queueOrderingPolicy = queueOrderingPolicy;
+    }
+
+    /**
+     * Sets the maximum number of jobs this JobService executes at the same time. Only taken into account when
+     * claiming queued jobs while a node registry is set and by the {@link AdmissionController}. When claiming queued
+     * jobs the running remote jobs of this node occupy slots as well. Default value is the number of available
+     * processors.
+     *
+     * @param maxConcurrentJobs The number of executor slots of this node
+     */
+    public void setMaxConcurrentJobs(int maxConcurrentJobs) {
+        this.maxConcurrentJobs = maxConcurrentJobs;
+    }
+
+    /**
+     * Sets the system load (load average per available processor) above which this node does not claim queued jobs
+     * anymore. Only taken into account while a node registry is set. Default value is 1.0.
+     *
+     * @param maxSystemLoad The maximum system load per processor
+     */
+    public void setMaxSystemLoad(double maxSystemLoad) {
+        this.maxSystemLoad = maxSystemLoad;
+    }
+
+    /**
+     * Sets the time after which a node which has not published its capacity is not taken into account anymore when
+     * distributing queued jobs among the nodes. Only taken into account while a node registry is set. Default value
+     * is 30 seconds.
+     *
+     * @param nodeHeartbeatTimeout The timeout in milliseconds
+     */
+    public void setNodeHeartbeatTimeout(long nodeHeartbeatTimeout) {
+        this.nodeHeartbeatTimeout = nodeHeartbeatTimeout;
+    }
+
+    /**
+     * Sets the time after which a node which has not published its capacity is considered to be dead. Running local
+     * jobs of a dead node are queued again, so another node executes them. Should the node only have been paused it
+     * aborts these jobs the next time they check for an abort. As nodes publish their capacity every 5 seconds, the
+     * timeout should span many missed heartbeats. Only taken into account while a node registry is set, jobs
+     * of nodes which died without a registry are only cleaned up once they time out. Default value is 2 minutes.
+     *
+     * @param deadNodeTimeout The timeout in milliseconds
+     */
+    public void setDeadNodeTimeout(long deadNodeTimeout) {
+        this.deadNodeTimeout = deadNodeTimeout;
+    }
+
+    /**
+     * Sets the maximum number of remote jobs whose status is polled at the same time. Default value is 10.
+     *
+     * @param remotePollParallelism The number of concurrent status polls
+     */
+    public synchronized void setRemotePollParallelism(int remotePollParallelism) {
+        if (remotePollParallelism < 1) {
+            throw new IllegalArgumentException("remotePollParallelism must be positive");
+        }
+        this.remotePollParallelism = remotePollParallelism;
+        if (remotePollExecutorService != null) {
+            remotePollExecutorService.shutdown();
+            remotePollExecutorService = null;
+        }
+    }
+
+    /**
+     * Sets the time a poll of the remote jobs waits for their status. Polls which did not finish in time keep
+     * running in the background and the job is not polled again until they finished. Default value is 60 seconds.
+     *
+     * @param remotePollTimeout The timeout in milliseconds
+     */
+    public void setRemotePollTimeout(long remotePollTimeout) {
+        this.remotePollTimeout = remotePollTimeout;
+    }
+
     /**
      * Registers a job with the given runnable in this job service
      *
@@ -113,6 +326,148 @@ public class JobService {
         }
     }
 
+    /**
+     * Registers all jobs with the given runnables in this job service and stores their definitions with a single
+     * bulk write. Jobs whose name is already registered are skipped.
+     *
+     * @param jobRunnables The jobRunnables
+     * @return The number of jobs which were registered
+     */
+    public int registerJobs(final Collection<? extends JobRunnable> jobRunnables) {
+        return registerJobs(jobRunnables, false);
+    }
+
+    /**
+     * Registers all jobs with the given runnables in this job service and stores their definitions with a single
+     * bulk write. Jobs whose name is already registered are skipped.
+     *
+     * @param jobRunnables     The jobRunnables
+     * @param syncDefinitionsAsync true - The definitions are stored in the background, so startup does not wait for
+     *                             the database. Until then the jobs are registered but their definitions may be missing
+     *                             or outdated in the database. A failed write is retried with an increasing delay until
+     *                             it succeeds or {@link #shutdownJobs()} is called, see
+     *                             {@link #awaitJobDefinitionsSynced(long, TimeUnit)}<br>
+     *                             false - The definitions are stored before this method returns
+     * @return The number of jobs which were registered
+     */
+    public int registerJobs(final Collection<? extends JobRunnable> jobRunnables, boolean syncDefinitionsAsync) {
+        final List<StoredJobDefinition> jobDefinitions = new ArrayList<>();
+        for (JobRunnable jobRunnable : jobRunnables) {
+            final JobDefinition jobDefinition = jobRunnable.getJobDefinition();
+            final String name = jobDefinition.getName();
+            if (jobs.putIfAbsent(name, jobRunnable) != null) {
+                LOGGER.warn("ltag=JobService.createJob.registerJobs Tried to re-register job with name={}", name);
+            } else {
+                jobDefinitions.add(new StoredJobDefinition(jobDefinition));
+            }
+        }
+        if (syncDefinitionsAsync) {
+            syncJobDefinitionsAsync(jobDefinitions);
+        } else {
+            jobDefinitionRepository.addOrUpdateAll(jobDefinitions);
+        }
+        return jobDefinitions.size();
+    }
+
+    /**
+     * Waits until the job definitions registered with {@link #registerJobs(Collection, boolean)} are stored
+     *
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     * @return true - All job definitions are stored<br>
+     * false - The timeout elapsed or the storing was stopped by {@link #shutdownJobs()}
+     */
+    public synchronized boolean awaitJobDefinitionsSynced(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        long remaining = unit.toMillis(timeout);
+        while (!unsyncedJobDefinitions.isEmpty() && definitionSync != null && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return unsyncedJobDefinitions.isEmpty();
+    }
+
+    private synchronized void syncJobDefinitionsAsync(List<StoredJobDefinition> jobDefinitions) {
+        for (StoredJobDefinition jobDefinition : jobDefinitions) {
+            unsyncedJobDefinitions.put(jobDefinition.getName(), jobDefinition);
+        }
+        if (definitionSync == null && !shutdown) {
+            scheduleJobDefinitionSync(0);
+        }
+    }
+
+    private synchronized void scheduleJobDefinitionSync(long delay) {
+        if (definitionSyncExecutorService == null) {
+            definitionSyncExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "jobstore-definition-sync");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        definitionSync = definitionSyncExecutorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                syncJobDefinitions();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void syncJobDefinitions() {
+        final List<StoredJobDefinition> jobDefinitions;
+        synchronized (this) {
+            jobDefinitions = new ArrayList<>(unsyncedJobDefinitions.values());
+        }
+        try {
+            jobDefinitionRepository.addOrUpdateAll(jobDefinitions);
+            LOGGER.info("ltag=JobService.syncJobDefinitions Stored {} job definitions", jobDefinitions.size());
+        } catch (Exception e) {
+            synchronized (this) {
+                LOGGER.error("ltag=JobService.syncJobDefinitions Could not store job definitions, retrying in {} ms",
+                        definitionSyncRetryDelay, e);
+                if (definitionSync != null) {
+                    scheduleJobDefinitionSync(definitionSyncRetryDelay);
+                    definitionSyncRetryDelay = Math.min(2 * definitionSyncRetryDelay, MAX_DEFINITION_SYNC_RETRY_DELAY);
+                }
+            }
+            return;
+        }
+        synchronized (this) {
+            for (StoredJobDefinition jobDefinition : jobDefinitions) {
+                // definitions registered again during the write are stored by the next run
+                if (unsyncedJobDefinitions.get(jobDefinition.getName()) == jobDefinition) {
+                    unsyncedJobDefinitions.remove(jobDefinition.getName());
+                }
+            }
+            definitionSyncRetryDelay = MIN_DEFINITION_SYNC_RETRY_DELAY;
+            if (definitionSync == null) {
+                return;
+            }
+            if (unsyncedJobDefinitions.isEmpty()) {
+                definitionSync = null;
+                notifyAll();
+            } else {
+                scheduleJobDefinitionSync(0);
+            }
+        }
+    }
+
+    private synchronized void shutdownDefinitionSyncExecutorService() {
+        if (definitionSyncExecutorService != null) {
+            definitionSyncExecutorService.shutdownNow();
+            definitionSyncExecutorService = null;
+        }
+        if (definitionSync != null) {
+            definitionSync.cancel(false);
+            definitionSync = null;
+            LOGGER.warn("ltag=JobService.shutdownDefinitionSyncExecutorService {} job definitions were not stored",
+                    unsyncedJobDefinitions.size());
+        }
+        notifyAll();
+    }
+
     /**
      * Deregisters a job with the given runnable in this job service
      *
@@ -156,7 +511,7 @@ public class JobService {
     public boolean isJobExecutionEnabled(final String name) throws JobNotRegisteredException {
         checkIfJobIsRegistered(name);
         final StoredJobDefinition jobDefinition = jobDefinitionRepository.find(name);
-        return !jobDefinition.isDisabled();
+        return jobDefinition == null || !jobDefinition.isDisabled();
     }
 
     /**
@@ -201,6 +556,64 @@ public class JobService {
         return runningConstraints.add(Collections.unmodifiableSet(constraint));
     }
 
+    /**
+     * Adds a running constraint to this JobService instance which allows up to maxConcurrency jobs of the
+     * constraint to run at the same time within the whole cluster.
+     *
+     * @param constraint The names of the jobs of which at most maxConcurrency are allowed to run at the same time
+     * @param maxConcurrency The maximum number of jobs running at the same time
+     * @return true - If the running constraint was successfully added<br>
+     * false - If the running constraint already exists
+     * @throws IllegalStateException Thrown if no ConcurrencyLimitRepository is set
+     * @see #setConcurrencyLimitRepository(ConcurrencyLimitRepository)
+     */
+    public boolean addRunningConstraintWithoutChecks(final Set<String> constraint, int maxConcurrency) {
+        final List<String> names = new ArrayList<>(constraint);
+        Collections.sort(names);
+        final String resource = "runningConstraint:" + names;
+        if (concurrencyLimits.containsKey(resource)) {
+            return false;
+        }
+        addConcurrencyLimit(resource, maxConcurrency, constraint);
+        return true;
+    }
+
+    /**
+     * Limits the number of jobs which use the given resource at the same time within the whole cluster. A job
+     * which would exceed the limit is queued. A job may use several resources and is only executed if none of
+     * their limits would be exceeded.
+     *
+     * @param resource The name of the resource, e.g. the database the jobs write to
+     * @param maxConcurrency The maximum number of jobs using the resource at the same time
+     * @param jobNames The names of the jobs using the resource
+     * @throws IllegalStateException Thrown if no ConcurrencyLimitRepository is set
+     */
+    public void addConcurrencyLimit(final String resource, int maxConcurrency, final Set<String> jobNames) {
+        if (concurrencyLimitRepository == null) {
+            throw new IllegalStateException("concurrencyLimitRepository must be set to add concurrency limits");
+        }
+        concurrencyLimits.put(resource, maxConcurrency);
+        for (String name : jobNames) {
+            // sorted, so all nodes acquire the resources of a job in the same order
+            Set<String> resources = limitedResourcesByJobName.get(name);
+            if (resources == null) {
+                final Set<String> newResources = new ConcurrentSkipListSet<>();
+                resources = limitedResourcesByJobName.putIfAbsent(name, newResources);
+                if (resources == null) {
+                    resources = newResources;
+                }
+            }
+            resources.add(resource);
+        }
+    }
+
+    /**
+     * Returns the maximum concurrency of all limited resources
+     */
+    public Map<String, Integer> listConcurrencyLimits() {
+        return Collections.unmodifiableMap(concurrencyLimits);
+    }
+
     /**
      * Executes a job with the given name and returns its ID. If a job is already running or running it would violate
      * running constraints it this job will be added to the queue. If a job is already queued an exception will be thrown.
@@ -214,9 +627,10 @@ public class JobService {
      *                                           method was executed
      * @throws JobExecutionNotNecessaryException If the execution of the job was not necessary
      * @throws JobExecutionDisabledException     If job execution has been disabled
+     * @throws JobAdmissionDeniedException       If the execution was rejected because this node is overloaded
      */
     public String executeJob(final String name) throws JobNotRegisteredException, JobAlreadyQueuedException,
-            JobAlreadyRunningException, JobExecutionNotNecessaryException, JobExecutionDisabledException, JobServiceNotActiveException {
+            JobAlreadyRunningException, JobExecutionNotNecessaryException, JobExecutionDisabledException, JobServiceNotActiveException, JobAdmissionDeniedException {
         return executeJob(name, NO_PARAMETERS);
     }
 
@@ -235,9 +649,10 @@ public class JobService {
      *                                           method was executed
      * @throws JobExecutionNotNecessaryException If the execution of the job was not necessary
      * @throws JobExecutionDisabledException     If job execution has been disabled
+     * @throws JobAdmissionDeniedException       If the execution was rejected because this node is overloaded
      */
     public String executeJob(final String name, Map<String, String> parameters) throws JobNotRegisteredException, JobAlreadyQueuedException,
-            JobAlreadyRunningException, JobExecutionNotNecessaryException, JobExecutionDisabledException, JobServiceNotActiveException {
+            JobAlreadyRunningException, JobExecutionNotNecessaryException, JobExecutionDisabledException, JobServiceNotActiveException, JobAdmissionDeniedException {
         return executeJob(name, JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
     }
 
@@ -255,10 +670,11 @@ public class JobService {
      *                                           method was executed
      * @throws JobExecutionNotNecessaryException If the execution of the job was not necessary
      * @throws JobExecutionDisabledException     If job execution has been disabled
+     * @throws JobAdmissionDeniedException       If the execution was rejected because this node is overloaded
      */
     public String executeJob(final String name, final JobExecutionPriority executionPriority) throws JobNotRegisteredException,
             JobAlreadyQueuedException, JobAlreadyRunningException, JobExecutionNotNecessaryException,
-            JobExecutionDisabledException, JobServiceNotActiveException {
+            JobExecutionDisabledException, JobServiceNotActiveException, JobAdmissionDeniedException {
         return executeJob(name, executionPriority, NO_PARAMETERS);
     }
 
@@ -278,22 +694,408 @@ public class JobService {
      *                                           method was executed
      * @throws JobExecutionNotNecessaryException If the execution of the job was not necessary
      * @throws JobExecutionDisabledException     If job execution has been disabled
+     * @throws JobAdmissionDeniedException       If the execution was rejected because this node is overloaded
      */
     public String executeJob(final String name, final JobExecutionPriority executionPriority, Map<String, String> parameters) throws JobNotRegisteredException,
             JobAlreadyQueuedException, JobAlreadyRunningException, JobExecutionNotNecessaryException,
-            JobExecutionDisabledException, JobServiceNotActiveException {
+            JobExecutionDisabledException, JobServiceNotActiveException, JobAdmissionDeniedException {
+        return executeJob(name, executionPriority, parameters, null);
+    }
+
+    /**
+     * Executes a job with the given name and returns its ID. If a job is already running or running it would violate
+     * running constraints it this job will be added to the queue. If a job is already queued an exception will be thrown.
+     *
+     * The execution is skipped and the id of an existing job is returned instead if a job with the given name was
+     * already triggered with the given idempotency key or, if the job definition has a memoization window, if a job
+     * with identical parameters is queued, running or finished successfully within the memoization window.
+     *
+     * @param name              The name of the job to execute
+     * @param executionPriority The priority with which the job is to be executed
+     * @param parameters        parameters to use
+     * @param idempotencyKey    A key identifying the request of the client, may be null
+     * @return The id of the executing, queued or reused job
+     * @throws java.lang.NullPointerException    if parameters are null
+     * @throws JobNotRegisteredException         Thrown if no job with the given name was registered with this JobService instance
+     * @throws JobAlreadyQueuedException         If a job with the given name is already queued for execution or another
+     *                                           JobService instance queued the job while this method was executed
+     * @throws JobAlreadyRunningException        If another JobService instance executed a job with the given name while this
+     *                                           method was executed
+     * @throws JobExecutionNotNecessaryException If the execution of the job was not necessary
+     * @throws JobExecutionDisabledException     If job execution has been disabled
+     * @throws JobAdmissionDeniedException       If the execution was rejected because this node is overloaded
+     */
+    public String executeJob(final String name, final JobExecutionPriority executionPriority, Map<String, String> parameters,
+                             final String idempotencyKey) throws JobNotRegisteredException,
+            JobAlreadyQueuedException, JobAlreadyRunningException, JobExecutionNotNecessaryException,
+            JobExecutionDisabledException, JobServiceNotActiveException, JobAdmissionDeniedException {
         checkParameters(parameters);
         checkIfJobServiceIsActive();
         checkIfJobExecutionIsEnabled();
         checkIfJobIsRegistered(name);
         checkIfJobIsDisabled(name);
         final JobRunnable runnable = jobs.get(name);
-        final JobInfo queuedJobInfo = jobInfoRepository.findByNameAndRunningState(name, RunningState.QUEUED);
-        if (queuedJobInfo == null) {
-            return executeJobIsNecessaryAndPossible(name, executionPriority, runnable, parameters);
+        final JobInfo reusableJobInfo = findReusableJob(runnable.getJobDefinition(), parameters, idempotencyKey);
+        if (reusableJobInfo != null) {
+            LOGGER.info("ltag=JobService.executeJob.reused jobInfoName={} jobInfoId={}", name, reusableJobInfo.getId());
+            return reusableJobInfo.getId();
+        }
+        final String id;
+        final String queueKey = queueKey(runnable.getJobDefinition(), parameters);
+        final JobInfo queuedJobInfo = findQueuedJob(name, queueKey);
+        if (queuedJobInfo == null && queueKey != null && jobInfoRepository.hasJob(name, RunningState.QUEUED)) {
+            final JobInfo runningJobInfo = jobInfoRepository.findByNameAndRunningState(name, RunningState.RUNNING);
+            if (runningJobInfo != null && !runningJobInfo.hasLowerPriority(executionPriority) && !isQueuedBehind(runningJobInfo, queueKey)) {
+                throw new JobExecutionNotNecessaryException("Execution of job " + name + " was not necessary");
+            }
+            LOGGER.info("ltag=JobService.executeJob.queuedBehindOtherParameters jobInfoName={}", name);
+            id = queueJob(runnable, executionPriority, parameters, "A job with name " + name + " and these parameters is already queued for execution");
+        } else if (queuedJobInfo == null) {
+            id = executeJobIsNecessaryAndPossible(name, executionPriority, runnable, parameters);
         } else {
-            return queueJobIfNecessaryAndPossible(name, executionPriority, parameters, runnable, queuedJobInfo);
+            id = queueJobIfNecessaryAndPossible(name, executionPriority, parameters, runnable, queuedJobInfo);
+        }
+        if (idempotencyKey != null) {
+            jobInfoRepository.addIdempotencyKeys(id, Collections.singletonList(idempotencyKey));
+        }
+        return id;
+    }
+
+    private JobInfo findReusableJob(JobDefinition jobDefinition, Map<String, String> parameters, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            final JobInfo jobInfo = jobInfoRepository.findByIdempotencyKey(jobDefinition.getName(), idempotencyKey);
+            if (jobInfo != null) {
+                return jobInfo;
+            }
+        }
+        final long memoizationWindow = jobDefinition.getMemoizationWindow();
+        if (memoizationWindow > 0) {
+            return jobInfoRepository.findMemoizedJob(jobDefinition.getName(), JobInfo.hashParameters(parameters),
+                    new Date(System.currentTimeMillis() - memoizationWindow));
         }
+        return null;
+    }
+
+    /**
+     * Delays a job with the given name until the given date and returns its ID. The delayed job does not occupy the
+     * queue of its name, any number of jobs may be delayed. Once the date is reached the first JobService instance
+     * which dispatches queued jobs adds it to the queue, where it waits until no job with the same name and queue
+     * key is queued anymore. The instance accepting the call wakes up at the date to dispatch the job on time, every
+     * other instance schedules its wake-up for the earliest delayed job whenever it dispatches queued jobs. So a job
+     * is only dispatched on time if its instance keeps running or another instance dispatched queued jobs since it
+     * was delayed, otherwise it waits for the next call of {@link #executeQueuedJobs()}. If the date is not in the
+     * future the job is executed immediately. Like
+     * {@link #executeJob(String, JobExecutionPriority, Map, String)} the id of an existing job is returned instead if
+     * the job definition has a memoization window and a job with identical parameters can be reused.
+     *
+     * @param name       The name of the job to execute
+     * @param notBefore  The date before which the job must not be executed, at most six days in the future
+     * @param parameters parameters to use
+     * @return The id of the delayed or reused job
+     * @throws java.lang.NullPointerException    if the date or parameters are null
+     * @throws java.lang.IllegalArgumentException if the date is too far in the future, delayed jobs are removed like
+     *                                           any other job one week after their creation
+     * @throws JobNotRegisteredException         Thrown if no job with the given name was registered with this JobService instance
+     * @throws JobAlreadyQueuedException         If the job was to be executed immediately and a job with the given name
+     *                                           is already queued for execution
+     * @throws JobAlreadyRunningException        If the job was to be executed immediately and another JobService
+     *                                           instance executed a job with the given name while this method was executed
+     * @throws JobExecutionNotNecessaryException If the job was to be executed immediately and its execution was not necessary
+     * @throws JobExecutionDisabledException     If job execution has been disabled
+     * @throws JobAdmissionDeniedException       If the job was to be executed immediately and the execution was rejected
+     *                                           because this node is overloaded
+     */
+    public String executeJobAt(final String name, final Date notBefore, Map<String, String> parameters) throws JobNotRegisteredException,
+            JobAlreadyQueuedException, JobAlreadyRunningException, JobExecutionNotNecessaryException,
+            JobExecutionDisabledException, JobServiceNotActiveException, JobAdmissionDeniedException {
+        return executeJobAt(name, notBefore, JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
+    }
+
+    /**
+     * Delays a job with the given name until the given date and returns its ID.
+     *
+     * @param name              The name of the job to execute
+     * @param notBefore         The date before which the job must not be executed
+     * @param executionPriority The priority with which the job is to be executed
+     * @param parameters        parameters to use
+     * @return The id of the delayed job
+     * @see #executeJobAt(String, Date, Map)
+     */
+    public String executeJobAt(final String name, final Date notBefore, final JobExecutionPriority executionPriority, Map<String, String> parameters)
+            throws JobNotRegisteredException, JobAlreadyQueuedException, JobAlreadyRunningException, JobExecutionNotNecessaryException,
+            JobExecutionDisabledException, JobServiceNotActiveException, JobAdmissionDeniedException {
+        if (notBefore == null) {
+            throw new NullPointerException("notBefore may not be null");
+        }
+        final long now = System.currentTimeMillis();
+        if (notBefore.getTime() <= now) {
+            return executeJob(name, executionPriority, parameters);
+        }
+        if (notBefore.getTime() - now > MAX_DELAY) {
+            throw new IllegalArgumentException("notBefore may be at most " + TimeUnit.MILLISECONDS.toDays(MAX_DELAY) + " days in the future");
+        }
+        checkParameters(parameters);
+        checkIfJobServiceIsActive();
+        checkIfJobExecutionIsEnabled();
+        checkIfJobIsRegistered(name);
+        checkIfJobIsDisabled(name);
+        final JobDefinition definition = jobs.get(name).getJobDefinition();
+        final JobInfo reusableJobInfo = findReusableJob(definition, parameters, null);
+        if (reusableJobInfo != null) {
+            LOGGER.info("ltag=JobService.executeJobAt.reused jobInfoName={} jobInfoId={}", name, reusableJobInfo.getId());
+            return reusableJobInfo.getId();
+        }
+        final JobInfo jobInfo = new JobInfo(name, InternetUtils.getHostName(), Thread.currentThread().getName(),
+                definition.getMaxIdleTime(), definition.getMaxExecutionTime(),
+                jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(name, definition.getMaxRetries()), RunningState.DELAYED,
+                executionPriority, parameters);
+        jobInfo.setInstanceId(InternetUtils.getInstanceId());
+        jobInfo.setMaxRetries(definition.getMaxRetries());
+        jobInfo.setRetryInterval(definition.getRetryInterval());
+        jobInfo.setNotBefore(notBefore);
+        final String id = jobInfoRepository.create(jobInfo);
+        LOGGER.info("ltag=JobService.executeJobAt jobInfoName={} jobInfoId={} notBefore={}", name, id, notBefore);
+        scheduleDelayedJobsWakeUp(notBefore);
+        return id;
+    }
+
+    /**
+     * Queues a job with the given name for execution after the given delay and returns its ID.
+     *
+     * @param name       The name of the job to execute
+     * @param delay      The delay after which the job is executed
+     * @param unit       The unit of the delay
+     * @param parameters parameters to use
+     * @return The id of the queued job
+     * @see #executeJobAt(String, Date, Map)
+     */
+    public String executeJobAfter(final String name, final long delay, final TimeUnit unit, Map<String, String> parameters)
+            throws JobNotRegisteredException, JobAlreadyQueuedException, JobAlreadyRunningException, JobExecutionNotNecessaryException,
+            JobExecutionDisabledException, JobServiceNotActiveException, JobAdmissionDeniedException {
+        return executeJobAt(name, new Date(System.currentTimeMillis() + unit.toMillis(delay)), parameters);
+    }
+
+    /**
+     * Executes several jobs at once. In contrast to calling {@link #executeJob(String, JobExecutionPriority, Map)}
+     * for every job, the preconditions of all jobs are evaluated against one snapshot of the running and queued jobs
+     * and all new jobs are persisted with a single bulk write. The rules whether a job is executed, queued or
+     * refused are the same as for a single job. A job name may only be requested once per call
+     * unless the queue of the job holds jobs with distinct parameters.
+     *
+     * @param requests The jobs to execute
+     * @return The outcome of every request in the order of the requests
+     * @throws JobServiceNotActiveException  If this JobService is not active
+     * @throws JobExecutionDisabledException If job execution has been disabled
+     */
+    public List<JobRequestOutcome> executeJobs(final Collection<JobRequest> requests) throws JobServiceNotActiveException,
+            JobExecutionDisabledException {
+        checkIfJobServiceIsActive();
+        checkIfJobExecutionIsEnabled();
+
+        final Map<String, JobInfo> runningJobInfos = new HashMap<>();
+        final Map<String, JobInfo> queuedJobInfos = new HashMap<>();
+        final Set<String> queuedNames = new HashSet<>();
+        final List<JobInfo> queuedAndRunningJobInfos = jobInfoRepository.findQueuedAndRunningJobs();
+        for (JobInfo jobInfo : queuedAndRunningJobInfos) {
+            if (RunningState.RUNNING.name().equals(jobInfo.getRunningState())) {
+                runningJobInfos.put(jobInfo.getName(), jobInfo);
+            } else {
+                queuedJobInfos.put(queueSlot(jobInfo.getName(), jobInfo.getQueueKey()), jobInfo);
+                queuedNames.add(jobInfo.getName());
+            }
+        }
+        final Map<String, Long> maxRetriesByName = new HashMap<>();
+        for (JobRequest request : requests) {
+            final JobRunnable runnable = jobs.get(request.getName());
+            if (runnable != null) {
+                maxRetriesByName.put(request.getName(), runnable.getJobDefinition().getMaxRetries());
+            }
+        }
+        final Map<String, StoredJobDefinition> storedDefinitions = new HashMap<>();
+        for (StoredJobDefinition definition : jobDefinitionRepository.find(maxRetriesByName.keySet())) {
+            storedDefinitions.put(definition.getName(), definition);
+        }
+        final Map<String, Long> retriesByName = jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(maxRetriesByName);
+        final Map<String, JobInfo> reusableJobInfos = findReusableJobs(requests, queuedAndRunningJobInfos);
+
+        final JobRequestOutcome[] outcomes = new JobRequestOutcome[requests.size()];
+        final List<Integer> plannedIndexes = new ArrayList<>();
+        final List<JobInfo> plannedJobInfos = new ArrayList<>();
+        final List<JobInfo> replacedJobInfos = new ArrayList<>();
+        final Set<String> requestedJobs = new HashSet<>();
+        final List<JobRequest> requestList = new ArrayList<>(requests);
+        int plannedRunningJobs = 0;
+        for (int index = 0; index < requestList.size(); index++) {
+            final JobRequest request = requestList.get(index);
+            try {
+                checkIfJobIsRegistered(request.getName());
+                final JobDefinition definition = jobs.get(request.getName()).getJobDefinition();
+                if (!requestedJobs.add(queueSlot(request.getName(), queueKey(definition, request.getParameters())))) {
+                    throw new JobAlreadyQueuedException("A job with name " + request.getName() + " was already requested in this batch");
+                }
+                final StoredJobDefinition storedDefinition = storedDefinitions.get(request.getName());
+                if (storedDefinition != null && storedDefinition.isDisabled()) {
+                    throw new JobExecutionDisabledException("Execution of jobs with name " + request.getName() + " has been disabled");
+                }
+                final JobInfo reusableJobInfo = reusableJobInfos.get(queueSlot(request.getName(), JobInfo.hashParameters(request.getParameters())));
+                if (reusableJobInfo != null) {
+                    LOGGER.info("ltag=JobService.executeJobs.reused jobInfoName={} jobInfoId={}", request.getName(), reusableJobInfo.getId());
+                    outcomes[index] = JobRequestOutcome.reused(request, reusableJobInfo);
+                    continue;
+                }
+                final int replacedJobs = replacedJobInfos.size();
+                final RunningState runningState = planJobRequest(request, runningJobInfos, queuedJobInfos, queuedNames,
+                        plannedRunningJobs, replacedJobInfos);
+                final JobInfo jobInfo = new JobInfo(request.getName(), InternetUtils.getHostName(), Thread.currentThread().getName(),
+                        definition.getMaxIdleTime(), definition.getMaxExecutionTime(), retriesByName.get(request.getName()), runningState,
+                        request.getExecutionPriority(), request.getParameters());
+                jobInfo.setInstanceId(InternetUtils.getInstanceId());
+                jobInfo.setMaxRetries(definition.getMaxRetries());
+                jobInfo.setRetryInterval(definition.getRetryInterval());
+                if (runningState == RunningState.QUEUED) {
+                    jobInfo.setQueueKey(queueKey(definition, request.getParameters()));
+                }
+                if (replacedJobInfos.size() > replacedJobs) {
+                    jobInfo.setIdempotencyKeys(replacedJobInfos.get(replacedJobs).getIdempotencyKeys());
+                }
+                if (runningState == RunningState.RUNNING) {
+                    runningJobInfos.put(request.getName(), jobInfo);
+                    plannedRunningJobs++;
+                } else {
+                    queuedJobInfos.put(queueSlot(request.getName(), jobInfo.getQueueKey()), jobInfo);
+                    queuedNames.add(request.getName());
+                }
+                plannedIndexes.add(index);
+                plannedJobInfos.add(jobInfo);
+            } catch (JobException e) {
+                outcomes[index] = JobRequestOutcome.failed(request, e);
+            }
+        }
+
+        final List<String> replacedIds = new ArrayList<>();
+        for (JobInfo replacedJobInfo : replacedJobInfos) {
+            replacedIds.add(replacedJobInfo.getId());
+        }
+        final List<String> ids = jobInfoRepository.create(plannedJobInfos, replacedIds);
+        for (int i = 0; i < plannedJobInfos.size(); i++) {
+            final JobRequest request = requestList.get(plannedIndexes.get(i));
+            outcomes[plannedIndexes.get(i)] = executePlannedJob(request, plannedJobInfos.get(i), ids.get(i));
+        }
+        LOGGER.info("ltag=JobService.executeJobs requests={} created={}", requests.size(), plannedJobInfos.size());
+        return Arrays.asList(outcomes);
+    }
+
+    /**
+     * Collects the jobs which requests of job definitions with a memoization window may reuse from the given queued
+     * and running jobs and the jobs which finished successfully within the window. Like
+     * {@link #findReusableJob(JobDefinition, Map, String)} the most recent job is reused.
+     *
+     * @return The reusable jobs by name and parameters hash, see {@link #queueSlot(String, String)}
+     */
+    private Map<String, JobInfo> findReusableJobs(Collection<JobRequest> requests, List<JobInfo> queuedAndRunningJobInfos) {
+        final Map<String, JobInfo> reusableJobInfos = new HashMap<>();
+        final Map<String, Date> successfulSinceByName = new HashMap<>();
+        final long currentTime = System.currentTimeMillis();
+        for (JobRequest request : requests) {
+            final JobRunnable runnable = jobs.get(request.getName());
+            if (runnable != null && runnable.getJobDefinition().getMemoizationWindow() > 0) {
+                successfulSinceByName.put(request.getName(), new Date(currentTime - runnable.getJobDefinition().getMemoizationWindow()));
+            }
+        }
+        if (successfulSinceByName.isEmpty()) {
+            return reusableJobInfos;
+        }
+        final List<JobInfo> jobInfos = new ArrayList<>(queuedAndRunningJobInfos);
+        jobInfos.addAll(jobInfoRepository.findSuccessfulJobs(successfulSinceByName));
+        for (JobInfo jobInfo : jobInfos) {
+            if (!successfulSinceByName.containsKey(jobInfo.getName())) {
+                continue;
+            }
+            final String key = queueSlot(jobInfo.getName(), jobInfo.getParametersHash());
+            final JobInfo reusableJobInfo = reusableJobInfos.get(key);
+            if (reusableJobInfo == null || reusableJobInfo.getCreationTime().before(jobInfo.getCreationTime())) {
+                reusableJobInfos.put(key, jobInfo);
+            }
+        }
+        return reusableJobInfos;
+    }
+
+    /**
+     * Decides whether the requested job is executed or queued. Nothing is written, a queued job which is replaced by
+     * the requested job is added to the given list and removed by the bulk write which persists the planned jobs.
+     */
+    private RunningState planJobRequest(JobRequest request, Map<String, JobInfo> runningJobInfos, Map<String, JobInfo> queuedJobInfos,
+                                        Set<String> queuedNames, int plannedRunningJobs, List<JobInfo> replacedJobInfos) throws JobException {
+        final String name = request.getName();
+        final JobExecutionPriority executionPriority = request.getExecutionPriority();
+        final JobDefinition definition = jobs.get(name).getJobDefinition();
+        final String queueKey = queueKey(definition, request.getParameters());
+        final JobInfo queuedJobInfo = queuedJobInfos.get(queueSlot(name, queueKey));
+        if (queuedJobInfo != null) {
+            if (queuedJobInfo.hasLowerPriority(executionPriority)) {
+                replacedJobInfos.add(queuedJobInfo);
+                return RunningState.QUEUED;
+            }
+            throw new JobAlreadyQueuedException("A job with name " + name + " is already queued for execution");
+        }
+        final JobInfo runningJobInfo = runningJobInfos.get(name);
+        if (runningJobInfo != null) {
+            if (runningJobInfo.hasLowerPriority(executionPriority) || isQueuedBehind(runningJobInfo, queueKey)) {
+                return RunningState.QUEUED;
+            }
+            throw new JobExecutionNotNecessaryException("Execution of job " + name + " was not necessary");
+        }
+        if (queuedNames.contains(name)) {
+            // jobs with other parameters are queued ahead of this one
+            return RunningState.QUEUED;
+        }
+        final AdmissionController.Decision decision = admit(jobs.get(name), executionPriority, plannedRunningJobs);
+        if (decision == AdmissionController.Decision.REJECT) {
+            throw new JobAdmissionDeniedException("Execution of job " + name + " was rejected because the node is overloaded",
+                    admissionController.getRetryAfterSeconds());
+        } else if (decision == AdmissionController.Decision.QUEUE) {
+            return RunningState.QUEUED;
+        }
+        for (Set<String> constraint : runningConstraints) {
+            if (constraint.contains(name)) {
+                for (String constraintJobName : constraint) {
+                    if (!name.equals(constraintJobName) &&
+                            (runningJobInfos.containsKey(constraintJobName) || queuedNames.contains(constraintJobName))) {
+                        return RunningState.QUEUED;
+                    }
+                }
+            }
+        }
+        return RunningState.RUNNING;
+    }
+
+    private JobRequestOutcome executePlannedJob(JobRequest request, JobInfo jobInfo, String id) {
+        final String name = request.getName();
+        final boolean running = RunningState.RUNNING.name().equals(jobInfo.getRunningState());
+        if (id == null) {
+            return JobRequestOutcome.failed(request, running ?
+                    new JobAlreadyRunningException("A job with name " + name + " is already running") :
+                    new JobAlreadyQueuedException("A job with name " + name + " is already queued for execution"));
+        }
+        if (!running) {
+            final JobDefinition definition = jobs.get(name).getJobDefinition();
+            if (!reserveQueueSlot(definition, id) && jobInfoRepository.removeQueuedJob(id)) {
+                return JobRequestOutcome.failed(request, createQueueIsFullException(definition));
+            }
+            return JobRequestOutcome.queued(request, id);
+        }
+        // the plan only knows the jobs running before the bulk write, so check again like a single execution does
+        if (violatesRunningConstraints(name, false) || !acquireConcurrencyLimits(name, id)) {
+            LOGGER.info("ltag=JobService.executeJobs.violatesRunningConstraints jobInfoName={} jobInfoId={}", name, id);
+            if (!deactivateRunningJob(id, queueKey(jobs.get(name).getJobDefinition(), request.getParameters()))) {
+                jobInfoRepository.remove(id);
+                return JobRequestOutcome.failed(request, new JobAlreadyQueuedException(
+                        "Job could not be deactivated because another job is already queued and was thus deleted"));
+            }
+            return JobRequestOutcome.queued(request, id);
+        }
+        executeJob(jobs.get(name), id, request.getExecutionPriority());
+        return JobRequestOutcome.running(request, id);
     }
 
     private void checkParameters(Map<String, String> parameters) {
@@ -303,11 +1105,21 @@ public class JobService {
     }
 
     private String executeJobIsNecessaryAndPossible(String name, JobExecutionPriority executionPriority, JobRunnable runnable, Map<String, String> parameters)
-            throws JobAlreadyRunningException, JobAlreadyQueuedException, JobExecutionNotNecessaryException {
+            throws JobAlreadyRunningException, JobAlreadyQueuedException, JobExecutionNotNecessaryException, JobAdmissionDeniedException {
         final JobInfo runningJobInfo = jobInfoRepository.findByNameAndRunningState(name, RunningState.RUNNING);
         if (runningJobInfo == null) {
+            final AdmissionController.Decision decision = admit(runnable, executionPriority);
+            if (decision == AdmissionController.Decision.REJECT) {
+                LOGGER.info("ltag=JobService.executeJobIsNecessary.admissionRejected jobInfoName={}", name);
+                throw new JobAdmissionDeniedException("Execution of job " + name + " was rejected because the node is overloaded",
+                        admissionController.getRetryAfterSeconds());
+            } else if (decision == AdmissionController.Decision.QUEUE) {
+                LOGGER.info("ltag=JobService.executeJobIsNecessary.admissionQueued jobInfoName={}", name);
+                return queueJob(runnable, executionPriority, parameters, "A job with name " + name + " is already queued for execution");
+            }
             return executeJobOrQueueIfRunningConstraintsAreViolated(name, executionPriority, parameters, runnable);
-        } else if (runningJobInfo.hasLowerPriority(executionPriority)) {
+        } else if (runningJobInfo.hasLowerPriority(executionPriority) ||
+                isQueuedBehind(runningJobInfo, queueKey(runnable.getJobDefinition(), parameters))) {
             return queueJob(runnable, executionPriority, parameters, "A job with name " + name + " is already running and queued for execution");
         } else {
             throw new JobExecutionNotNecessaryException("Execution of job " + name + " was not necessary");
@@ -317,9 +1129,9 @@ public class JobService {
     private String executeJobOrQueueIfRunningConstraintsAreViolated(String name, JobExecutionPriority executionPriority, Map<String, String> parameters, JobRunnable runnable)
             throws JobAlreadyRunningException, JobAlreadyQueuedException {
         final String id = runJob(runnable, executionPriority, parameters, "A job with name " + name + " is already running and queued for execution");
-        if (violatesRunningConstraints(name, true)) {
+        if (violatesRunningConstraints(name, true) || !acquireConcurrencyLimits(name, id)) {
             LOGGER.info("ltag=JobService.executeJobIsNecessary.violatesRunningConstraints jobInfoName={} jobInfoId={}", name, id);
-            if (!jobInfoRepository.deactivateRunningJob(id)) {
+            if (!deactivateRunningJob(id, queueKey(runnable.getJobDefinition(), parameters))) {
                 jobInfoRepository.remove(id);
                 throw new JobAlreadyQueuedException("Job could not be deactivated because another job is already queued and was thus deleted");
             }
@@ -327,15 +1139,86 @@ public class JobService {
             LOGGER.debug("ltag=JobService.executeJobIsNecessary jobInfoName={}", name);
             executeJob(runnable, id, executionPriority);
         }
-        return id;
+        return id;
+    }
+
+    private String queueJobIfNecessaryAndPossible(String name, JobExecutionPriority executionPriority, Map<String, String> parameters, JobRunnable runnable, JobInfo queuedJobInfo) throws JobAlreadyQueuedException {
+        if (queuedJobInfo.hasLowerPriority(executionPriority)) {
+            jobInfoRepository.remove(queuedJobInfo.getId());
+            final String id = queueJob(runnable, executionPriority, parameters, "A job with name " + name + " is already running and queued for execution");
+            // clients which triggered the replaced job get the replacing job when they repeat their trigger
+            jobInfoRepository.addIdempotencyKeys(id, queuedJobInfo.getIdempotencyKeys());
+            return id;
+        } else {
+            throw new JobAlreadyQueuedException("A job with name " + name + " is already queued for execution");
+        }
+    }
+
+    /**
+     * @return The slot in the queue which a job with the given name and queue key occupies
+     */
+    private static String queueSlot(String name, String queueKey) {
+        return queueKey == null ? name : name + "/" + queueKey;
+    }
+
+    /**
+     * @return The key under which a job with the given parameters is queued, null if only one job of the
+     * definition may be queued
+     */
+    private String queueKey(JobDefinition definition, Map<String, String> parameters) {
+        return definition.getMaxQueueDepth() > 1 ? JobInfo.hashParameters(parameters) : null;
+    }
+
+    private JobInfo findQueuedJob(String name, String queueKey) {
+        if (queueKey == null) {
+            return jobInfoRepository.findByNameAndRunningState(name, RunningState.QUEUED);
+        } else {
+            return jobInfoRepository.findQueuedJobByQueueKey(name, queueKey);
+        }
+    }
+
+    /**
+     * A job with a queue key is queued behind a running job with other parameters instead of being not necessary
+     */
+    private boolean isQueuedBehind(JobInfo runningJobInfo, String queueKey) {
+        return queueKey != null && !queueKey.equals(runningJobInfo.getParametersHash());
+    }
+
+    /**
+     * Reserves a slot in the queue of the given definition for the queued job with the given id. Slots of jobs which
+     * left the queue in the meantime are only released once the queue is full, then the reservation is tried again.
+     *
+     * @return true if the job got a slot or the queue of the definition holds only one job
+     */
+    private boolean reserveQueueSlot(JobDefinition definition, String id) {
+        final long maxQueueDepth = definition.getMaxQueueDepth();
+        if (maxQueueDepth <= 1) {
+            return true;
+        }
+        final String name = definition.getName();
+        if (jobDefinitionRepository.reserveQueueSlot(name, id, maxQueueDepth)) {
+            return true;
+        }
+        final List<String> releasedSlots = jobDefinitionRepository.findQueueSlots(name);
+        releasedSlots.removeAll(jobInfoRepository.findQueuedIds(releasedSlots));
+        if (releasedSlots.isEmpty()) {
+            return false;
+        }
+        LOGGER.info("ltag=JobService.reserveQueueSlot.release jobInfoName={} releasedSlots={}", name, releasedSlots.size());
+        jobDefinitionRepository.releaseQueueSlots(name, releasedSlots);
+        return jobDefinitionRepository.reserveQueueSlot(name, id, maxQueueDepth);
     }
 
-    private String queueJobIfNecessaryAndPossible(String name, JobExecutionPriority executionPriority, Map<String, String> parameters, JobRunnable runnable, JobInfo queuedJobInfo) throws JobAlreadyQueuedException {
-        if (queuedJobInfo.hasLowerPriority(executionPriority)) {
-            jobInfoRepository.remove(queuedJobInfo.getId());
-            return queueJob(runnable, executionPriority, parameters, "A job with name " + name + " is already running and queued for execution");
+    private JobAlreadyQueuedException createQueueIsFullException(JobDefinition definition) {
+        return new JobAlreadyQueuedException("The queue of job " + definition.getName() + " already holds " +
+                definition.getMaxQueueDepth() + " jobs");
+    }
+
+    private boolean deactivateRunningJob(String id, String queueKey) {
+        if (queueKey == null) {
+            return jobInfoRepository.deactivateRunningJob(id);
         } else {
-            throw new JobAlreadyQueuedException("A job with name " + name + " is already queued for execution");
+            return jobInfoRepository.deactivateRunningJob(id, queueKey);
         }
     }
 
@@ -385,23 +1268,271 @@ public class JobService {
             return;
         }
         desynchronize();
+        dispatchQueuedJobs();
+    }
+
+    /**
+     * Dispatches the jobs queued for a later execution as soon as the earliest of them becomes due. Contrary to
+     * {@link #executeQueuedJobs()} the dispatching is not desynchronized, so that the jobs are started on time.
+     */
+    private void executeDelayedJobs() {
+        if (!activeChecker.isActive() || isExecutionDisabled()) {
+            return;
+        }
+        LOGGER.info("ltag=JobService.executeDelayedJobs called");
+        try {
+            dispatchQueuedJobs();
+        } catch (Exception e) {
+            LOGGER.error("ltag=JobService.executeDelayedJobs exception occurred", e);
+        }
+    }
+
+    private void dispatchQueuedJobs() {
         LOGGER.info("ltag=JobService.executeQueuedJobs");
-        for (JobInfo jobInfo : jobInfoRepository.findQueuedJobsSortedAscByCreationTime()) {
-            try {
-                checkIfJobIsDisabled(jobInfo.getName());
-            } catch (JobNotRegisteredException e) {
+        queueDueDelayedJobs();
+        final List<JobInfo> queuedJobs = queueOrderingPolicy.order(jobInfoRepository.findQueuedJobsSortedByPriority());
+        final int claimableJobs = computeClaimableJobs(queuedJobs.size());
+        final JobMetrics metrics = jobMetrics;
+        if (metrics != null) {
+            metrics.queueDepth(queuedJobs.size());
+        }
+        int claimedJobs = 0;
+        for (JobInfo jobInfo : queuedJobs) {
+            if (!isJobRegistered(jobInfo.getName())) {
                 LOGGER.info("ltag=JobService.executeQueuedJobs.notRegistered jobName={}", jobInfo.getName());
                 continue;
-            } catch (JobExecutionDisabledException e) {
-                LOGGER.info("ltag=JobService.executeQueuedJobs.isDisabled jobName={}", jobInfo.getName());
-                continue;
             }
-            if (jobInfoRepository.hasJob(jobInfo.getName(), RunningState.RUNNING)) {
-                LOGGER.info("ltag=JobService.executeQueuedJobs.alreadyRunning jobInfoName={}", jobInfo.getName());
+            if (claimedJobs >= claimableJobs) {
+                LOGGER.info("ltag=JobService.executeQueuedJobs.capacityExhausted jobName={} claimedJobs={} queuedJobs={}",
+                        jobInfo.getName(), claimedJobs, queuedJobs.size());
+                // only the next job in line is marked, the jobs behind it are not attempted at all
+                if (!BLOCKED_BY_CAPACITY.equals(jobInfo.getBlockedBy())) {
+                    recordDispatchAttempt(jobInfo, BLOCKED_BY_CAPACITY);
+                }
+                break;
+            }
+            final String blockedBy = dispatchQueuedJob(jobInfo);
+            if (NOT_QUEUED_ANYMORE.equals(blockedBy)) {
                 continue;
             }
+            final boolean dispatched = blockedBy == null;
+            if (dispatched) {
+                queueOrderingPolicy.dispatched(jobInfo);
+                claimedJobs++;
+            }
+            recordDispatchAttempt(jobInfo, blockedBy);
+            if (metrics != null) {
+                metrics.dispatchAttempt(jobInfo.getName(), dispatched);
+                if (dispatched) {
+                    metrics.queueWaitTime(jobInfo.getName(), computeQueueWaitTime(jobInfo));
+                }
+            }
+        }
+        scheduleDelayedJobsWakeUp(jobInfoRepository.findNextNotBefore(new Date()));
+    }
+
+    /**
+     * Adds the delayed jobs whose date is reached to the queue. A job which finds its queue slot taken stays delayed
+     * and is added by a later call.
+     */
+    private void queueDueDelayedJobs() {
+        for (JobInfo jobInfo : jobInfoRepository.findDueDelayedJobs()) {
             final JobRunnable runnable = jobs.get(jobInfo.getName());
-            executeQueuedJob(runnable, jobInfo.getId(), jobInfo.getExecutionPriority());
+            if (runnable == null) {
+                continue;
+            }
+            if (jobInfoRepository.queueDelayedJob(jobInfo.getId(), queueKey(runnable.getJobDefinition(), jobInfo.getParameters()))) {
+                LOGGER.info("ltag=JobService.executeQueuedJobs.delayedJobQueued jobInfoName={} jobInfoId={}", jobInfo.getName(), jobInfo.getId());
+            } else {
+                LOGGER.info("ltag=JobService.executeQueuedJobs.delayedJobNotQueued jobInfoName={} jobInfoId={}", jobInfo.getName(), jobInfo.getId());
+            }
+        }
+    }
+
+    /**
+     * Tries to dispatch the queued job
+     *
+     * @return null if the job was dispatched, {@link #NOT_QUEUED_ANYMORE} if it left the queue meanwhile, the reason
+     * why it stays queued otherwise
+     */
+    private String dispatchQueuedJob(JobInfo jobInfo) {
+        final String name = jobInfo.getName();
+        try {
+            checkIfJobIsDisabled(name);
+        } catch (JobNotRegisteredException | JobExecutionDisabledException e) {
+            LOGGER.info("ltag=JobService.executeQueuedJobs.isDisabled jobName={}", name);
+            return BLOCKED_BY_DISABLED;
+        }
+        if (jobInfoRepository.hasJob(name, RunningState.RUNNING)) {
+            LOGGER.info("ltag=JobService.executeQueuedJobs.alreadyRunning jobInfoName={}", name);
+            return BLOCKED_BY_JOB + name;
+        }
+        final JobRunnable runnable = jobs.get(name);
+        if (admit(runnable, jobInfo.getExecutionPriority()) != AdmissionController.Decision.ADMIT) {
+            LOGGER.info("ltag=JobService.executeQueuedJobs.notAdmitted jobInfoName={}", name);
+            return BLOCKED_BY_ADMISSION;
+        }
+        return claimQueuedJob(runnable, jobInfo.getId(), jobInfo.getExecutionPriority(), jobInfo.getQueueKey());
+    }
+
+    /**
+     * Records the dispatch attempt on the queued job. The time since the job became due is accounted to the
+     * scheduler until the first attempt. Afterwards the time since the previous attempt is accounted to whatever
+     * blocked that attempt.
+     */
+    private void recordDispatchAttempt(JobInfo jobInfo, String blockedBy) {
+        final Date attemptTime = new Date();
+        final Date lastDispatchAttempt = jobInfo.getLastDispatchAttempt();
+        try {
+            if (lastDispatchAttempt == null) {
+                final Date eligibleTime = jobInfo.getNotBefore() != null ? jobInfo.getNotBefore() : jobInfo.getCreationTime();
+                final long schedulerWaitTime = eligibleTime == null ? 0 : Math.max(0, attemptTime.getTime() - eligibleTime.getTime());
+                jobInfoRepository.recordDispatchAttempt(jobInfo.getId(), attemptTime, eligibleTime, blockedBy, schedulerWaitTime, 0);
+            } else {
+                final long constraintWaitTime = Math.max(0, attemptTime.getTime() - lastDispatchAttempt.getTime());
+                jobInfoRepository.recordDispatchAttempt(jobInfo.getId(), attemptTime, null, blockedBy, 0, constraintWaitTime);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("ltag=JobService.recordDispatchAttempt jobInfoName={} jobInfoId={} failed: {}", jobInfo.getName(), jobInfo.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * The time the job waited since it became due, i.e. since its not before date or its creation
+     */
+    private long computeQueueWaitTime(JobInfo jobInfo) {
+        final Date dueDate = jobInfo.getNotBefore() != null ? jobInfo.getNotBefore() : jobInfo.getCreationTime();
+        return dueDate == null ? 0 : Math.max(0, System.currentTimeMillis() - dueDate.getTime());
+    }
+
+    /**
+     * Schedules the dispatching of queued jobs at the given date unless it is already scheduled for an earlier date.
+     * The wake-up is local to this JobService instance, jobs delayed by other instances are only known after
+     * queued jobs were dispatched, which schedules the wake-up for the earliest of them.
+     */
+    private synchronized void scheduleDelayedJobsWakeUp(Date notBefore) {
+        if (notBefore == null || shutdown) {
+            return;
+        }
+        final long currentTime = System.currentTimeMillis();
+        if (delayedJobsWakeUp != null && delayedJobsWakeUpTime > currentTime && delayedJobsWakeUpTime <= notBefore.getTime()) {
+            return;
+        }
+        if (delayedJobsWakeUp != null) {
+            delayedJobsWakeUp.cancel(false);
+        }
+        if (delayedJobsExecutorService == null) {
+            delayedJobsExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "jobstore-delayed-jobs");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        delayedJobsWakeUpTime = notBefore.getTime();
+        delayedJobsWakeUp = delayedJobsExecutorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                executeDelayedJobs();
+            }
+        }, Math.max(0, notBefore.getTime() - currentTime), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Determines how many of the queued jobs this node may claim. Without a node registry all jobs may be claimed,
+     * otherwise the number is proportional to the share this node has of the free capacity of all active nodes.
+     * Remote jobs started by this node keep running after their runnable returned, so all running jobs of this node
+     * are counted from the repository.
+     */
+    private int computeClaimableJobs(int numberOfQueuedJobs) {
+        if (nodeInfoRepository == null || numberOfQueuedJobs == 0) {
+            return Integer.MAX_VALUE;
+        }
+        final NodeInfo localNode = getNodeInfo(countRunningJobs());
+        final double localWeight = localNode.getCapacityWeight(maxSystemLoad);
+        if (localWeight <= 0) {
+            LOGGER.info("ltag=JobService.computeClaimableJobs.saturated node={}", localNode);
+            return 0;
+        }
+        double totalWeight = localWeight;
+        final Date activeSince = new Date(System.currentTimeMillis() - nodeHeartbeatTimeout);
+        for (NodeInfo node : nodeInfoRepository.findActiveNodes(activeSince)) {
+            if (!localNode.getNodeId().equals(node.getNodeId())) {
+                totalWeight += node.getCapacityWeight(maxSystemLoad);
+            }
+        }
+        final int share = (int) Math.ceil(numberOfQueuedJobs * localWeight / totalWeight);
+        return Math.min(share, localNode.getFreeSlots());
+    }
+
+    private AdmissionController.Decision admit(JobRunnable runnable, JobExecutionPriority executionPriority) {
+        return admit(runnable, executionPriority, 0);
+    }
+
+    private AdmissionController.Decision admit(JobRunnable runnable, JobExecutionPriority executionPriority, int plannedRunningJobs) {
+        if (admissionController == null) {
+            return AdmissionController.Decision.ADMIT;
+        }
+        final NodeInfo nodeInfo = getNodeInfo();
+        return admissionController.admit(runnable.getJobDefinition(), executionPriority, plannedRunningJobs == 0 ? nodeInfo :
+                new NodeInfo(nodeInfo.getNodeId(), nodeInfo.getHost(), nodeInfo.getRunningJobs() + plannedRunningJobs,
+                        nodeInfo.getMaxJobs(), nodeInfo.getSystemLoad(), nodeInfo.getHeapUsage()));
+    }
+
+    /**
+     * Returns the current capacity of this node
+     */
+    public NodeInfo getNodeInfo() {
+        return getNodeInfo(runningJobIds.size());
+    }
+
+    private NodeInfo getNodeInfo(int runningJobs) {
+        return new NodeInfo(InternetUtils.getInstanceId(), InternetUtils.getHostName(), runningJobs, maxConcurrentJobs,
+                getSystemLoad(), getHeapUsage());
+    }
+
+    /**
+     * Counts the jobs executed by this node together with the running jobs which are assigned to this node in the
+     * repository, e.g. remote jobs whose status is polled.
+     */
+    private int countRunningJobs() {
+        int runningJobs = runningJobIds.size();
+        for (JobInfo jobInfo : jobInfoRepository.findRunningJobsByInstanceId(InternetUtils.getInstanceId())) {
+            if (!runningJobIds.contains(jobInfo.getId())) {
+                runningJobs++;
+            }
+        }
+        return runningJobs;
+    }
+
+    private double getHeapUsage() {
+        final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        final long max = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+        return max > 0 ? (double) heap.getUsed() / max : 0;
+    }
+
+    private double getSystemLoad() {
+        final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        final double loadAverage = osBean.getSystemLoadAverage();
+        if (loadAverage < 0) {
+            return 0;
+        }
+        return loadAverage / osBean.getAvailableProcessors();
+    }
+
+    /**
+     * Publishes the current capacity of this node to the node registry, if one is set.
+     */
+    public void publishNodeInfo() {
+        if (nodeInfoRepository == null) {
+            return;
+        }
+        try {
+            nodeInfoRepository.publish(getNodeInfo(countRunningJobs()));
+        } catch (Exception e) {
+            LOGGER.error("ltag=JobService.publishNodeInfo exception occurred", e);
         }
     }
 
@@ -434,26 +1565,137 @@ public class JobService {
         LOGGER.info("ltag=JobService.pollRemoteJobs finished");
     }
 
+    /**
+     * Polls the remote jobs concurrently on the remote poll executor, so the time of a poll is close to the slowest
+     * single status request instead of the sum of all. Polls are not cancelled, because a blocking status request
+     * cannot be interrupted and an interrupted update could leave the job half updated. Polls which did not finish
+     * within the remote poll timeout keep running instead, while every job has at most one poll in flight.
+     */
     private void doPollRemoteJobs() {
         if (isExecutionDisabled()) {
             return;
         }
         desynchronize();
-        for (JobRunnable jobRunnable : jobs.values()) {
-            if (jobRunnable.getJobDefinition().isRemote()) {
-                final JobDefinition definition = jobRunnable.getJobDefinition();
-                final JobInfo runningJob = jobInfoRepository.findByNameAndRunningState(definition.getName(), RunningState.RUNNING);
-                if (runningJob != null && jobAgedOverInterval(runningJob.getLastModifiedTime(), System.currentTimeMillis(), definition.getPollingInterval()) &&
-                        runningJob.getAdditionalData().containsKey(JobInfoProperty.REMOTE_JOB_URI.val())) {
-                    final JobRunnable runnable = jobs.get(definition.getName());
-                    final RemoteJobStatus remoteJobStatus = runnable.getRemoteStatus(
-                            createJobExecutionContext(runningJob.getId(), definition, runningJob.getExecutionPriority(), null));
-                    if (remoteJobStatus != null) {
-                        updateJobStatus(runningJob, runnable, remoteJobStatus, definition);
+        final ExecutorService executorService = getRemotePollExecutorService();
+        final Map<String, Future<?>> polls = new LinkedHashMap<>();
+        for (final JobRunnable jobRunnable : jobs.values()) {
+            final String name = jobRunnable.getJobDefinition().getName();
+            if (!jobRunnable.getJobDefinition().isRemote()) {
+                continue;
+            }
+            if (!remotePollsInFlight.add(name)) {
+                LOGGER.warn("ltag=JobService.pollRemoteJobs jobName={} previous poll is still running", name);
+                continue;
+            }
+            try {
+                polls.put(name, executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            pollRemoteJob(jobRunnable.getJobDefinition());
+                        } finally {
+                            remotePollsInFlight.remove(name);
+                        }
                     }
-                } else {
-                    LOGGER.info("ltag=JobService.pollRemoteJobs jobName={} " + runningJob == null ? "has no running instance." : "is still fresh.", definition.getName());
+                }));
+            } catch (RejectedExecutionException e) {
+                remotePollsInFlight.remove(name);
+                throw e;
+            }
+        }
+        final long deadline = System.currentTimeMillis() + remotePollTimeout;
+        for (Map.Entry<String, Future<?>> poll : polls.entrySet()) {
+            try {
+                poll.getValue().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                LOGGER.warn("ltag=JobService.pollRemoteJobs jobName={} poll did not finish within {} ms", poll.getKey(), remotePollTimeout);
+            } catch (ExecutionException e) {
+                LOGGER.error("ltag=JobService.pollRemoteJobs jobName=" + poll.getKey() + " exception occurred", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void pollRemoteJob(JobDefinition definition) {
+        final JobInfo runningJob = jobInfoRepository.findByNameAndRunningState(definition.getName(), RunningState.RUNNING);
+        if (runningJob != null && jobAgedOverInterval(runningJob.getLastModifiedTime(), System.currentTimeMillis(), definition.getPollingInterval()) &&
+                runningJob.getAdditionalData().containsKey(JobInfoProperty.REMOTE_JOB_URI.val())) {
+            final JobRunnable runnable = jobs.get(definition.getName());
+            final RemoteJobStatus remoteJobStatus = getRemoteStatus(runnable, runningJob, definition);
+            if (remoteJobStatus != null) {
+                updateJobStatus(runningJob, runnable, remoteJobStatus, definition);
+            }
+        } else {
+            LOGGER.info("ltag=JobService.pollRemoteJobs jobName={} " + runningJob == null ? "has no running instance." : "is still fresh.", definition.getName());
+        }
+    }
+
+    /**
+     * Applies the status reported by a running remote job immediately, instead of waiting for the next poll. The
+     * remote job has to present the callback token it received when it was started. Polling remains as a fallback
+     * for remote jobs which do not report their status.
+     *
+     * @param name          The name of the job
+     * @param id            The id of the job
+     * @param callbackToken The callback token issued for the job
+     * @param status        The status of the remote job, as returned when its status is polled
+     * @throws JobNotRegisteredException     If the job is not registered with this jobService instance
+     * @throws RemoteJobNotRunningException  If no remote job with the given name and id is running
+     * @throws InvalidCallbackTokenException If the callback token was not issued for the job
+     */
+    public void updateRemoteJobStatus(String name, String id, String callbackToken, RemoteJobStatus status)
+            throws JobNotRegisteredException, RemoteJobNotRunningException, InvalidCallbackTokenException {
+        checkIfJobIsRegistered(name);
+        final JobRunnable runnable = jobs.get(name);
+        final JobDefinition definition = runnable.getJobDefinition();
+        final JobInfo jobInfo = jobInfoRepository.findById(id);
+        if (!definition.isRemote() || jobInfo == null || !name.equals(jobInfo.getName()) || !RunningState.RUNNING.name().equals(jobInfo.getRunningState())) {
+            throw new RemoteJobNotRunningException("Remote job is not running: name=" + name + " id=" + id);
+        }
+        if (!jobInfo.isCallbackTokenValid(callbackToken)) {
+            throw new InvalidCallbackTokenException("Invalid callback token for job: name=" + name + " id=" + id);
+        }
+        status.alignLogLines(AbstractRemoteJobRunnable.getRemoteLogOffset(jobInfo));
+        updateJobStatus(jobInfo, runnable, status, definition);
+    }
+
+    private synchronized ExecutorService getRemotePollExecutorService() {
+        if (remotePollExecutorService == null) {
+            final ThreadPoolExecutor executorService = new ThreadPoolExecutor(remotePollParallelism, remotePollParallelism,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "jobstore-remote-poll");
+                    thread.setDaemon(true);
+                    return thread;
                 }
+            });
+            executorService.allowCoreThreadTimeOut(true);
+            remotePollExecutorService = executorService;
+        }
+        return remotePollExecutorService;
+    }
+
+    private synchronized void shutdownRemotePollExecutorService() {
+        if (remotePollExecutorService != null) {
+            remotePollExecutorService.shutdownNow();
+            remotePollExecutorService = null;
+        }
+    }
+
+    private RemoteJobStatus getRemoteStatus(JobRunnable runnable, JobInfo runningJob, JobDefinition definition) {
+        final long start = System.currentTimeMillis();
+        RemoteJobStatus remoteJobStatus = null;
+        try {
+            remoteJobStatus = runnable.getRemoteStatus(
+                    createJobExecutionContext(runningJob.getId(), definition, runningJob.getExecutionPriority(), null));
+            return remoteJobStatus;
+        } finally {
+            final JobMetrics metrics = jobMetrics;
+            if (metrics != null) {
+                metrics.remoteJobPolled(definition.getName(), System.currentTimeMillis() - start, remoteJobStatus == null);
             }
         }
     }
@@ -462,6 +1704,12 @@ public class JobService {
     public void startup() {
         LOGGER.info("startup called");
         shutdown = false;
+        synchronized (this) {
+            // definitions which were not stored before a previous shutdown
+            if (definitionSync == null && !unsyncedJobDefinitions.isEmpty()) {
+                scheduleJobDefinitionSync(0);
+            }
+        }
     }
 
     /**
@@ -470,6 +1718,10 @@ public class JobService {
     @PreDestroy
     public void shutdownJobs() {
         LOGGER.info("shutdownJobs called");
+        shutdownDefinitionSyncExecutorService();
+        shutdownDelayedJobsExecutorService();
+        shutdownRemotePollExecutorService();
+        watchdog.shutdown();
         if (isExecutionDisabled()) {
             return;
         }
@@ -511,8 +1763,18 @@ public class JobService {
         } catch (InterruptedException e) {
             LOGGER.warn("could not terminate all running threads");
         }
+        subTaskPool.shutdownNow();
         if (recreate) {
             jobExecutorService = Executors.newCachedThreadPool();
+            subTaskPool = new ForkJoinPool();
+        }
+    }
+
+    private synchronized void shutdownDelayedJobsExecutorService() {
+        if (delayedJobsExecutorService != null) {
+            delayedJobsExecutorService.shutdownNow();
+            delayedJobsExecutorService = null;
+            delayedJobsWakeUp = null;
         }
     }
 
@@ -526,6 +1788,8 @@ public class JobService {
     public void clean() {
         jobs.clear();
         runningConstraints.clear();
+        concurrencyLimits.clear();
+        limitedResourcesByJobName.clear();
     }
 
     /**
@@ -565,7 +1829,12 @@ public class JobService {
     private void updateJobStatus(JobInfo jobInfo, JobRunnable runnable, RemoteJobStatus remoteJobStatus, JobDefinition jobDefinition) {
         LOGGER.info("ltag=JobService.updateJobStatus jobName={} jobId={} status={}", jobInfo.getName(), jobInfo.getId(), remoteJobStatus.status);
         if (remoteJobStatus.logLines != null && !remoteJobStatus.logLines.isEmpty()) {
-            jobInfoRepository.appendLogLines(jobInfo.getId(), remoteJobStatus.logLines);
+            if (remoteJobStatus.logOffset == null) {
+                jobInfoRepository.appendLogLines(jobInfo.getId(), remoteJobStatus.logLines);
+            } else {
+                jobInfoRepository.appendLogLines(jobInfo.getId(), remoteJobStatus.logLines,
+                        remoteJobStatus.logOffset + remoteJobStatus.logLines.size());
+            }
         }
         if (remoteJobStatus.message != null && remoteJobStatus.message.length() > 0) {
             jobInfoRepository.setStatusMessage(jobInfo.getId(), remoteJobStatus.message);
@@ -591,22 +1860,48 @@ public class JobService {
                 jobInfoRepository.markAsFinished(jobInfo.getId(), ResultCode.FAILED, remoteJobStatus.result.message);
                 runnable.onException(context, new RemoteJobFailedException(jobInfo, remoteJobStatus), JobRunnable.State.EXECUTE);
             }
+            releaseConcurrencyLimits(jobInfo.getName(), jobInfo.getId());
         }
     }
 
     private ExecutorService jobExecutorService = Executors.newCachedThreadPool();
 
-    private void executeJob(JobRunnable runnable, String id, JobExecutionPriority executionPriority) {
+    /**
+     * Shared by the sub-tasks of all jobs, see {@link JobExecutionContext#openSubTaskScope()}
+     */
+    private ForkJoinPool subTaskPool = new ForkJoinPool();
+
+    private void executeJob(JobRunnable runnable, final String id, final JobExecutionPriority executionPriority) {
         final JobDefinition definition = runnable.getJobDefinition();
+        final JobExecutionRunnable jobExecutionRunnable = new JobExecutionRunnable(runnable, jobInfoRepository, jobDefinitionRepository,
+                createJobExecutionContext(id, definition, executionPriority, null), watchdogEnabled ? watchdog : null);
 
-        jobExecutorService.execute(new JobExecutionRunnable(
-                runnable, jobInfoRepository, jobDefinitionRepository, createJobExecutionContext(id, definition, executionPriority, null)));
+        runningJobIds.add(id);
+        try {
+            jobExecutorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        eventListeners.jobStarted(definition.getName(), id, executionPriority);
+                        jobExecutionRunnable.run();
+                    } finally {
+                        runningJobIds.remove(id);
+                        if (!definition.isRemote()) {
+                            releaseConcurrencyLimits(definition.getName(), id);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runningJobIds.remove(id);
+            throw e;
+        }
     }
 
     private JobExecutionContext createJobExecutionContext(String jobId, JobDefinition jobDefinition, JobExecutionPriority priority, List<String> logLines) {
         final JobLogger jobLogger = new SimpleJobLogger(jobId, jobInfoRepository, logLines);
         final JobInfoCache jobInfoCache = new JobInfoCache(jobId, jobInfoRepository, JOB_INFO_CACHE_UPDATE_INTERVAL);
-        return new JobExecutionContext(jobId, jobLogger, jobInfoCache, priority, jobDefinition);
+        return new JobExecutionContext(jobId, jobLogger, jobInfoCache, priority, jobDefinition, subTaskPool);
     }
 
     /**
@@ -614,19 +1909,41 @@ public class JobService {
      * - neue Job sofort als running markieren
      * - Danach auf running constraints pruefen
      * - wenn running constraints verletzt, dann job wieder zurueck auf queued
+     *
+     * @return true if the queued job was claimed and is executed by this node
+     */
+    boolean executeQueuedJob(JobRunnable runnable, String id, JobExecutionPriority executionPriority) {
+        return claimQueuedJob(runnable, id, executionPriority, null) == null;
+    }
+
+    /**
+     * Claims and executes the queued job
+     *
+     * @return null if the job is executed, {@link #NOT_QUEUED_ANYMORE} if it left the queue meanwhile, the reason why it
+     * could not be claimed otherwise
      */
-    void executeQueuedJob(JobRunnable runnable, String id, JobExecutionPriority executionPriority) {
+    private String claimQueuedJob(JobRunnable runnable, String id, JobExecutionPriority executionPriority, String queueKey) {
         final String name = runnable.getJobDefinition().getName();
         if (!jobInfoRepository.activateQueuedJobById(id)) {
             LOGGER.info("ltag=JobService.executeQueuedJob.activateQueuedJobFailed jobInfoName={} jobInfoId={}", name, id);
-        } else if (violatesRunningConstraints(name, false)) {
+            return NOT_QUEUED_ANYMORE;
+        }
+        final String blockingJob = findBlockingJob(name, false);
+        if (blockingJob != null) {
             LOGGER.info("ltag=JobService.executeQueuedJob.violatesRunningConstraints jobInfoName={} jobInfoId={}", name, id);
-            jobInfoRepository.deactivateRunningJob(id);
-        } else {
-            jobInfoRepository.updateHostThreadInformation(id);
-            LOGGER.info("ltag=JobService.activateQueuedJob.activate jobInfoName={} jobInfoId={}", name, id);
-            executeJob(runnable, id, executionPriority);
+            deactivateRunningJob(id, queueKey);
+            return BLOCKED_BY_JOB + blockingJob;
+        }
+        final String limitedResource = tryAcquireConcurrencyLimits(name, id);
+        if (limitedResource != null) {
+            LOGGER.info("ltag=JobService.executeQueuedJob.violatesRunningConstraints jobInfoName={} jobInfoId={}", name, id);
+            deactivateRunningJob(id, queueKey);
+            return BLOCKED_BY_CONCURRENCY_LIMIT + limitedResource;
         }
+        jobInfoRepository.updateHostThreadInformation(id);
+        LOGGER.info("ltag=JobService.activateQueuedJob.activate jobInfoName={} jobInfoId={}", name, id);
+        executeJob(runnable, id, executionPriority);
+        return null;
     }
 
     private String queueJob(JobRunnable runnable, JobExecutionPriority jobExecutionPriority, Map<String, String> parameters, String exceptionMessage)
@@ -635,6 +1952,10 @@ public class JobService {
         if (id == null) {
             throw new JobAlreadyQueuedException(exceptionMessage);
         }
+        // a job which could not get a slot is withdrawn unless it was dispatched in the meantime
+        if (!reserveQueueSlot(runnable.getJobDefinition(), id) && jobInfoRepository.removeQueuedJob(id)) {
+            throw createQueueIsFullException(runnable.getJobDefinition());
+        }
         return id;
     }
 
@@ -649,9 +1970,10 @@ public class JobService {
 
     private String createJob(JobRunnable runnable, JobExecutionPriority jobExecutionPriority, RunningState runningState, Map<String, String> parameters) {
         final JobDefinition jobDefinition = runnable.getJobDefinition();
+        final String queueKey = runningState == RunningState.QUEUED ? queueKey(jobDefinition, parameters) : null;
         // TODO: create-Methode mit JobRunnable in jobInfoRepository erzeugen
         return jobInfoRepository.create(jobDefinition.getName(), jobDefinition.getMaxIdleTime(), jobDefinition.getMaxExecutionTime(),
-                jobDefinition.getMaxRetries(), runningState, jobExecutionPriority, parameters);
+                jobDefinition.getMaxRetries(), jobDefinition.getRetryInterval(), runningState, jobExecutionPriority, parameters, queueKey);
     }
 
     private void checkIfJobIsRegistered(final String name) throws JobNotRegisteredException {
@@ -661,6 +1983,14 @@ public class JobService {
     }
 
     private boolean violatesRunningConstraints(final String name, boolean alsoCheckForQueuedJobs) {
+        return findBlockingJob(name, alsoCheckForQueuedJobs) != null;
+    }
+
+    /**
+     * @return The name of a job which prevents the execution of the job with the given name because of a running
+     *         constraint or null if there is none
+     */
+    private String findBlockingJob(final String name, boolean alsoCheckForQueuedJobs) {
         for (Set<String> constraint : runningConstraints) {
             if (constraint.contains(name)) {
                 for (String constraintJobName : constraint) {
@@ -668,18 +1998,79 @@ public class JobService {
                         continue; // no self check here
                     }
                     if (jobInfoRepository.hasJob(constraintJobName, RunningState.RUNNING)) {
-                        return true;
+                        return constraintJobName;
                     }
                     if (alsoCheckForQueuedJobs) {
                         if (jobInfoRepository.hasJob(constraintJobName, RunningState.QUEUED)) {
-                            return true;
+                            return constraintJobName;
                         }
 
                     }
                 }
             }
         }
-        return false;
+        return null;
+    }
+
+    /**
+     * Acquires all limited resources used by the job. If the limit of one resource is reached, holders which are not
+     * running anymore are removed and the acquisition is retried once. If it still fails all resources acquired so
+     * far are released again.
+     */
+    private boolean acquireConcurrencyLimits(final String name, final String id) {
+        return tryAcquireConcurrencyLimits(name, id) == null;
+    }
+
+    /**
+     * @return null if all limited resources were acquired, the resource whose limit is reached otherwise
+     */
+    private String tryAcquireConcurrencyLimits(final String name, final String id) {
+        final Set<String> resources = limitedResourcesByJobName.get(name);
+        if (resources == null) {
+            return null;
+        }
+        final List<String> acquiredResources = new ArrayList<>();
+        for (String resource : resources) {
+            final int maxConcurrency = concurrencyLimits.get(resource);
+            if (concurrencyLimitRepository.acquire(resource, maxConcurrency, id) ||
+                    (releaseStaleHolders(resource) && concurrencyLimitRepository.acquire(resource, maxConcurrency, id))) {
+                acquiredResources.add(resource);
+            } else {
+                LOGGER.info("ltag=JobService.acquireConcurrencyLimits.limitReached jobInfoName={} jobInfoId={} resource={}", name, id, resource);
+                for (String acquiredResource : acquiredResources) {
+                    concurrencyLimitRepository.release(acquiredResource, id);
+                }
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    private boolean releaseStaleHolders(final String resource) {
+        boolean released = false;
+        for (String holder : concurrencyLimitRepository.findHolders(resource)) {
+            final JobInfo jobInfo = jobInfoRepository.findById(holder);
+            if (jobInfo == null || !RunningState.RUNNING.name().equals(jobInfo.getRunningState())) {
+                LOGGER.info("ltag=JobService.releaseStaleHolders resource={} jobInfoId={}", resource, holder);
+                concurrencyLimitRepository.release(resource, holder);
+                released = true;
+            }
+        }
+        return released;
+    }
+
+    private void releaseConcurrencyLimits(final String name, final String id) {
+        final Set<String> resources = limitedResourcesByJobName.get(name);
+        if (resources == null) {
+            return;
+        }
+        for (String resource : resources) {
+            try {
+                concurrencyLimitRepository.release(resource, id);
+            } catch (Exception e) {
+                LOGGER.error("ltag=JobService.releaseConcurrencyLimits jobInfoName=" + name + " jobInfoId=" + id + " resource=" + resource + " failed", e);
+            }
+        }
     }
 
     private boolean isJobEnabled(String name) {
@@ -694,7 +2085,8 @@ public class JobService {
     }
 
     /**
-     * Executes all queued jobs registered with this JobService instance asynchronously in the order they were queued.
+     * Retries all failed jobs registered with this JobService instance whose retry is due. The date of the retry is
+     * set when a job fails, so only failed jobs are looked at instead of the last execution of every registered job.
      */
     void retryFailedJobs() {
         LOGGER.info("ltag=JobService.retryFailedJobs called");
@@ -711,50 +2103,43 @@ public class JobService {
             LOGGER.info("ltag=JobService not active");
             return;
         }
+        if (jobs.isEmpty()) {
+            return;
+        }
         desynchronize();
-        for (JobRunnable jobRunnable : jobs.values()) {
-            JobDefinition definition = jobRunnable.getJobDefinition();
-            String name = definition.getName();
-            long maxRetries = definition.getMaxRetries();
-
-            if (maxRetries <= 0) {
-                LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} no retries defined, skipping job", name);
+        for (JobInfo jobInfo : jobInfoRepository.findJobsWithDueRetry(jobs.keySet(), new Date())) {
+            final String name = jobInfo.getName();
+            final JobRunnable jobRunnable = jobs.get(name);
+            if (jobRunnable == null) {
                 continue;
             }
-            JobInfo jobInfo = jobInfoRepository.findMostRecentFinished(name);
-
-            if (jobInfo == null) {
-                LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} no last execution found, skipping job", name);
+            if (jobRunnable.getJobDefinition().getMaxRetries() <= 0) {
+                LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} no retries defined, cancelling retry", name);
+                jobInfoRepository.claimRetry(jobInfo.getId());
                 continue;
             }
-
-            final long retries = jobInfo.getRetries();
-
-            if (retries > 0) {
-
-                if (jobInfo.getResultState() == ResultCode.SUCCESSFUL) {
-                    LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} last execution was resultCode={}, skipping job", name, jobInfo.getResultState());
-                    continue;
-                }
-
-                if (!jobAgedOverInterval(jobInfo.getLastModifiedTime(), System.currentTimeMillis(), definition.getRetryInterval())) {
-                    LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} did not yet reach retry interval time, skipping job", name);
-                    continue;
-                }
-
-                // Prüfung, ob gerade ein job läuft, um doppeltes Starten/Queueing zu vermeiden
-                final JobInfo runningJobInfo = jobInfoRepository.findByNameAndRunningState(name, RunningState.RUNNING);
-                if (runningJobInfo != null) {
-                    LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} found already running job, skipping job", name);
-                    continue;
-                }
-
-                try {
-                    String id = executeJob(name, jobInfo.getExecutionPriority());
-                    LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} executeJob called", name);
-                } catch (JobException e) {
-                    LOGGER.error("ltag=JobService.retryFailedJobs jobInfoName={} executeJob failed: {}", name, e.getMessage());
-                }
+            if (jobInfo.getResultState() == ResultCode.SUCCESSFUL) {
+                LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} last execution was resultCode={}, cancelling retry", name, jobInfo.getResultState());
+                jobInfoRepository.claimRetry(jobInfo.getId());
+                continue;
+            }
+            // Prüfung, ob gerade ein job läuft, um doppeltes Starten/Queueing zu vermeiden
+            if (jobInfoRepository.findByNameAndRunningState(name, RunningState.RUNNING) != null) {
+                LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} found already running job, skipping job", name);
+                continue;
+            }
+            if (!jobInfoRepository.claimRetry(jobInfo.getId())) {
+                LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} retry was already claimed, skipping job", name);
+                continue;
+            }
+            try {
+                // same parameters, so the retry resumes from the checkpoint of the failed job
+                executeJob(name, jobInfo.getExecutionPriority(), jobInfo.getParameters());
+                LOGGER.debug("ltag=JobService.retryFailedJobs jobInfoName={} executeJob called", name);
+            } catch (JobException e) {
+                LOGGER.error("ltag=JobService.retryFailedJobs jobInfoName={} executeJob failed: {}", name, e.getMessage());
+                // the retry is still pending, so it is attempted again by the next run
+                jobInfoRepository.releaseRetry(jobInfo.getId(), jobInfo.getNextRetryAt());
             }
         }
     }
@@ -767,6 +2152,46 @@ public class JobService {
         jobInfoRepository.cleanupTimedOutJobs();
     }
 
+    /**
+     * Queues the running local jobs of all nodes which have not published their capacity within the dead node
+     * timeout again and removes the nodes from the registry. A job is marked as failed instead if a job with the
+     * same name and queue key is already queued. Remote jobs are kept running since they are not executed by the
+     * node itself and can be polled by any other node.
+     */
+    void cleanupJobsOfDeadNodes() {
+        if (nodeInfoRepository == null) {
+            return;
+        }
+        if (!activeChecker.isActive()) {
+            LOGGER.info("ltag=JobService not active");
+            return;
+        }
+        try {
+            final Date expiredBefore = new Date(System.currentTimeMillis() - deadNodeTimeout);
+            for (NodeInfo node : nodeInfoRepository.findExpiredNodes(expiredBefore)) {
+                if (InternetUtils.getInstanceId().equals(node.getNodeId())) {
+                    continue;
+                }
+                LOGGER.warn("ltag=JobService.cleanupJobsOfDeadNodes.nodeExpired node={}", node);
+                for (JobInfo jobInfo : jobInfoRepository.findRunningJobsByInstanceId(node.getNodeId())) {
+                    final JobDefinition definition = getJobDefinitionByName(jobInfo.getName());
+                    if (definition != null && definition.isRemote()) {
+                        continue;
+                    }
+                    if (jobInfoRepository.requeueRunningJob(jobInfo.getId(), node.getNodeId())) {
+                        LOGGER.warn("ltag=JobService.cleanupJobsOfDeadNodes.requeued jobInfoName={} jobInfoId={}", jobInfo.getName(), jobInfo.getId());
+                    } else if (jobInfoRepository.markAsFinished(jobInfo.getId(), node.getNodeId(), ResultCode.FAILED,
+                            "Executing node " + node.getNodeId() + " stopped sending heartbeats")) {
+                        LOGGER.warn("ltag=JobService.cleanupJobsOfDeadNodes.markedAsFailed jobInfoName={} jobInfoId={}", jobInfo.getName(), jobInfo.getId());
+                    }
+                }
+                nodeInfoRepository.remove(node.getNodeId());
+            }
+        } catch (Exception e) {
+            LOGGER.error("ltag=JobService.cleanupJobsOfDeadNodes exception occurred", e);
+        }
+    }
+
     public JobDefinition getJobDefinitionByName(String jobName) {
         final JobRunnable jobRunnable = jobs.get(jobName);
         return (jobRunnable != null) ? jobRunnable.getJobDefinition() : null;
@@ -0,0 +1,184 @@
+package de.otto.jobstore.service;
+
+import de.otto.jobstore.common.JobInfo;
+import de.otto.jobstore.common.ResultCode;
+import de.otto.jobstore.common.RunningState;
+import de.otto.jobstore.common.util.InternetUtils;
+import de.otto.jobstore.repository.JobInfoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the local jobs executed by this node. The deadlines of all watched jobs are kept in a queue ordered by
+ * their due date, so a single thread sleeps until the next deadline is reached. Once a job exceeds its max execution
+ * time or max idle time it is marked as timed out immediately, a stack trace of its worker thread is recorded and
+ * the worker thread is interrupted. Since the idle time depends on the last modification of the job, which may be
+ * updated at any time, the job is re-read when its deadline is reached and its deadline postponed if necessary.
+ */
+final class JobWatchdog implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobWatchdog.class);
+
+    static final String THREAD_DUMP = "threadDump";
+
+    private static final int MAX_STACK_TRACE_ELEMENTS = 20;
+
+    private final JobInfoRepository jobInfoRepository;
+    private final DelayQueue<Deadline> deadlines = new DelayQueue<>();
+    private final ConcurrentMap<String, Deadline> watchedJobs = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private Thread thread;
+
+    JobWatchdog(JobInfoRepository jobInfoRepository) {
+        this.jobInfoRepository = jobInfoRepository;
+    }
+
+    /**
+     * Starts watching the job with the given id which is executed by the given thread
+     */
+    void watch(String id, Thread worker, long maxExecutionTime, long maxIdleTime) {
+        final Deadline deadline = new Deadline(id, worker, add(System.currentTimeMillis(), Math.min(maxExecutionTime, maxIdleTime)));
+        watchedJobs.put(id, deadline);
+        deadlines.add(deadline);
+        ensureStarted();
+    }
+
+    /**
+     * Stops watching the job with the given id. The interrupted state of the current thread is cleared if the job
+     * was timed out by the watchdog.
+     *
+     * @return true - The job was watched until now<br/>
+     *         false - The job was timed out by the watchdog, which already marked it as finished
+     */
+    boolean unwatch(String id) {
+        synchronized (lock) {
+            final Deadline deadline = watchedJobs.remove(id);
+            if (deadline != null) {
+                deadlines.remove(deadline);
+                return true;
+            }
+        }
+        Thread.interrupted();
+        return false;
+    }
+
+    synchronized void shutdown() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                check(deadlines.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LOGGER.error("ltag=JobWatchdog.run exception occurred", e);
+            }
+        }
+    }
+
+    void check(Deadline deadline) {
+        if (watchedJobs.get(deadline.id) != deadline) {
+            return;
+        }
+        final JobInfo jobInfo = jobInfoRepository.findById(deadline.id);
+        if (jobInfo == null || !RunningState.RUNNING.name().equals(jobInfo.getRunningState()) ||
+                !InternetUtils.getInstanceId().equals(jobInfo.getInstanceId()) || jobInfo.getStartTime() == null ||
+                jobInfo.getMaxExecutionTime() == null || jobInfo.getMaxIdleTime() == null) {
+            // no longer running on this node, the entry is removed when the job execution stops watching
+            return;
+        }
+        final Date currentDate = new Date();
+        if (jobInfo.isTimedOut(currentDate) || jobInfo.isIdleTimeExceeded(currentDate)) {
+            timeout(deadline, jobInfo, currentDate);
+        } else {
+            final Deadline postponed = new Deadline(deadline.id, deadline.worker, nextDeadline(jobInfo));
+            if (watchedJobs.replace(deadline.id, deadline, postponed)) {
+                deadlines.add(postponed);
+            }
+        }
+    }
+
+    private void timeout(Deadline deadline, JobInfo jobInfo, Date currentDate) {
+        final String threadDump;
+        synchronized (lock) {
+            if (!watchedJobs.remove(deadline.id, deadline)) {
+                return;
+            }
+            threadDump = toString(deadline.worker.getStackTrace());
+            deadline.worker.interrupt();
+        }
+        final String reason = jobInfo.isTimedOut(currentDate) ? "max execution time" : "max idle time";
+        LOGGER.warn("ltag=JobWatchdog.timeout jobName={} jobId={} exceeded {}, thread {} interrupted",
+                jobInfo.getName(), jobInfo.getId(), reason, deadline.worker.getName());
+        jobInfoRepository.addAdditionalData(jobInfo.getId(), THREAD_DUMP, threadDump);
+        jobInfoRepository.markAsFinished(jobInfo.getId(), InternetUtils.getInstanceId(), ResultCode.TIMED_OUT,
+                "Job exceeded its " + reason + " and was interrupted by the watchdog");
+    }
+
+    private long nextDeadline(JobInfo jobInfo) {
+        final long executionDeadline = add(jobInfo.getStartTime().getTime(), jobInfo.getMaxExecutionTime());
+        final long idleDeadline = add(jobInfo.getLastModifiedTime().getTime(), jobInfo.getMaxIdleTime());
+        return add(Math.min(executionDeadline, idleDeadline), 1);
+    }
+
+    private long add(long time, long duration) {
+        return duration > Long.MAX_VALUE - time ? Long.MAX_VALUE : time + duration;
+    }
+
+    private synchronized void ensureStarted() {
+        if (thread == null) {
+            thread = new Thread(this, "jobstore-watchdog");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private String toString(StackTraceElement[] stackTrace) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < stackTrace.length && i < MAX_STACK_TRACE_ELEMENTS; i++) {
+            sb.append("at ").append(stackTrace[i]).append('\n');
+        }
+        if (stackTrace.length > MAX_STACK_TRACE_ELEMENTS) {
+            sb.append("... ").append(stackTrace.length - MAX_STACK_TRACE_ELEMENTS).append(" more");
+        }
+        return sb.toString();
+    }
+
+    static final class Deadline implements Delayed {
+
+        final String id;
+        final Thread worker;
+        final long dueTime;
+
+        Deadline(String id, Thread worker, long dueTime) {
+            this.id = id;
+            this.worker = worker;
+            this.dueTime = dueTime;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            final long diff = getDelay(TimeUnit.MILLISECONDS) - other.getDelay(TimeUnit.MILLISECONDS);
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        }
+    }
+
+}
@@ -1,41 +1,37 @@
 package de.otto.jobstore.service;
 
-import com.sun.jersey.api.client.Client;
-import com.sun.jersey.api.client.ClientHandlerException;
-import com.sun.jersey.api.client.ClientResponse;
-import com.sun.jersey.api.client.UniformInterfaceException;
-import com.sun.jersey.api.client.config.ClientConfig;
-import com.sun.jersey.api.client.config.DefaultClientConfig;
 import de.otto.jobstore.common.RemoteJob;
 import de.otto.jobstore.common.RemoteJobStatus;
 import de.otto.jobstore.service.exception.JobException;
 import de.otto.jobstore.service.exception.JobExecutionException;
 import de.otto.jobstore.service.exception.RemoteJobAlreadyRunningException;
 import de.otto.jobstore.service.exception.RemoteJobNotRunningException;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.codehaus.jettison.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.ws.rs.core.MediaType;
+import java.io.IOException;
 import java.net.URI;
 
-public class RemoteJobExecutorService implements RemoteJobExecutor {
+public class RemoteJobExecutorService implements RemoteJobExecutorWithLogOffset {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RemoteJobExecutorService.class);
     private final RemoteJobExecutorStatusRetriever remoteJobExecutorStatusRetriever;
 
     private String jobExecutorUri;
-    private Client client;
+    private RemoteJobTransport transport;
 
     public RemoteJobExecutorService(String jobExecutorUri) {
-        this.jobExecutorUri = jobExecutorUri;
+        this(jobExecutorUri, RemoteJobTransport.getDefault());
+    }
 
-        // since Flask (with WSGI) does not suppport HTTP 1.1 chunked encoding, turn it off
-        //    see: https://github.com/mitsuhiko/flask/issues/367
-        final ClientConfig cc = new DefaultClientConfig();
-        cc.getProperties().put(ClientConfig.PROPERTY_CHUNKED_ENCODING_SIZE, null);
-        this.client = Client.create(cc);
-        remoteJobExecutorStatusRetriever = new RemoteJobExecutorStatusRetriever(client);
+    public RemoteJobExecutorService(String jobExecutorUri, RemoteJobTransport transport) {
+        this.jobExecutorUri = jobExecutorUri;
+        this.transport = transport;
+        remoteJobExecutorStatusRetriever = new RemoteJobExecutorStatusRetriever(transport);
     }
 
     @Override
@@ -48,18 +44,20 @@ public class RemoteJobExecutorService implements RemoteJobExecutor {
         final String startUrl = jobExecutorUri + job.name + "/start";
         try {
             LOGGER.info("ltag=RemoteJobExecutorService.startJob Going to start job: {} ...", startUrl);
-            final ClientResponse response = client.resource(startUrl)
-                    .type(MediaType.APPLICATION_JSON).header("Connection", "close").header("User-Agent", "RemoteJobExecutorService")
-                    .post(ClientResponse.class, job.toJsonObject());
-            if (response.getStatus() == 201) {
-                return createJobUri(response.getHeaders().getFirst("Link"));
-            } else if (response.getStatus() == 303) {
-                throw new RemoteJobAlreadyRunningException("Remote job is already running, url=" + startUrl, createJobUri(response.getHeaders().getFirst("Link")));
+            final HttpPost request = new HttpPost(startUrl);
+            // since Flask (with WSGI) does not suppport HTTP 1.1 chunked encoding, send the body with a content length
+            //    see: https://github.com/mitsuhiko/flask/issues/367
+            request.setEntity(new StringEntity(job.toJsonObject().toString(), ContentType.APPLICATION_JSON));
+            final RemoteJobTransport.Response response = transport.execute(request);
+            if (response.getStatusCode() == 201) {
+                return createJobUri(response.getFirstHeader("Link"));
+            } else if (response.getStatusCode() == 303) {
+                throw new RemoteJobAlreadyRunningException("Remote job is already running, url=" + startUrl, createJobUri(response.getFirstHeader("Link")));
             }
-            throw new JobExecutionException("Unable to start remote job: url=" + startUrl + " rc=" + response.getStatus());
+            throw new JobExecutionException("Unable to start remote job: url=" + startUrl + " rc=" + response.getStatusCode());
         } catch (JSONException e) {
             throw new JobExecutionException("Could not create JSON object: " + job, e);
-        } catch (UniformInterfaceException | ClientHandlerException  e) {
+        } catch (IOException | IllegalArgumentException e) {
             throw new JobExecutionException("Problem while starting new job: url=" + startUrl, e);
         }
     }
@@ -69,12 +67,14 @@ public class RemoteJobExecutorService implements RemoteJobExecutor {
         final String stopUrl = jobUri + "/stop";
         try {
             LOGGER.info("ltag=RemoteJobExecutorService.stopJob Going to stop job: {} ...", stopUrl);
-            client.resource(stopUrl).header("Connection", "close").post();
-        } catch (UniformInterfaceException e) {
-            if (e.getResponse().getStatus() == 403) {
+            final int statusCode = transport.execute(new HttpPost(stopUrl)).getStatusCode();
+            if (statusCode == 403) {
                 throw new RemoteJobNotRunningException("Remote job is not running: url=" + stopUrl);
+            } else if (statusCode >= 300) {
+                throw new JobExecutionException("Unable to stop remote job: url=" + stopUrl + " rc=" + statusCode);
             }
-            throw e;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new JobExecutionException("Problem while stopping job: url=" + stopUrl, e);
         }
     }
 
@@ -82,6 +82,20 @@ public class RemoteJobExecutorService implements RemoteJobExecutor {
         return remoteJobExecutorStatusRetriever.getStatus(jobUri);
     }
 
+    @Override
+    public RemoteJobStatus getStatus(final URI jobUri, final int since) {
+        return remoteJobExecutorStatusRetriever.getStatus(jobUri, since);
+    }
+
+    /**
+     * Sets the connect and read timeout of a single status request. Default value is 10 seconds, 0 means no timeout.
+     *
+     * @param statusTimeout The timeout in milliseconds
+     */
+    public void setStatusTimeout(int statusTimeout) {
+        remoteJobExecutorStatusRetriever.setTimeout(statusTimeout);
+    }
+
     public boolean isAlive() {
         return remoteJobExecutorStatusRetriever.isAlive(jobExecutorUri);
     }
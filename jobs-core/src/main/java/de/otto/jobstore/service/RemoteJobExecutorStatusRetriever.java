@@ -1,38 +1,86 @@
 package de.otto.jobstore.service;
 
-import com.sun.jersey.api.client.Client;
-import com.sun.jersey.api.client.ClientHandlerException;
-import com.sun.jersey.api.client.ClientResponse;
-import com.sun.jersey.api.client.UniformInterfaceException;
 import de.otto.jobstore.common.RemoteJobStatus;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
 
 public class RemoteJobExecutorStatusRetriever {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RemoteJobExecutorStatusRetriever.class);
-    private final Client client;
+    public static final int DEFAULT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
 
-    public RemoteJobExecutorStatusRetriever(Client client) {
-        this.client = client;
+    private final RemoteJobTransport transport;
+    private volatile int timeout = DEFAULT_TIMEOUT;
+
+    public RemoteJobExecutorStatusRetriever(RemoteJobTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Sets the connect and read timeout of a single status request, so one slow remote executor cannot block the
+     * polling of the status of remote jobs. Default value is 10 seconds, 0 means no timeout.
+     *
+     * @param timeout The timeout in milliseconds
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
     }
 
     public RemoteJobStatus getStatus(final URI jobUri) {
+        return getStatus(jobUri, 0);
+    }
+
+    /**
+     * Retrieves the status of the remote job with only the log lines after the given position. The position is sent
+     * as the <code>since</code> query parameter. The remote job returns the position of its first log line as
+     * <code>log_offset</code>, remote jobs which do not support this return their whole log of which the known lines
+     * are cut off.
+     *
+     * @param jobUri The uri of the remote job
+     * @param since The number of log lines of the remote job which are already known
+     * @return The status with the log lines after the given position, null if it could not be retrieved
+     */
+    public RemoteJobStatus getStatus(final URI jobUri, final int since) {
         try {
-            final ClientResponse response = client.resource(jobUri.toString()).
-                    accept(MediaType.APPLICATION_JSON).header("Connection", "close").get(ClientResponse.class);
-            if (response.getStatus() == 200) {
-                final RemoteJobStatus status = response.getEntity(RemoteJobStatus.class);
+            final URI statusUri = since > 0 ? new URIBuilder(jobUri).addParameter("since", String.valueOf(since)).build() : jobUri;
+            final HttpGet request = new HttpGet(statusUri);
+            request.setHeader("Accept", MediaType.APPLICATION_JSON);
+            request.setConfig(RequestConfig.copy(transport.getRequestConfig())
+                    .setConnectTimeout(timeout).setConnectionRequestTimeout(timeout).setSocketTimeout(timeout).build());
+            final RemoteJobStatus status = transport.execute(request, new ResponseHandler<RemoteJobStatus>() {
+                @Override
+                public RemoteJobStatus handleResponse(HttpResponse response) throws IOException {
+                    final int statusCode = response.getStatusLine().getStatusCode();
+                    if (statusCode != 200 || response.getEntity() == null) {
+                        LOGGER.warn("Received unexpected status code {} when trying to retrieve status for remote job from: {}", statusCode, jobUri);
+                        return null;
+                    }
+                    try (InputStream in = response.getEntity().getContent()) {
+                        return RemoteJobStatusParser.parse(in);
+                    }
+                }
+            });
+            if (status != null) {
+                final int lostLogLines = status.alignLogLines(since);
+                if (lostLogLines > 0) {
+                    LOGGER.warn("ltag=RemoteJobExecutorService.getStatus {} log lines of remote job {} are not available anymore", lostLogLines, jobUri);
+                }
                 LOGGER.info("ltag=RemoteJobExecutorService.getStatus Response from server: {}", status);
-                return status;
-            } else {
-                response.close();
             }
-            LOGGER.warn("Received unexpected status code {} when trying to retrieve status for remote job from: {}", response.getStatus(), jobUri);
-        } catch (UniformInterfaceException | ClientHandlerException e) {
+            return status;
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
             LOGGER.warn("Problem while trying to retrieve status for remote job from: {}", jobUri, e);
         }
         return null; // TODO: this should be avoided
@@ -40,11 +88,8 @@ public class RemoteJobExecutorStatusRetriever {
 
     public boolean isAlive(String jobExecutorUri) {
         try {
-            final ClientResponse response = client.resource(jobExecutorUri).header("Connection", "close").get(ClientResponse.class);
-            final boolean alive = response.getStatus() == 200;
-            response.close();
-            return alive;
-        } catch (UniformInterfaceException | ClientHandlerException e) {
+            return transport.execute(new HttpGet(jobExecutorUri)).getStatusCode() == 200;
+        } catch (IOException | IllegalArgumentException e) {
             LOGGER.warn("Remote Job Executor is not available from: {}", jobExecutorUri, e);
         }
         return false;
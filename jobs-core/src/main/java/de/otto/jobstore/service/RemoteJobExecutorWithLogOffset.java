@@ -0,0 +1,18 @@
+package de.otto.jobstore.service;
+
+import de.otto.jobstore.common.RemoteJobStatus;
+
+import java.net.URI;
+
+/**
+ * A remote job executor which can retrieve only the log lines of a remote job which are not known yet. Executors
+ * which only implement {@link RemoteJobExecutor} return the whole log, of which the known lines are cut off.
+ */
+public interface RemoteJobExecutorWithLogOffset extends RemoteJobExecutor {
+
+    /**
+     * Returns the status of the remote job with only the log lines after the given number of known lines
+     */
+    RemoteJobStatus getStatus(URI jobUri, int since);
+
+}
@@ -1,10 +1,5 @@
 package de.otto.jobstore.service;
 
-import com.sun.jersey.api.client.Client;
-import com.sun.jersey.api.client.ClientHandlerException;
-import com.sun.jersey.api.client.UniformInterfaceException;
-import com.sun.jersey.api.client.config.ClientConfig;
-import com.sun.jersey.api.client.config.DefaultClientConfig;
 import de.otto.jobstore.common.RemoteJob;
 import de.otto.jobstore.common.RemoteJobStatus;
 import de.otto.jobstore.service.exception.JobException;
@@ -12,18 +7,11 @@ import de.otto.jobstore.service.exception.JobExecutionException;
 import de.otto.jobstore.service.exception.RemoteJobAlreadyRunningException;
 import de.otto.jobstore.service.exception.RemoteJobNotRunningException;
 import org.apache.commons.compress.utils.IOUtils;
-import org.apache.http.Header;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.config.SocketConfig;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.apache.http.entity.mime.content.StringBody;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
-import org.apache.http.util.EntityUtils;
 import org.codehaus.jettison.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,13 +40,12 @@ import java.nio.charset.Charset;
  *     Content-Type: application/json; charset=UTF-8
  *     Content-Transfer-Encoding: 8bit
  */
-public class RemoteJobExecutorWithScriptTransferService implements RemoteJobExecutor {
+public class RemoteJobExecutorWithScriptTransferService implements RemoteJobExecutorWithLogOffset {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RemoteJobExecutorWithScriptTransferService.class);
     private final RemoteJobExecutorStatusRetriever remoteJobExecutorStatusRetriever;
     private String jobExecutorUri;
-    private Client client;
-    private HttpClient httpclient;
+    private RemoteJobTransport transport;
     private TarArchiveProvider tarArchiveProvider;
 
     @Override
@@ -67,37 +54,18 @@ public class RemoteJobExecutorWithScriptTransferService implements RemoteJobExec
     }
 
     public RemoteJobExecutorWithScriptTransferService(String jobExecutorUri, TarArchiveProvider tarArchiveProvider) {
-        this.jobExecutorUri = jobExecutorUri;
-        this.tarArchiveProvider = tarArchiveProvider;
-
-        // since Flask (with WSGI) does not suppport HTTP 1.1 chunked encoding, turn it off
-        //    see: https://github.com/mitsuhiko/flask/issues/367
-        final ClientConfig cc = new DefaultClientConfig();
-        cc.getProperties().put(ClientConfig.PROPERTY_CHUNKED_ENCODING_SIZE, null);
-        this.client = Client.create(cc);
-        remoteJobExecutorStatusRetriever = new RemoteJobExecutorStatusRetriever(client);
-
-        httpclient = createMultithreadSafeClient();
-
+        this(jobExecutorUri, tarArchiveProvider, RemoteJobTransport.getDefault());
     }
 
-    private HttpClient createMultithreadSafeClient() {
-        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
-        cm.setMaxTotal(100);
-        cm.setDefaultMaxPerRoute(100);
-
-        cm.setDefaultSocketConfig(SocketConfig.custom()
-                .setSoTimeout(5000)
-                .build());
-
-        return HttpClients.custom()
-                .setConnectionManager(cm)
-                .build();
+    public RemoteJobExecutorWithScriptTransferService(String jobExecutorUri, TarArchiveProvider tarArchiveProvider, RemoteJobTransport transport) {
+        this.jobExecutorUri = jobExecutorUri;
+        this.tarArchiveProvider = tarArchiveProvider;
+        this.transport = transport;
+        remoteJobExecutorStatusRetriever = new RemoteJobExecutorStatusRetriever(transport);
     }
 
     public URI startJob(final RemoteJob job) throws JobException {
         final String startUrl = jobExecutorUri + job.name + "/start";
-        HttpResponse response = null;
         try {
             LOGGER.info("ltag=RemoteJobExecutorService.startJob Going to start job: {} ...", startUrl);
 
@@ -105,9 +73,9 @@ public class RemoteJobExecutorWithScriptTransferService implements RemoteJobExec
 
             HttpPost httpPost = createRemoteExecutorMultipartRequest(job, startUrl, tarInputStream);
 
-            response = executeRequest(httpPost);
+            RemoteJobTransport.Response response = executeRequest(httpPost);
 
-            int statusCode = response.getStatusLine().getStatusCode();
+            int statusCode = response.getStatusCode();
             String link = extractLink(response);
             if (statusCode == 201) {
                 return createJobUri(link);
@@ -117,42 +85,26 @@ public class RemoteJobExecutorWithScriptTransferService implements RemoteJobExec
             throw new JobExecutionException("Unable to start remote job: url=" + startUrl + " rc=" + statusCode);
         } catch (JSONException e) {
             throw new JobExecutionException("Could not create JSON object: " + job, e);
-        } catch (UniformInterfaceException | ClientHandlerException e) {
-            throw new JobExecutionException("Problem while starting new job: url=" + startUrl, e);
-        } finally {
-            closeResponseConnection(response);
         }
     }
 
-    private String extractLink(HttpResponse response) {
-        Header linkHeader = response.getFirstHeader("Link");
-        String link;
-        if (linkHeader == null) {
+    private String extractLink(RemoteJobTransport.Response response) {
+        String link = response.getFirstHeader("Link");
+        if (link == null) {
             link = "error";
-        } else {
-            link = linkHeader.getValue();
         }
         return link;
     }
 
-    private void closeResponseConnection(HttpResponse response) {
-        if (response != null) {
-            try {
-                EntityUtils.consume(response.getEntity());
-            } catch (IOException e) {
-                LOGGER.warn("Could not close response connection", e);
-            }
-        }
-    }
-
-    private HttpResponse executeRequest(HttpPost httpPost) throws JobExecutionException {
-        HttpResponse response;
+    private RemoteJobTransport.Response executeRequest(HttpPost httpPost) throws JobExecutionException {
+        RemoteJobTransport.Response response;
         try {
-            httpPost.setConfig(RequestConfig.custom()
+            httpPost.setConfig(RequestConfig.copy(transport.getRequestConfig())
                     .setConnectTimeout(60000) // wait max 60 seconds
+                    .setSocketTimeout(5000)
                     .build());
-            response = httpclient.execute(httpPost);
-        } catch (IOException e) {
+            response = transport.execute(httpPost);
+        } catch (IOException | IllegalArgumentException e) {
             throw new JobExecutionException("Could not post scripts", e);
         }
         return response;
@@ -187,7 +139,6 @@ public class RemoteJobExecutorWithScriptTransferService implements RemoteJobExec
             throw new JobExecutionException("Could not generate json", e);
         }
         httpPost.setEntity(multipartEntity);
-        httpPost.setHeader("Connection", "close");
         httpPost.setHeader("User-Agent", "RemoteJobExecutorService");
         return httpPost;
     }
@@ -196,12 +147,14 @@ public class RemoteJobExecutorWithScriptTransferService implements RemoteJobExec
         final String stopUrl = jobUri + "/stop";
         try {
             LOGGER.info("ltag=RemoteJobExecutorService.stopJob Going to stop job: {} ...", stopUrl);
-            client.resource(stopUrl).header("Connection", "close").post();
-        } catch (UniformInterfaceException e) {
-            if (e.getResponse().getStatus() == 403) {
+            final int statusCode = transport.execute(new HttpPost(stopUrl)).getStatusCode();
+            if (statusCode == 403) {
                 throw new RemoteJobNotRunningException("Remote job is not running: url=" + stopUrl);
+            } else if (statusCode >= 300) {
+                throw new JobExecutionException("Unable to stop remote job: url=" + stopUrl + " rc=" + statusCode);
             }
-            throw e;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new JobExecutionException("Problem while stopping job: url=" + stopUrl, e);
         }
     }
 
@@ -209,6 +162,20 @@ public class RemoteJobExecutorWithScriptTransferService implements RemoteJobExec
         return remoteJobExecutorStatusRetriever.getStatus(jobUri);
     }
 
+    @Override
+    public RemoteJobStatus getStatus(final URI jobUri, final int since) {
+        return remoteJobExecutorStatusRetriever.getStatus(jobUri, since);
+    }
+
+    /**
+     * Sets the connect and read timeout of a single status request. Default value is 10 seconds, 0 means no timeout.
+     *
+     * @param statusTimeout The timeout in milliseconds
+     */
+    public void setStatusTimeout(int statusTimeout) {
+        remoteJobExecutorStatusRetriever.setTimeout(statusTimeout);
+    }
+
     public boolean isAlive() {
         return remoteJobExecutorStatusRetriever.isAlive(jobExecutorUri);
     }
@@ -0,0 +1,104 @@
+package de.otto.jobstore.service;
+
+import de.otto.jobstore.common.RemoteJobResult;
+import de.otto.jobstore.common.RemoteJobStatus;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the status of a remote job token by token, so the log lines are added to the status while they are read
+ * instead of building a tree of the whole response first. Unknown fields are skipped.
+ */
+final class RemoteJobStatusParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private RemoteJobStatusParser() {
+    }
+
+    static RemoteJobStatus parse(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createJsonParser(in)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            final RemoteJobStatus status = new RemoteJobStatus();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "status":
+                        status.status = RemoteJobStatus.Status.valueOf(parser.getText());
+                        break;
+                    case "log_lines":
+                        status.logLines = readLogLines(parser, value);
+                        break;
+                    case "log_offset":
+                        status.logOffset = parser.getIntValue();
+                        break;
+                    case "result":
+                        status.result = readResult(parser, value);
+                        break;
+                    case "finish_time":
+                        status.finishTime = parser.getText();
+                        break;
+                    case "message":
+                        status.message = parser.getText();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return status;
+        }
+    }
+
+    private static List<String> readLogLines(JsonParser parser, JsonToken token) throws IOException {
+        expect(parser, token, JsonToken.START_ARRAY);
+        final List<String> logLines = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            logLines.add(parser.getText());
+        }
+        return logLines;
+    }
+
+    private static RemoteJobResult readResult(JsonParser parser, JsonToken token) throws IOException {
+        expect(parser, token, JsonToken.START_OBJECT);
+        final RemoteJobResult result = new RemoteJobResult();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "ok":
+                    result.ok = parser.getBooleanValue();
+                    break;
+                case "exit_code":
+                    result.exitCode = parser.getIntValue();
+                    break;
+                case "message":
+                    result.message = parser.getText();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return result;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException("Expected " + expected + " but was " + actual, parser.getCurrentLocation());
+        }
+    }
+
+}
@@ -0,0 +1,188 @@
+package de.otto.jobstore.service;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP transport shared by the remote job executors. Connections are pooled per host and kept alive, so status
+ * polls, starts and stops of remote jobs do not set up a new TCP (and TLS) connection for every request.
+ *
+ * Unless a transport is given, all remote job executors use the transport returned by {@link #getDefault()}.
+ */
+public class RemoteJobTransport implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteJobTransport.class);
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+    public static final int DEFAULT_CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+    public static final int DEFAULT_SOCKET_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(60);
+
+    private static final long CONNECTION_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5);
+
+    private static RemoteJobTransport defaultTransport;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RequestConfig requestConfig;
+
+    public RemoteJobTransport() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_CONNECT_TIMEOUT, DEFAULT_SOCKET_TIMEOUT);
+    }
+
+    /**
+     * Creates a RemoteJobTransport
+     *
+     * @param maxConnectionsPerHost The maximum number of connections kept open to a single host
+     * @param connectTimeout        The timeout in milliseconds to establish a connection and to wait for a free
+     *                              connection of the pool, 0 means no timeout
+     * @param socketTimeout         The timeout in milliseconds to wait for data, 0 means no timeout
+     */
+    public RemoteJobTransport(int maxConnectionsPerHost, int connectTimeout, int socketTimeout) {
+        connectionManager = new PoolingHttpClientConnectionManager(CONNECTION_TIME_TO_LIVE, TimeUnit.MILLISECONDS);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        connectionManager.setMaxTotal(Math.max(connectionManager.getMaxTotal(), maxConnectionsPerHost * 5));
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectTimeout)
+                .setSocketTimeout(socketTimeout)
+                .setStaleConnectionCheckEnabled(true)
+                .build();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setUserAgent("RemoteJobExecutorService")
+                .build();
+    }
+
+    /**
+     * @return The transport shared by all remote job executors which were not given a transport
+     */
+    public static synchronized RemoteJobTransport getDefault() {
+        if (defaultTransport == null) {
+            defaultTransport = new RemoteJobTransport();
+        }
+        return defaultTransport;
+    }
+
+    /**
+     * @return The request configuration with the timeouts of this transport, which may be copied to override
+     * them for a single request
+     */
+    public RequestConfig getRequestConfig() {
+        return requestConfig;
+    }
+
+    /**
+     * Executes the request on a pooled connection. The response entity is consumed after the handler returned,
+     * so the connection can be reused.
+     *
+     * @param request The request to execute
+     * @param responseHandler The handler which reads the response
+     * @return The value returned by the handler
+     * @throws IOException If the request failed
+     */
+    public <T> T execute(HttpUriRequest request, ResponseHandler<? extends T> responseHandler) throws IOException {
+        return httpClient.execute(request, responseHandler);
+    }
+
+    /**
+     * Executes the request on a pooled connection and discards the response entity
+     *
+     * @param request The request to execute
+     * @return The status code and headers of the response
+     * @throws IOException If the request failed
+     */
+    public Response execute(HttpUriRequest request) throws IOException {
+        return execute(request, new ResponseHandler<Response>() {
+            @Override
+            public Response handleResponse(HttpResponse response) throws IOException {
+                EntityUtils.consume(response.getEntity());
+                return new Response(response.getStatusLine().getStatusCode(), response.getAllHeaders());
+            }
+        });
+    }
+
+    /**
+     * @return The number of leased, available and pending connections of all hosts
+     */
+    public PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * @param uri A uri on the host
+     * @return The number of leased, available and pending connections to the host of the given uri
+     */
+    public PoolStats getStats(URI uri) {
+        final boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        final int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+        return connectionManager.getStats(new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure));
+    }
+
+    /**
+     * Closes connections which were idle for longer than the given time
+     *
+     * @param idleTime The idle time in milliseconds
+     */
+    public void closeIdleConnections(long idleTime) {
+        connectionManager.closeIdleConnections(idleTime, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close remote job transport", e);
+        }
+    }
+
+    /**
+     * The status code and headers of a response whose entity was discarded
+     */
+    public static final class Response {
+
+        private final int statusCode;
+        private final Header[] headers;
+
+        private Response(int statusCode, Header[] headers) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @param name The name of the header
+         * @return The value of the first header with the given name, null if there is none
+         */
+        public String getFirstHeader(String name) {
+            for (Header header : headers) {
+                if (header.getName().equalsIgnoreCase(name)) {
+                    return header.getValue();
+                }
+            }
+            return null;
+        }
+    }
+
+}
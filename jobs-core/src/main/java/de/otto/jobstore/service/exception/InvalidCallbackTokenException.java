@@ -0,0 +1,13 @@
+package de.otto.jobstore.service.exception;
+
+
+/**
+ * Exception which is thrown if a remote job reports its status with a callback token which was not issued for it
+ */
+public final class InvalidCallbackTokenException extends JobException {
+
+    public InvalidCallbackTokenException(String s) {
+        super(s);
+    }
+
+}
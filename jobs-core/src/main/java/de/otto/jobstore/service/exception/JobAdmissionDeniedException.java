@@ -0,0 +1,23 @@
+package de.otto.jobstore.service.exception;
+
+
+/**
+ * Exception which is thrown if the execution of a job was rejected because the node is overloaded
+ */
+public final class JobAdmissionDeniedException extends JobException {
+
+    private final long retryAfterSeconds;
+
+    public JobAdmissionDeniedException(String s, long retryAfterSeconds) {
+        super(s);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return The number of seconds after which the execution should be tried again
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
@@ -3,6 +3,7 @@ package de.otto.jobstore.common;
 import de.otto.jobstore.TestSetup;
 import de.otto.jobstore.common.properties.JobInfoProperty;
 import de.otto.jobstore.service.JobInfoService;
+import de.otto.jobstore.service.RemoteJobExecutor;
 import de.otto.jobstore.service.RemoteJobExecutorService;
 import de.otto.jobstore.service.exception.RemoteJobAlreadyRunningException;
 import org.testng.annotations.BeforeMethod;
@@ -10,6 +11,8 @@ import org.testng.annotations.Test;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +20,7 @@ import java.util.Map;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
 
 public class AbstractRemoteJobRunnableTest {
 
@@ -66,6 +70,52 @@ public class AbstractRemoteJobRunnableTest {
         assertEquals(uri.toString(), logger.additionalData.get("resumedAlreadyRunningJob"));
     }
 
+    @Test
+    public void testGetRemoteStatusRequestsOnlyNewLogLines() throws Exception {
+        URI uri = URI.create("http://www.otto.de");
+        JobInfo jobInfo = mock(JobInfo.class);
+        when(jobInfo.getRemoteLogOffset()).thenReturn(42);
+        when(jobInfoService.getById("4811")).thenReturn(jobInfo);
+        RemoteJobStatus status = new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, null, null);
+        when(remoteJobExecutorService.getStatus(uri, 42)).thenReturn(status);
+        JobRunnable runnable = TestSetup.remoteJobRunnable(remoteJobExecutorService, jobInfoService, parameters, jobDefinition);
+
+        assertSame(status, runnable.getRemoteStatus(remoteJobContext("4811", uri)));
+    }
+
+    @Test
+    public void testGetRemoteStatusCutsOffKnownLogLinesOfExecutorWithoutLogOffset() throws Exception {
+        URI uri = URI.create("http://www.otto.de");
+        JobInfo jobInfo = mock(JobInfo.class);
+        when(jobInfo.getRemoteLogOffset()).thenReturn(2);
+        when(jobInfoService.getById("4811")).thenReturn(jobInfo);
+        RemoteJobExecutor remoteJobExecutor = mock(RemoteJobExecutor.class);
+        when(remoteJobExecutor.getStatus(uri)).thenReturn(
+                new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, Arrays.asList("line 1", "line 2", "line 3"), null, null));
+        JobRunnable runnable = TestSetup.remoteJobRunnable(remoteJobExecutor, jobInfoService, parameters, jobDefinition);
+
+        RemoteJobStatus status = runnable.getRemoteStatus(remoteJobContext("4811", uri));
+
+        assertEquals(Collections.singletonList("line 3"), status.logLines);
+        assertEquals(Integer.valueOf(2), status.logOffset);
+    }
+
+    @Test
+    public void testGetRemoteStatusOfUnknownJobReturnsWholeLog() throws Exception {
+        URI uri = URI.create("http://www.otto.de");
+        RemoteJobStatus status = new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, Arrays.asList("line 1", "line 2"), null, null);
+        when(remoteJobExecutorService.getStatus(uri, 0)).thenReturn(status);
+        JobRunnable runnable = TestSetup.remoteJobRunnable(remoteJobExecutorService, jobInfoService, parameters, jobDefinition);
+
+        assertEquals(Arrays.asList("line 1", "line 2"), runnable.getRemoteStatus(remoteJobContext("4811", uri)).logLines);
+    }
+
+    private JobExecutionContext remoteJobContext(String id, URI uri) {
+        MockJobLogger logger = new MockJobLogger();
+        logger.insertOrUpdateAdditionalData(JobInfoProperty.REMOTE_JOB_URI.val(), uri.toString());
+        return new JobExecutionContext(id, logger, mock(JobInfoCache.class), JobExecutionPriority.CHECK_PRECONDITIONS, jobDefinition);
+    }
+
     private class MockJobLogger implements JobLogger {
 
         public List<String> logs = new ArrayList<>();
@@ -0,0 +1,44 @@
+package de.otto.jobstore.common;
+
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class JobEventListenersTest {
+
+    @Test
+    public void testEventsAreDispatchedToAllListeners() throws Exception {
+        final JobEventListeners listeners = new JobEventListeners();
+        assertFalse(listeners.hasListeners());
+        final JobEventListener first = mock(JobEventListener.class);
+        final JobEventListener second = mock(JobEventListener.class);
+        listeners.add(first);
+        listeners.add(second);
+        assertTrue(listeners.hasListeners());
+
+        listeners.jobFinished("test", "1234", JobExecutionPriority.CHECK_PRECONDITIONS, ResultCode.TIMED_OUT, 1000L);
+        listeners.repositoryCall("JobInfoRepository", "findById", 42L);
+
+        verify(first).jobFinished("test", "1234", JobExecutionPriority.CHECK_PRECONDITIONS, ResultCode.TIMED_OUT, 1000L);
+        verify(second).jobFinished("test", "1234", JobExecutionPriority.CHECK_PRECONDITIONS, ResultCode.TIMED_OUT, 1000L);
+        verify(first).repositoryCall("JobInfoRepository", "findById", 42L);
+        verify(second).repositoryCall("JobInfoRepository", "findById", 42L);
+    }
+
+    @Test
+    public void testFailingListenerDoesNotAffectOtherListeners() throws Exception {
+        final JobEventListeners listeners = new JobEventListeners();
+        final JobEventListener failing = mock(JobEventListener.class);
+        doThrow(new IllegalStateException("failed")).when(failing).jobQueued("test", "1234", JobExecutionPriority.FORCE_EXECUTION);
+        final JobEventListener listener = mock(JobEventListener.class);
+        listeners.add(failing);
+        listeners.add(listener);
+
+        listeners.jobQueued("test", "1234", JobExecutionPriority.FORCE_EXECUTION);
+
+        verify(listener).jobQueued("test", "1234", JobExecutionPriority.FORCE_EXECUTION);
+    }
+
+}
@@ -2,10 +2,17 @@ package de.otto.jobstore.common;
 
 
 import com.mongodb.DBObject;
+import de.otto.jobstore.common.util.InternetUtils;
 import de.otto.jobstore.repository.JobInfoRepository;
 import org.testng.annotations.Test;
 
+import java.util.Date;
+
 import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
 
 public class JobInfoCacheTest {
 
@@ -39,4 +46,60 @@ public class JobInfoCacheTest {
         verify(jobInfoRepository, times(2)).findById(id);
     }
 
+    @Test
+    public void testJobRunningOnThisInstanceIsNotTakenAway() throws Exception {
+        reset(jobInfoRepository);
+        final JobInfo runningJobInfo = new JobInfo("test", "host", "thread", 1000L, 1000L, 0L, RunningState.RUNNING);
+        runningJobInfo.setInstanceId(InternetUtils.getInstanceId());
+        when(jobInfoRepository.findById(id)).thenReturn(runningJobInfo);
+
+        assertFalse(new JobInfoCache(id, jobInfoRepository, 10000).isTakenAway());
+    }
+
+    @Test
+    public void testRequeuedJobIsTakenAway() throws Exception {
+        reset(jobInfoRepository);
+        final JobInfo queuedJobInfo = new JobInfo("test", "host", "thread", 1000L, 1000L, 0L, RunningState.QUEUED);
+        queuedJobInfo.setInstanceId(InternetUtils.getInstanceId());
+        when(jobInfoRepository.findById(id)).thenReturn(queuedJobInfo);
+
+        assertTrue(new JobInfoCache(id, jobInfoRepository, 10000).isTakenAway());
+    }
+
+    @Test
+    public void testJobRunningOnOtherInstanceIsTakenAway() throws Exception {
+        reset(jobInfoRepository);
+        final JobInfo runningJobInfo = new JobInfo("test", "host", "thread", 1000L, 1000L, 0L, RunningState.RUNNING);
+        runningJobInfo.setInstanceId("otherInstance");
+        when(jobInfoRepository.findById(id)).thenReturn(runningJobInfo);
+
+        assertTrue(new JobInfoCache(id, jobInfoRepository, 10000).isTakenAway());
+    }
+
+    @Test
+    public void testLastCheckpointIsResumedFromPreviousExecution() throws Exception {
+        reset(jobInfoRepository);
+        final JobInfo runningJobInfo = new JobInfo("test", "host", "thread", 1000L, 1000L, 0L, RunningState.RUNNING);
+        final Checkpoint checkpoint = new Checkpoint("item-42", "offset=42", new Date());
+        when(jobInfoRepository.findById(id)).thenReturn(runningJobInfo);
+        when(jobInfoRepository.findResumableCheckpoint("test", runningJobInfo.getParametersHash())).thenReturn(checkpoint);
+
+        JobInfoCache jobInfoCache = new JobInfoCache(id, jobInfoRepository, 10000);
+        assertSame(checkpoint, jobInfoCache.getLastCheckpoint());
+        assertSame(checkpoint, jobInfoCache.getLastCheckpoint());
+        verify(jobInfoRepository, times(1)).findResumableCheckpoint("test", runningJobInfo.getParametersHash());
+    }
+
+    @Test
+    public void testSavedCheckpointIsReturned() throws Exception {
+        reset(jobInfoRepository);
+        when(jobInfoRepository.findById(id)).thenReturn(jobInfo);
+        when(jobInfoRepository.saveCheckpoint(id, "item-43", "offset=43")).thenReturn(new Checkpoint("item-43", "offset=43", new Date()));
+
+        JobInfoCache jobInfoCache = new JobInfoCache(id, jobInfoRepository, 10000);
+        jobInfoCache.saveCheckpoint("item-43", "offset=43");
+        assertEquals("item-43", jobInfoCache.getLastCheckpoint().getKey());
+        verify(jobInfoRepository, never()).findResumableCheckpoint(anyString(), anyString());
+    }
+
 }
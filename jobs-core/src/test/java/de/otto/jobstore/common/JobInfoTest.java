@@ -1,5 +1,6 @@
 package de.otto.jobstore.common;
 
+import com.mongodb.BasicDBObject;
 import de.otto.jobstore.common.properties.JobInfoProperty;
 import org.bson.types.ObjectId;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -8,6 +9,8 @@ import org.testng.annotations.Test;
 
 import java.lang.reflect.Field;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
@@ -35,4 +38,28 @@ public class JobInfoTest {
         assertTrue(jobInfo.isTimedOut(new Date(startTime.getTime() + 1500))); //Kein Timeout da job erst eine eineinhalb Sekunde alt
     }
 
+    @Test
+    public void testParametersHashDoesNotDependOnOrder() throws Exception {
+        final Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("a", "1");
+        parameters.put("b", "2");
+        final Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("b", "2");
+        reversed.put("a", "1");
+        assertEquals(JobInfo.hashParameters(parameters), JobInfo.hashParameters(reversed));
+        assertFalse(JobInfo.hashParameters(parameters).equals(JobInfo.hashParameters(null)));
+
+        final JobInfo jobInfo = new JobInfo("test", null, null, 1000L, 1000L, 0L, RunningState.QUEUED, JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
+        assertEquals(JobInfo.hashParameters(reversed), jobInfo.getParametersHash());
+    }
+
+    @Test
+    public void testCallbackTokenIsValidatedAgainstItsHash() throws Exception {
+        final JobInfo jobInfo = new JobInfo(new BasicDBObject(JobInfoProperty.CALLBACK_TOKEN_HASH.val(), JobInfo.hashCallbackToken("secret")));
+        assertTrue(jobInfo.isCallbackTokenValid("secret"));
+        assertFalse(jobInfo.isCallbackTokenValid("other"));
+        assertFalse(jobInfo.isCallbackTokenValid(null));
+        assertFalse(new JobInfo("test", null, null, 1000L, 1000L, 0L).isCallbackTokenValid("secret"));
+    }
+
 }
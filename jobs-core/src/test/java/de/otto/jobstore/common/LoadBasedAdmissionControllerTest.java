@@ -0,0 +1,40 @@
+package de.otto.jobstore.common;
+
+import de.otto.jobstore.TestSetup;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+public class LoadBasedAdmissionControllerTest {
+
+    private final LoadBasedAdmissionController admissionController = new LoadBasedAdmissionController();
+
+    @Test
+    public void testAdmitIfNodeHasCapacity() throws Exception {
+        assertEquals(AdmissionController.Decision.ADMIT, admit(new NodeInfo("node", "host", 1, 2, 0.5, 0.5)));
+    }
+
+    @Test
+    public void testQueueIfNodeIsSaturated() throws Exception {
+        assertEquals(AdmissionController.Decision.QUEUE, admit(new NodeInfo("node", "host", 2, 2, 0.5, 0.5))); //Keine freien Slots
+        assertEquals(AdmissionController.Decision.QUEUE, admit(new NodeInfo("node", "host", 0, 2, 1.5, 0.5))); //Hohe Last
+        assertEquals(AdmissionController.Decision.QUEUE, admit(new NodeInfo("node", "host", 0, 2, 0.5, 0.9))); //Heap fast voll
+    }
+
+    @Test
+    public void testRejectIfNodeIsOverloaded() throws Exception {
+        assertEquals(AdmissionController.Decision.REJECT, admit(new NodeInfo("node", "host", 0, 2, 2.5, 0.5)));
+        assertEquals(AdmissionController.Decision.REJECT, admit(new NodeInfo("node", "host", 0, 2, 0.5, 0.97)));
+    }
+
+    @Test
+    public void testAdmitRemoteJobEvenIfNodeIsOverloaded() throws Exception {
+        assertEquals(AdmissionController.Decision.ADMIT, admissionController.admit(TestSetup.remoteJobDefinition("remote", 1000, 1000),
+                JobExecutionPriority.CHECK_PRECONDITIONS, new NodeInfo("node", "host", 2, 2, 2.5, 0.97)));
+    }
+
+    private AdmissionController.Decision admit(NodeInfo nodeInfo) {
+        return admissionController.admit(TestSetup.localJobDefinition("local", 1000), JobExecutionPriority.CHECK_PRECONDITIONS, nodeInfo);
+    }
+
+}
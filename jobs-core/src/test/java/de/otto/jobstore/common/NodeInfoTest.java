@@ -0,0 +1,25 @@
+package de.otto.jobstore.common;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class NodeInfoTest {
+
+    @Test
+    public void testHasFreeCapacity() throws Exception {
+        assertTrue(new NodeInfo("node", "host", 1, 2, 0.5).hasFreeCapacity(1.0));
+        assertFalse(new NodeInfo("node", "host", 2, 2, 0.5).hasFreeCapacity(1.0)); //Keine freien Slots
+        assertFalse(new NodeInfo("node", "host", 0, 2, 1.5).hasFreeCapacity(1.0)); //System ueberlastet
+    }
+
+    @Test
+    public void testCapacityWeight() throws Exception {
+        assertEquals(2.0, new NodeInfo("node", "host", 0, 2, 0.0).getCapacityWeight(1.0), 0.001);
+        assertEquals(1.0, new NodeInfo("node", "host", 0, 2, 0.5).getCapacityWeight(1.0), 0.001);
+        assertEquals(0.0, new NodeInfo("node", "host", 3, 2, 0.0).getCapacityWeight(1.0), 0.001);
+    }
+
+}
@@ -0,0 +1,43 @@
+package de.otto.jobstore.common;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+public class ProgressTrackerTest {
+
+    @Test
+    public void testProgressIsComputedFromFirstReport() throws Exception {
+        final ProgressTracker tracker = new ProgressTracker(5000);
+        final JobProgress first = tracker.update(100, 1000, 10000);
+        assertEquals(10d, first.getPercent());
+        assertNull(first.getItemsPerSecond());
+        assertNull(first.getEstimatedFinishTime());
+
+        final JobProgress progress = tracker.update(600, 1000, 20000);
+        assertEquals(60d, progress.getPercent());
+        assertEquals(50d, progress.getItemsPerSecond());
+        assertEquals(28000L, progress.getEstimatedFinishTime().getTime());
+    }
+
+    @Test
+    public void testProgressIsThrottled() throws Exception {
+        final ProgressTracker tracker = new ProgressTracker(5000);
+        tracker.update(1, 10, 10000);
+        assertNull(tracker.update(2, 10, 12000));
+        assertEquals(3L, tracker.update(3, 10, 15000).getDone());
+        assertEquals(10L, tracker.update(10, 10, 15001).getDone());
+    }
+
+    @Test
+    public void testProgressWithUnknownTotal() throws Exception {
+        final ProgressTracker tracker = new ProgressTracker(0);
+        tracker.update(0, 0, 10000);
+        final JobProgress progress = tracker.update(20, 0, 12000);
+        assertNull(progress.getPercent());
+        assertEquals(10d, progress.getItemsPerSecond());
+        assertNull(progress.getEstimatedFinishTime());
+    }
+
+}
@@ -0,0 +1,37 @@
+package de.otto.jobstore.common;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class PrometheusJobMetricsTest {
+
+    @Test
+    public void testScrapeWritesTextExpositionFormat() throws Exception {
+        final PrometheusJobMetrics metrics = new PrometheusJobMetrics();
+        metrics.queueDepth(5);
+        metrics.queueWaitTime("test", 1500);
+        metrics.queueWaitTime("test", 500);
+        metrics.dispatchAttempt("test", true);
+        metrics.dispatchAttempt("test", false);
+        metrics.jobFinished("test", "1234", JobExecutionPriority.CHECK_PRECONDITIONS, ResultCode.FAILED, 2000);
+        metrics.repositoryCall("JobInfoRepository", "findById", 250000000L);
+
+        final String scrape = metrics.scrape();
+        assertTrue(scrape.contains("# TYPE jobstore_queue_depth gauge\njobstore_queue_depth 5.0\n"));
+        assertTrue(scrape.contains("jobstore_queue_wait_seconds_count{job=\"test\"} 2.0\n"));
+        assertTrue(scrape.contains("jobstore_queue_wait_seconds_sum{job=\"test\"} 2.0\n"));
+        assertTrue(scrape.contains("jobstore_dispatch_attempts_total{job=\"test\"} 2.0\n"));
+        assertTrue(scrape.contains("jobstore_dispatch_failures_total{job=\"test\"} 1.0\n"));
+        assertTrue(scrape.contains("jobstore_job_events_total{job=\"test\",event=\"finished\"} 1.0\n"));
+        assertTrue(scrape.contains("jobstore_job_execution_seconds_sum{job=\"test\",result=\"FAILED\"} 2.0\n"));
+        assertTrue(scrape.contains("jobstore_repository_call_seconds_sum{repository=\"JobInfoRepository\",method=\"findById\"} 0.25\n"));
+    }
+
+    @Test
+    public void testLabelValuesAreEscaped() throws Exception {
+        assertEquals("job=\"a\\\"b\\\\c\\nd\"", PrometheusJobMetrics.labels("job", "a\"b\\c\nd"));
+    }
+
+}
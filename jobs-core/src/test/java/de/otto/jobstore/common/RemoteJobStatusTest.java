@@ -0,0 +1,41 @@
+package de.otto.jobstore.common;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+public class RemoteJobStatusTest {
+
+    @Test
+    public void testAlignCutsOffKnownLinesOfWholeLog() throws Exception {
+        final RemoteJobStatus status = new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, Arrays.asList("a", "b", "c"), null);
+
+        assertEquals(0, status.alignLogLines(2));
+        assertEquals(Collections.singletonList("c"), status.logLines);
+        assertEquals(Integer.valueOf(2), status.logOffset);
+    }
+
+    @Test
+    public void testAlignKeepsLinesReturnedSinceOffset() throws Exception {
+        final RemoteJobStatus status = new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, Arrays.asList("c", "d"), null);
+        status.logOffset = 2;
+
+        assertEquals(0, status.alignLogLines(2));
+        assertEquals(Arrays.asList("c", "d"), status.logLines);
+        assertEquals(Integer.valueOf(2), status.logOffset);
+    }
+
+    @Test
+    public void testAlignReportsLinesLostByTruncatedLog() throws Exception {
+        final RemoteJobStatus status = new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, Arrays.asList("f", "g"), null);
+        status.logOffset = 5;
+
+        assertEquals(3, status.alignLogLines(2));
+        assertEquals(Arrays.asList("f", "g"), status.logLines);
+        assertEquals(Integer.valueOf(5), status.logOffset);
+    }
+
+}
@@ -0,0 +1,109 @@
+package de.otto.jobstore.common;
+
+import de.otto.jobstore.service.exception.JobExecutionAbortedException;
+import de.otto.jobstore.service.exception.JobExecutionException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.*;
+
+import static de.otto.jobstore.TestSetup.localJobDefinition;
+import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.*;
+
+public class SubTaskScopeTest {
+
+    private ForkJoinPool pool;
+    private JobInfoCache jobInfoCache;
+    private JobLogger jobLogger;
+    private JobExecutionContext context;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        pool = new ForkJoinPool(4);
+        jobInfoCache = mock(JobInfoCache.class);
+        jobLogger = mock(JobLogger.class);
+        context = new JobExecutionContext("1234", jobLogger, jobInfoCache, JobExecutionPriority.CHECK_PRECONDITIONS,
+                localJobDefinition("test", 1000), pool);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testResultsOfSubTasksAreAvailableAfterJoin() throws Exception {
+        try (SubTaskScope scope = context.openSubTaskScope()) {
+            final Future<Integer> first = scope.fork(constant(1));
+            final Future<Integer> second = scope.fork(constant(2));
+            scope.join();
+            assertEquals(3, first.get() + second.get());
+        }
+        verify(jobLogger).addLoggingData("Sub-tasks: 2 of 2 completed, 0 failed");
+    }
+
+    @Test
+    public void testFailingSubTaskCancelsRemainingSubTasks() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        try (SubTaskScope scope = context.openSubTaskScope()) {
+            scope.fork(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    release.await(5, TimeUnit.SECONDS);
+                    return 1;
+                }
+            });
+            scope.fork(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    throw new IllegalStateException("sub-task failed");
+                }
+            });
+            try {
+                scope.join();
+                fail("failure of sub-task was not reported");
+            } catch (JobExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+                assertTrue(scope.isCancelled());
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test(expectedExceptions = JobExecutionAbortedException.class)
+    public void testAbortedJobCancelsSubTasks() throws Exception {
+        when(jobInfoCache.isAborted()).thenReturn(true);
+        final CountDownLatch release = new CountDownLatch(1);
+        try (SubTaskScope scope = context.openSubTaskScope()) {
+            scope.fork(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    release.await(5, TimeUnit.SECONDS);
+                    return 1;
+                }
+            });
+            scope.join();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testContextWithoutExecutorCannotOpenScope() throws Exception {
+        new JobExecutionContext("1234", jobLogger, jobInfoCache, JobExecutionPriority.CHECK_PRECONDITIONS,
+                localJobDefinition("test", 1000)).openSubTaskScope();
+    }
+
+    private Callable<Integer> constant(final int value) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return value;
+            }
+        };
+    }
+
+}
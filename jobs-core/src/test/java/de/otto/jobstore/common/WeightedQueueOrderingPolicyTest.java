@@ -0,0 +1,67 @@
+package de.otto.jobstore.common;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+public class WeightedQueueOrderingPolicyTest {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    @Test
+    public void testHigherPriorityIsDispatchedFirst() throws Exception {
+        final JobInfo checkPreconditions = queuedJob("job1", JobExecutionPriority.CHECK_PRECONDITIONS, 1);
+        final JobInfo forceExecution = queuedJob("job2", JobExecutionPriority.FORCE_EXECUTION, 0);
+
+        final List<JobInfo> jobs = new WeightedQueueOrderingPolicy().order(Arrays.asList(checkPreconditions, forceExecution));
+
+        assertEquals("job2", jobs.get(0).getName());
+        assertEquals("job1", jobs.get(1).getName());
+    }
+
+    @Test
+    public void testLongWaitingJobOvertakesHigherPriority() throws Exception {
+        final JobInfo checkPreconditions = queuedJob("job1", JobExecutionPriority.CHECK_PRECONDITIONS, 30);
+        final JobInfo ignorePreconditions = queuedJob("job2", JobExecutionPriority.IGNORE_PRECONDITIONS, 0);
+
+        final List<JobInfo> jobs = new WeightedQueueOrderingPolicy().order(Arrays.asList(ignorePreconditions, checkPreconditions));
+
+        assertEquals("job1", jobs.get(0).getName());
+    }
+
+    @Test
+    public void testFrequentlyDispatchedJobIsPenalized() throws Exception {
+        final WeightedQueueOrderingPolicy policy = new WeightedQueueOrderingPolicy();
+        final JobInfo frequentJob = queuedJob("job1", JobExecutionPriority.CHECK_PRECONDITIONS, 2);
+        final JobInfo otherJob = queuedJob("job2", JobExecutionPriority.CHECK_PRECONDITIONS, 1);
+        assertEquals("job1", policy.order(Arrays.asList(frequentJob, otherJob)).get(0).getName());
+
+        policy.dispatched(frequentJob);
+
+        assertEquals("job2", policy.order(Arrays.asList(frequentJob, otherJob)).get(0).getName());
+    }
+
+    @Test
+    public void testEqualScoreKeepsOrder() throws Exception {
+        final Date creationTime = new Date();
+        final JobInfo job1 = new JobInfo(creationTime, "job1", "host", "thread", 1000L, 1000L, 0L, RunningState.QUEUED,
+                JobExecutionPriority.CHECK_PRECONDITIONS, Collections.<String, String>emptyMap());
+        final JobInfo job2 = new JobInfo(creationTime, "job2", "host", "thread", 1000L, 1000L, 0L, RunningState.QUEUED,
+                JobExecutionPriority.CHECK_PRECONDITIONS, Collections.<String, String>emptyMap());
+
+        final List<JobInfo> jobs = new WeightedQueueOrderingPolicy().order(Arrays.asList(job2, job1));
+
+        assertEquals("job2", jobs.get(0).getName());
+    }
+
+    private JobInfo queuedJob(String name, JobExecutionPriority priority, int minutesQueued) {
+        return new JobInfo(new Date(System.currentTimeMillis() - minutesQueued * MINUTE), name, "host", "thread",
+                1000L, 1000L, 0L, RunningState.QUEUED, priority, Collections.<String, String>emptyMap());
+    }
+
+}
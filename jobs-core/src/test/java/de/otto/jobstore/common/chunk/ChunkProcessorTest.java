@@ -0,0 +1,115 @@
+package de.otto.jobstore.common.chunk;
+
+import de.otto.jobstore.common.JobExecutionContext;
+import de.otto.jobstore.common.JobExecutionPriority;
+import de.otto.jobstore.common.JobInfoCache;
+import de.otto.jobstore.common.JobLogger;
+import de.otto.jobstore.service.exception.JobExecutionAbortedException;
+import de.otto.jobstore.service.exception.JobExecutionException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static de.otto.jobstore.TestSetup.localJobDefinition;
+import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.assertEquals;
+
+public class ChunkProcessorTest {
+
+    private JobInfoCache jobInfoCache;
+    private JobLogger jobLogger;
+    private JobExecutionContext context;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        jobInfoCache = mock(JobInfoCache.class);
+        jobLogger = mock(JobLogger.class);
+        context = new JobExecutionContext("1234", jobLogger, jobInfoCache, JobExecutionPriority.CHECK_PRECONDITIONS,
+                localJobDefinition("test", 1000));
+    }
+
+    @Test
+    public void testItemsAreWrittenInChunks() throws Exception {
+        final List<List<String>> chunks = new ArrayList<>();
+        final ChunkProcessor<Integer, String> chunkProcessor = new ChunkProcessor<>(reader(5), new ItemProcessor<Integer, String>() {
+            @Override
+            public String process(Integer item) throws Exception {
+                return item == 2 ? null : "item" + item;
+            }
+        }, new ItemWriter<String>() {
+            @Override
+            public void write(List<? extends String> items) throws Exception {
+                chunks.add(new ArrayList<>(items));
+            }
+        }, 2, 1, 60000);
+
+        assertEquals(4L, chunkProcessor.process(context));
+        assertEquals(Arrays.asList(Arrays.asList("item0", "item1"), Arrays.asList("item3"), Arrays.asList("item4")), chunks);
+        verify(jobLogger).addLoggingData(startsWith("Read 5 items in 3 chunks and wrote 4 items"));
+    }
+
+    @Test
+    public void testChunksAreProcessedInParallel() throws Exception {
+        final List<Integer> written = new CopyOnWriteArrayList<>();
+        final ChunkProcessor<Integer, Integer> chunkProcessor = new ChunkProcessor<>(reader(1000), identity(), new ItemWriter<Integer>() {
+            @Override
+            public void write(List<? extends Integer> items) throws Exception {
+                written.addAll(items);
+            }
+        }, 10, 4, 60000);
+
+        assertEquals(1000L, chunkProcessor.process(context));
+        assertEquals(1000, new HashSet<>(written).size());
+    }
+
+    @Test(expectedExceptions = JobExecutionException.class)
+    public void testFailingWriterFailsTheJob() throws Exception {
+        new ChunkProcessor<>(reader(100), identity(), new ItemWriter<Integer>() {
+            @Override
+            public void write(List<? extends Integer> items) throws Exception {
+                throw new IllegalStateException("write failed");
+            }
+        }, 10, 2, 60000).process(context);
+    }
+
+    @Test
+    public void testAbortIsCheckedBetweenChunks() throws Exception {
+        when(jobInfoCache.isAborted()).thenReturn(false, true);
+        final List<Integer> written = new ArrayList<>();
+        try {
+            new ChunkProcessor<>(reader(100), identity(), new ItemWriter<Integer>() {
+                @Override
+                public void write(List<? extends Integer> items) throws Exception {
+                    written.addAll(items);
+                }
+            }, 10, 1, 60000).process(context);
+        } catch (JobExecutionAbortedException e) {
+            assertEquals(10, written.size());
+            return;
+        }
+        throw new AssertionError("job was not aborted");
+    }
+
+    private ItemReader<Integer> reader(final int count) {
+        return new ItemReader<Integer>() {
+            private int next = 0;
+
+            @Override
+            public Integer read() throws Exception {
+                return next < count ? next++ : null;
+            }
+        };
+    }
+
+    private ItemProcessor<Integer, Integer> identity() {
+        return new ItemProcessor<Integer, Integer>() {
+            @Override
+            public Integer process(Integer item) throws Exception {
+                return item;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,35 @@
+package de.otto.jobstore.common.util;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class RetryBackoffTest {
+
+    @Test
+    public void testDelayDoublesWithEveryAttempt() throws Exception {
+        assertEquals(1000, RetryBackoff.delay(1000, 0, 0.0));
+        assertEquals(2000, RetryBackoff.delay(1000, 1, 0.0));
+        assertEquals(8000, RetryBackoff.delay(1000, 3, 0.0));
+    }
+
+    @Test
+    public void testDelayContainsJitter() throws Exception {
+        assertEquals(1200, RetryBackoff.delay(1000, 0, 1.0));
+        long delay = RetryBackoff.delay(1000, 0);
+        assertTrue(delay >= 1000 && delay <= 1200);
+    }
+
+    @Test
+    public void testNoDelayWithoutRetryInterval() throws Exception {
+        assertEquals(0, RetryBackoff.delay(0, 2));
+        assertEquals(0, RetryBackoff.delay(-1, 2));
+    }
+
+    @Test
+    public void testDelayDoesNotOverflow() throws Exception {
+        assertEquals(Long.MAX_VALUE, RetryBackoff.delay(Long.MAX_VALUE / 2, 100, 1.0));
+    }
+
+}
@@ -0,0 +1,47 @@
+package de.otto.jobstore.repository;
+
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.Resource;
+
+import static org.testng.AssertJUnit.*;
+
+@ContextConfiguration(locations = {"classpath:spring/jobs-context.xml"})
+public class ConcurrencyLimitRepositoryIntegrationTest extends AbstractTestNGSpringContextTests {
+
+    private static final String RESOURCE = "database";
+
+    @Resource
+    private ConcurrencyLimitRepository concurrencyLimitRepository;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        concurrencyLimitRepository.clear(true);
+    }
+
+    @Test
+    public void testAcquireUpToMaxConcurrency() throws Exception {
+        assertTrue(concurrencyLimitRepository.acquire(RESOURCE, 2, "job1"));
+        assertTrue(concurrencyLimitRepository.acquire(RESOURCE, 2, "job2"));
+        assertFalse(concurrencyLimitRepository.acquire(RESOURCE, 2, "job3"));
+        assertEquals(2, concurrencyLimitRepository.findHolders(RESOURCE).size());
+    }
+
+    @Test
+    public void testAcquireAfterRelease() throws Exception {
+        assertTrue(concurrencyLimitRepository.acquire(RESOURCE, 1, "job1"));
+        assertFalse(concurrencyLimitRepository.acquire(RESOURCE, 1, "job2"));
+        concurrencyLimitRepository.release(RESOURCE, "job1");
+        assertTrue(concurrencyLimitRepository.acquire(RESOURCE, 1, "job2"));
+        assertEquals("job2", concurrencyLimitRepository.findHolders(RESOURCE).get(0));
+    }
+
+    @Test
+    public void testFindHoldersOfUnknownResource() throws Exception {
+        assertTrue(concurrencyLimitRepository.findHolders("unknown").isEmpty());
+    }
+
+}
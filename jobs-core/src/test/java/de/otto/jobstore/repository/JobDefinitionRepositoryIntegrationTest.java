@@ -1,5 +1,8 @@
 package de.otto.jobstore.repository;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
 import de.otto.jobstore.common.StoredJobDefinition;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
@@ -7,6 +10,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import static org.testng.AssertJUnit.*;
 
@@ -18,6 +23,9 @@ public class JobDefinitionRepositoryIntegrationTest extends AbstractTestNGSpring
     @Resource
     private JobDefinitionRepository jobDefinitionRepository;
 
+    @Resource
+    private MongoClient mongo;
+
     @BeforeMethod
     public void setUp() throws Exception {
         jobDefinitionRepository.clear(true);
@@ -44,6 +52,43 @@ public class JobDefinitionRepositoryIntegrationTest extends AbstractTestNGSpring
         assertEquals(2L, retrievedJobDefinition.getPollingInterval());
     }
 
+    @Test
+    public void testIndexVersionIsStoredAfterPreparingCollection() throws Exception {
+        final DBObject metadata = mongo.getDB("jobstore").getCollection(AbstractRepository.METADATA_COLLECTION)
+                .findOne(new BasicDBObject("_id", "jobDefinitions"));
+        final JobDefinitionRepository repository = new JobDefinitionRepository(mongo, "jobstore", "jobDefinitions");
+        assertEquals(repository.getIndexVersion(), metadata.get("indexVersion"));
+
+        repository.init();
+        assertTrue(repository.awaitCollectionPrepared(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testAddingAndUpdatingJobDefinitionsInBulk() throws Exception {
+        jobDefinitionRepository.addOrUpdate(new StoredJobDefinition(JOB_NAME, 1, 1, 1, 0, 0, true, false));
+
+        jobDefinitionRepository.addOrUpdateAll(Arrays.asList(new StoredJobDefinition(JOB_NAME, 1, 1, 2, 0, 0, true, false),
+                new StoredJobDefinition("other", 1, 1, 3, 0, 0, true, false)));
+
+        assertEquals(2L, jobDefinitionRepository.find(JOB_NAME).getPollingInterval());
+        assertEquals(3L, jobDefinitionRepository.find("other").getPollingInterval());
+    }
+
+    @Test
+    public void testReservingQueueSlots() throws Exception {
+        jobDefinitionRepository.addOrUpdate(new StoredJobDefinition(JOB_NAME, 1, 1, 1, 0, 0, true, false));
+
+        assertTrue(jobDefinitionRepository.reserveQueueSlot(JOB_NAME, "a", 2));
+        assertTrue(jobDefinitionRepository.reserveQueueSlot(JOB_NAME, "b", 2));
+        assertFalse(jobDefinitionRepository.reserveQueueSlot(JOB_NAME, "c", 2));
+        assertEquals(Arrays.asList("a", "b"), jobDefinitionRepository.findQueueSlots(JOB_NAME));
+
+        jobDefinitionRepository.addOrUpdate(new StoredJobDefinition(JOB_NAME, 1, 1, 2, 0, 0, true, false));
+        jobDefinitionRepository.releaseQueueSlots(JOB_NAME, Arrays.asList("a"));
+        assertTrue(jobDefinitionRepository.reserveQueueSlot(JOB_NAME, "c", 2));
+        assertEquals(Arrays.asList("b", "c"), jobDefinitionRepository.findQueueSlots(JOB_NAME));
+    }
+
     @Test
     public void testUpdatingExistingJobDefinitionDoesNotOverwriteEnabledStatus() throws Exception {
         StoredJobDefinition jd = new StoredJobDefinition(JOB_NAME, 1, 1, 1, 0, 0, true, false);
@@ -0,0 +1,142 @@
+package de.otto.jobstore.repository;
+
+import com.mongodb.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.*;
+
+public class JobInfoRepositoryIndexTest {
+
+    private static final List<String> INDEXES = Arrays.asList(
+            "[{ \"name\" : 1 , \"runningState\" : 1 , \"queueKey\" : 1}, { \"name\" : \"name_state_queueKey\" , \"unique\" : true}]",
+            "[{ \"name\" : 1}, { \"name\" : \"name_1\"}]",
+            "[{ \"runningState\" : 1 , \"creationTime\" : 1}, { \"name\" : \"runningState_creationTime\"}]",
+            "[{ \"runningState\" : 1 , \"priorityLevel\" : -1 , \"creationTime\" : 1}, { \"name\" : \"runningState_priorityLevel_creationTime\"}]",
+            "[{ \"name\" : 1 , \"creationTime\" : 1}, { \"name\" : \"name_creationTime\"}]",
+            "[{ \"runningState\" : 1 , \"instanceId\" : 1}, { \"name\" : \"runningState_instanceId\"}]",
+            "[{ \"notBefore\" : 1}, { \"name\" : \"notBefore\" , \"sparse\" : true}]",
+            "[{ \"nextRetryAt\" : 1}, { \"name\" : \"nextRetryAt\" , \"sparse\" : true}]",
+            "[{ \"name\" : 1 , \"parametersHash\" : 1 , \"creationTime\" : -1}, { \"name\" : \"name_parametersHash_creationTime\"}]",
+            "[{ \"idempotencyKeys\" : 1}, { \"name\" : \"idempotencyKeys\" , \"sparse\" : true}]",
+            "[{ \"lastModificationTime\" : 1}, { \"name\" : \"lastModificationTime_TTL\" , \"expireAfterSeconds\" : 604800}]");
+
+    private final List<String> createdIndexes = Collections.synchronizedList(new ArrayList<String>());
+    private DBCollection collection;
+    private DBCollection metadataCollection;
+    private MongoClient mongoClient;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        createdIndexes.clear();
+        collection = mock(DBCollection.class, new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                if ("createIndex".equals(invocation.getMethod().getName())) {
+                    createdIndexes.add(Arrays.toString(invocation.getArguments()));
+                } else if ("getIndexInfo".equals(invocation.getMethod().getName()) ||
+                        "distinct".equals(invocation.getMethod().getName())) {
+                    return Collections.emptyList();
+                }
+                return null;
+            }
+        });
+        metadataCollection = mock(DBCollection.class);
+        final DB db = mock(DB.class);
+        when(db.getCollection("jobs")).thenReturn(collection);
+        when(db.getCollection(AbstractRepository.METADATA_COLLECTION)).thenReturn(metadataCollection);
+        mongoClient = mock(MongoClient.class);
+        when(mongoClient.getDB("jobstore")).thenReturn(db);
+    }
+
+    @Test
+    public void testIndexesArePreparedOnInit() throws Exception {
+        final JobInfoRepository repository = new JobInfoRepository(mongoClient, "jobstore", "jobs");
+        assertTrue(createdIndexes.isEmpty());
+
+        repository.init();
+        assertTrue(createdIndexes.get(0).contains("name_state_queueKey"));
+        assertTrue(repository.awaitCollectionPrepared(5, TimeUnit.SECONDS));
+
+        assertEquals(INDEXES, createdIndexes);
+        verify(metadataCollection).update(any(DBObject.class),
+                eq(new BasicDBObject("$set", new BasicDBObject("indexVersion", repository.getIndexVersion()))), eq(true), eq(false));
+    }
+
+    @Test
+    public void testIndexesArePreparedOnlyOnce() throws Exception {
+        final JobInfoRepository repository = new JobInfoRepository(mongoClient, "jobstore", "jobs");
+
+        repository.init();
+        assertTrue(repository.awaitCollectionPrepared(5, TimeUnit.SECONDS));
+        repository.init();
+
+        assertEquals(INDEXES, createdIndexes);
+    }
+
+    @Test
+    public void testIndexesAreNotPreparedIfVersionIsUpToDate() throws Exception {
+        final JobInfoRepository repository = new JobInfoRepository(mongoClient, "jobstore", "jobs");
+        when(metadataCollection.findOne(any(DBObject.class))).thenReturn(new BasicDBObject("indexVersion", repository.getIndexVersion()));
+
+        repository.init();
+
+        assertTrue(repository.awaitCollectionPrepared(0, TimeUnit.SECONDS));
+        assertTrue(createdIndexes.isEmpty());
+    }
+
+    @Test
+    public void testIndexVersionIsDerivedFromIndexes() throws Exception {
+        final JobInfoRepository repository = new JobInfoRepository(mongoClient, "jobstore", "jobs");
+        final JobInfoRepository changedRepository = new JobInfoRepository(mongoClient, "jobstore", "jobs") {
+            @Override
+            protected List<Index> getIndexes() {
+                final List<Index> indexes = new ArrayList<>(super.getIndexes());
+                indexes.add(new Index(new BasicDBObject("host", 1), "host"));
+                return indexes;
+            }
+        };
+
+        assertEquals(repository.getIndexVersion(), new JobInfoRepository(mongoClient, "jobstore", "jobs").getIndexVersion());
+        assertFalse(repository.getIndexVersion() == changedRepository.getIndexVersion());
+    }
+
+    @Test
+    public void testObsoleteIndexesAreDropped() throws Exception {
+        when(collection.getIndexInfo()).thenReturn(Arrays.<DBObject>asList(new BasicDBObject("name", "name_state"),
+                new BasicDBObject("name", "name_1")));
+
+        new JobInfoRepository(mongoClient, "jobstore", "jobs").init();
+
+        verify(collection).dropIndex("name_state");
+        verify(collection, never()).dropIndex("name_1");
+    }
+
+    @Test
+    public void testInitFailsWithoutUniqueIndex() throws Exception {
+        final JobInfoRepository repository = new JobInfoRepository(mongoClient, "jobstore", "jobs");
+        doThrow(new MongoException("duplicate key")).when(collection).createIndex(any(DBObject.class),
+                eq(new BasicDBObject("name", "name_state_queueKey").append("unique", true)));
+
+        try {
+            repository.init();
+            fail("MongoException expected");
+        } catch (MongoException e) {
+            assertFalse(repository.awaitCollectionPrepared(0, TimeUnit.SECONDS));
+        }
+        doNothing().when(collection).createIndex(any(DBObject.class), any(DBObject.class));
+
+        repository.init();
+        assertTrue(repository.awaitCollectionPrepared(5, TimeUnit.SECONDS));
+    }
+
+}
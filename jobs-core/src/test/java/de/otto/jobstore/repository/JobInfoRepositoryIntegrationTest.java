@@ -2,12 +2,15 @@ package de.otto.jobstore.repository;
 
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
 import de.otto.jobstore.common.*;
 import de.otto.jobstore.common.properties.JobInfoProperty;
 import de.otto.jobstore.common.util.InternetUtils;
 import org.bson.types.ObjectId;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -30,6 +33,9 @@ public class JobInfoRepositoryIntegrationTest extends AbstractTestNGSpringContex
     @Resource
     private JobInfoRepository jobInfoRepository;
 
+    @Resource
+    private MongoClient mongo;
+
     @BeforeMethod
     public void setup() throws Exception {
         jobInfoRepository.clear(true);
@@ -44,6 +50,42 @@ public class JobInfoRepositoryIntegrationTest extends AbstractTestNGSpringContex
         assertNotNull("Created job with id " + id + ", cannot be found", createdJob);
     }
 
+    @Test
+    public void testJobEventsAreReportedToListener() throws Exception {
+        final List<String> events = new ArrayList<>();
+        jobInfoRepository.addJobEventListener(new JobEventAdapter() {
+            @Override
+            public void jobQueued(String name, String id, JobExecutionPriority priority) {
+                events.add("queued " + name + " " + priority);
+            }
+
+            @Override
+            public void jobClaimed(String name, String id, JobExecutionPriority priority) {
+                events.add("claimed " + name + " " + priority);
+            }
+
+            @Override
+            public void jobFinished(String name, String id, JobExecutionPriority priority, ResultCode resultCode, long executionTime) {
+                events.add("finished " + name + " " + priority + " " + resultCode);
+            }
+
+            @Override
+            public void repositoryCall(String repository, String method, long durationNanos) {
+                if (durationNanos >= 0 && "findAndModify".equals(method)) {
+                    events.add(repository + "." + method);
+                }
+            }
+        });
+        final String id = createJobInfo(TESTVALUE_JOBNAME, 60 * 1000, RunningState.QUEUED);
+        jobInfoRepository.activateQueuedJobById(id);
+        jobInfoRepository.markAsFinished(id, ResultCode.TIMED_OUT);
+
+        assertEquals(Arrays.asList("queued " + TESTVALUE_JOBNAME + " CHECK_PRECONDITIONS",
+                "claimed " + TESTVALUE_JOBNAME + " CHECK_PRECONDITIONS",
+                "finished " + TESTVALUE_JOBNAME + " CHECK_PRECONDITIONS TIMED_OUT",
+                "JobInfoRepository.findAndModify"), events);
+    }
+
     @Test
     public void testCreatingRunningJobWhichAlreadyExists() throws Exception {
         assertNotNull(createJobInfo(TESTVALUE_JOBNAME, 60 * 1000, RunningState.RUNNING));
@@ -213,6 +255,194 @@ public class JobInfoRepositoryIntegrationTest extends AbstractTestNGSpringContex
         assertEquals("test3", jobs.get(2).getName());
     }
 
+    @Test
+    public void testDelayedJobIsNotDueBeforeNotBefore() throws Exception {
+        final Date notBefore = new Date(System.currentTimeMillis() + 60 * 1000);
+        JobInfo jobInfo = newJobInfo(1000, RunningState.DELAYED);
+        jobInfo.setNotBefore(notBefore);
+        assertNotNull(jobInfoRepository.create(jobInfo));
+        createJobInfo("test2", 1000, RunningState.QUEUED);
+
+        List<JobInfo> jobs = jobInfoRepository.findQueuedJobsSortedByPriority();
+        assertEquals(1, jobs.size());
+        assertEquals("test2", jobs.get(0).getName());
+        assertTrue(jobInfoRepository.findDueDelayedJobs().isEmpty());
+        assertEquals(notBefore, jobInfoRepository.findNextNotBefore(new Date()));
+        assertNull(jobInfoRepository.findNextNotBefore(notBefore));
+    }
+
+    @Test
+    public void testDelayedJobsDoNotOccupyTheQueue() throws Exception {
+        createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.QUEUED);
+        final Date notBefore = new Date(System.currentTimeMillis() - 1000);
+        JobInfo jobInfo = newJobInfo(1000, RunningState.DELAYED);
+        jobInfo.setNotBefore(notBefore);
+        String id = jobInfoRepository.create(jobInfo);
+        assertNotNull(id);
+        jobInfo = newJobInfo(1000, RunningState.DELAYED);
+        jobInfo.setNotBefore(notBefore);
+        assertNotNull(jobInfoRepository.create(jobInfo));
+
+        assertEquals(2, jobInfoRepository.findDueDelayedJobs().size());
+        assertFalse(jobInfoRepository.queueDelayedJob(id, null));
+
+        jobInfoRepository.remove(jobInfoRepository.findByNameAndRunningState(TESTVALUE_JOBNAME, RunningState.QUEUED).getId());
+        assertTrue(jobInfoRepository.queueDelayedJob(id, null));
+        assertFalse(jobInfoRepository.queueDelayedJob(id, null));
+        assertEquals(id, jobInfoRepository.findByNameAndRunningState(TESTVALUE_JOBNAME, RunningState.QUEUED).getId());
+        assertEquals(1, jobInfoRepository.findDueDelayedJobs().size());
+    }
+
+    @Test
+    public void testCreateMultipleJobs() throws Exception {
+        createJobInfo("test2", 1000, RunningState.RUNNING);
+        List<String> ids = jobInfoRepository.create(Arrays.asList(newJobInfo(1000, RunningState.RUNNING),
+                new JobInfo("test2", TESTVALUE_HOST, TESTVALUE_THREAD, 1000L, 1000L, 0L, RunningState.RUNNING),
+                newJobInfo(1000, RunningState.QUEUED)));
+        assertNotNull(ids.get(0));
+        assertNull(ids.get(1));
+        assertNotNull(ids.get(2));
+        assertEquals(3, jobInfoRepository.findQueuedAndRunningJobs().size());
+        assertEquals(ids.get(0), jobInfoRepository.findByNameAndRunningState(TESTVALUE_JOBNAME, RunningState.RUNNING).getId());
+    }
+
+    @Test
+    public void testCreateMultipleJobsReplacingQueuedJob() throws Exception {
+        final String queuedId = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.QUEUED);
+        createJobInfo("test2", 1000, RunningState.RUNNING);
+        List<String> ids = jobInfoRepository.create(Arrays.asList(newJobInfo(1000, RunningState.QUEUED),
+                new JobInfo("test2", TESTVALUE_HOST, TESTVALUE_THREAD, 1000L, 1000L, 0L, RunningState.RUNNING),
+                new JobInfo("test3", TESTVALUE_HOST, TESTVALUE_THREAD, 1000L, 1000L, 0L, RunningState.RUNNING)),
+                Arrays.asList(queuedId));
+        assertNull(jobInfoRepository.findById(queuedId));
+        assertNotNull(ids.get(0));
+        assertNull(ids.get(1));
+        assertNotNull(ids.get(2));
+        assertEquals(ids.get(0), jobInfoRepository.findByNameAndRunningState(TESTVALUE_JOBNAME, RunningState.QUEUED).getId());
+        assertEquals(ids.get(2), jobInfoRepository.findByNameAndRunningState("test3", RunningState.RUNNING).getId());
+    }
+
+    @Test
+    public void testFindSuccessfulJobs() throws Exception {
+        final String successfulId = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+        jobInfoRepository.markAsFinished(successfulId, ResultCode.SUCCESSFUL);
+        final String failedId = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+        jobInfoRepository.markAsFinished(failedId, ResultCode.FAILED);
+        final String otherId = createJobInfo("test2", 1000, RunningState.RUNNING);
+        jobInfoRepository.markAsFinished(otherId, ResultCode.SUCCESSFUL);
+
+        final Map<String, Date> successfulSinceByName = new HashMap<>();
+        successfulSinceByName.put(TESTVALUE_JOBNAME, new Date(System.currentTimeMillis() - 60 * 1000));
+        successfulSinceByName.put("test2", new Date(System.currentTimeMillis() + 60 * 1000));
+        final List<JobInfo> jobInfos = jobInfoRepository.findSuccessfulJobs(successfulSinceByName);
+        assertEquals(1, jobInfos.size());
+        assertEquals(successfulId, jobInfos.get(0).getId());
+    }
+
+    @Test
+    public void testFailedJobWithRetriesLeftGetsRetryScheduled() throws Exception {
+        String id = jobInfoRepository.create(TESTVALUE_JOBNAME, 1000, 1000, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        assertTrue(jobInfoRepository.markAsFinished(id, ResultCode.FAILED));
+        assertNotNull(jobInfoRepository.findById(id).getNextRetryAt());
+
+        List<JobInfo> dueRetries = jobInfoRepository.findJobsWithDueRetry(Arrays.asList(TESTVALUE_JOBNAME), new Date());
+        assertEquals(1, dueRetries.size());
+        assertTrue(jobInfoRepository.claimRetry(id));
+        assertFalse(jobInfoRepository.claimRetry(id));
+        assertTrue(jobInfoRepository.findJobsWithDueRetry(Arrays.asList(TESTVALUE_JOBNAME), new Date()).isEmpty());
+    }
+
+    @Test
+    public void testReleasedRetryIsDueAgain() throws Exception {
+        String id = jobInfoRepository.create(TESTVALUE_JOBNAME, 1000, 1000, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        assertTrue(jobInfoRepository.markAsFinished(id, ResultCode.FAILED));
+        Date nextRetryAt = jobInfoRepository.findById(id).getNextRetryAt();
+        assertFalse(jobInfoRepository.releaseRetry(id, nextRetryAt));
+
+        assertTrue(jobInfoRepository.claimRetry(id));
+        assertTrue(jobInfoRepository.releaseRetry(id, nextRetryAt));
+        assertEquals(1, jobInfoRepository.findJobsWithDueRetry(Arrays.asList(TESTVALUE_JOBNAME), new Date()).size());
+    }
+
+    @Test
+    public void testRetryIsDelayedByRetryInterval() throws Exception {
+        String id = jobInfoRepository.create(TESTVALUE_JOBNAME, 1000, 1000, 2, 60 * 1000, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        assertTrue(jobInfoRepository.markAsFinished(id, ResultCode.FAILED));
+        assertTrue(jobInfoRepository.findJobsWithDueRetry(Arrays.asList(TESTVALUE_JOBNAME), new Date()).isEmpty());
+        assertEquals(1, jobInfoRepository.findJobsWithDueRetry(Arrays.asList(TESTVALUE_JOBNAME), new Date(System.currentTimeMillis() + 2 * 60 * 1000)).size());
+    }
+
+    @Test
+    public void testSuccessfulJobCancelsPendingRetry() throws Exception {
+        String failedId = jobInfoRepository.create(TESTVALUE_JOBNAME, 1000, 1000, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        assertTrue(jobInfoRepository.markAsFinished(failedId, ResultCode.FAILED));
+        String successfulId = jobInfoRepository.create(TESTVALUE_JOBNAME, 1000, 1000, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        assertTrue(jobInfoRepository.markAsFinished(successfulId, ResultCode.SUCCESSFUL));
+
+        assertNull(jobInfoRepository.findById(failedId).getNextRetryAt());
+        assertTrue(jobInfoRepository.findJobsWithDueRetry(Arrays.asList(TESTVALUE_JOBNAME), new Date()).isEmpty());
+    }
+
+    @Test
+    public void testSuccessfulJobGetsNoRetryScheduled() throws Exception {
+        String id = jobInfoRepository.create(TESTVALUE_JOBNAME, 1000, 1000, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        assertTrue(jobInfoRepository.markAsFinished(id, ResultCode.SUCCESSFUL));
+
+        assertNull(jobInfoRepository.findById(id).getNextRetryAt());
+        assertTrue(jobInfoRepository.findJobsWithDueRetry(Arrays.asList(TESTVALUE_JOBNAME), new Date()).isEmpty());
+    }
+
+    @Test
+    public void testPreparingCollectionSchedulesRetryOfMostRecentFailedJob() throws Exception {
+        final String olderId = jobInfoRepository.create(TESTVALUE_JOBNAME, 1000, 1000, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        assertTrue(jobInfoRepository.markAsFinished(olderId, ResultCode.FAILED));
+        final String failedId = jobInfoRepository.create(TESTVALUE_JOBNAME, 1000, 1000, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        assertTrue(jobInfoRepository.markAsFinished(failedId, ResultCode.FAILED));
+        final String successfulId = jobInfoRepository.create("other", 1000, 1000, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        assertTrue(jobInfoRepository.markAsFinished(successfulId, ResultCode.SUCCESSFUL));
+        // jobs which failed before retries were scheduled with the failed job
+        final DBCollection collection = mongo.getDB("jobstore").getCollection("jobs");
+        collection.update(new BasicDBObject(), new BasicDBObject("$unset", new BasicDBObject(JobInfoProperty.NEXT_RETRY_AT.val(), "")), false, true);
+
+        ReflectionTestUtils.invokeMethod(jobInfoRepository, "prepareCollection");
+        ReflectionTestUtils.invokeMethod(jobInfoRepository, "prepareCollection");
+
+        final List<JobInfo> dueRetries = jobInfoRepository.findJobsWithDueRetry(Arrays.asList(TESTVALUE_JOBNAME, "other"), new Date());
+        assertEquals(1, dueRetries.size());
+        assertEquals(failedId, dueRetries.get(0).getId());
+    }
+
+    @Test
+    public void testEvaluateRetriesOfMultipleJobs() throws Exception {
+        String id = jobInfoRepository.create("test", TESTVALUE_HOST, TESTVALUE_THREAD, 1000, 1000, 2, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        jobInfoRepository.markAsFinished(id, ResultCode.FAILED);
+        id = jobInfoRepository.create("test2", TESTVALUE_HOST, TESTVALUE_THREAD, 1000, 1000, 2, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        jobInfoRepository.markAsFinished(id, ResultCode.SUCCESSFUL);
+        Map<String, Long> maxRetries = new HashMap<>();
+        maxRetries.put("test", 2L);
+        maxRetries.put("test2", 2L);
+        maxRetries.put("test3", 2L);
+
+        Map<String, Long> retries = jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(maxRetries);
+
+        assertEquals(Long.valueOf(1L), retries.get("test"));
+        assertEquals(Long.valueOf(2L), retries.get("test2"));
+        assertEquals(Long.valueOf(2L), retries.get("test3"));
+    }
+
+    @Test
+    public void testFindQueuedJobsSortedByPriority() throws Exception {
+        createJobInfo("test", 1000, RunningState.QUEUED);
+        Thread.sleep(100);
+        createJobInfo("test2", 1000, RunningState.QUEUED);
+        Thread.sleep(100);
+        jobInfoRepository.create("test3", TESTVALUE_HOST, TESTVALUE_THREAD, 1000, 1000, 0L, RunningState.QUEUED, JobExecutionPriority.FORCE_EXECUTION, null);
+        List<JobInfo> jobs = jobInfoRepository.findQueuedJobsSortedByPriority();
+        assertEquals("test3", jobs.get(0).getName());
+        assertEquals("test", jobs.get(1).getName());
+        assertEquals("test2", jobs.get(2).getName());
+    }
+
     @Test
     public void testUpdateHostAndThreadInformation() throws Exception {
         String id = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
@@ -220,6 +450,53 @@ public class JobInfoRepositoryIntegrationTest extends AbstractTestNGSpringContex
         JobInfo jobInfo = jobInfoRepository.findByNameAndRunningState(TESTVALUE_JOBNAME, RunningState.RUNNING);
         assertEquals(Thread.currentThread().getName(), jobInfo.getThread());
         assertEquals(InternetUtils.getHostName(), jobInfo.getHost());
+        assertEquals(InternetUtils.getInstanceId(), jobInfo.getInstanceId());
+    }
+
+    @Test
+    public void testMarkAsFinishedOnlyIfRunningOnInstance() throws Exception {
+        String id = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+        jobInfoRepository.updateHostThreadInformation(id);
+        assertEquals(1, jobInfoRepository.findRunningJobsByInstanceId(InternetUtils.getInstanceId()).size());
+
+        assertFalse(jobInfoRepository.markAsFinished(id, "otherInstance", ResultCode.FAILED, null));
+        assertTrue(jobInfoRepository.markAsFinished(id, InternetUtils.getInstanceId(), ResultCode.FAILED, null));
+        assertFalse(jobInfoRepository.markAsFinished(id, InternetUtils.getInstanceId(), ResultCode.FAILED, null));
+        assertTrue(jobInfoRepository.findRunningJobsByInstanceId(InternetUtils.getInstanceId()).isEmpty());
+    }
+
+    @Test
+    public void testRequeueRunningJobOnlyIfRunningOnInstance() throws Exception {
+        String id = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+        jobInfoRepository.updateHostThreadInformation(id);
+
+        assertFalse(jobInfoRepository.requeueRunningJob(id, "otherInstance"));
+        assertTrue(jobInfoRepository.requeueRunningJob(id, InternetUtils.getInstanceId()));
+        assertFalse(jobInfoRepository.markAsFinished(id, InternetUtils.getInstanceId(), ResultCode.FAILED, null));
+        final JobInfo jobInfo = jobInfoRepository.findById(id);
+        assertEquals(RunningState.QUEUED.name(), jobInfo.getRunningState());
+        assertEquals(InternetUtils.getInstanceId(), jobInfo.getInstanceId());
+    }
+
+    @Test
+    public void testRequeueRunningJobFailsIfJobIsAlreadyQueued() throws Exception {
+        String id = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+        createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.QUEUED);
+        jobInfoRepository.updateHostThreadInformation(id);
+
+        assertFalse(jobInfoRepository.requeueRunningJob(id, InternetUtils.getInstanceId()));
+        assertEquals(RunningState.RUNNING.name(), jobInfoRepository.findById(id).getRunningState());
+    }
+
+    @Test
+    public void testRunningJobsByInstanceIdAreFoundByIndex() throws Exception {
+        String id = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+        jobInfoRepository.updateHostThreadInformation(id);
+
+        final DBObject explain = mongo.getDB("jobstore").getCollection("jobs").find(new BasicDBObject().
+                append(JobInfoProperty.RUNNING_STATE.val(), RunningState.RUNNING.name()).
+                append(JobInfoProperty.INSTANCE_ID.val(), InternetUtils.getInstanceId())).explain();
+        assertTrue(explain.toString().contains("runningState_instanceId"));
     }
 
     @Test
@@ -413,6 +690,91 @@ public class JobInfoRepositoryIntegrationTest extends AbstractTestNGSpringContex
         assertTrue(retrievedJobInfo.isAborted());
     }
 
+    @Test
+    public void testFindMemoizedJob() throws Exception {
+        final Map<String, String> parameters = new HashMap<>();
+        parameters.put("key", "value");
+        final String hash = JobInfo.hashParameters(parameters);
+        final Date since = new Date(System.currentTimeMillis() - 60 * 1000);
+        final String id = jobInfoRepository.create(TESTVALUE_JOBNAME, TESTVALUE_HOST, TESTVALUE_THREAD, 1000, 1000, 0L,
+                RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
+        assertEquals(id, jobInfoRepository.findMemoizedJob(TESTVALUE_JOBNAME, hash, since).getId());
+        assertNull(jobInfoRepository.findMemoizedJob(TESTVALUE_JOBNAME, JobInfo.hashParameters(null), since));
+
+        jobInfoRepository.markAsFinished(id, ResultCode.SUCCESSFUL);
+        assertEquals(id, jobInfoRepository.findMemoizedJob(TESTVALUE_JOBNAME, hash, since).getId());
+        assertNull(jobInfoRepository.findMemoizedJob(TESTVALUE_JOBNAME, hash, new Date(System.currentTimeMillis() + 1000)));
+    }
+
+    @Test
+    public void testJobsWithDistinctQueueKeysMayBeQueuedTogether() throws Exception {
+        final JobInfo first = newJobInfo(1000L, RunningState.QUEUED);
+        first.setQueueKey("a");
+        final JobInfo second = newJobInfo(1000L, RunningState.QUEUED);
+        second.setQueueKey("b");
+        final JobInfo duplicate = newJobInfo(1000L, RunningState.QUEUED);
+        duplicate.setQueueKey("a");
+        assertNotNull(jobInfoRepository.create(first));
+        assertNotNull(jobInfoRepository.create(second));
+        assertNull(jobInfoRepository.create(duplicate));
+        assertEquals(new HashSet<>(Arrays.asList(first.getId(), second.getId())),
+                jobInfoRepository.findQueuedIds(Arrays.asList(first.getId(), second.getId(), new ObjectId().toString())));
+        assertEquals(second.getId(), jobInfoRepository.findQueuedJobByQueueKey(TESTVALUE_JOBNAME, "b").getId());
+
+        assertTrue(jobInfoRepository.activateQueuedJobById(first.getId()));
+        assertNull(jobInfoRepository.findById(first.getId()).getQueueKey());
+        assertFalse(jobInfoRepository.activateQueuedJobById(second.getId()));
+
+        assertTrue(jobInfoRepository.deactivateRunningJob(first.getId(), "a"));
+        assertEquals(first.getId(), jobInfoRepository.findQueuedJobByQueueKey(TESTVALUE_JOBNAME, "a").getId());
+    }
+
+    @Test
+    public void testRemoveQueuedJob() throws Exception {
+        final String queuedId = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.QUEUED);
+        final String runningId = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+
+        assertFalse(jobInfoRepository.removeQueuedJob(runningId));
+        assertTrue(jobInfoRepository.removeQueuedJob(queuedId));
+        assertNull(jobInfoRepository.findById(queuedId));
+        assertNotNull(jobInfoRepository.findById(runningId));
+    }
+
+    @Test
+    public void testResumableCheckpointOfFailedJob() throws Exception {
+        final String failedId = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+        jobInfoRepository.saveCheckpoint(failedId, "item-42", "offset=42");
+        jobInfoRepository.markAsFinished(failedId, ResultCode.TIMED_OUT);
+        final String hash = JobInfo.hashParameters(null);
+        assertEquals("offset=42", jobInfoRepository.findResumableCheckpoint(TESTVALUE_JOBNAME, hash).getState());
+        assertNull(jobInfoRepository.findResumableCheckpoint(TESTVALUE_JOBNAME, JobInfo.hashParameters(Collections.singletonMap("a", "b"))));
+
+        final String successfulId = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+        assertEquals("item-42", jobInfoRepository.findResumableCheckpoint(TESTVALUE_JOBNAME, hash).getKey());
+        jobInfoRepository.markAsFinished(successfulId, ResultCode.SUCCESSFUL);
+        assertNull(jobInfoRepository.findResumableCheckpoint(TESTVALUE_JOBNAME, hash));
+    }
+
+    @Test
+    public void testResumableCheckpointSkipsJobsWithoutResult() throws Exception {
+        final String failedId = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+        jobInfoRepository.saveCheckpoint(failedId, "item-42", "offset=42");
+        jobInfoRepository.markAsFinished(failedId, ResultCode.FAILED);
+        jobInfoRepository.save(new JobInfo(new Date(System.currentTimeMillis() + 1000), TESTVALUE_JOBNAME, TESTVALUE_HOST, TESTVALUE_THREAD,
+                1000L, 1000L, 0L, RunningState.FINISHED));
+
+        assertEquals("offset=42", jobInfoRepository.findResumableCheckpoint(TESTVALUE_JOBNAME, JobInfo.hashParameters(null)).getState());
+    }
+
+    @Test
+    public void testFindByIdempotencyKey() throws Exception {
+        final String id = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
+        jobInfoRepository.addIdempotencyKeys(id, Arrays.asList("request-1", "request-3"));
+        assertEquals(id, jobInfoRepository.findByIdempotencyKey(TESTVALUE_JOBNAME, "request-1").getId());
+        assertNull(jobInfoRepository.findByIdempotencyKey(TESTVALUE_JOBNAME, "request-2"));
+        assertNull(jobInfoRepository.findByIdempotencyKey("otherJob", "request-1"));
+    }
+
     @Test
     public void testSetStatusMessage() throws Exception {
         String id = createJobInfo(TESTVALUE_JOBNAME, 1000, RunningState.RUNNING);
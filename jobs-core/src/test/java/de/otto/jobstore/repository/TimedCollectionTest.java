@@ -0,0 +1,59 @@
+package de.otto.jobstore.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import de.otto.jobstore.common.JobEventListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.assertSame;
+
+public class TimedCollectionTest {
+
+    private DBCollection dbCollection;
+    private JobEventListener listener;
+    private TimedCollection collection;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dbCollection = mock(DBCollection.class);
+        listener = mock(JobEventListener.class);
+        collection = new TimedCollection(dbCollection, "NodeInfoRepository", listener);
+    }
+
+    @Test
+    public void testOperationIsReported() throws Exception {
+        final DBObject query = new BasicDBObject("nodeId", "node");
+        final DBObject result = new BasicDBObject();
+        when(dbCollection.findOne(query)).thenReturn(result);
+
+        assertSame(result, collection.findOne(query));
+        verify(listener).repositoryCall(eq("NodeInfoRepository"), eq("findOne"), anyLong());
+    }
+
+    @Test
+    public void testFailedOperationIsReported() throws Exception {
+        final DBObject query = new BasicDBObject("nodeId", "node");
+        when(dbCollection.remove(query, WriteConcern.SAFE)).thenThrow(new IllegalStateException());
+
+        try {
+            collection.remove(query, WriteConcern.SAFE);
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        verify(listener).repositoryCall(eq("NodeInfoRepository"), eq("remove"), anyLong());
+    }
+
+    @Test
+    public void testQueryIsNotReportedBeforeItsCursorIsIterated() throws Exception {
+        collection.find(new BasicDBObject());
+
+        verifyZeroInteractions(listener);
+    }
+
+}
@@ -77,7 +77,7 @@ public class JobServiceIntegrationTest extends AbstractTestNGSpringContextTests
         reset(remoteJobExecutorService);
         List<String> logLines = new ArrayList<>();
         Collections.addAll(logLines, "log l.1", "log l.2");
-        when(remoteJobExecutorService.getStatus(any(URI.class))).thenReturn(new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, logLines, "bar"));
+        when(remoteJobExecutorService.getStatus(any(URI.class), anyInt())).thenReturn(new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, logLines, "bar"));
         // verify(remoteJobExecutorService, times(1)).
 
         jobService.pollRemoteJobs();
@@ -90,7 +90,7 @@ public class JobServiceIntegrationTest extends AbstractTestNGSpringContextTests
 
         //testPollingFinishedRemoteJob
         reset(remoteJobExecutorService);
-        when(remoteJobExecutorService.getStatus(any(URI.class))).thenReturn(
+        when(remoteJobExecutorService.getStatus(any(URI.class), anyInt())).thenReturn(
                 new RemoteJobStatus(RemoteJobStatus.Status.FINISHED, logLines, new RemoteJobResult(true, 0, "done"), "date"));
 
         jobService.pollRemoteJobs();
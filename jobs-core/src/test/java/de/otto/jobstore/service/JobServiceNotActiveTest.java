@@ -10,6 +10,8 @@ import de.otto.jobstore.service.exception.JobServiceNotActiveException;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.Date;
+
 import static org.mockito.Mockito.*;
 
 public class JobServiceNotActiveTest {
@@ -58,7 +60,7 @@ public class JobServiceNotActiveTest {
     public void doesNotRetryFailedJobsIfNotActive() throws Exception {
         jobService.retryFailedJobs();
 
-        verify(jobInfoRepository, never()).findMostRecentFinished(JOB_NAME_01);
+        verify(jobInfoRepository, never()).findJobsWithDueRetry(anyCollection(), any(Date.class));
     }
 
     @Test
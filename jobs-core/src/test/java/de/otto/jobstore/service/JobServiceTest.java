@@ -1,15 +1,21 @@
 package de.otto.jobstore.service;
 
+import com.mongodb.MongoException;
 import de.otto.jobstore.TestSetup;
 import de.otto.jobstore.common.*;
 import de.otto.jobstore.common.properties.JobInfoProperty;
 import de.otto.jobstore.common.util.InternetUtils;
+import de.otto.jobstore.repository.AbstractRepository;
+import de.otto.jobstore.repository.ConcurrencyLimitRepository;
 import de.otto.jobstore.repository.JobDefinitionRepository;
 import de.otto.jobstore.repository.JobInfoRepository;
+import de.otto.jobstore.repository.NodeInfoRepository;
 import de.otto.jobstore.service.exception.*;
 import edu.umd.cs.mtc.MultithreadedTestCase;
 import edu.umd.cs.mtc.TestFramework;
 import org.bson.types.ObjectId;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -18,6 +24,8 @@ import org.testng.annotations.Test;
 
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.Mockito.*;
@@ -72,7 +80,7 @@ public class JobServiceTest {
         String jobId2 = "abcd";
         when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.RUNNING)).thenReturn(false);
         when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.QUEUED)).thenReturn(true);
-        when(jobInfoRepository.create(eq(JOB_NAME_02), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING), any(JobExecutionPriority.class), anyMap())).thenReturn(jobId2);
+        when(jobInfoRepository.create(eq(JOB_NAME_02), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING), any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn(jobId2);
         when(jobInfoRepository.deactivateRunningJob(jobId2)).thenReturn(true);
 
         jobService.executeJob(JOB_NAME_02);
@@ -102,7 +110,7 @@ public class JobServiceTest {
         when(jobInfo2Spy.getId()).thenReturn(jobId2);
         when(jobInfoRepository.activateQueuedJobById(jobId2)).thenReturn(true);
 
-        when(jobInfoRepository.findQueuedJobsSortedAscByCreationTime()).thenReturn(Arrays.asList(jobInfo2Spy));
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(Arrays.asList(jobInfo2Spy));
 
         jobService.executeQueuedJobs();
 
@@ -115,6 +123,57 @@ public class JobServiceTest {
         assertFalse(jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0)));
     }
 
+    @Test
+    public void testRegisteringJobsStoresDefinitionsWithOneBulkWrite() throws Exception {
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        assertEquals(jobService.registerJobs(Arrays.asList(TestSetup.localJobRunnable(JOB_NAME_01, 0),
+                TestSetup.localJobRunnable(JOB_NAME_02, 0))), 1);
+
+        verify(jobDefinitionRepository).addOrUpdateAll(argThat(new ArgumentMatcher<Collection<StoredJobDefinition>>() {
+            @Override
+            public boolean matches(Object argument) {
+                final Collection<?> definitions = (Collection<?>) argument;
+                return definitions.size() == 1 && JOB_NAME_02.equals(((StoredJobDefinition) definitions.iterator().next()).getName());
+            }
+        }));
+        verify(jobDefinitionRepository, times(2)).addOrUpdate(any(StoredJobDefinition.class));
+        assertTrue(jobService.listJobNames().contains(JOB_NAME_02));
+    }
+
+    @Test
+    public void testRegisteringJobsWithAsyncDefinitionSync() throws Exception {
+        assertEquals(jobService.registerJobs(Collections.singletonList(TestSetup.localJobRunnable(JOB_NAME_01, 0)), true), 1);
+
+        assertTrue(jobService.listJobNames().contains(JOB_NAME_01));
+        assertTrue(jobService.awaitJobDefinitionsSynced(5, TimeUnit.SECONDS));
+        verify(jobDefinitionRepository).addOrUpdateAll(anyCollection());
+    }
+
+    @Test
+    public void testAsyncDefinitionSyncIsRetriedOnFailure() throws Exception {
+        doThrow(new MongoException("not reachable")).doNothing().when(jobDefinitionRepository).addOrUpdateAll(anyCollection());
+
+        jobService.registerJobs(Collections.singletonList(TestSetup.localJobRunnable(JOB_NAME_01, 0)), true);
+
+        assertTrue(jobService.awaitJobDefinitionsSynced(5, TimeUnit.SECONDS));
+        verify(jobDefinitionRepository, times(2)).addOrUpdateAll(anyCollection());
+    }
+
+    @Test
+    public void testShutdownStopsAsyncDefinitionSync() throws Exception {
+        doThrow(new MongoException("not reachable")).when(jobDefinitionRepository).addOrUpdateAll(anyCollection());
+        jobService.registerJobs(Collections.singletonList(TestSetup.localJobRunnable(JOB_NAME_01, 0)), true);
+        verify(jobDefinitionRepository, timeout(5000)).addOrUpdateAll(anyCollection());
+
+        jobService.shutdownJobs();
+
+        assertFalse(jobService.awaitJobDefinitionsSynced(5, TimeUnit.SECONDS));
+        doNothing().when(jobDefinitionRepository).addOrUpdateAll(anyCollection());
+        jobService.startup();
+        assertTrue(jobService.awaitJobDefinitionsSynced(5, TimeUnit.SECONDS));
+    }
+
     @Test
     public void testAddingRunningConstraintForNotExistingJob() throws Exception {
         Set<String> constraint = new HashSet<>();
@@ -327,7 +386,7 @@ public class JobServiceTest {
         when(jobInfoRepository.activateQueuedJobById(id2.toString())).thenReturn(true);
         when(jobDefinitionRepository.find(JOB_NAME_02)).thenReturn(createSimpleJd());
 
-        when(jobInfoRepository.findQueuedJobsSortedAscByCreationTime()).thenReturn(
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(
                 Arrays.asList(jobInfo, jobInfo2));
 
         // jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
@@ -341,7 +400,7 @@ public class JobServiceTest {
         verify(jobInfoRepository, times(0)).updateHostThreadInformation(jobInfo.getId());
         verify(jobInfoRepository, times(1)).updateHostThreadInformation(jobInfo2.getId());
         assertTrue(runnable.isExecuted());
-        verify(jobInfoRepository, times(1)).markAsFinished(jobInfo2.getId(), ResultCode.SUCCESSFUL, null);
+        verify(jobInfoRepository, times(1)).markAsFinished(jobInfo2.getId(), InternetUtils.getInstanceId(), ResultCode.SUCCESSFUL, null);
     }
 
     @Test
@@ -360,7 +419,7 @@ public class JobServiceTest {
         when(jobInfoRepository.activateQueuedJobById(id2.toString())).thenReturn(true);
         when(jobDefinitionRepository.find(JOB_NAME_02)).thenReturn(createSimpleJd());
 
-        when(jobInfoRepository.findQueuedJobsSortedAscByCreationTime()).thenReturn(
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(
                 Arrays.asList(jobInfo, jobInfo2));
         jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
         TestSetup.LocalMockJobRunnable runnable = TestSetup.localJobRunnable(JOB_NAME_02, 1000);
@@ -372,7 +431,7 @@ public class JobServiceTest {
         verify(jobInfoRepository, times(0)).updateHostThreadInformation(jobInfo.getId());
         verify(jobInfoRepository, times(1)).updateHostThreadInformation(jobInfo2.getId());
         assertTrue(runnable.isExecuted());
-        verify(jobInfoRepository, times(1)).markAsFinished(jobInfo2.getId(), ResultCode.SUCCESSFUL, null);
+        verify(jobInfoRepository, times(1)).markAsFinished(jobInfo2.getId(), InternetUtils.getInstanceId(), ResultCode.SUCCESSFUL, null);
     }
 
 
@@ -391,7 +450,7 @@ public class JobServiceTest {
         when(jobInfoRepository.activateQueuedJobById(id2.toString())).thenReturn(false);
         when(jobDefinitionRepository.find(JOB_NAME_02)).thenReturn(createSimpleJd());
 
-        when(jobInfoRepository.findQueuedJobsSortedAscByCreationTime()).thenReturn(
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(
                 Arrays.asList(jobInfo, jobInfo2));
         TestSetup.LocalMockJobRunnable runnable = TestSetup.localJobRunnable(JOB_NAME_01, 1000);
         jobService.registerJob(runnable);
@@ -403,7 +462,75 @@ public class JobServiceTest {
         verify(jobInfoRepository, times(1)).updateHostThreadInformation(jobInfo.getId());
         verify(jobInfoRepository, times(0)).updateHostThreadInformation(jobInfo2.getId());
         assertTrue(runnable.isExecuted());
-        verify(jobInfoRepository, times(1)).markAsFinished(jobInfo.getId(), ResultCode.SUCCESSFUL, null);
+        verify(jobInfoRepository, times(1)).markAsFinished(jobInfo.getId(), InternetUtils.getInstanceId(), ResultCode.SUCCESSFUL, null);
+    }
+
+    @Test
+    public void testExecuteJobAfterDelayIsQueuedAndDispatchedWhenDue() throws Exception {
+        final ObjectId id = new ObjectId();
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, id);
+        when(jobInfoRepository.create(argThat(new ArgumentMatcher<JobInfo>() {
+            @Override
+            public boolean matches(Object argument) {
+                return RunningState.DELAYED.name().equals(((JobInfo) argument).getRunningState());
+            }
+        }))).thenReturn(id.toString());
+        when(jobInfoRepository.queueDelayedJob(id.toString(), null)).thenReturn(true);
+        when(jobInfoRepository.activateQueuedJobById(id.toString())).thenReturn(true);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        TestSetup.LocalMockJobRunnable runnable = TestSetup.localJobRunnable(JOB_NAME_01, 1000);
+        jobService.registerJob(runnable);
+
+        assertEquals(id.toString(), jobService.executeJobAfter(JOB_NAME_01, 200, TimeUnit.MILLISECONDS, JobService.NO_PARAMETERS));
+        verify(jobInfoRepository, never()).create(anyString(), anyLong(), anyLong(), anyLong(), anyLong(), any(RunningState.class), any(JobExecutionPriority.class), anyMap(), anyString());
+        assertFalse(runnable.isExecuted());
+
+        when(jobInfoRepository.findDueDelayedJobs()).thenReturn(Arrays.asList(jobInfo));
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(Arrays.asList(jobInfo));
+        Thread.sleep(700);
+        assertTrue(runnable.isExecuted());
+        verify(jobInfoRepository).queueDelayedJob(id.toString(), null);
+        verify(jobInfoRepository, times(1)).activateQueuedJobById(id.toString());
+    }
+
+    @Test
+    public void testExecuteJobAtDateInThePastExecutesJobImmediately() throws Exception {
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING), any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn("1234");
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 1000));
+
+        assertEquals("1234", jobService.executeJobAt(JOB_NAME_01, new Date(System.currentTimeMillis() - 1000), JobService.NO_PARAMETERS));
+        verify(jobInfoRepository, never()).create(any(JobInfo.class));
+    }
+
+    @Test
+    public void testExecuteJobAtIfJobIsAlreadyQueued() throws Exception {
+        when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.QUEUED)).
+                thenReturn(createJobInfo(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, RunningState.QUEUED));
+        when(jobInfoRepository.create(any(JobInfo.class))).thenReturn("1234");
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 1000));
+
+        assertEquals("1234", jobService.executeJobAfter(JOB_NAME_01, 1, TimeUnit.HOURS, JobService.NO_PARAMETERS));
+        verify(jobInfoRepository, never()).remove(anyString());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExecuteJobAtBeyondTimeToLiveOfJobs() throws Exception {
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 1000));
+
+        jobService.executeJobAfter(JOB_NAME_01, 7, TimeUnit.DAYS, JobService.NO_PARAMETERS);
+    }
+
+    @Test
+    public void testDispatchingQueuedJobsSchedulesWakeUpForJobsDelayedByOtherInstances() throws Exception {
+        when(jobInfoRepository.findNextNotBefore(any(Date.class))).thenReturn(new Date(System.currentTimeMillis() + 200), (Date) null);
+
+        jobService.executeQueuedJobs();
+        verify(jobInfoRepository, times(1)).findDueDelayedJobs();
+
+        verify(jobInfoRepository, timeout(5000).times(2)).findDueDelayedJobs();
     }
 
     @Test
@@ -412,7 +539,7 @@ public class JobServiceTest {
         when(jobInfoRepository.activateQueuedJobById(id.toString())).thenReturn(true);
         JobInfo jobInfo = new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L, RunningState.QUEUED, JobExecutionPriority.IGNORE_PRECONDITIONS, Collections.<String, String>emptyMap());
         ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, id);
-        when(jobInfoRepository.findQueuedJobsSortedAscByCreationTime()).thenReturn(Arrays.asList(jobInfo));
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(Arrays.asList(jobInfo));
         when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
         TestSetup.LocalMockJobRunnable runnable = TestSetup.localJobRunnable(JOB_NAME_01, 1000);
 
@@ -422,7 +549,7 @@ public class JobServiceTest {
         Thread.sleep(500);
         verify(jobInfoRepository, times(1)).updateHostThreadInformation(jobInfo.getId());
         assertTrue(runnable.isExecuted());
-        verify(jobInfoRepository, times(1)).markAsFinished(jobInfo.getId(), ResultCode.SUCCESSFUL, null);
+        verify(jobInfoRepository, times(1)).markAsFinished(jobInfo.getId(), InternetUtils.getInstanceId(), ResultCode.SUCCESSFUL, null);
     }
 
     @Test
@@ -435,7 +562,7 @@ public class JobServiceTest {
         final ObjectId id2 = new ObjectId();
         ReflectionTestUtils.invokeMethod(jobInfo2, "addProperty", JobInfoProperty.ID, id2);
         when(jobInfoRepository.activateQueuedJobById(id2.toString())).thenReturn(false);
-        when(jobInfoRepository.findQueuedJobsSortedAscByCreationTime()).thenReturn(
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(
                 Arrays.asList(jobInfo, jobInfo2));
         when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
         when(jobDefinitionRepository.find(JOB_NAME_02)).thenReturn(createSimpleJd());
@@ -448,7 +575,7 @@ public class JobServiceTest {
         Thread.sleep(500);
         verify(jobInfoRepository, times(1)).updateHostThreadInformation(jobInfo.getId());
         verify(jobInfoRepository, times(0)).updateHostThreadInformation(jobInfo2.getId());
-        verify(jobInfoRepository, times(1)).markAsFinished(jobInfo.getId(), exception);
+        verify(jobInfoRepository, times(1)).markAsFinished(jobInfo.getId(), InternetUtils.getInstanceId(), exception);
     }
 
     @Test
@@ -456,7 +583,7 @@ public class JobServiceTest {
         final ObjectId id = new ObjectId();
         final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L);
         ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, id);
-        when(jobInfoRepository.findQueuedJobsSortedAscByCreationTime()).thenReturn(
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(
                 Arrays.asList(jobInfo));
         when(jobInfoRepository.hasJob(JOB_NAME_02, RunningState.RUNNING)).thenReturn(Boolean.TRUE);
         when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
@@ -473,9 +600,347 @@ public class JobServiceTest {
         verify(jobInfoRepository, times(0)).updateHostThreadInformation(anyString());
     }
 
+    @Test
+    public void testExecuteQueuedJobsClaimsOnlyFreeCapacityOfNode() throws Exception {
+        final NodeInfoRepository nodeInfoRepository = mock(NodeInfoRepository.class);
+        when(nodeInfoRepository.findActiveNodes(any(Date.class))).thenReturn(
+                Arrays.asList(new NodeInfo("otherNode", "otherNode", 0, 1, 0.0)));
+        jobService.setNodeInfoRepository(nodeInfoRepository);
+        jobService.setMaxConcurrentJobs(1);
+        jobService.setMaxSystemLoad(Double.MAX_VALUE);
+
+        final ObjectId id1 = new ObjectId();
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, id1);
+        final ObjectId id2 = new ObjectId();
+        final JobInfo jobInfo2 = new JobInfo(JOB_NAME_02, "bla", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(jobInfo2, "addProperty", JobInfoProperty.ID, id2);
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(Arrays.asList(jobInfo, jobInfo2));
+        when(jobInfoRepository.activateQueuedJobById(anyString())).thenReturn(true);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        when(jobDefinitionRepository.find(JOB_NAME_02)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_02, 0));
+
+        jobService.executeQueuedJobs();
+
+        verify(jobInfoRepository, times(1)).activateQueuedJobById(id1.toString());
+        verify(jobInfoRepository, times(0)).activateQueuedJobById(id2.toString());
+        verify(jobInfoRepository).recordDispatchAttempt(eq(id2.toString()), any(Date.class), any(Date.class),
+                eq(JobService.BLOCKED_BY_CAPACITY), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testExecuteQueuedJobsStopsAtExhaustedCapacity() throws Exception {
+        final NodeInfoRepository nodeInfoRepository = mock(NodeInfoRepository.class);
+        jobService.setNodeInfoRepository(nodeInfoRepository);
+        jobService.setMaxConcurrentJobs(0);
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.BLOCKED_BY, JobService.BLOCKED_BY_CAPACITY);
+        final JobInfo jobInfo2 = new JobInfo(JOB_NAME_02, "bla", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(jobInfo2, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(Arrays.asList(jobInfo, jobInfo2));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_02, 0));
+
+        jobService.executeQueuedJobs();
+
+        verify(jobInfoRepository, never()).activateQueuedJobById(anyString());
+        verify(jobInfoRepository, never()).recordDispatchAttempt(anyString(), any(Date.class), any(Date.class), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testExecuteQueuedJobsRecordsNothingIfJobWasClaimedElsewhere() throws Exception {
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(Arrays.asList(jobInfo));
+        when(jobInfoRepository.activateQueuedJobById(jobInfo.getId())).thenReturn(false);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        jobService.executeQueuedJobs();
+
+        verify(jobInfoRepository).activateQueuedJobById(jobInfo.getId());
+        verify(jobInfoRepository, never()).recordDispatchAttempt(anyString(), any(Date.class), any(Date.class), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testExecuteQueuedJobsCountsRunningRemoteJobsOfNode() throws Exception {
+        final NodeInfoRepository nodeInfoRepository = mock(NodeInfoRepository.class);
+        jobService.setNodeInfoRepository(nodeInfoRepository);
+        jobService.setMaxConcurrentJobs(2);
+        jobService.setMaxSystemLoad(Double.MAX_VALUE);
+
+        final JobInfo remoteJobInfo = new JobInfo("remoteJob", "bla", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(remoteJobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findRunningJobsByInstanceId(InternetUtils.getInstanceId())).thenReturn(Arrays.asList(remoteJobInfo));
+        final ObjectId id1 = new ObjectId();
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, id1);
+        final ObjectId id2 = new ObjectId();
+        final JobInfo jobInfo2 = new JobInfo(JOB_NAME_02, "bla", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(jobInfo2, "addProperty", JobInfoProperty.ID, id2);
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(Arrays.asList(jobInfo, jobInfo2));
+        when(jobInfoRepository.activateQueuedJobById(anyString())).thenReturn(true);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        when(jobDefinitionRepository.find(JOB_NAME_02)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_02, 0));
+
+        jobService.executeQueuedJobs();
+
+        verify(jobInfoRepository, times(1)).activateQueuedJobById(id1.toString());
+        verify(jobInfoRepository, times(0)).activateQueuedJobById(id2.toString());
+    }
+
+    @Test
+    public void testExecuteQueuedJobsDoesNotClaimIfNodeIsSaturated() throws Exception {
+        final NodeInfoRepository nodeInfoRepository = mock(NodeInfoRepository.class);
+        jobService.setNodeInfoRepository(nodeInfoRepository);
+        jobService.setMaxConcurrentJobs(0);
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(
+                Arrays.asList(new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L)));
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        jobService.executeQueuedJobs();
+
+        verify(jobInfoRepository, times(0)).activateQueuedJobById(anyString());
+    }
+
+    @Test
+    public void testCleanupJobsOfDeadNodes() throws Exception {
+        final NodeInfoRepository nodeInfoRepository = mock(NodeInfoRepository.class);
+        jobService.setNodeInfoRepository(nodeInfoRepository);
+        final NodeInfo deadNode = new NodeInfo("deadNode", "deadHost", 1, 1, 0.0, new Date(0));
+        when(nodeInfoRepository.findExpiredNodes(any(Date.class))).thenReturn(Arrays.asList(deadNode));
+        final ObjectId id = new ObjectId();
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "deadHost", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, id);
+        when(jobInfoRepository.findRunningJobsByInstanceId("deadNode")).thenReturn(Arrays.asList(jobInfo));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        when(jobInfoRepository.requeueRunningJob(id.toString(), "deadNode")).thenReturn(true);
+
+        jobService.cleanupJobsOfDeadNodes();
+
+        verify(jobInfoRepository).requeueRunningJob(id.toString(), "deadNode");
+        verify(jobInfoRepository, never()).markAsFinished(anyString(), anyString(), any(ResultCode.class), anyString());
+        verify(nodeInfoRepository).remove("deadNode");
+    }
+
+    @Test
+    public void testCleanupJobsOfDeadNodesMarksJobAsFailedIfAlreadyQueued() throws Exception {
+        final NodeInfoRepository nodeInfoRepository = mock(NodeInfoRepository.class);
+        jobService.setNodeInfoRepository(nodeInfoRepository);
+        final NodeInfo deadNode = new NodeInfo("deadNode", "deadHost", 1, 1, 0.0, new Date(0));
+        when(nodeInfoRepository.findExpiredNodes(any(Date.class))).thenReturn(Arrays.asList(deadNode));
+        final ObjectId id = new ObjectId();
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "deadHost", "bla", 1000L, 1000L, 0L);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, id);
+        when(jobInfoRepository.findRunningJobsByInstanceId("deadNode")).thenReturn(Arrays.asList(jobInfo));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        when(jobInfoRepository.requeueRunningJob(id.toString(), "deadNode")).thenReturn(false);
+
+        jobService.cleanupJobsOfDeadNodes();
+
+        verify(jobInfoRepository).markAsFinished(eq(id.toString()), eq("deadNode"), eq(ResultCode.FAILED), anyString());
+        verify(nodeInfoRepository).remove("deadNode");
+    }
+
+    @Test
+    public void testExecuteJobIsQueuedIfConcurrencyLimitIsReached() throws Exception {
+        final ConcurrencyLimitRepository concurrencyLimitRepository = mock(ConcurrencyLimitRepository.class);
+        jobService.setConcurrencyLimitRepository(concurrencyLimitRepository);
+        jobService.addConcurrencyLimit("database", 3, Collections.singleton(JOB_NAME_01));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        final String id = new ObjectId().toString();
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING), any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn(id);
+        when(jobInfoRepository.deactivateRunningJob(id)).thenReturn(true);
+        when(concurrencyLimitRepository.acquire("database", 3, id)).thenReturn(false);
+        when(concurrencyLimitRepository.findHolders("database")).thenReturn(Collections.<String>emptyList());
+
+        jobService.executeJob(JOB_NAME_01);
+
+        verify(jobInfoRepository).deactivateRunningJob(id);
+        verify(jobInfoRepository, never()).updateHostThreadInformation(anyString());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testAddingCountingRunningConstraintRequiresConcurrencyLimitRepository() throws Exception {
+        jobService.addRunningConstraintWithoutChecks(new HashSet<>(Arrays.asList(JOB_NAME_01, JOB_NAME_02)), 2);
+    }
+
+    @Test
+    public void testConcurrencyLimitIsReleasedAfterExecution() throws Exception {
+        final ConcurrencyLimitRepository concurrencyLimitRepository = mock(ConcurrencyLimitRepository.class);
+        jobService.setConcurrencyLimitRepository(concurrencyLimitRepository);
+        jobService.addRunningConstraintWithoutChecks(new HashSet<>(Arrays.asList(JOB_NAME_01, JOB_NAME_02)), 2);
+        final String resource = jobService.listConcurrencyLimits().keySet().iterator().next();
+        final TestSetup.LocalMockJobRunnable runnable = TestSetup.localJobRunnable(JOB_NAME_01, 0);
+        jobService.registerJob(runnable);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        final String id = new ObjectId().toString();
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING), any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn(id);
+        when(concurrencyLimitRepository.acquire(resource, 2, id)).thenReturn(true);
+
+        jobService.executeJob(JOB_NAME_01);
+        Thread.sleep(500);
+
+        assertTrue(runnable.isExecuted());
+        verify(concurrencyLimitRepository).release(resource, id);
+    }
+
+    @Test
+    public void testStaleHoldersOfConcurrencyLimitAreReleased() throws Exception {
+        final ConcurrencyLimitRepository concurrencyLimitRepository = mock(ConcurrencyLimitRepository.class);
+        jobService.setConcurrencyLimitRepository(concurrencyLimitRepository);
+        jobService.addConcurrencyLimit("database", 1, Collections.singleton(JOB_NAME_01));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        final String id = new ObjectId().toString();
+        final String staleId = new ObjectId().toString();
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING), any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn(id);
+        when(concurrencyLimitRepository.acquire("database", 1, id)).thenReturn(false, true);
+        when(concurrencyLimitRepository.findHolders("database")).thenReturn(Arrays.asList(staleId));
+        when(jobInfoRepository.findById(staleId)).thenReturn(new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L, RunningState.FINISHED));
+
+        jobService.executeJob(JOB_NAME_01);
+
+        verify(concurrencyLimitRepository).release("database", staleId);
+        verify(jobInfoRepository, never()).deactivateRunningJob(id);
+    }
+
+    @Test
+    public void testExecuteJobIsQueuedIfNotAdmitted() throws Exception {
+        jobService.setAdmissionController(admissionController(AdmissionController.Decision.QUEUE));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.QUEUED), any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn("1234");
+
+        assertEquals("1234", jobService.executeJob(JOB_NAME_01));
+        verify(jobInfoRepository, never()).create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING), any(JobExecutionPriority.class), anyMap(), anyString());
+    }
+
+    @Test(expectedExceptions = JobAdmissionDeniedException.class)
+    public void testExecuteJobIsRejectedIfNotAdmitted() throws Exception {
+        jobService.setAdmissionController(admissionController(AdmissionController.Decision.REJECT));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+
+        jobService.executeJob(JOB_NAME_01);
+    }
+
+    @Test
+    public void testExecuteQueuedJobsIsSkippedIfNotAdmitted() throws Exception {
+        jobService.setAdmissionController(admissionController(AdmissionController.Decision.QUEUE));
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(
+                Arrays.asList(new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L)));
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        jobService.executeQueuedJobs();
+
+        verify(jobInfoRepository, times(0)).activateQueuedJobById(anyString());
+    }
+
+    private AdmissionController admissionController(final AdmissionController.Decision decision) {
+        return new AdmissionController() {
+            @Override
+            public Decision admit(JobDefinition definition, JobExecutionPriority executionPriority, NodeInfo nodeInfo) {
+                return decision;
+            }
+
+            @Override
+            public long getRetryAfterSeconds() {
+                return 10;
+            }
+        };
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobs() throws Exception {
+        final TestSetup.LocalMockJobRunnable runnable = TestSetup.localJobRunnable(JOB_NAME_01, 0);
+        jobService.registerJob(runnable);
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_02, 0));
+        final JobInfo runningJobInfo = new JobInfo(JOB_NAME_02, "bla", "bla", 1000L, 1000L, 0L, RunningState.RUNNING);
+        when(jobInfoRepository.findQueuedAndRunningJobs()).thenReturn(Arrays.asList(runningJobInfo));
+        when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(anyMap())).thenReturn(Collections.singletonMap(JOB_NAME_01, 0L));
+        when(jobInfoRepository.create(anyList(), anyList())).thenReturn(Arrays.asList("1234"));
+
+        final List<JobRequestOutcome> outcomes = jobService.executeJobs(Arrays.asList(
+                new JobRequest(JOB_NAME_01), new JobRequest(JOB_NAME_02), new JobRequest("unknown"), new JobRequest(JOB_NAME_01)));
+        Thread.sleep(500);
+
+        assertEquals(RunningState.RUNNING, outcomes.get(0).getRunningState());
+        assertEquals("1234", outcomes.get(0).getJobId());
+        assertTrue(outcomes.get(1).getException() instanceof JobExecutionNotNecessaryException);
+        assertTrue(outcomes.get(2).getException() instanceof JobNotRegisteredException);
+        assertTrue(outcomes.get(3).getException() instanceof JobAlreadyQueuedException);
+        assertTrue(runnable.isExecuted());
+        verify(jobInfoRepository, times(1)).create(anyList(), anyList());
+        verify(jobInfoRepository, never()).create(anyString(), anyLong(), anyLong(), anyLong(), anyLong(), any(RunningState.class), any(JobExecutionPriority.class), anyMap(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobsQueuesJobViolatingRunningConstraint() throws Exception {
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_02, 0));
+        jobService.addRunningConstraintWithoutChecks(new HashSet<>(Arrays.asList(JOB_NAME_01, JOB_NAME_02)));
+        when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(anyMap())).thenReturn(new HashMap<String, Long>());
+        when(jobInfoRepository.create(anyList(), anyList())).thenReturn(Arrays.asList("1234", null));
+
+        final List<JobRequestOutcome> outcomes = jobService.executeJobs(Arrays.asList(new JobRequest(JOB_NAME_01), new JobRequest(JOB_NAME_02)));
+
+        assertEquals(RunningState.RUNNING, outcomes.get(0).getRunningState());
+        assertTrue(outcomes.get(1).getException() instanceof JobAlreadyQueuedException);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobsDeactivatesJobIfConstrainedJobStartedMeanwhile() throws Exception {
+        final TestSetup.LocalMockJobRunnable runnable = TestSetup.localJobRunnable(JOB_NAME_01, 0);
+        jobService.registerJob(runnable);
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_02, 0));
+        jobService.addRunningConstraintWithoutChecks(new HashSet<>(Arrays.asList(JOB_NAME_01, JOB_NAME_02)));
+        when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(anyMap())).thenReturn(new HashMap<String, Long>());
+        when(jobInfoRepository.create(anyList(), anyList())).thenReturn(Arrays.asList("1234"));
+        when(jobInfoRepository.hasJob(JOB_NAME_02, RunningState.RUNNING)).thenReturn(true);
+        when(jobInfoRepository.deactivateRunningJob("1234")).thenReturn(true);
+
+        final List<JobRequestOutcome> outcomes = jobService.executeJobs(Arrays.asList(new JobRequest(JOB_NAME_01)));
+
+        assertEquals(RunningState.QUEUED, outcomes.get(0).getRunningState());
+        assertEquals("1234", outcomes.get(0).getJobId());
+        verify(jobInfoRepository).deactivateRunningJob("1234");
+        assertFalse(runnable.isExecuted());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobsReplacesQueuedJobWithTheBulkWrite() throws Exception {
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        final JobInfo queuedJobInfo = createJobInfo(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, RunningState.QUEUED);
+        ReflectionTestUtils.invokeMethod(queuedJobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findQueuedAndRunningJobs()).thenReturn(Arrays.asList(queuedJobInfo));
+        when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(anyMap())).thenReturn(new HashMap<String, Long>());
+        when(jobInfoRepository.create(anyList(), anyList())).thenReturn(Arrays.asList("1234"));
+
+        final List<JobRequestOutcome> outcomes = jobService.executeJobs(Arrays.asList(
+                new JobRequest(JOB_NAME_01, JobExecutionPriority.FORCE_EXECUTION), new JobRequest("unknown")));
+
+        assertEquals(RunningState.QUEUED, outcomes.get(0).getRunningState());
+        verify(jobInfoRepository).create(anyList(), eq(Collections.singletonList(queuedJobInfo.getId())));
+        verify(jobInfoRepository, never()).remove(anyString());
+    }
+
     @Test
     public void testExecuteQueuedJobsWhichIsDisabled() throws Exception {
-        when(jobInfoRepository.findQueuedJobsSortedAscByCreationTime()).thenReturn(
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(
                 Arrays.asList(new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L)));
         StoredJobDefinition jd = createSimpleJd();
         jd.setDisabled(true);
@@ -489,7 +954,7 @@ public class JobServiceTest {
 
     @Test
     public void testExecuteQueuedJobAlreadyRunning() throws Exception {
-        when(jobInfoRepository.findQueuedJobsSortedAscByCreationTime()).thenReturn(
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(
                 Arrays.asList(new JobInfo(JOB_NAME_01, "bla", "bla", 1000L, 1000L, 0L)));
         when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.RUNNING)).thenReturn(Boolean.TRUE);
         when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
@@ -519,7 +984,7 @@ public class JobServiceTest {
     public void testExecuteJobWithHigherPriorityOfJobWhichIsAlreadyQueued() throws Exception {
         when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.QUEUED)).
                 thenReturn(createJobInfo(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, RunningState.QUEUED));
-        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 0, RunningState.QUEUED, JobExecutionPriority.IGNORE_PRECONDITIONS, JobService.NO_PARAMETERS))
+        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 0, -1, RunningState.QUEUED, JobExecutionPriority.IGNORE_PRECONDITIONS, JobService.NO_PARAMETERS, null))
                 .thenReturn("1234");
         when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
 
@@ -547,7 +1012,7 @@ public class JobServiceTest {
 
     @Test
     public void testExecuteJobWithHigherPriorityOfJobWhichIsAlreadyRunning() throws Exception {
-        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 0, RunningState.QUEUED, JobExecutionPriority.IGNORE_PRECONDITIONS, JobService.NO_PARAMETERS)).
+        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 0, -1, RunningState.QUEUED, JobExecutionPriority.IGNORE_PRECONDITIONS, JobService.NO_PARAMETERS, null)).
                 thenReturn("1234");
         when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.RUNNING)).
                 thenReturn(createJobInfo(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, RunningState.RUNNING));
@@ -561,7 +1026,7 @@ public class JobServiceTest {
     @Test
     public void testExecuteJobForced() throws Exception {
         final String jobId = "1234";
-        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 0, RunningState.RUNNING, JobExecutionPriority.IGNORE_PRECONDITIONS, JobService.NO_PARAMETERS)).
+        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 0, -1, RunningState.RUNNING, JobExecutionPriority.IGNORE_PRECONDITIONS, JobService.NO_PARAMETERS, null)).
                 thenReturn(jobId);
         when(jobInfoRepository.activateQueuedJobById(jobId)).thenReturn(Boolean.TRUE);
         when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.QUEUED)).thenReturn(Boolean.FALSE);
@@ -576,10 +1041,425 @@ public class JobServiceTest {
         assertTrue(runnable.isExecuted());
     }
 
+    @Test
+    public void testExecutedJobStoresExecutionMetrics() throws Exception {
+        final String jobId = new ObjectId().toString();
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING), any(JobExecutionPriority.class), anyMap(), anyString())).
+                thenReturn(jobId);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        TestSetup.LocalMockJobRunnable runnable = TestSetup.localJobRunnable(JOB_NAME_01, 1000);
+
+        jobService.registerJob(runnable);
+        jobService.executeJob(JOB_NAME_01, JobExecutionPriority.IGNORE_PRECONDITIONS);
+        Thread.sleep(500);
+        assertTrue(runnable.isExecuted());
+        verify(jobInfoRepository, times(1)).setExecutionMetrics(eq(jobId), any(ExecutionMetrics.class));
+    }
+
+    @Test
+    public void testExecuteQueuedJobsRecordsMetrics() throws Exception {
+        final JobInfo jobInfo = new JobInfo(new Date(System.currentTimeMillis() - 1000), JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L,
+                RunningState.QUEUED, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(Collections.singletonList(jobInfo));
+        when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.RUNNING)).thenReturn(Boolean.TRUE);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        final JobMetrics jobMetrics = mock(JobMetrics.class);
+        jobService.setJobMetrics(jobMetrics);
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        jobService.executeQueuedJobs();
+        verify(jobMetrics).queueDepth(1);
+        verify(jobMetrics).dispatchAttempt(JOB_NAME_01, false);
+        verify(jobMetrics, never()).queueWaitTime(anyString(), anyLong());
+        repositoryEventListener(jobInfoRepository).repositoryCall("JobInfoRepository", "find", 42L);
+        verify(jobMetrics).repositoryCall("JobInfoRepository", "find", 42L);
+    }
+
+    @Test
+    public void testExecuteJobReturnsJobWithSameIdempotencyKey() throws Exception {
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L, RunningState.RUNNING);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findByIdempotencyKey(JOB_NAME_01, "request-1")).thenReturn(jobInfo);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        final String id = jobService.executeJob(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS,
+                new HashMap<String, String>(), "request-1");
+        assertEquals(jobInfo.getId(), id);
+        verify(jobInfoRepository, never()).create(anyString(), anyLong(), anyLong(), anyLong(), anyLong(),
+                any(RunningState.class), any(JobExecutionPriority.class), anyMap(), anyString());
+    }
+
+    @Test
+    public void testExecuteJobStoresIdempotencyKey() throws Exception {
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING),
+                any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn("1234");
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        final String id = jobService.executeJob(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS,
+                new HashMap<String, String>(), "request-1");
+        assertEquals("1234", id);
+        verify(jobInfoRepository).addIdempotencyKeys("1234", Collections.singletonList("request-1"));
+    }
+
+    @Test
+    public void testExecuteJobReturnsMemoizedJob() throws Exception {
+        final Map<String, String> parameters = new HashMap<>();
+        parameters.put("key", "value");
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L, RunningState.RUNNING,
+                JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findMemoizedJob(eq(JOB_NAME_01), eq(JobInfo.hashParameters(parameters)), any(Date.class))).thenReturn(jobInfo);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(memoizedJobDefinition(), null));
+
+        assertEquals(jobInfo.getId(), jobService.executeJob(JOB_NAME_01, parameters));
+        verify(jobInfoRepository, never()).findByNameAndRunningState(JOB_NAME_01, RunningState.QUEUED);
+    }
+
+    @Test
+    public void testExecuteJobAtReturnsMemoizedJob() throws Exception {
+        final Map<String, String> parameters = Collections.singletonMap("key", "value");
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L, RunningState.QUEUED,
+                JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findMemoizedJob(eq(JOB_NAME_01), eq(JobInfo.hashParameters(parameters)), any(Date.class))).thenReturn(jobInfo);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(memoizedJobDefinition(), null));
+
+        assertEquals(jobInfo.getId(), jobService.executeJobAfter(JOB_NAME_01, 1, TimeUnit.HOURS, parameters));
+        verify(jobInfoRepository, never()).create(any(JobInfo.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobsReturnsMemoizedJob() throws Exception {
+        final Map<String, String> parameters = Collections.singletonMap("key", "value");
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L, RunningState.RUNNING,
+                JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findQueuedAndRunningJobs()).thenReturn(Arrays.asList(jobInfo));
+        when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(anyMap())).thenReturn(new HashMap<String, Long>());
+        when(jobInfoRepository.create(anyList(), anyList())).thenReturn(Collections.<String>emptyList());
+        jobService.registerJob(TestSetup.localJobRunnable(memoizedJobDefinition(), null));
+
+        final List<JobRequestOutcome> outcomes = jobService.executeJobs(Arrays.asList(
+                new JobRequest(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, parameters)));
+
+        assertEquals(jobInfo.getId(), outcomes.get(0).getJobId());
+        assertEquals(RunningState.RUNNING, outcomes.get(0).getRunningState());
+        verify(jobInfoRepository).create(Collections.<JobInfo>emptyList(), Collections.<String>emptyList());
+        verify(jobInfoRepository, never()).findMemoizedJob(anyString(), anyString(), any(Date.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobsReturnsMostRecentSuccessfulJob() throws Exception {
+        final Map<String, String> parameters = Collections.singletonMap("key", "value");
+        final JobInfo olderJobInfo = new JobInfo(new Date(System.currentTimeMillis() - 2000), JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L,
+                RunningState.FINISHED, JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
+        ReflectionTestUtils.invokeMethod(olderJobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        final JobInfo jobInfo = new JobInfo(new Date(System.currentTimeMillis() - 1000), JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L,
+                RunningState.FINISHED, JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findSuccessfulJobs(anyMap())).thenReturn(Arrays.asList(jobInfo, olderJobInfo));
+        when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(anyMap())).thenReturn(new HashMap<String, Long>());
+        when(jobInfoRepository.create(anyList(), anyList())).thenReturn(Arrays.asList("1234"));
+        jobService.registerJob(TestSetup.localJobRunnable(memoizedJobDefinition(), null));
+
+        final List<JobRequestOutcome> outcomes = jobService.executeJobs(Arrays.asList(
+                new JobRequest(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, parameters),
+                new JobRequest(JOB_NAME_02)));
+
+        assertEquals(jobInfo.getId(), outcomes.get(0).getJobId());
+        verify(jobInfoRepository).findSuccessfulJobs(argThat(new ArgumentMatcher<Map<String, Date>>() {
+            @Override
+            public boolean matches(Object argument) {
+                return Collections.singleton(JOB_NAME_01).equals(((Map<String, Date>) argument).keySet());
+            }
+        }));
+    }
+
+    @Test
+    public void testReplacingQueuedJobKeepsItsIdempotencyKeys() throws Exception {
+        final JobInfo queuedJobInfo = createJobInfo(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, RunningState.QUEUED);
+        ReflectionTestUtils.invokeMethod(queuedJobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        queuedJobInfo.setIdempotencyKeys(Collections.singletonList("request-1"));
+        when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.QUEUED)).thenReturn(queuedJobInfo);
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.QUEUED),
+                eq(JobExecutionPriority.FORCE_EXECUTION), anyMap(), anyString())).thenReturn("1234");
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        assertEquals("1234", jobService.executeJob(JOB_NAME_01, JobExecutionPriority.FORCE_EXECUTION));
+        verify(jobInfoRepository).remove(queuedJobInfo.getId());
+        verify(jobInfoRepository).addIdempotencyKeys("1234", Collections.singletonList("request-1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobsReplacingQueuedJobKeepsItsIdempotencyKeys() throws Exception {
+        final JobInfo queuedJobInfo = createJobInfo(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, RunningState.QUEUED);
+        queuedJobInfo.setIdempotencyKeys(Collections.singletonList("request-1"));
+        when(jobInfoRepository.findQueuedAndRunningJobs()).thenReturn(Arrays.asList(queuedJobInfo));
+        when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(anyMap())).thenReturn(new HashMap<String, Long>());
+        when(jobInfoRepository.create(anyList(), anyList())).thenReturn(Arrays.asList("1234"));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        jobService.executeJobs(Arrays.asList(new JobRequest(JOB_NAME_01, JobExecutionPriority.FORCE_EXECUTION)));
+
+        verify(jobInfoRepository).create(argThat(new ArgumentMatcher<List<JobInfo>>() {
+            @Override
+            public boolean matches(Object argument) {
+                final List<JobInfo> jobInfos = (List<JobInfo>) argument;
+                return jobInfos.size() == 1 && Collections.singletonList("request-1").equals(jobInfos.get(0).getIdempotencyKeys());
+            }
+        }), anyList());
+    }
+
+    @Test
+    public void testExecuteJobWithoutMemoizationWindowDoesNotLookUpMemoizedJob() throws Exception {
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING),
+                any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn("1234");
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        jobService.executeJob(JOB_NAME_01);
+        verify(jobInfoRepository, never()).findMemoizedJob(anyString(), anyString(), any(Date.class));
+        verify(jobInfoRepository, never()).findByIdempotencyKey(anyString(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobsAcceptsSameJobWithDistinctParameters() throws Exception {
+        jobService.registerJob(TestSetup.localJobRunnable(keyedJobDefinition(3), null));
+        when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(anyMap())).thenReturn(new HashMap<String, Long>());
+        when(jobInfoRepository.create(anyList(), anyList())).thenReturn(Arrays.asList("1234", "5678"));
+
+        final List<JobRequestOutcome> outcomes = jobService.executeJobs(Arrays.asList(
+                new JobRequest(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, Collections.singletonMap("key", "a")),
+                new JobRequest(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, Collections.singletonMap("key", "b")),
+                new JobRequest(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, Collections.singletonMap("key", "a"))));
+
+        assertEquals("1234", outcomes.get(0).getJobId());
+        assertEquals(RunningState.QUEUED, outcomes.get(1).getRunningState());
+        assertEquals("5678", outcomes.get(1).getJobId());
+        assertTrue(outcomes.get(2).getException() instanceof JobAlreadyQueuedException);
+    }
+
+    @Test
+    public void testExecuteJobWithOtherParametersIsQueuedBehindRunningJob() throws Exception {
+        final Map<String, String> parameters = Collections.singletonMap("key", "value");
+        final JobInfo runningJobInfo = new JobInfo(JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L, RunningState.RUNNING);
+        when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.RUNNING)).thenReturn(runningJobInfo);
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.QUEUED),
+                any(JobExecutionPriority.class), anyMap(), eq(JobInfo.hashParameters(parameters)))).thenReturn("1234");
+        when(jobDefinitionRepository.reserveQueueSlot(JOB_NAME_01, "1234", 3L)).thenReturn(true);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(keyedJobDefinition(3), null));
+
+        assertEquals("1234", jobService.executeJob(JOB_NAME_01, parameters));
+        verify(jobDefinitionRepository).reserveQueueSlot(JOB_NAME_01, "1234", 3L);
+        verify(jobInfoRepository, never()).removeQueuedJob(anyString());
+    }
+
+    @Test
+    public void testExecuteJobIsQueuedBehindJobsQueuedWithOtherParameters() throws Exception {
+        when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.QUEUED)).thenReturn(true);
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.QUEUED),
+                any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn("1234");
+        when(jobDefinitionRepository.reserveQueueSlot(JOB_NAME_01, "1234", 3L)).thenReturn(true);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(keyedJobDefinition(3), null));
+
+        assertEquals("1234", jobService.executeJob(JOB_NAME_01, Collections.singletonMap("key", "value")));
+    }
+
+    @Test(expectedExceptions = JobExecutionNotNecessaryException.class)
+    public void testExecuteJobIsNotQueuedBehindOtherParametersIfSameJobIsRunning() throws Exception {
+        final Map<String, String> parameters = Collections.singletonMap("key", "value");
+        final JobInfo runningJobInfo = new JobInfo(JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L, RunningState.RUNNING,
+                JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
+        when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.RUNNING)).thenReturn(runningJobInfo);
+        when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.QUEUED)).thenReturn(true);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(keyedJobDefinition(3), null));
+
+        jobService.executeJob(JOB_NAME_01, parameters);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobsMatchesQueuedJobsByQueueKey() throws Exception {
+        final JobInfo queuedJobInfoA = queuedJobInfo(Collections.singletonMap("key", "a"));
+        final JobInfo queuedJobInfoB = queuedJobInfo(Collections.singletonMap("key", "b"));
+        when(jobInfoRepository.findQueuedAndRunningJobs()).thenReturn(Arrays.asList(queuedJobInfoA, queuedJobInfoB));
+        when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(anyMap())).thenReturn(new HashMap<String, Long>());
+        when(jobInfoRepository.create(anyList(), anyList())).thenReturn(Arrays.asList("1234", "5678"));
+        when(jobDefinitionRepository.reserveQueueSlot(eq(JOB_NAME_01), anyString(), eq(3L))).thenReturn(true);
+        jobService.registerJob(TestSetup.localJobRunnable(keyedJobDefinition(3), null));
+
+        final List<JobRequestOutcome> outcomes = jobService.executeJobs(Arrays.asList(
+                new JobRequest(JOB_NAME_01, JobExecutionPriority.FORCE_EXECUTION, Collections.singletonMap("key", "a")),
+                new JobRequest(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, Collections.singletonMap("key", "b")),
+                new JobRequest(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, Collections.singletonMap("key", "c"))));
+
+        assertEquals(RunningState.QUEUED, outcomes.get(0).getRunningState());
+        assertTrue(outcomes.get(1).getException() instanceof JobAlreadyQueuedException);
+        assertEquals(RunningState.QUEUED, outcomes.get(2).getRunningState());
+        verify(jobInfoRepository).create(anyList(), eq(Collections.singletonList(queuedJobInfoA.getId())));
+    }
+
+    @Test
+    public void testExecuteJobFailsIfQueueIsFull() throws Exception {
+        final List<String> queueSlots = Arrays.asList("a", "b", "c");
+        when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.QUEUED)).thenReturn(true);
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.QUEUED),
+                any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn("1234");
+        when(jobDefinitionRepository.findQueueSlots(JOB_NAME_01)).thenReturn(new ArrayList<>(queueSlots));
+        when(jobInfoRepository.findQueuedIds(queueSlots)).thenReturn(new HashSet<>(queueSlots));
+        when(jobInfoRepository.removeQueuedJob("1234")).thenReturn(true);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(keyedJobDefinition(3), null));
+
+        try {
+            jobService.executeJob(JOB_NAME_01, Collections.singletonMap("key", "value"));
+            fail("JobAlreadyQueuedException expected");
+        } catch (JobAlreadyQueuedException e) {
+            verify(jobInfoRepository).removeQueuedJob("1234");
+            verify(jobDefinitionRepository, never()).releaseQueueSlots(anyString(), anyCollection());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobReleasesQueueSlotsOfJobsWhichLeftTheQueue() throws Exception {
+        when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.QUEUED)).thenReturn(true);
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.QUEUED),
+                any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn("1234");
+        when(jobDefinitionRepository.reserveQueueSlot(JOB_NAME_01, "1234", 3L)).thenReturn(false, true);
+        when(jobDefinitionRepository.findQueueSlots(JOB_NAME_01)).thenReturn(new ArrayList<>(Arrays.asList("a", "b", "c")));
+        when(jobInfoRepository.findQueuedIds(anyCollection())).thenReturn(new HashSet<>(Arrays.asList("a", "c")));
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(keyedJobDefinition(3), null));
+
+        assertEquals("1234", jobService.executeJob(JOB_NAME_01, Collections.singletonMap("key", "value")));
+        verify(jobDefinitionRepository).releaseQueueSlots(JOB_NAME_01, Collections.singletonList("b"));
+        verify(jobInfoRepository, never()).removeQueuedJob(anyString());
+    }
+
+    @Test
+    public void testExecuteJobKeepsJobWhichWasDispatchedWhileQueueWasFull() throws Exception {
+        when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.QUEUED)).thenReturn(true);
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.QUEUED),
+                any(JobExecutionPriority.class), anyMap(), anyString())).thenReturn("1234");
+        when(jobInfoRepository.removeQueuedJob("1234")).thenReturn(false);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(keyedJobDefinition(3), null));
+
+        assertEquals("1234", jobService.executeJob(JOB_NAME_01, Collections.singletonMap("key", "value")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteJobsWithdrawsQueuedJobIfQueueIsFull() throws Exception {
+        final JobInfo queuedJobInfo = queuedJobInfo(Collections.singletonMap("key", "a"));
+        when(jobInfoRepository.findQueuedAndRunningJobs()).thenReturn(Arrays.asList(queuedJobInfo));
+        when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(anyMap())).thenReturn(new HashMap<String, Long>());
+        when(jobInfoRepository.create(anyList(), anyList())).thenReturn(Arrays.asList("1234"));
+        when(jobInfoRepository.removeQueuedJob("1234")).thenReturn(true);
+        jobService.registerJob(TestSetup.localJobRunnable(keyedJobDefinition(3), null));
+
+        final List<JobRequestOutcome> outcomes = jobService.executeJobs(Arrays.asList(
+                new JobRequest(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, Collections.singletonMap("key", "b"))));
+
+        assertTrue(outcomes.get(0).getException() instanceof JobAlreadyQueuedException);
+        verify(jobInfoRepository).removeQueuedJob("1234");
+    }
+
+    @Test
+    public void testExecuteQueuedJobsRecordsFirstDispatchAttempt() throws Exception {
+        final Date creationTime = new Date(System.currentTimeMillis() - 1000);
+        final JobInfo jobInfo = new JobInfo(creationTime, JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L,
+                RunningState.QUEUED, JobExecutionPriority.CHECK_PRECONDITIONS, null);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(Collections.singletonList(jobInfo));
+        when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.RUNNING)).thenReturn(Boolean.TRUE);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        jobService.executeQueuedJobs();
+        verify(jobInfoRepository).recordDispatchAttempt(eq(jobInfo.getId()), any(Date.class), eq(creationTime),
+                eq(JobService.BLOCKED_BY_JOB + JOB_NAME_01), anyLong(), eq(0L));
+    }
+
+    @Test
+    public void testExecuteQueuedJobsAccountsWaitTimeToBlockingConstraint() throws Exception {
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L, RunningState.QUEUED);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.LAST_DISPATCH_ATTEMPT, new Date(System.currentTimeMillis() - 60000));
+        when(jobInfoRepository.findQueuedJobsSortedByPriority()).thenReturn(Collections.singletonList(jobInfo));
+        when(jobInfoRepository.activateQueuedJobById(jobInfo.getId())).thenReturn(Boolean.TRUE);
+        when(jobInfoRepository.hasJob(JOB_NAME_02, RunningState.RUNNING)).thenReturn(Boolean.TRUE);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_02, 0));
+        jobService.addRunningConstraintWithoutChecks(new HashSet<>(Arrays.asList(JOB_NAME_01, JOB_NAME_02)));
+
+        jobService.executeQueuedJobs();
+        verify(jobInfoRepository).deactivateRunningJob(jobInfo.getId());
+        verify(jobInfoRepository).recordDispatchAttempt(eq(jobInfo.getId()), any(Date.class), (Date) isNull(),
+                eq(JobService.BLOCKED_BY_JOB + JOB_NAME_02), eq(0L), longThat(new ArgumentMatcher<Long>() {
+                    @Override
+                    public boolean matches(Object argument) {
+                        return (Long) argument >= 60000;
+                    }
+                }));
+    }
+
+    @Test
+    public void testExecutedJobNotifiesEventListeners() throws Exception {
+        final String jobId = new ObjectId().toString();
+        when(jobInfoRepository.create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING), any(JobExecutionPriority.class), anyMap(), anyString())).
+                thenReturn(jobId);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(createSimpleJd());
+        final JobEventListener listener = mock(JobEventListener.class);
+        jobService.addJobEventListener(listener);
+        jobService.registerJob(TestSetup.localJobRunnable(JOB_NAME_01, 0));
+
+        jobService.executeJob(JOB_NAME_01, JobExecutionPriority.IGNORE_PRECONDITIONS);
+        verify(listener, timeout(500)).jobStarted(JOB_NAME_01, jobId, JobExecutionPriority.IGNORE_PRECONDITIONS);
+        repositoryEventListener(jobDefinitionRepository).repositoryCall("JobDefinitionRepository", "findOne", 42L);
+        verify(listener).repositoryCall("JobDefinitionRepository", "findOne", 42L);
+    }
+
+    @Test
+    public void testOptionalRepositoriesNotifyEventListeners() throws Exception {
+        final NodeInfoRepository nodeInfoRepository = mock(NodeInfoRepository.class);
+        final ConcurrencyLimitRepository concurrencyLimitRepository = mock(ConcurrencyLimitRepository.class);
+        final JobEventListener listener = mock(JobEventListener.class);
+        jobService.addJobEventListener(listener);
+        jobService.setNodeInfoRepository(nodeInfoRepository);
+        jobService.setConcurrencyLimitRepository(concurrencyLimitRepository);
+
+        repositoryEventListener(nodeInfoRepository).repositoryCall("NodeInfoRepository", "update", 42L);
+        repositoryEventListener(concurrencyLimitRepository).repositoryCall("ConcurrencyLimitRepository", "update", 43L);
+        verify(listener).repositoryCall("NodeInfoRepository", "update", 42L);
+        verify(listener).repositoryCall("ConcurrencyLimitRepository", "update", 43L);
+    }
+
+    private JobEventListener repositoryEventListener(AbstractRepository<?> repository) {
+        final ArgumentCaptor<JobEventListener> listener = ArgumentCaptor.forClass(JobEventListener.class);
+        verify(repository).addJobEventListener(listener.capture());
+        return listener.getValue();
+    }
+
     @Test
     public void testExecuteJobForcedFailedWithException() throws Exception {
         final String jobId = "1234";
-        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 0, RunningState.RUNNING, JobExecutionPriority.IGNORE_PRECONDITIONS, JobService.NO_PARAMETERS)).
+        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 0, -1, RunningState.RUNNING, JobExecutionPriority.IGNORE_PRECONDITIONS, JobService.NO_PARAMETERS, null)).
                 thenReturn(jobId);
         when(jobInfoRepository.activateQueuedJobById(JOB_NAME_01)).thenReturn(Boolean.TRUE);
         when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.QUEUED)).thenReturn(Boolean.FALSE);
@@ -592,7 +1472,7 @@ public class JobServiceTest {
         String id = jobService.executeJob(JOB_NAME_01, JobExecutionPriority.IGNORE_PRECONDITIONS);
         assertEquals(jobId, id);
         Thread.sleep(500);
-        verify(jobInfoRepository, times(1)).markAsFinished(id, exception);
+        verify(jobInfoRepository, times(1)).markAsFinished(id, InternetUtils.getInstanceId(), exception);
     }
 
     @Test
@@ -634,13 +1514,17 @@ public class JobServiceTest {
 
         final String jobId = "1234";
 
-        final JobInfo jobInfo = new JobInfo(jobId, "localhost", "thread", 0L, 0L, 2L, RunningState.FINISHED);
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "localhost", "thread", 0L, 0L, 2L, RunningState.FINISHED);
+        final ObjectId failedId = new ObjectId();
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, failedId);
         jobInfo.setResultState(ResultCode.FAILED);
 
-        when(jobInfoRepository.findMostRecentFinished(JOB_NAME_01)).thenReturn(jobInfo);
+        when(jobInfoRepository.findJobsWithDueRetry(anyCollection(), any(Date.class))).thenReturn(Arrays.asList(jobInfo));
+        when(jobInfoRepository.claimRetry(failedId.toString())).thenReturn(true);
         when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(JOB_NAME_01, 2L)).thenCallRealMethod();
+        when(jobInfoRepository.findMostRecentFinished(JOB_NAME_01)).thenReturn(jobInfo);
 
-        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 2, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, JobService.NO_PARAMETERS)).
+        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, JobService.NO_PARAMETERS, null)).
                 thenReturn(jobId);
         when(jobInfoRepository.activateQueuedJobById(JOB_NAME_01)).thenReturn(Boolean.TRUE);
         when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.QUEUED)).thenReturn(Boolean.FALSE);
@@ -656,7 +1540,8 @@ public class JobServiceTest {
         jobService.doRetryFailedJobs();
 
         assertEquals(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(JOB_NAME_01, 2L), 1L);
-        verify(jobInfoRepository, times(1)).create(JOB_NAME_01, 0, 0, 2, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, JobService.NO_PARAMETERS);
+        verify(jobInfoRepository, times(1)).claimRetry(failedId.toString());
+        verify(jobInfoRepository, times(1)).create(JOB_NAME_01, 0, 0, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, JobService.NO_PARAMETERS, null);
     }
 
     @Test
@@ -664,16 +1549,18 @@ public class JobServiceTest {
 
         final String jobId = "1234";
 
-        final JobInfo jobInfo = new JobInfo(jobId, "localhost", "thread", 0L, 0L, 2L, RunningState.FINISHED);
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "localhost", "thread", 0L, 0L, 2L, RunningState.FINISHED);
+        final ObjectId successfulId = new ObjectId();
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, successfulId);
         jobInfo.setResultState(ResultCode.SUCCESSFUL);
 
-        when(jobInfoRepository.findMostRecentFinished(JOB_NAME_01)).thenReturn(jobInfo);
+        when(jobInfoRepository.findJobsWithDueRetry(anyCollection(), any(Date.class))).thenReturn(Arrays.asList(jobInfo));
+        when(jobInfoRepository.claimRetry(successfulId.toString())).thenReturn(true);
         when(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(JOB_NAME_01, 2L)).thenCallRealMethod();
+        when(jobInfoRepository.findMostRecentFinished(JOB_NAME_01)).thenReturn(jobInfo);
 
-
-        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 2, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, JobService.NO_PARAMETERS)).
+        when(jobInfoRepository.create(JOB_NAME_01, 0, 0, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, JobService.NO_PARAMETERS, null)).
                 thenReturn(jobId);
-        when(jobInfoRepository.activateQueuedJobById(JOB_NAME_01)).thenReturn(Boolean.TRUE);
         when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.QUEUED)).thenReturn(Boolean.FALSE);
         when(jobInfoRepository.hasJob(JOB_NAME_01, RunningState.RUNNING)).thenReturn(Boolean.FALSE);
 
@@ -687,7 +1574,85 @@ public class JobServiceTest {
         jobService.doRetryFailedJobs();
 
         assertEquals(jobInfoRepository.evaluateRetriesBasedOnPreviouslyFailedJobs(JOB_NAME_01, 2L), 2L);
-        verify(jobInfoRepository, times(0)).create(JOB_NAME_01, 0, 0, 2, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, JobService.NO_PARAMETERS);
+        verify(jobInfoRepository, times(1)).claimRetry(successfulId.toString());
+        verify(jobInfoRepository, times(0)).create(JOB_NAME_01, 0, 0, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, JobService.NO_PARAMETERS, null);
+    }
+
+    @Test
+    public void testNoRetryJobWithoutDueRetry() throws Exception {
+        when(jobInfoRepository.findJobsWithDueRetry(anyCollection(), any(Date.class))).thenReturn(Collections.<JobInfo>emptyList());
+
+        StoredJobDefinition jd = new StoredJobDefinition(JOB_NAME_01, 0, 0, 0, 2, 0, false, false);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(jd);
+
+        jobService.registerJob(TestSetup.localJobRunnable(jd, null));
+
+        jobService.doRetryFailedJobs();
+
+        verify(jobInfoRepository, never()).findMostRecentFinished(JOB_NAME_01);
+        verify(jobInfoRepository, times(0)).create(JOB_NAME_01, 0, 0, 2, 0, RunningState.RUNNING, JobExecutionPriority.CHECK_PRECONDITIONS, JobService.NO_PARAMETERS, null);
+    }
+
+    @Test
+    public void testNoRetryJobIfRetryWasClaimedByOtherInstance() throws Exception {
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "localhost", "thread", 0L, 0L, 2L, RunningState.FINISHED);
+        final ObjectId failedId = new ObjectId();
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, failedId);
+        jobInfo.setResultState(ResultCode.FAILED);
+        when(jobInfoRepository.findJobsWithDueRetry(anyCollection(), any(Date.class))).thenReturn(Arrays.asList(jobInfo));
+        when(jobInfoRepository.claimRetry(failedId.toString())).thenReturn(false);
+
+        StoredJobDefinition jd = new StoredJobDefinition(JOB_NAME_01, 0, 0, 0, 2, 0, false, false);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(jd);
+
+        jobService.registerJob(TestSetup.localJobRunnable(jd, null));
+
+        jobService.doRetryFailedJobs();
+
+        verify(jobInfoRepository, never()).create(anyString(), anyLong(), anyLong(), anyLong(), anyLong(), any(RunningState.class), any(JobExecutionPriority.class), anyMap(), anyString());
+    }
+
+    @Test
+    public void testRetryJobWithParametersOfFailedJob() throws Exception {
+        final Map<String, String> parameters = Collections.singletonMap("key", "value");
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "localhost", "thread", 0L, 0L, 2L, RunningState.FINISHED,
+                JobExecutionPriority.CHECK_PRECONDITIONS, parameters);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        jobInfo.setResultState(ResultCode.FAILED);
+        when(jobInfoRepository.findJobsWithDueRetry(anyCollection(), any(Date.class))).thenReturn(Arrays.asList(jobInfo));
+        when(jobInfoRepository.claimRetry(jobInfo.getId())).thenReturn(true);
+
+        StoredJobDefinition jd = new StoredJobDefinition(JOB_NAME_01, 0, 0, 0, 2, 0, false, false);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(jd);
+        jobService.registerJob(TestSetup.localJobRunnable(jd, null));
+
+        jobService.doRetryFailedJobs();
+
+        verify(jobInfoRepository).create(eq(JOB_NAME_01), anyLong(), anyLong(), anyLong(), anyLong(), eq(RunningState.RUNNING),
+                eq(JobExecutionPriority.CHECK_PRECONDITIONS), eq(parameters), anyString());
+    }
+
+    @Test
+    public void testRetryIsReleasedIfJobCouldNotBeExecuted() throws Exception {
+        final JobInfo jobInfo = new JobInfo(JOB_NAME_01, "localhost", "thread", 0L, 0L, 2L, RunningState.FINISHED);
+        final ObjectId failedId = new ObjectId();
+        final Date nextRetryAt = new Date();
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, failedId);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.NEXT_RETRY_AT, nextRetryAt);
+        jobInfo.setResultState(ResultCode.FAILED);
+        when(jobInfoRepository.findJobsWithDueRetry(anyCollection(), any(Date.class))).thenReturn(Arrays.asList(jobInfo));
+        when(jobInfoRepository.claimRetry(failedId.toString())).thenReturn(true);
+
+        StoredJobDefinition jd = new StoredJobDefinition(JOB_NAME_01, 0, 0, 0, 2, 0, false, false);
+        jd.setDisabled(true);
+        when(jobDefinitionRepository.find(JOB_NAME_01)).thenReturn(jd);
+
+        jobService.registerJob(TestSetup.localJobRunnable(jd, null));
+
+        jobService.doRetryFailedJobs();
+
+        verify(jobInfoRepository, never()).create(anyString(), anyLong(), anyLong(), anyLong(), anyLong(), any(RunningState.class), any(JobExecutionPriority.class), anyMap(), anyString());
+        verify(jobInfoRepository).releaseRetry(failedId.toString(), nextRetryAt);
     }
 
 
@@ -704,7 +1669,7 @@ public class JobServiceTest {
         when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.RUNNING)).
                 thenReturn(new JobInfo(JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L));
         jobService.pollRemoteJobs();
-        verify(remoteJobExecutorService, times(0)).getStatus(any(URI.class));
+        verify(remoteJobExecutorService, times(0)).getStatus(any(URI.class), anyInt());
     }
 
     @Test
@@ -718,10 +1683,115 @@ public class JobServiceTest {
         when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.RUNNING)).thenReturn(job);
 
         List<String> logLines = Arrays.asList("test", "test1");
-        when(remoteJobExecutorService.getStatus(any(URI.class)))
+        when(remoteJobExecutorService.getStatus(any(URI.class), anyInt()))
                 .thenReturn(new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, logLines, null, null));
         jobService.pollRemoteJobs();
-        verify(jobInfoRepository, times(1)).appendLogLines(job.getId(), logLines);
+        verify(jobInfoRepository, times(1)).appendLogLines(job.getId(), logLines, 2);
+    }
+
+    @Test
+    public void testPollRemoteJobsConcurrently() throws Exception {
+        // stubbed answers of one mock are synchronized, so every job needs its own executor service
+        final RemoteJobExecutorService remoteJobExecutorService2 = mock(RemoteJobExecutorService.class);
+        registerRunningRemoteJob(JOB_NAME_01, remoteJobExecutorService);
+        registerRunningRemoteJob(JOB_NAME_02, remoteJobExecutorService2);
+        final Answer<RemoteJobStatus> slowAnswer = new Answer<RemoteJobStatus>() {
+            @Override
+            public RemoteJobStatus answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(500);
+                return new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, Collections.<String>emptyList(), null, null);
+            }
+        };
+        when(remoteJobExecutorService.getStatus(any(URI.class), anyInt())).thenAnswer(slowAnswer);
+        when(remoteJobExecutorService2.getStatus(any(URI.class), anyInt())).thenAnswer(slowAnswer);
+
+        final long start = System.currentTimeMillis();
+        jobService.pollRemoteJobs();
+
+        assertTrue(System.currentTimeMillis() - start < 900);
+        verify(remoteJobExecutorService).getStatus(any(URI.class), anyInt());
+        verify(remoteJobExecutorService2).getStatus(any(URI.class), anyInt());
+    }
+
+    @Test
+    public void testPollRemoteJobsDoesNotWaitLongerThanTimeout() throws Exception {
+        registerRunningRemoteJob(JOB_NAME_01, remoteJobExecutorService);
+        jobService.setRemotePollTimeout(100);
+        when(remoteJobExecutorService.getStatus(any(URI.class), anyInt())).thenAnswer(new Answer<RemoteJobStatus>() {
+            @Override
+            public RemoteJobStatus answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(2000);
+                return null;
+            }
+        });
+
+        final long start = System.currentTimeMillis();
+        jobService.pollRemoteJobs();
+
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void testPollRemoteJobsSkipsJobWithPollInFlight() throws Exception {
+        registerRunningRemoteJob(JOB_NAME_01, remoteJobExecutorService);
+        jobService.setRemotePollTimeout(100);
+        final CountDownLatch pollReleased = new CountDownLatch(1);
+        final AtomicInteger polls = new AtomicInteger();
+        when(remoteJobExecutorService.getStatus(any(URI.class), anyInt())).thenAnswer(new Answer<RemoteJobStatus>() {
+            @Override
+            public RemoteJobStatus answer(InvocationOnMock invocation) throws Throwable {
+                polls.incrementAndGet();
+                pollReleased.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        });
+
+        jobService.pollRemoteJobs();
+        jobService.pollRemoteJobs();
+        assertEquals(1, polls.get());
+
+        pollReleased.countDown();
+        Thread.sleep(200);
+        jobService.pollRemoteJobs();
+        assertEquals(2, polls.get());
+    }
+
+    private void registerRunningRemoteJob(String name, RemoteJobExecutorService executorService) {
+        jobService.registerJob(new RemoteMockJobRunnable(name, executorService, jobInfoService, 0, 0));
+        final JobInfo job = new JobInfo(name, "host", "thread", 1000L, 1000L, 0L);
+        job.putAdditionalData(JobInfoProperty.REMOTE_JOB_URI.val(), "http://example.com/" + name);
+        ReflectionTestUtils.invokeMethod(job, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findById(job.getId())).thenReturn(job);
+        when(jobInfoRepository.findByNameAndRunningState(name, RunningState.RUNNING)).thenReturn(job);
+    }
+
+    @Test
+    public void testUpdateRemoteJobStatusWithCallbackToken() throws Exception {
+        jobService.registerJob(jobRunnable);
+        final JobInfo job = runningJobWithCallbackToken("secret");
+        job.appendLogLine(new LogLine("line 1", new Date()));
+
+        jobService.updateRemoteJobStatus(JOB_NAME_01, job.getId(), "secret", new RemoteJobStatus(RemoteJobStatus.Status.FINISHED,
+                Arrays.asList("line 1", "line 2"), new RemoteJobResult(true, 0, "done"), null));
+
+        verify(jobInfoRepository).appendLogLines(job.getId(), Collections.singletonList("line 2"), 2);
+        verify(jobInfoRepository).markAsFinished(job.getId(), ResultCode.SUCCESSFUL, "done");
+    }
+
+    @Test(expectedExceptions = InvalidCallbackTokenException.class)
+    public void testUpdateRemoteJobStatusWithInvalidCallbackToken() throws Exception {
+        jobService.registerJob(jobRunnable);
+        final JobInfo job = runningJobWithCallbackToken("secret");
+
+        jobService.updateRemoteJobStatus(JOB_NAME_01, job.getId(), "guessed", new RemoteJobStatus(RemoteJobStatus.Status.RUNNING, null, "running"));
+    }
+
+    private JobInfo runningJobWithCallbackToken(String callbackToken) {
+        final JobInfo job = new JobInfo(JOB_NAME_01, "host", "thread", 1000L, 1000L, 0L, RunningState.RUNNING);
+        ReflectionTestUtils.invokeMethod(job, "addProperty", JobInfoProperty.ID, new ObjectId());
+        ReflectionTestUtils.invokeMethod(job, "addProperty", JobInfoProperty.CALLBACK_TOKEN_HASH, JobInfo.hashCallbackToken(callbackToken));
+        when(jobInfoRepository.findById(job.getId())).thenReturn(job);
+        return job;
     }
 
     @Test
@@ -734,7 +1804,7 @@ public class JobServiceTest {
         when(jobInfoRepository.findById(id.toString())).thenReturn(job);
         when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.RUNNING)).thenReturn(job);
         List<String> logLines = Arrays.asList("test", "test1");
-        when(remoteJobExecutorService.getStatus(any(URI.class))).thenReturn(
+        when(remoteJobExecutorService.getStatus(any(URI.class), anyInt())).thenReturn(
                 new RemoteJobStatus(RemoteJobStatus.Status.FINISHED, logLines, new RemoteJobResult(false, 1, "foo"), null));
 
         jobService.pollRemoteJobs();
@@ -754,7 +1824,7 @@ public class JobServiceTest {
         when(jobInfoRepository.findById(id.toString())).thenReturn(job);
         when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.RUNNING)).thenReturn(job);
         List<String> logLines = Arrays.asList("test", "test1");
-        when(remoteJobExecutorService.getStatus(any(URI.class))).thenReturn(
+        when(remoteJobExecutorService.getStatus(any(URI.class), anyInt())).thenReturn(
                 new RemoteJobStatus(RemoteJobStatus.Status.FINISHED, logLines, new RemoteJobResult(true, 0, "foo"), null));
 
         jobService.pollRemoteJobs();
@@ -775,7 +1845,7 @@ public class JobServiceTest {
         when(jobInfoRepository.findById(id.toString())).thenReturn(job);
         when(jobInfoRepository.findByNameAndRunningState(JOB_NAME_01, RunningState.RUNNING)).thenReturn(job);
         List<String> logLines = Arrays.asList("test", "test1");
-        when(remoteJobExecutorService.getStatus(any(URI.class))).thenReturn(
+        when(remoteJobExecutorService.getStatus(any(URI.class), anyInt())).thenReturn(
                 new RemoteJobStatus(RemoteJobStatus.Status.FINISHED, logLines, new RemoteJobResult(true, 0, "foo"), null));
 
         jobService.pollRemoteJobs();
@@ -898,8 +1968,64 @@ public class JobServiceTest {
         return new JobInfo(name, "test", "test", 1000L, 1000L, 0L, runningState, executionPriority, Collections.<String, String>emptyMap());
     }
 
+    private JobInfo queuedJobInfo(Map<String, String> parameters) {
+        final JobInfo jobInfo = createJobInfo(JOB_NAME_01, JobExecutionPriority.CHECK_PRECONDITIONS, RunningState.QUEUED);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        jobInfo.setParameters(parameters);
+        jobInfo.setQueueKey(JobInfo.hashParameters(parameters));
+        return jobInfo;
+    }
+
     private StoredJobDefinition createSimpleJd() {
         return new StoredJobDefinition("foo", 0, 0, 0, 0, 0, false, false);
     }
 
+    private AbstractLocalJobDefinition memoizedJobDefinition() {
+        return new AbstractLocalJobDefinition() {
+            @Override
+            public String getName() {
+                return JOB_NAME_01;
+            }
+
+            @Override
+            public long getMaxIdleTime() {
+                return 1000;
+            }
+
+            @Override
+            public long getMaxExecutionTime() {
+                return 1000;
+            }
+
+            @Override
+            public long getMemoizationWindow() {
+                return TimeUnit.HOURS.toMillis(1);
+            }
+        };
+    }
+
+    private AbstractLocalJobDefinition keyedJobDefinition(final long maxQueueDepth) {
+        return new AbstractLocalJobDefinition() {
+            @Override
+            public String getName() {
+                return JOB_NAME_01;
+            }
+
+            @Override
+            public long getMaxIdleTime() {
+                return 1000;
+            }
+
+            @Override
+            public long getMaxExecutionTime() {
+                return 1000;
+            }
+
+            @Override
+            public long getMaxQueueDepth() {
+                return maxQueueDepth;
+            }
+        };
+    }
+
 }
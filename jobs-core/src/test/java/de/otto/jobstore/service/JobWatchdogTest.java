@@ -0,0 +1,125 @@
+package de.otto.jobstore.service;
+
+import de.otto.jobstore.common.JobInfo;
+import de.otto.jobstore.common.ResultCode;
+import de.otto.jobstore.common.RunningState;
+import de.otto.jobstore.common.properties.JobInfoProperty;
+import de.otto.jobstore.common.util.InternetUtils;
+import de.otto.jobstore.repository.JobInfoRepository;
+import org.bson.types.ObjectId;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class JobWatchdogTest {
+
+    private JobInfoRepository jobInfoRepository;
+    private JobWatchdog watchdog;
+    private Thread worker;
+    private CountDownLatch interrupted;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        jobInfoRepository = mock(JobInfoRepository.class);
+        watchdog = new JobWatchdog(jobInfoRepository);
+        final CountDownLatch workerInterrupted = new CountDownLatch(1);
+        interrupted = workerInterrupted;
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                } catch (InterruptedException e) {
+                    workerInterrupted.countDown();
+                }
+            }
+        });
+        worker.start();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        watchdog.shutdown();
+        worker.interrupt();
+    }
+
+    @Test
+    public void testJobExceedingMaxExecutionTimeIsInterruptedAndMarkedAsTimedOut() throws Exception {
+        final JobInfo jobInfo = runningJobInfo(new Date(System.currentTimeMillis() - 1000), 100L, 60000L);
+        when(jobInfoRepository.findById(jobInfo.getId())).thenReturn(jobInfo);
+
+        watchdog.watch(jobInfo.getId(), worker, 100L, 60000L);
+
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+        verify(jobInfoRepository, timeout(1000)).markAsFinished(eq(jobInfo.getId()), eq(InternetUtils.getInstanceId()), eq(ResultCode.TIMED_OUT), anyString());
+        verify(jobInfoRepository).addAdditionalData(eq(jobInfo.getId()), eq(JobWatchdog.THREAD_DUMP), anyString());
+        assertFalse(watchdog.unwatch(jobInfo.getId()));
+    }
+
+    @Test
+    public void testJobWithinTimeIsNotInterrupted() throws Exception {
+        final JobInfo jobInfo = runningJobInfo(new Date(), 60000L, 60000L);
+        when(jobInfoRepository.findById(jobInfo.getId())).thenReturn(jobInfo);
+
+        watchdog.check(new JobWatchdog.Deadline(jobInfo.getId(), worker, System.currentTimeMillis()));
+        watchdog.watch(jobInfo.getId(), worker, 0L, 60000L);
+
+        assertFalse(interrupted.await(300, TimeUnit.MILLISECONDS));
+        verify(jobInfoRepository, never()).markAsFinished(anyString(), anyString(), any(ResultCode.class), anyString());
+        assertTrue(watchdog.unwatch(jobInfo.getId()));
+    }
+
+    @Test
+    public void testFinishedJobIsNotWatchedAnymore() throws Exception {
+        final JobInfo jobInfo = new JobInfo(new Date(System.currentTimeMillis() - 1000), "test", "host", "thread", 100L, 100L, 0L, RunningState.QUEUED);
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        when(jobInfoRepository.findById(jobInfo.getId())).thenReturn(jobInfo);
+
+        watchdog.watch(jobInfo.getId(), worker, 0L, 0L);
+
+        assertFalse(interrupted.await(300, TimeUnit.MILLISECONDS));
+        verify(jobInfoRepository, never()).markAsFinished(anyString(), anyString(), any(ResultCode.class), anyString());
+    }
+
+    @Test
+    public void testJobRunningOnOtherInstanceIsNotInterrupted() throws Exception {
+        final JobInfo jobInfo = runningJobInfo(new Date(System.currentTimeMillis() - 1000), 100L, 60000L);
+        jobInfo.setInstanceId("otherInstance");
+        when(jobInfoRepository.findById(jobInfo.getId())).thenReturn(jobInfo);
+
+        watchdog.watch(jobInfo.getId(), worker, 0L, 0L);
+
+        assertFalse(interrupted.await(300, TimeUnit.MILLISECONDS));
+        verify(jobInfoRepository, never()).markAsFinished(anyString(), anyString(), any(ResultCode.class), anyString());
+    }
+
+    @Test
+    public void testUnwatchRemovesDeadline() throws Exception {
+        final JobInfo jobInfo = runningJobInfo(new Date(), 60000L, 60000L);
+
+        watchdog.watch(jobInfo.getId(), worker, 60000L, 60000L);
+        assertTrue(watchdog.unwatch(jobInfo.getId()));
+
+        assertTrue(((DelayQueue<?>) ReflectionTestUtils.getField(watchdog, "deadlines")).isEmpty());
+    }
+
+    private JobInfo runningJobInfo(Date startTime, long maxExecutionTime, long maxIdleTime) {
+        final JobInfo jobInfo = new JobInfo(startTime, "test", "host", "thread", maxIdleTime, maxExecutionTime, 0L, RunningState.RUNNING);
+        jobInfo.setInstanceId(InternetUtils.getInstanceId());
+        ReflectionTestUtils.invokeMethod(jobInfo, "addProperty", JobInfoProperty.ID, new ObjectId());
+        return jobInfo;
+    }
+
+}
@@ -0,0 +1,45 @@
+package de.otto.jobstore.service;
+
+import de.otto.jobstore.common.RemoteJobStatus;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.testng.AssertJUnit.*;
+
+public class RemoteJobStatusParserTest {
+
+    @Test
+    public void testParseFinishedStatus() throws Exception {
+        final RemoteJobStatus status = parse("{\"status\": \"FINISHED\", \"log_lines\": [\"foo\", \"bar\"], \"log_offset\": 5," +
+                " \"result\": {\"ok\": false, \"exit_code\": 2, \"message\": \"failed\"}, \"finish_time\": \"2013-01-01T12:00:00\"," +
+                " \"message\": \"done\"}");
+
+        assertEquals(RemoteJobStatus.Status.FINISHED, status.status);
+        assertEquals(Arrays.asList("foo", "bar"), status.logLines);
+        assertEquals(Integer.valueOf(5), status.logOffset);
+        assertFalse(status.result.ok);
+        assertEquals(2, status.result.exitCode);
+        assertEquals("failed", status.result.message);
+        assertEquals("2013-01-01T12:00:00", status.finishTime);
+        assertEquals("done", status.message);
+    }
+
+    @Test
+    public void testParseSkipsUnknownFieldsAndNullValues() throws Exception {
+        final RemoteJobStatus status = parse("{\"status\": \"RUNNING\", \"pid\": {\"host\": \"foo\", \"ids\": [1, 2]}," +
+                " \"result\": null, \"log_lines\": [\"foo\"]}");
+
+        assertEquals(RemoteJobStatus.Status.RUNNING, status.status);
+        assertEquals(Arrays.asList("foo"), status.logLines);
+        assertNull(status.logOffset);
+        assertNull(status.result);
+    }
+
+    private RemoteJobStatus parse(String json) throws Exception {
+        return RemoteJobStatusParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
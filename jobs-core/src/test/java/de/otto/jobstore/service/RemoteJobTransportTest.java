@@ -0,0 +1,89 @@
+package de.otto.jobstore.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import de.otto.jobstore.common.RemoteJobStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+
+public class RemoteJobTransportTest {
+
+    private HttpServer server;
+    private RemoteJobTransport transport;
+    private URI jobUri;
+    private final Set<InetSocketAddress> clientAddresses = Collections.synchronizedSet(new HashSet<InetSocketAddress>());
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        clientAddresses.clear();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/jobs/demojob/1", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                clientAddresses.add(exchange.getRemoteAddress());
+                final byte[] body = "{\"status\": \"RUNNING\", \"log_lines\": [\"line\"]}".getBytes("UTF-8");
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        transport = new RemoteJobTransport();
+        jobUri = URI.create("http://localhost:" + server.getAddress().getPort() + "/jobs/demojob/1");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testRequestsToSameHostReuseConnection() throws Exception {
+        assertEquals(200, transport.execute(new HttpGet(jobUri)).getStatusCode());
+        assertEquals(200, transport.execute(new HttpGet(jobUri)).getStatusCode());
+
+        assertEquals(1, clientAddresses.size());
+        assertEquals(1, transport.getStats(jobUri).getAvailable());
+        assertEquals(0, transport.getTotalStats().getLeased());
+    }
+
+    @Test
+    public void testStatusRetrieverReleasesConnection() throws Exception {
+        final RemoteJobExecutorStatusRetriever retriever = new RemoteJobExecutorStatusRetriever(transport);
+
+        final RemoteJobStatus status = retriever.getStatus(jobUri);
+        assertNotNull(status);
+        assertEquals(RemoteJobStatus.Status.RUNNING, status.status);
+        assertNotNull(retriever.getStatus(jobUri));
+
+        assertEquals(1, clientAddresses.size());
+        assertEquals(1, transport.getStats(jobUri).getAvailable());
+    }
+
+    @Test
+    public void testIdleConnectionsAreClosed() throws Exception {
+        transport.execute(new HttpGet(jobUri));
+        assertEquals(1, transport.getTotalStats().getAvailable());
+
+        transport.closeIdleConnections(0);
+        assertEquals(0, transport.getTotalStats().getAvailable());
+    }
+
+}